@@ -9,6 +9,7 @@ import org.wise.vle.domain.work.NotebookItem;
 import org.wise.vle.domain.work.StudentWork;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author Hiroki Terashima
@@ -22,4 +23,13 @@ public interface AnnotationDao<T extends Annotation> extends SimpleDao<T> {
     Integer id, Run run, Group period, Workgroup fromWorkgroup, Workgroup toWorkgroup,
     String nodeId, String componentId, StudentWork studentWork, String localNotebookItemId,
     NotebookItem notebookItem, String type);
+
+  /**
+   * Same as getAnnotationsByParams, but reads the matching Annotations one at a time. The stream
+   * must be consumed and closed within a transaction.
+   */
+  Stream<Annotation> streamAnnotationsByParams(
+    Integer id, Run run, Group period, Workgroup fromWorkgroup, Workgroup toWorkgroup,
+    String nodeId, String componentId, StudentWork studentWork, String localNotebookItemId,
+    NotebookItem notebookItem, String type);
 }
@@ -2,6 +2,7 @@ package org.wise.portal.dao.annotation.wise5.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -43,11 +44,28 @@ public class HibernateAnnotationDao extends AbstractHibernateDao<Annotation>
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public List<Annotation> getAnnotationsByParams(
       Integer id, Run run, Group period, Workgroup fromWorkgroup, Workgroup toWorkgroup,
       String nodeId, String componentId, StudentWork studentWork, String localNotebookItemId,
       NotebookItem notebookItem, String type) {
+    return createAnnotationsByParamsQuery(id, run, period, fromWorkgroup, toWorkgroup, nodeId,
+        componentId, studentWork, localNotebookItemId, notebookItem, type).getResultList();
+  }
+
+  @Override
+  public Stream<Annotation> streamAnnotationsByParams(
+      Integer id, Run run, Group period, Workgroup fromWorkgroup, Workgroup toWorkgroup,
+      String nodeId, String componentId, StudentWork studentWork, String localNotebookItemId,
+      NotebookItem notebookItem, String type) {
+    return streamResults(entityManager, createAnnotationsByParamsQuery(id, run, period,
+        fromWorkgroup, toWorkgroup, nodeId, componentId, studentWork, localNotebookItemId,
+        notebookItem, type));
+  }
+
+  private TypedQuery<Annotation> createAnnotationsByParamsQuery(
+      Integer id, Run run, Group period, Workgroup fromWorkgroup, Workgroup toWorkgroup,
+      String nodeId, String componentId, StudentWork studentWork, String localNotebookItemId,
+      NotebookItem notebookItem, String type) {
     Session session = this.getHibernateTemplate().getSessionFactory().getCurrentSession();
     CriteriaBuilder cb = session.getCriteriaBuilder();
     CriteriaQuery<Annotation> cq = cb.createQuery(Annotation.class);
@@ -87,7 +105,6 @@ public class HibernateAnnotationDao extends AbstractHibernateDao<Annotation>
       predicates.add(cb.equal(annotationRoot.get("type"), type));
     }
     cq.select(annotationRoot).where(predicates.toArray(new Predicate[predicates.size()]));
-    TypedQuery<Annotation> query = entityManager.createQuery(cq);
-    return (List<Annotation>) (Object) query.getResultList();
+    return entityManager.createQuery(cq);
   }
 }
@@ -20,6 +20,7 @@
  */
 package org.wise.portal.dao.authentication;
 
+import java.util.Collection;
 import java.util.List;
 
 
@@ -36,4 +37,9 @@ public interface UserDetailsDao<T extends MutableUserDetails> extends SimpleDao<
   T retrieveByGoogleUserId(String googleUserId);
   List<String> retrieveAllStudentUsernames();
   List<String> retrieveAllTeacherUsernames();
+
+  /**
+   * @return the usernames that start with any of the prefixes
+   */
+  List<String> retrieveUsernamesByPrefixes(Collection<String> prefixes);
 }
@@ -20,6 +20,8 @@
  */
 package org.wise.portal.dao.authentication.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import javax.persistence.EntityManager;
@@ -27,6 +29,7 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
 import org.hibernate.Session;
@@ -53,6 +56,8 @@ public class HibernateUserDetailsDao extends AbstractHibernateDao<MutableUserDet
 
   private static final String FIND_ALL_QUERY = "from PersistentUserDetails";
 
+  private static final char LIKE_ESCAPE_CHARACTER = '\\';
+
   private CriteriaBuilder getCriteriaBuilder() {
     Session session = this.getHibernateTemplate().getSessionFactory().getCurrentSession();
     return session.getCriteriaBuilder();
@@ -100,6 +105,28 @@ public class HibernateUserDetailsDao extends AbstractHibernateDao<MutableUserDet
     return query.getResultStream().findFirst().orElse(null);
   }
 
+  public List<String> retrieveUsernamesByPrefixes(Collection<String> prefixes) {
+    if (prefixes.isEmpty()) {
+      return new ArrayList<String>();
+    }
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<String> cq = cb.createQuery(String.class);
+    Root<PersistentUserDetails> persistentUserDetailsRoot = cq.from(PersistentUserDetails.class);
+    List<Predicate> predicates = new ArrayList<>();
+    for (String prefix : prefixes) {
+      predicates.add(cb.like(persistentUserDetailsRoot.get("username"),
+          escapeLikePattern(prefix) + "%", LIKE_ESCAPE_CHARACTER));
+    }
+    cq.select(persistentUserDetailsRoot.get("username"))
+        .where(cb.or(predicates.toArray(new Predicate[predicates.size()])));
+    TypedQuery<String> query = entityManager.createQuery(cq);
+    return query.getResultList();
+  }
+
+  private String escapeLikePattern(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
   public boolean hasUsername(String username) {
     return this.retrieveByName(username) != null;
   }
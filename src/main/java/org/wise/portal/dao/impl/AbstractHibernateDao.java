@@ -25,12 +25,15 @@ package org.wise.portal.dao.impl;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.orm.hibernate5.support.HibernateDaoSupport;
 import org.springframework.transaction.annotation.Transactional;
@@ -43,6 +46,8 @@ import org.wise.portal.dao.SimpleDao;
 public abstract class AbstractHibernateDao<T> extends HibernateDaoSupport
     implements SimpleDao<T> {
 
+  private static final int STREAM_FETCH_SIZE = 100;
+
   @PersistenceContext
   private EntityManager entityManager;
 
@@ -91,6 +96,16 @@ public abstract class AbstractHibernateDao<T> extends HibernateDaoSupport
     return object;
   }
 
+  /**
+   * Streams the results of the query instead of loading them all into a list. Each row is
+   * detached from the session as soon as it is read so that memory use does not grow with the
+   * number of rows. The stream must be consumed and closed within a transaction.
+   */
+  protected <R> Stream<R> streamResults(EntityManager entityManager, TypedQuery<R> query) {
+    query.setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE);
+    return query.getResultStream().peek(entityManager::detach);
+  }
+
   /**
    * Gets a string that will perform a query to retrieve all available objects
    * from the persistent data store.
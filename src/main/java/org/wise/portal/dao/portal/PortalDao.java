@@ -23,6 +23,9 @@
  */
 package org.wise.portal.dao.portal;
 
+import java.io.Serializable;
+
+import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.dao.SimpleDao;
 import org.wise.portal.domain.portal.Portal;
 
@@ -30,4 +33,13 @@ import org.wise.portal.domain.portal.Portal;
  * @author Hiroki Terashima
  */
 public interface PortalDao<T extends Portal> extends SimpleDao<T> {
+
+  /**
+   * Gets the portal without keeping it in the current session, so that it can be shared between
+   * sessions without being flushed by them
+   * @param id id of the portal
+   * @return the detached portal
+   * @throws ObjectNotFoundException when the portal does not exist
+   */
+  T getDetachedById(Serializable id) throws ObjectNotFoundException;
 }
@@ -33,4 +33,10 @@ public interface PortalStatisticsDao<T extends PortalStatistics> extends SimpleD
   List<PortalStatistics> getAllPortalStatistics();
 
   PortalStatistics getLatestPortalStatistics();
+
+  /**
+   * @return new, unsaved PortalStatistics with the current totals of the portal. The totals are
+   *         computed with aggregate queries, so no users, projects or runs are loaded.
+   */
+  PortalStatistics getCurrentPortalStatistics();
 }
@@ -23,7 +23,10 @@
  */
 package org.wise.portal.dao.portal.impl;
 
+import java.io.Serializable;
+
 import org.springframework.stereotype.Repository;
+import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.dao.impl.AbstractHibernateDao;
 import org.wise.portal.dao.portal.PortalDao;
 import org.wise.portal.domain.portal.Portal;
@@ -37,6 +40,14 @@ public class HibernatePortalDao extends AbstractHibernateDao<Portal> implements
 
   private static final String FIND_ALL_QUERY = "from PortalImpl";
 
+  public Portal getDetachedById(Serializable id) throws ObjectNotFoundException {
+    Portal portal = getById(id);
+    if (portal != null) {
+      getHibernateTemplate().evict(portal);
+    }
+    return portal;
+  }
+
   /**
    * @see org.wise.portal.dao.impl.AbstractHibernateDao#getDataObjectClass()
    */
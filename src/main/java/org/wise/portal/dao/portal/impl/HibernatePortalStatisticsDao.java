@@ -23,10 +23,12 @@
  */
 package org.wise.portal.dao.portal.impl;
 
+import java.util.Date;
 import java.util.List;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -36,8 +38,12 @@ import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 import org.wise.portal.dao.impl.AbstractHibernateDao;
 import org.wise.portal.dao.portal.PortalStatisticsDao;
+import org.wise.portal.domain.authentication.impl.StudentUserDetails;
+import org.wise.portal.domain.authentication.impl.TeacherUserDetails;
 import org.wise.portal.domain.portal.PortalStatistics;
 import org.wise.portal.domain.portal.impl.PortalStatisticsImpl;
+import org.wise.portal.domain.project.impl.ProjectImpl;
+import org.wise.portal.domain.run.impl.RunImpl;
 
 @Repository
 public class HibernatePortalStatisticsDao extends AbstractHibernateDao<PortalStatistics>
@@ -77,6 +83,42 @@ public class HibernatePortalStatisticsDao extends AbstractHibernateDao<PortalSta
     Root<PortalStatisticsImpl> portalStatisticsRoot = cq.from(PortalStatisticsImpl.class);
     cq.select(portalStatisticsRoot).orderBy(cb.desc(portalStatisticsRoot.get("timestamp")));
     TypedQuery<PortalStatisticsImpl> query = entityManager.createQuery(cq);
+    query.setMaxResults(1);
     return query.getResultStream().findFirst().orElse(null);
   }
+
+  public PortalStatistics getCurrentPortalStatistics() {
+    PortalStatisticsImpl portalStatistics = new PortalStatisticsImpl();
+    portalStatistics.setTimestamp(new Date());
+    Tuple students = getCountAndSum(StudentUserDetails.class, "numberOfLogins");
+    portalStatistics.setTotalNumberStudents(students.get(0, Long.class));
+    portalStatistics.setTotalNumberStudentLogins(students.get(1, Long.class));
+    Tuple teachers = getCountAndSum(TeacherUserDetails.class, "numberOfLogins");
+    portalStatistics.setTotalNumberTeachers(teachers.get(0, Long.class));
+    portalStatistics.setTotalNumberTeacherLogins(teachers.get(1, Long.class));
+    Tuple runs = getCountAndSum(RunImpl.class, "timesRun");
+    portalStatistics.setTotalNumberRuns(runs.get(0, Long.class));
+    portalStatistics.setTotalNumberProjectsRun(runs.get(1, Long.class));
+    portalStatistics.setTotalNumberProjects(getCount(ProjectImpl.class));
+    return portalStatistics;
+  }
+
+  /**
+   * @return a tuple with the number of rows of the entity and the sum of the integer field over
+   *         those rows, which is 0 if there are no rows
+   */
+  private Tuple getCountAndSum(Class<?> entityClass, String field) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+    Root<?> root = cq.from(entityClass);
+    cq.multiselect(cb.count(root), cb.coalesce(cb.sumAsLong(root.<Integer>get(field)), 0L));
+    return entityManager.createQuery(cq).getSingleResult();
+  }
+
+  private long getCount(Class<?> entityClass) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+    cq.select(cb.count(cq.from(entityClass)));
+    return entityManager.createQuery(cq).getSingleResult();
+  }
 }
@@ -23,6 +23,7 @@
  */
 package org.wise.portal.dao.project;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -101,5 +102,14 @@ public interface ProjectDao<T extends Project> extends SimpleDao<T> {
 
   List<Project> getAllSharedProjects();
 
+  /**
+   * Retrieves the projects with their owners and shared owners, and the user details of each, in
+   * one query
+   *
+   * @param projectIds ids of the projects to retrieve
+   * @return the projects in no particular order
+   */
+  List<Project> getProjectsWithOwners(Collection<Long> projectIds);
+
   long getMaxProjectId();
 }
@@ -25,6 +25,7 @@ package org.wise.portal.dao.project.impl;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -34,6 +35,8 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Fetch;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.persistence.criteria.Subquery;
@@ -240,6 +243,22 @@ public class HibernateProjectDao extends AbstractHibernateDao<Project> implement
     return (List<Project>) (Object) projectResultList;
   }
 
+  @SuppressWarnings("unchecked")
+  public List<Project> getProjectsWithOwners(Collection<Long> projectIds) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<ProjectImpl> cq = cb.createQuery(ProjectImpl.class);
+    Root<ProjectImpl> projectRoot = cq.from(ProjectImpl.class);
+    Fetch<ProjectImpl, UserImpl> ownerFetch = projectRoot.fetch("owner", JoinType.INNER);
+    ownerFetch.fetch("userDetails", JoinType.INNER);
+    Fetch<ProjectImpl, UserImpl> sharedOwnersFetch =
+        projectRoot.fetch("sharedowners", JoinType.LEFT);
+    sharedOwnersFetch.fetch("userDetails", JoinType.LEFT);
+    cq.select(projectRoot).where(projectRoot.get("id").in(projectIds)).distinct(true);
+    TypedQuery<ProjectImpl> query = entityManager.createQuery(cq);
+    List<ProjectImpl> projectResultList = query.getResultList();
+    return (List<Project>) (Object) projectResultList;
+  }
+
   @Override
   public long getMaxProjectId() {
     CriteriaBuilder cb = getCriteriaBuilder();
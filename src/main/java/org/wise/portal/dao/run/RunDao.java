@@ -24,6 +24,7 @@
 package org.wise.portal.dao.run;
 
 import java.util.List;
+import java.util.Map;
 
 import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.dao.SimpleDao;
@@ -47,6 +48,17 @@ public interface RunDao<T extends Run> extends SimpleDao<T> {
    */
   Run retrieveByRunCode(String runcode) throws ObjectNotFoundException;
 
+  /**
+   * Retrieves the run with the given runcode and locks its row until the current transaction
+   * ends. The run's periods are reloaded after the lock is acquired, so their members include
+   * students that were added by transactions that held the lock before.
+   *
+   * @param runcode
+   * @return the <code>Run</code> with the runcode
+   * @throws ObjectNotFoundException if no run has the runcode
+   */
+  Run retrieveByRunCodeForUpdate(String runcode) throws ObjectNotFoundException;
+
   /**
    * Given a field, search type, search term
    *  retrieves a list of Runs from data store.
@@ -84,6 +96,15 @@ public interface RunDao<T extends Run> extends SimpleDao<T> {
    */
   List<Run> getRunListByUser(User user);
 
+  /**
+   * Gets the runs that the user is in as a student and the period that the user is in for each
+   * run.
+   *
+   * @param user
+   * @return <code>Map</code> of run id to period id
+   */
+  Map<Long, Long> getRunPeriodIdsByUser(User user);
+
   /**
    * Retrieves a <code>List</code> of <code>Run</code> that are associated with the
    * given <code>Long</code> project id.
@@ -26,11 +26,15 @@ package org.wise.portal.dao.run.impl;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -42,6 +46,7 @@ import org.springframework.stereotype.Repository;
 import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.dao.impl.AbstractHibernateDao;
 import org.wise.portal.dao.run.RunDao;
+import org.wise.portal.domain.group.Group;
 import org.wise.portal.domain.group.impl.PersistentGroup;
 import org.wise.portal.domain.run.Run;
 import org.wise.portal.domain.run.impl.RunImpl;
@@ -93,6 +98,25 @@ public class HibernateRunDao extends AbstractHibernateDao<Run> implements RunDao
     }
   }
 
+  public Run retrieveByRunCodeForUpdate(String runcode) throws ObjectNotFoundException {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<RunImpl> cq = cb.createQuery(RunImpl.class);
+    Root<RunImpl> runRoot = cq.from(RunImpl.class);
+    cq.select(runRoot).where(cb.equal(runRoot.get("runcode"), runcode))
+        .orderBy(cb.desc(runRoot.get("id")));
+    TypedQuery<RunImpl> query = entityManager.createQuery(cq);
+    query.setLockMode(LockModeType.PESSIMISTIC_WRITE);
+    List<RunImpl> runResult = query.getResultList();
+    if (runResult.size() == 0) {
+      throw new ObjectNotFoundException(runcode, this.getDataObjectClass());
+    }
+    Run run = runResult.get(0);
+    for (Group period : run.getPeriods()) {
+      entityManager.refresh(period);
+    }
+    return run;
+  }
+
   @SuppressWarnings("unchecked")
   public List<Workgroup> getWorkgroupsForRun(Long runId) {
     CriteriaBuilder cb = getCriteriaBuilder();
@@ -151,6 +175,25 @@ public class HibernateRunDao extends AbstractHibernateDao<Run> implements RunDao
     return (List<Run>) (Object) runResultList;
   }
 
+  public Map<Long, Long> getRunPeriodIdsByUser(User user) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+    Root<RunImpl> runRoot = cq.from(RunImpl.class);
+    Root<UserImpl> userRoot = cq.from(UserImpl.class);
+    Root<PersistentGroup> periodGroupRoot = cq.from(PersistentGroup.class);
+    List<Predicate> predicates = new ArrayList<>();
+    predicates.add(cb.equal(userRoot.get("id"), user.getId()));
+    predicates.add(cb.isMember(userRoot.get("id"), periodGroupRoot.<Set<User>>get("members")));
+    predicates.add(cb.isMember(periodGroupRoot, runRoot.<Set<PersistentGroup>>get("periods")));
+    cq.multiselect(runRoot.get("id"), periodGroupRoot.get("id"))
+        .where(predicates.toArray(new Predicate[predicates.size()]));
+    Map<Long, Long> runPeriodIds = new HashMap<Long, Long>();
+    for (Tuple tuple : entityManager.createQuery(cq).getResultList()) {
+      runPeriodIds.put(tuple.get(0, Long.class), tuple.get(1, Long.class));
+    }
+    return runPeriodIds;
+  }
+
   @SuppressWarnings("unchecked")
   public List<Run> getRunsOfProject(Long projectId) {
     CriteriaBuilder cb = getCriteriaBuilder();
@@ -24,6 +24,7 @@
 package org.wise.portal.dao.statistics;
 
 import java.util.List;
+import java.util.Map;
 
 import org.wise.portal.dao.SimpleDao;
 import org.wise.vle.domain.statistics.VLEStatistics;
@@ -37,4 +38,16 @@ public interface VLEStatisticsDao<T extends VLEStatistics> extends SimpleDao<T>
   List<VLEStatistics> getVLEStatistics();
 
   VLEStatistics getLatestVLEStatistics();
+
+  /**
+   * @return the largest id in the entity's table, or null if the table is empty
+   */
+  Integer getMaxId(Class<?> entityClass);
+
+  /**
+   * Counts the rows of the entity's table with fromId < id <= toId, grouped by the value of
+   * typeField. Rows without a type are counted under the null key.
+   */
+  Map<String, Long> getCountsByType(Class<?> entityClass, String typeField, Integer fromId,
+      Integer toId);
 }
@@ -23,13 +23,17 @@
  */
 package org.wise.portal.dao.statistics.impl;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Root;
 
 import org.hibernate.Session;
@@ -98,4 +102,30 @@ public class HibernateVLEStatisticsDao extends AbstractHibernateDao<VLEStatistic
     TypedQuery<VLEStatistics> query = entityManager.createQuery(cq);
     return query.getResultStream().findFirst().orElse(null);
   }
+
+  @Transactional(readOnly=true)
+  public Integer getMaxId(Class<?> entityClass) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<Integer> cq = cb.createQuery(Integer.class);
+    Root<?> root = cq.from(entityClass);
+    cq.select(cb.max(root.<Integer>get("id")));
+    return entityManager.createQuery(cq).getSingleResult();
+  }
+
+  @Transactional(readOnly=true)
+  public Map<String, Long> getCountsByType(Class<?> entityClass, String typeField, Integer fromId,
+      Integer toId) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+    Root<?> root = cq.from(entityClass);
+    Path<Integer> id = root.get("id");
+    Path<String> type = root.get(typeField);
+    cq.multiselect(type, cb.count(root)).where(cb.gt(id, fromId), cb.le(id, toId))
+        .groupBy(type);
+    Map<String, Long> counts = new HashMap<String, Long>();
+    for (Tuple tuple : entityManager.createQuery(cq).getResultList()) {
+      counts.put(tuple.get(0, String.class), tuple.get(1, Long.class));
+    }
+    return counts;
+  }
 }
@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.dao.status.impl;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.wise.portal.dao.ObjectNotFoundException;
+import org.wise.portal.dao.status.StudentStatusDao;
+import org.wise.vle.domain.status.StudentStatus;
+
+/**
+ * StudentStatusDao that keeps the latest status of each workgroup in a Redis hash per run, keyed
+ * by workgroup id, so saving a status and getting the statuses of a run don't touch MySQL. The
+ * statuses saved by this server are written behind to MySQL by HibernateStudentStatusDao on a
+ * fixed delay, so MySQL lags Redis by at most one flush interval. A run's hash is filled from
+ * MySQL the first time its statuses are read.
+ */
+@Repository
+@Primary
+public class RedisStudentStatusDao implements StudentStatusDao<StudentStatus> {
+
+  private static final String RUN_KEY_PREFIX = "studentStatus:run:";
+
+  /**
+   * Field that marks a run's hash as containing the statuses that were in MySQL
+   */
+  private static final String LOADED_FIELD = "loaded";
+
+  private static final long RUN_KEY_TIMEOUT_HOURS = 24;
+
+  @Autowired
+  private StringRedisTemplate stringRedisTemplate;
+
+  @Autowired
+  private HibernateStudentStatusDao hibernateStudentStatusDao;
+
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  /**
+   * Statuses saved since the last flush, by workgroup id
+   */
+  private final Map<Long, StudentStatus> unflushedStudentStatuses =
+      new ConcurrentHashMap<Long, StudentStatus>();
+
+  public void saveStudentStatus(StudentStatus studentStatus) {
+    String key = getRunKey(studentStatus.getRunId());
+    getHashOperations().put(key, String.valueOf(studentStatus.getWorkgroupId()),
+        toJSON(studentStatus));
+    stringRedisTemplate.expire(key, RUN_KEY_TIMEOUT_HOURS, TimeUnit.HOURS);
+    unflushedStudentStatuses.put(studentStatus.getWorkgroupId(), studentStatus);
+  }
+
+  public List<StudentStatus> getStudentStatusesByRunId(Long runId) {
+    Map<String, String> statuses = getHashOperations().entries(getRunKey(runId));
+    if (!statuses.containsKey(LOADED_FIELD)) {
+      loadRun(runId);
+      statuses = getHashOperations().entries(getRunKey(runId));
+    }
+    List<StudentStatus> studentStatuses = new ArrayList<StudentStatus>();
+    for (Map.Entry<String, String> status : statuses.entrySet()) {
+      if (!LOADED_FIELD.equals(status.getKey())) {
+        studentStatuses.add(fromJSON(status.getValue()));
+      }
+    }
+    return studentStatuses;
+  }
+
+  public StudentStatus getStudentStatusByWorkgroupId(Long workgroupId) {
+    StudentStatus studentStatus = unflushedStudentStatuses.get(workgroupId);
+    if (studentStatus != null) {
+      return studentStatus;
+    }
+    return hibernateStudentStatusDao.getStudentStatusByWorkgroupId(workgroupId);
+  }
+
+  /**
+   * Reads from MySQL, so statuses saved by other servers may be up to one flush interval old.
+   */
+  public List<StudentStatus> getStudentStatusesByPeriodId(Long periodId) {
+    return hibernateStudentStatusDao.getStudentStatusesByPeriodId(periodId);
+  }
+
+  /**
+   * Writes the statuses saved since the last flush to MySQL, updating the workgroup's existing row
+   * if it has one and it is not newer. The statuses are only marked as flushed once the
+   * transaction commits, so they are retried on the next flush if the commit fails.
+   */
+  @Transactional
+  @Scheduled(fixedDelayString = "${student.status.flush.interval.ms:10000}")
+  public void flush() {
+    Map<Long, StudentStatus> flushedStudentStatuses = new HashMap<Long, StudentStatus>();
+    for (Map.Entry<Long, StudentStatus> entry : unflushedStudentStatuses.entrySet()) {
+      StudentStatus studentStatus = entry.getValue();
+      StudentStatus savedStudentStatus =
+          hibernateStudentStatusDao.getStudentStatusByWorkgroupId(entry.getKey());
+      if (savedStudentStatus == null) {
+        savedStudentStatus = new StudentStatus(studentStatus.getRunId(),
+            studentStatus.getPeriodId(), studentStatus.getWorkgroupId(), null);
+      }
+      if (!isNewer(savedStudentStatus, studentStatus)) {
+        savedStudentStatus.setTimestamp(studentStatus.getTimestamp());
+        savedStudentStatus.setStatus(studentStatus.getStatus());
+        hibernateStudentStatusDao.save(savedStudentStatus);
+      }
+      flushedStudentStatuses.put(entry.getKey(), studentStatus);
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          removeFlushed(flushedStudentStatuses);
+        }
+      });
+    } else {
+      removeFlushed(flushedStudentStatuses);
+    }
+  }
+
+  /**
+   * @return true iff the saved status was written by another server after the status was saved
+   */
+  private boolean isNewer(StudentStatus savedStudentStatus, StudentStatus studentStatus) {
+    return savedStudentStatus.getTimestamp() != null && studentStatus.getTimestamp() != null
+        && savedStudentStatus.getTimestamp().after(studentStatus.getTimestamp());
+  }
+
+  /**
+   * Removes the flushed statuses unless the workgroup saved a newer status during the flush.
+   */
+  private void removeFlushed(Map<Long, StudentStatus> flushedStudentStatuses) {
+    for (Map.Entry<Long, StudentStatus> entry : flushedStudentStatuses.entrySet()) {
+      unflushedStudentStatuses.remove(entry.getKey(), entry.getValue());
+    }
+  }
+
+  public void save(StudentStatus studentStatus) {
+    saveStudentStatus(studentStatus);
+  }
+
+  public void delete(StudentStatus studentStatus) {
+    unflushedStudentStatuses.remove(studentStatus.getWorkgroupId());
+    getHashOperations().delete(getRunKey(studentStatus.getRunId()),
+        String.valueOf(studentStatus.getWorkgroupId()));
+    hibernateStudentStatusDao.delete(studentStatus);
+  }
+
+  public List<StudentStatus> getList() {
+    return hibernateStudentStatusDao.getList();
+  }
+
+  public StudentStatus getById(Serializable id) throws ObjectNotFoundException {
+    return hibernateStudentStatusDao.getById(id);
+  }
+
+  /**
+   * Adds the run's statuses in MySQL to its hash without replacing statuses that are already in
+   * the hash, which are newer. If a workgroup has more than one row, the latest row is used.
+   */
+  private void loadRun(Long runId) {
+    String key = getRunKey(runId);
+    List<StudentStatus> savedStudentStatuses =
+        hibernateStudentStatusDao.getStudentStatusesByRunId(runId);
+    savedStudentStatuses.sort(Comparator.comparing(StudentStatus::getId).reversed());
+    for (StudentStatus studentStatus : savedStudentStatuses) {
+      getHashOperations().putIfAbsent(key, String.valueOf(studentStatus.getWorkgroupId()),
+          toJSON(studentStatus));
+    }
+    getHashOperations().put(key, LOADED_FIELD, "true");
+    stringRedisTemplate.expire(key, RUN_KEY_TIMEOUT_HOURS, TimeUnit.HOURS);
+  }
+
+  private HashOperations<String, String, String> getHashOperations() {
+    return stringRedisTemplate.opsForHash();
+  }
+
+  private String getRunKey(Long runId) {
+    return RUN_KEY_PREFIX + runId;
+  }
+
+  private String toJSON(StudentStatus studentStatus) {
+    try {
+      return objectMapper.writeValueAsString(studentStatus);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private StudentStatus fromJSON(String json) {
+    try {
+      return objectMapper.readValue(json, StudentStatus.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.wise.portal.dao.SimpleDao;
 import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.user.UserSearchResult;
 
 /**
  * @author Cynick Young
@@ -37,6 +38,18 @@ public interface UserDao<T extends User> extends SimpleDao<T> {
   List<T> retrieveByEmailAddress(String emailAddress);
   T retrieveByGoogleUserId(String googleUserId);
   List<String> retrieveAllUsernames();
+
+  /**
+   * Gets a page of the teachers or students whose field starts with the prefix, ordered by user id.
+   * @param userType "teacher" or "student"
+   * @param field username, firstname, lastname, emailAddress or schoolname (teachers only)
+   * @param prefix start of the field value, or null or empty for all users of the type
+   * @param afterId id of the last user of the previous page, or null for the first page
+   * @param maxResults page size
+   */
+  List<UserSearchResult> searchUsers(String userType, String field, String prefix, Long afterId,
+      int maxResults);
+
   T retrieveByResetPasswordKey(String resetPasswordKey);
   List<User> retrieveStudentsByNameAndBirthday(String firstName, String lastName,
       Integer birthMonth, Integer birthDay);
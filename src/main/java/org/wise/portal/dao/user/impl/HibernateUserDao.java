@@ -21,6 +21,7 @@
 package org.wise.portal.dao.user.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -30,6 +31,7 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
@@ -40,9 +42,11 @@ import org.wise.portal.dao.impl.AbstractHibernateDao;
 import org.wise.portal.dao.user.UserDao;
 import org.wise.portal.domain.authentication.Gender;
 import org.wise.portal.domain.authentication.Schoollevel;
+import org.wise.portal.domain.authentication.impl.PersistentUserDetails;
 import org.wise.portal.domain.authentication.impl.StudentUserDetails;
 import org.wise.portal.domain.authentication.impl.TeacherUserDetails;
 import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.user.UserSearchResult;
 import org.wise.portal.domain.user.impl.UserImpl;
 
 /**
@@ -56,6 +60,13 @@ public class HibernateUserDao extends AbstractHibernateDao<User> implements User
 
   private static final String FIND_ALL_QUERY = "from UserImpl";
 
+  /**
+   * Fields that users can be searched by. Each is indexed, so prefix searches don't scan the
+   * user tables.
+   */
+  private static final List<String> SEARCH_FIELDS =
+      Arrays.asList("username", "firstname", "lastname", "emailAddress", "schoolname");
+
   @Override
   protected String getFindAllQuery() {
     return FIND_ALL_QUERY;
@@ -89,6 +100,52 @@ public class HibernateUserDao extends AbstractHibernateDao<User> implements User
     return query.getResultList();
   }
 
+  public List<UserSearchResult> searchUsers(String userType, String field, String prefix,
+      Long afterId, int maxResults) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<UserSearchResult> cq = cb.createQuery(UserSearchResult.class);
+    Root<UserImpl> userRoot = cq.from(UserImpl.class);
+    Join<UserImpl, PersistentUserDetails> userDetailsJoin = userRoot.join("userDetails");
+    Join<UserImpl, ? extends PersistentUserDetails> userDetails;
+    if ("teacher".equals(userType)) {
+      Join<UserImpl, TeacherUserDetails> teacherUserDetails =
+          cb.treat(userDetailsJoin, TeacherUserDetails.class);
+      cq.select(cb.construct(UserSearchResult.class, userRoot.get("id"),
+          teacherUserDetails.get("username"), teacherUserDetails.get("firstname"),
+          teacherUserDetails.get("lastname"), teacherUserDetails.get("emailAddress"),
+          teacherUserDetails.get("schoolname")));
+      userDetails = teacherUserDetails;
+    } else if ("student".equals(userType)) {
+      Join<UserImpl, StudentUserDetails> studentUserDetails =
+          cb.treat(userDetailsJoin, StudentUserDetails.class);
+      cq.select(cb.construct(UserSearchResult.class, userRoot.get("id"),
+          studentUserDetails.get("username"), studentUserDetails.get("firstname"),
+          studentUserDetails.get("lastname"), studentUserDetails.get("emailAddress")));
+      userDetails = studentUserDetails;
+    } else {
+      throw new IllegalArgumentException("Invalid user type: " + userType);
+    }
+    List<Predicate> predicates = new ArrayList<>();
+    if (prefix != null && !prefix.isEmpty()) {
+      if (!SEARCH_FIELDS.contains(field)) {
+        throw new IllegalArgumentException("Invalid search field: " + field);
+      }
+      predicates.add(cb.like(userDetails.<String>get(field), escapeLike(prefix) + "%", '\\'));
+    }
+    if (afterId != null) {
+      predicates.add(cb.gt(userRoot.get("id"), afterId));
+    }
+    cq.where(predicates.toArray(new Predicate[predicates.size()]))
+        .orderBy(cb.asc(userRoot.get("id")));
+    TypedQuery<UserSearchResult> query = entityManager.createQuery(cq);
+    query.setMaxResults(maxResults);
+    return query.getResultList();
+  }
+
+  private String escapeLike(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
   public User retrieveByUsername(String username) {
     CriteriaBuilder cb = getCriteriaBuilder();
     CriteriaQuery<UserImpl> cq = cb.createQuery(UserImpl.class);
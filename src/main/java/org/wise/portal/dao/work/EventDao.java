@@ -32,6 +32,7 @@ import org.wise.portal.domain.workgroup.Workgroup;
 import org.wise.vle.domain.work.Event;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Domain Access Object for Event
@@ -46,9 +47,33 @@ public interface EventDao<T extends Event> extends SimpleDao<T> {
 
   List<Event> getTeacherEvents(Run run);
 
+  /**
+   * Gets the next page of the run's events in id order, for exporting the events a page at a time.
+   * The returned Events are detached from the session so that they can be discarded after they are
+   * written.
+   *
+   * @param run the run to get events for
+   * @param afterId only get events with an id greater than this, or null to get the first page
+   * @param includeStudentEvents include events from students
+   * @param includeTeacherEvents include events from teachers
+   * @param pageSize maximum number of events to return
+   * @return events of the page. If it has less than pageSize events, it is the last page.
+   */
+  List<Event> getEventsPage(Run run, Integer afterId, boolean includeStudentEvents,
+      boolean includeTeacherEvents, int pageSize);
+
   List<Event> getEventsByParams(Integer id, Run run, Group period,
       Workgroup workgroup, String nodeId, String componentId,
       String componentType, String context, String category, String event,
       List<JSONObject> components);
 
+  /**
+   * Same as getEventsByParams, but reads the matching Events one at a time. The stream must be
+   * consumed and closed within a transaction.
+   */
+  Stream<Event> streamEventsByParams(Integer id, Run run, Group period,
+      Workgroup workgroup, String nodeId, String componentId,
+      String componentType, String context, String category, String event,
+      List<JSONObject> components);
+
 }
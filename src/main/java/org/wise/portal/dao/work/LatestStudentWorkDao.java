@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2008-2020 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.dao.work;
+
+import java.util.List;
+
+import org.wise.portal.dao.SimpleDao;
+import org.wise.portal.domain.group.Group;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.workgroup.Workgroup;
+import org.wise.vle.domain.work.LatestStudentWork;
+import org.wise.vle.domain.work.StudentWork;
+
+/**
+ * Domain Access Object for LatestStudentWork
+ */
+public interface LatestStudentWorkDao<T extends LatestStudentWork> extends SimpleDao<T> {
+
+  /**
+   * @return the LatestStudentWork for the workgroup's component or null if the workgroup has not
+   *         saved any work for the component
+   */
+  LatestStudentWork getLatestStudentWork(Run run, Workgroup workgroup, String nodeId,
+      String componentId);
+
+  /**
+   * Atomically creates the workgroup's LatestStudentWork for the StudentWork's component or moves it
+   * forward to the StudentWork. It is never moved back to a StudentWork with a lower id, so a save
+   * that commits after a newer one does not overwrite it.
+   */
+  void updateLatestStudentWork(StudentWork studentWork);
+
+  /**
+   * @return the latest StudentWork of each workgroup in the run for the component, optionally
+   *         limited to a period and/or workgroup, ordered by serverSaveTime
+   */
+  List<StudentWork> getLatestStudentWorkList(Run run, Group period, Workgroup workgroup,
+      String nodeId, String componentId);
+}
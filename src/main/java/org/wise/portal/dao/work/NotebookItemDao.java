@@ -24,6 +24,7 @@
 package org.wise.portal.dao.work;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.wise.portal.dao.SimpleDao;
 import org.wise.portal.domain.group.Group;
@@ -40,8 +41,12 @@ public interface NotebookItemDao<T extends NotebookItem> extends SimpleDao<T> {
   List<NotebookItem> getNotebookItemListByParams(Integer id, Run run, Group period,
       Workgroup workgroup, String nodeId, String componentId);
 
-  List<NotebookItem> getNotebookItemByGroup(Integer runId, String groupName);
-
   List<NotebookItem> getNotebookItemsExport(Run run);
   List<NotebookItem> getLatestNotebookItemsExport(Run run);
+
+  /**
+   * Same as getLatestNotebookItemsExport, but reads the NotebookItems one at a time. The stream
+   * must be consumed and closed within a transaction.
+   */
+  Stream<NotebookItem> streamLatestNotebookItemsExport(Run run);
 }
@@ -31,6 +31,7 @@ import org.wise.portal.domain.workgroup.Workgroup;
 import org.wise.vle.domain.work.StudentWork;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Domain Access Object for StudentWork
@@ -41,4 +42,20 @@ public interface StudentWorkDao<T extends StudentWork> extends SimpleDao<T> {
   List<StudentWork> getStudentWorkListByParams(Integer id, Run run, Group period,
       Workgroup workgroup, Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId,
       String componentType, List<JSONObject> components);
+
+  /**
+   * Same as getStudentWorkListByParams, but only returns the latest StudentWork for each workgroup.
+   * The latest revision is found by the database so the earlier revisions are never loaded.
+   */
+  List<StudentWork> getLatestStudentWorkListByParams(Integer id, Run run, Group period,
+      Workgroup workgroup, Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId,
+      String componentType, List<JSONObject> components);
+
+  /**
+   * Same as getStudentWorkListByParams, but reads the matching StudentWork one at a time. The
+   * stream must be consumed and closed within a transaction.
+   */
+  Stream<StudentWork> streamStudentWorkListByParams(Integer id, Run run, Group period,
+      Workgroup workgroup, Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId,
+      String componentType, List<JSONObject> components);
 }
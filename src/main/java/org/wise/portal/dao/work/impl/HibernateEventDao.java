@@ -25,14 +25,18 @@ package org.wise.portal.dao.work.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
 
 import org.hibernate.Session;
 import org.json.JSONException;
@@ -42,8 +46,9 @@ import org.wise.portal.dao.impl.AbstractHibernateDao;
 import org.wise.portal.dao.work.EventDao;
 import org.wise.portal.domain.group.Group;
 import org.wise.portal.domain.run.Run;
-import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.user.impl.UserImpl;
 import org.wise.portal.domain.workgroup.Workgroup;
+import org.wise.portal.service.authentication.UserDetailsService;
 import org.wise.vle.domain.work.Event;
 
 /**
@@ -73,11 +78,29 @@ public class HibernateEventDao extends AbstractHibernateDao<Event>
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public List<Event> getEventsByParams(Integer id, Run run, Group period,
       Workgroup workgroup, String nodeId, String componentId,
       String componentType, String context, String category, String event,
       List<JSONObject> components) {
+    return createEventsByParamsQuery(id, run, period, workgroup, nodeId,
+        componentId, componentType, context, category, event, components)
+        .getResultList();
+  }
+
+  @Override
+  public Stream<Event> streamEventsByParams(Integer id, Run run, Group period,
+      Workgroup workgroup, String nodeId, String componentId,
+      String componentType, String context, String category, String event,
+      List<JSONObject> components) {
+    return streamResults(entityManager, createEventsByParamsQuery(id, run,
+        period, workgroup, nodeId, componentId, componentType, context,
+        category, event, components));
+  }
+
+  private TypedQuery<Event> createEventsByParamsQuery(Integer id, Run run,
+      Group period, Workgroup workgroup, String nodeId, String componentId,
+      String componentType, String context, String category, String event,
+      List<JSONObject> components) {
     CriteriaBuilder cb = getCriteriaBuilder();
     CriteriaQuery<Event> cq = cb.createQuery(Event.class);
     Root<Event> eventRoot = cq.from(Event.class);
@@ -87,8 +110,7 @@ public class HibernateEventDao extends AbstractHibernateDao<Event>
     cq.select(eventRoot)
         .where(predicates.toArray(new Predicate[predicates.size()]))
         .orderBy(cb.asc(eventRoot.get("serverSaveTime")));
-    TypedQuery<Event> query = entityManager.createQuery(cq);
-    return (List<Event>) (Object) query.getResultList();
+    return entityManager.createQuery(cq);
   }
 
   @SuppressWarnings("unchecked")
@@ -103,45 +125,73 @@ public class HibernateEventDao extends AbstractHibernateDao<Event>
 
   @Override
   public List<Event> getStudentEvents(Run run) {
-    List<Event> studentEvents = new ArrayList<Event>();
-    List<Event> events = getEvents(run);
-    for (Event event : events) {
-      if (isStudentEvent(event)) {
-        studentEvents.add(event);
-      }
-    }
-    return studentEvents;
+    return getEvents(run, true, false);
   }
 
   @Override
   public List<Event> getTeacherEvents(Run run) {
-    List<Event> teacherEvents = new ArrayList<Event>();
-    List<Event> events = getEvents(run);
-    for (Event event : events) {
-      if (isTeacherEvent(event)) {
-        teacherEvents.add(event);
-      }
-    }
-    return teacherEvents;
+    return getEvents(run, false, true);
   }
 
-  boolean isStudentEvent(Event event) {
-    return isStudentUser(event) || isStudentWorkgroup(event);
+  private List<Event> getEvents(Run run, boolean includeStudentEvents,
+      boolean includeTeacherEvents) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<Event> cq = cb.createQuery(Event.class);
+    Root<Event> eventRoot = cq.from(Event.class);
+    List<Predicate> predicates = getRunEventsPredicates(cb, cq, eventRoot, run,
+        includeStudentEvents, includeTeacherEvents);
+    cq.select(eventRoot).where(predicates.toArray(new Predicate[predicates.size()]));
+    return entityManager.createQuery(cq).getResultList();
   }
 
-  boolean isStudentUser(Event event) {
-    User user = event.getUser();
-    return user != null && user.isStudent();
+  @Override
+  public List<Event> getEventsPage(Run run, Integer afterId, boolean includeStudentEvents,
+      boolean includeTeacherEvents, int pageSize) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<Event> cq = cb.createQuery(Event.class);
+    Root<Event> eventRoot = cq.from(Event.class);
+    List<Predicate> predicates = getRunEventsPredicates(cb, cq, eventRoot, run,
+        includeStudentEvents, includeTeacherEvents);
+    if (afterId != null) {
+      predicates.add(cb.greaterThan(eventRoot.get("id"), afterId));
+    }
+    cq.select(eventRoot).where(predicates.toArray(new Predicate[predicates.size()]))
+        .orderBy(cb.asc(eventRoot.get("id")));
+    List<Event> events = entityManager.createQuery(cq).setMaxResults(pageSize).getResultList();
+    events.forEach(entityManager::detach);
+    return events;
   }
 
-  boolean isStudentWorkgroup(Event event) {
-    Workgroup workgroup = event.getWorkgroup();
-    return workgroup != null && workgroup.isStudentWorkgroup();
+  /**
+   * Gets the predicates for the events of a run. If only one of student or teacher events is
+   * included, the events are filtered by the roles of the user or by the type of workgroup that
+   * saved them.
+   */
+  private List<Predicate> getRunEventsPredicates(CriteriaBuilder cb, CriteriaQuery<?> cq,
+      Root<Event> eventRoot, Run run, boolean includeStudentEvents,
+      boolean includeTeacherEvents) {
+    List<Predicate> predicates = new ArrayList<>();
+    predicates.add(cb.equal(eventRoot.get("run"), run));
+    if (includeStudentEvents && !includeTeacherEvents) {
+      Join<Event, Workgroup> workgroupJoin = eventRoot.join("workgroup", JoinType.LEFT);
+      predicates.add(cb.or(hasRole(cb, cq, eventRoot, UserDetailsService.STUDENT_ROLE),
+          cb.isFalse(workgroupJoin.get("teacherWorkgroup"))));
+    } else if (includeTeacherEvents && !includeStudentEvents) {
+      predicates.add(hasRole(cb, cq, eventRoot, UserDetailsService.TEACHER_ROLE));
+    }
+    return predicates;
   }
 
-  boolean isTeacherEvent(Event event) {
-    User user = event.getUser();
-    return user != null && user.isTeacher();
+  private Predicate hasRole(CriteriaBuilder cb, CriteriaQuery<?> cq, Root<Event> eventRoot,
+      String role) {
+    Subquery<Long> userSubquery = cq.subquery(Long.class);
+    Root<UserImpl> userRoot = userSubquery.from(UserImpl.class);
+    Join<Object, Object> grantedAuthorityJoin = userRoot.join("userDetails")
+        .join("grantedAuthorities");
+    userSubquery.select(userRoot.get("id")).where(
+        cb.equal(userRoot, eventRoot.get("user")),
+        cb.equal(grantedAuthorityJoin.get("authority"), role));
+    return cb.exists(userSubquery);
   }
 
   private List<Predicate> getEventsByParamsPredicates(CriteriaBuilder cb,
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2008-2020 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.dao.work.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.wise.portal.dao.impl.AbstractHibernateDao;
+import org.wise.portal.dao.work.LatestStudentWorkDao;
+import org.wise.portal.domain.group.Group;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.workgroup.Workgroup;
+import org.wise.vle.domain.work.LatestStudentWork;
+import org.wise.vle.domain.work.StudentWork;
+
+@Repository
+public class HibernateLatestStudentWorkDao extends AbstractHibernateDao<LatestStudentWork>
+    implements LatestStudentWorkDao<LatestStudentWork> {
+
+  /**
+   * Inserts the row or, if the workgroup already has one for the component, points it at the
+   * StudentWork only if it is newer than the one the row points at. The period is read before the
+   * studentWorkId is updated because MySQL evaluates the assignments from left to right.
+   */
+  private static final String UPDATE_LATEST_STUDENT_WORK_SQL = "insert into latestStudentWork "
+      + "(runId, periodId, workgroupId, nodeId, componentId, studentWorkId) "
+      + "values (?, ?, ?, ?, ?, ?) on duplicate key update "
+      + "periodId = case when values(studentWorkId) > studentWorkId "
+      + "then values(periodId) else periodId end, "
+      + "studentWorkId = greatest(studentWorkId, values(studentWorkId))";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private CriteriaBuilder getCriteriaBuilder() {
+    Session session = this.getHibernateTemplate().getSessionFactory().getCurrentSession();
+    return session.getCriteriaBuilder();
+  }
+
+  @Override
+  protected String getFindAllQuery() {
+    return null;
+  }
+
+  @Override
+  protected Class<? extends LatestStudentWork> getDataObjectClass() {
+    return LatestStudentWork.class;
+  }
+
+  @Override
+  public LatestStudentWork getLatestStudentWork(Run run, Workgroup workgroup, String nodeId,
+      String componentId) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<LatestStudentWork> cq = cb.createQuery(LatestStudentWork.class);
+    Root<LatestStudentWork> latestStudentWorkRoot = cq.from(LatestStudentWork.class);
+    cq.select(latestStudentWorkRoot).where(
+        cb.equal(latestStudentWorkRoot.get("run"), run),
+        cb.equal(latestStudentWorkRoot.get("workgroup"), workgroup),
+        cb.equal(latestStudentWorkRoot.get("nodeId"), nodeId),
+        cb.equal(latestStudentWorkRoot.get("componentId"), getComponentIdKey(componentId)));
+    return entityManager.createQuery(cq).getResultStream().findFirst().orElse(null);
+  }
+
+  @Override
+  public void updateLatestStudentWork(StudentWork studentWork) {
+    entityManager.createNativeQuery(UPDATE_LATEST_STUDENT_WORK_SQL)
+        .setParameter(1, studentWork.getRun().getId())
+        .setParameter(2, studentWork.getPeriod().getId())
+        .setParameter(3, studentWork.getWorkgroup().getId())
+        .setParameter(4, studentWork.getNodeId())
+        .setParameter(5, getComponentIdKey(studentWork.getComponentId()))
+        .setParameter(6, studentWork.getId())
+        .executeUpdate();
+  }
+
+  /**
+   * StudentWork that is not for a component is stored with an empty componentId instead of null so
+   * that the unique key also covers it.
+   */
+  private String getComponentIdKey(String componentId) {
+    return componentId == null ? "" : componentId;
+  }
+
+  @Override
+  public List<StudentWork> getLatestStudentWorkList(Run run, Group period, Workgroup workgroup,
+      String nodeId, String componentId) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<StudentWork> cq = cb.createQuery(StudentWork.class);
+    Root<LatestStudentWork> latestStudentWorkRoot = cq.from(LatestStudentWork.class);
+    Join<LatestStudentWork, StudentWork> studentWorkJoin = latestStudentWorkRoot
+        .join("studentWork");
+    List<Predicate> predicates = new ArrayList<>();
+    predicates.add(cb.equal(latestStudentWorkRoot.get("run"), run));
+    predicates.add(cb.equal(latestStudentWorkRoot.get("nodeId"), nodeId));
+    predicates.add(cb.equal(latestStudentWorkRoot.get("componentId"),
+        getComponentIdKey(componentId)));
+    if (period != null) {
+      predicates.add(cb.equal(latestStudentWorkRoot.get("period"), period));
+    }
+    if (workgroup != null) {
+      predicates.add(cb.equal(latestStudentWorkRoot.get("workgroup"), workgroup));
+    }
+    cq.select(studentWorkJoin).where(predicates.toArray(new Predicate[predicates.size()]))
+        .orderBy(cb.asc(studentWorkJoin.get("serverSaveTime")));
+    return entityManager.createQuery(cq).getResultList();
+  }
+}
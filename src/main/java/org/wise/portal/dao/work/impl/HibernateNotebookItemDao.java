@@ -2,6 +2,7 @@ package org.wise.portal.dao.work.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -79,24 +80,6 @@ public class HibernateNotebookItemDao extends AbstractHibernateDao<NotebookItem>
     return (List<NotebookItem>) query.getResultList();
   }
 
-  public List<NotebookItem> getNotebookItemByGroup(Integer runId, String groupName) {
-    CriteriaBuilder cb = getCriteriaBuilder();
-    CriteriaQuery<NotebookItem> cq = cb.createQuery(NotebookItem.class);
-    Subquery<Long> subQuery = cq.subquery(Long.class);
-    Root<NotebookItem> subNotebookItemRoot = subQuery.from(NotebookItem.class);
-    List<Predicate> subPredicates = new ArrayList<>();
-    subPredicates.add(cb.equal(subNotebookItemRoot.get("run").get("id"), runId));
-    subPredicates.add(cb.like(subNotebookItemRoot.get("groups"), "%" + groupName + "%"));
-    subQuery.select(cb.max(subNotebookItemRoot.get("id")))
-        .where(subPredicates.toArray(new Predicate[subPredicates.size()]))
-        .groupBy(subNotebookItemRoot.get("workgroup").get("id"),
-        subNotebookItemRoot.get("localNotebookItemId"));
-    Root<NotebookItem> notebookItemRoot = cq.from(NotebookItem.class);
-    cq.select(notebookItemRoot).where(cb.in(notebookItemRoot.get("id")).value(subQuery));
-    TypedQuery<NotebookItem> query = entityManager.createQuery(cq);
-    return (List<NotebookItem>) query.getResultList();
-  }
-
   public List<NotebookItem> getNotebookItemsExport(Run run) {
     CriteriaBuilder cb = getCriteriaBuilder();
     CriteriaQuery<NotebookItem> cq = cb.createQuery(NotebookItem.class);
@@ -109,26 +92,40 @@ public class HibernateNotebookItemDao extends AbstractHibernateDao<NotebookItem>
   }
 
   public List<NotebookItem> getLatestNotebookItemsExport(Run run) {
+    return (List<NotebookItem>) createLatestNotebookItemsExportQuery(run).getResultList();
+  }
+
+  public Stream<NotebookItem> streamLatestNotebookItemsExport(Run run) {
+    return streamResults(entityManager, createLatestNotebookItemsExportQuery(run));
+  }
+
+  private TypedQuery<NotebookItem> createLatestNotebookItemsExportQuery(Run run) {
     CriteriaBuilder cb = getCriteriaBuilder();
     CriteriaQuery<NotebookItem> cq = cb.createQuery(NotebookItem.class);
     Root<NotebookItem> notebookItemRoot = cq.from(NotebookItem.class);
-    Subquery<Long> latestNotebookItemIds = getLatestNotebookItemIds(cb, cq);
+    Subquery<Long> latestNotebookItemIds = getLatestNotebookItemIds(cb, cq, run);
     List<Predicate> predicates = new ArrayList<>();
     predicates.add(cb.equal(notebookItemRoot.get("run"), run));
     predicates.add(notebookItemRoot.get("id").in(latestNotebookItemIds));
     cq.select(notebookItemRoot).where(predicates.toArray(new Predicate[predicates.size()]))
         .orderBy(cb.asc(notebookItemRoot.get("workgroup").get("id")),
         cb.asc(notebookItemRoot.get("id")));
-    TypedQuery<NotebookItem> query = entityManager.createQuery(cq);
-    return (List<NotebookItem>) query.getResultList();
+    return entityManager.createQuery(cq);
   }
 
-  private Subquery<Long> getLatestNotebookItemIds(CriteriaBuilder cb, CriteriaQuery cq) {
+  /**
+   * Gets the id of the latest revision of each of the run's notebook items. The subquery only
+   * reads the run's rows, which notebookItemsRunLatestIndex covers, so its cost depends on the size
+   * of the run rather than on the size of the notebookItems table.
+   */
+  private Subquery<Long> getLatestNotebookItemIds(CriteriaBuilder cb, CriteriaQuery<?> cq,
+      Run run) {
     Subquery<Long> notebookItemSubquery = cq.subquery(Long.class);
     Root<NotebookItem> notebookItemRoot = notebookItemSubquery.from(NotebookItem.class);
     notebookItemSubquery.select(cb.max(notebookItemRoot.get("id")))
+        .where(cb.equal(notebookItemRoot.get("run"), run))
         .groupBy(notebookItemRoot.get("workgroup").get("id"),
         notebookItemRoot.get("localNotebookItemId"));
-    return notebookItemSubquery; 
+    return notebookItemSubquery;
   }
 }
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2008-2020 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.dao.work.impl;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.wise.portal.dao.impl.AbstractHibernateDao;
+import org.wise.portal.dao.work.NotebookItemGroupDao;
+import org.wise.vle.domain.work.NotebookItem;
+import org.wise.vle.domain.work.NotebookItemGroup;
+
+@Repository
+public class HibernateNotebookItemGroupDao extends AbstractHibernateDao<NotebookItemGroup>
+    implements NotebookItemGroupDao<NotebookItemGroup> {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private CriteriaBuilder getCriteriaBuilder() {
+    Session session = this.getHibernateTemplate().getSessionFactory().getCurrentSession();
+    return session.getCriteriaBuilder();
+  }
+
+  @Override
+  protected String getFindAllQuery() {
+    return null;
+  }
+
+  @Override
+  protected Class<? extends NotebookItemGroup> getDataObjectClass() {
+    return NotebookItemGroup.class;
+  }
+
+  @Override
+  public List<NotebookItemGroup> getNotebookItemGroups(NotebookItem notebookItem) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<NotebookItemGroup> cq = cb.createQuery(NotebookItemGroup.class);
+    Root<NotebookItemGroup> notebookItemGroupRoot = cq.from(NotebookItemGroup.class);
+    cq.select(notebookItemGroupRoot)
+        .where(cb.equal(notebookItemGroupRoot.get("notebookItem"), notebookItem));
+    return entityManager.createQuery(cq).getResultList();
+  }
+
+  /**
+   * The subquery only reads the group's rows of the run from notebookItemGroupsRunIndex and joins
+   * them to their NotebookItems, so its cost depends on the number of items in the group rather
+   * than on the size of the run.
+   */
+  @Override
+  public List<NotebookItem> getLatestNotebookItemsInGroup(Integer runId, String groupName) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<NotebookItem> cq = cb.createQuery(NotebookItem.class);
+    Subquery<Long> subQuery = cq.subquery(Long.class);
+    Root<NotebookItemGroup> notebookItemGroupRoot = subQuery.from(NotebookItemGroup.class);
+    Join<NotebookItemGroup, NotebookItem> groupNotebookItemJoin =
+        notebookItemGroupRoot.join("notebookItem");
+    subQuery.select(cb.max(groupNotebookItemJoin.get("id")))
+        .where(cb.equal(notebookItemGroupRoot.get("run").get("id"), runId),
+        cb.equal(notebookItemGroupRoot.get("groupName"), groupName))
+        .groupBy(groupNotebookItemJoin.get("workgroup").get("id"),
+        groupNotebookItemJoin.get("localNotebookItemId"));
+    Root<NotebookItem> notebookItemRoot = cq.from(NotebookItem.class);
+    cq.select(notebookItemRoot).where(cb.in(notebookItemRoot.get("id")).value(subQuery))
+        .orderBy(cb.asc(notebookItemRoot.get("id")));
+    return entityManager.createQuery(cq).getResultList();
+  }
+}
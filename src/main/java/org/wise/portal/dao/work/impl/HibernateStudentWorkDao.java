@@ -23,8 +23,12 @@
  */
 package org.wise.portal.dao.work.impl;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -33,6 +37,7 @@ import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
 
 import org.hibernate.Session;
 import org.json.JSONException;
@@ -74,6 +79,52 @@ public class HibernateStudentWorkDao extends AbstractHibernateDao<StudentWork>
   public List<StudentWork> getStudentWorkListByParams(Integer id, Run run, Group period,
       Workgroup workgroup, Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId,
       String componentType, List<JSONObject> components) {
+    return createStudentWorkListByParamsQuery(id, run, period, workgroup, isAutoSave, isSubmit,
+        nodeId, componentId, componentType, components).getResultList();
+  }
+
+  @Override
+  public List<StudentWork> getLatestStudentWorkListByParams(Integer id, Run run, Group period,
+      Workgroup workgroup, Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId,
+      String componentType, List<JSONObject> components) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<StudentWork> cq = cb.createQuery(StudentWork.class);
+    Root<StudentWork> studentWorkRoot = cq.from(StudentWork.class);
+    List<Predicate> predicates = getStudentWorkListByParamsPredicates(cb, studentWorkRoot, id,
+        run, period, workgroup, isAutoSave, isSubmit, nodeId, componentId, componentType,
+        components);
+    Subquery<Timestamp> latestServerSaveTime = cq.subquery(Timestamp.class);
+    Root<StudentWork> latestRoot = latestServerSaveTime.from(StudentWork.class);
+    List<Predicate> latestPredicates = getStudentWorkListByParamsPredicates(cb, latestRoot, id,
+        run, period, workgroup, isAutoSave, isSubmit, nodeId, componentId, componentType,
+        components);
+    latestPredicates.add(cb.equal(latestRoot.get("workgroup"), studentWorkRoot.get("workgroup")));
+    latestServerSaveTime.select(cb.greatest(latestRoot.<Timestamp>get("serverSaveTime")))
+        .where(latestPredicates.toArray(new Predicate[latestPredicates.size()]));
+    predicates.add(cb.equal(studentWorkRoot.get("serverSaveTime"), latestServerSaveTime));
+    cq.select(studentWorkRoot).where(predicates.toArray(new Predicate[predicates.size()]))
+        .orderBy(cb.asc(studentWorkRoot.get("serverSaveTime")), cb.asc(studentWorkRoot.get("id")));
+
+    // a workgroup can have more than one revision saved at its latest serverSaveTime, in which case
+    // the one that was saved last wins
+    Map<Long, StudentWork> latestWorkPerWorkgroup = new LinkedHashMap<Long, StudentWork>();
+    for (StudentWork studentWork : entityManager.createQuery(cq).getResultList()) {
+      latestWorkPerWorkgroup.put(studentWork.getWorkgroup().getId(), studentWork);
+    }
+    return new ArrayList<StudentWork>(latestWorkPerWorkgroup.values());
+  }
+
+  @Override
+  public Stream<StudentWork> streamStudentWorkListByParams(Integer id, Run run, Group period,
+      Workgroup workgroup, Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId,
+      String componentType, List<JSONObject> components) {
+    return streamResults(entityManager, createStudentWorkListByParamsQuery(id, run, period,
+        workgroup, isAutoSave, isSubmit, nodeId, componentId, componentType, components));
+  }
+
+  private TypedQuery<StudentWork> createStudentWorkListByParamsQuery(Integer id, Run run,
+      Group period, Workgroup workgroup, Boolean isAutoSave, Boolean isSubmit, String nodeId,
+      String componentId, String componentType, List<JSONObject> components) {
     CriteriaBuilder cb = getCriteriaBuilder();
     CriteriaQuery<StudentWork> cq = cb.createQuery(StudentWork.class);
     Root<StudentWork> studentWorkRoot = cq.from(StudentWork.class);
@@ -82,8 +133,7 @@ public class HibernateStudentWorkDao extends AbstractHibernateDao<StudentWork>
         components);
     cq.select(studentWorkRoot).where(predicates.toArray(new Predicate[predicates.size()]))
         .orderBy(cb.asc(studentWorkRoot.get("serverSaveTime")));
-    TypedQuery<StudentWork> query = entityManager.createQuery(cq);
-    return (List<StudentWork>) query.getResultList();
+    return entityManager.createQuery(cq);
   }
 
   private List<Predicate> getStudentWorkListByParamsPredicates(CriteriaBuilder cb,
@@ -24,6 +24,7 @@
 package org.wise.portal.dao.workgroup;
 
 import java.util.List;
+import java.util.Map;
 
 import org.wise.portal.dao.SimpleDao;
 import org.wise.portal.domain.run.Run;
@@ -48,4 +49,11 @@ public interface WorkgroupDao<T extends Workgroup> extends SimpleDao<T> {
    * @return a <code>Workgroup</code> <code>List</code>
    */
   List<T> getListByUser(User user);
+
+  /**
+   * Gets the ids of the workgroups that the specified user is in and the run of each workgroup
+   *
+   * @return <code>Map</code> of workgroup id to run id
+   */
+  Map<Long, Long> getWorkgroupRunIdsByUser(User user);
 }
@@ -24,11 +24,14 @@
 package org.wise.portal.dao.workgroup.impl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -112,4 +115,24 @@ public class HibernateWorkgroupDao extends AbstractHibernateDao<Workgroup>
     List<WorkgroupImpl> runResultList = query.getResultList();
     return (List<Workgroup>) (Object) runResultList;
   }
+
+  public Map<Long, Long> getWorkgroupRunIdsByUser(User user) {
+    CriteriaBuilder cb = getCriteriaBuilder();
+    CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+    Root<WorkgroupImpl> workgroupImplRoot = cq.from(WorkgroupImpl.class);
+    Root<PersistentGroup> persistentGroupRoot = cq.from(PersistentGroup.class);
+    Root<UserImpl> userImplRoot = cq.from(UserImpl.class);
+    List<Predicate> predicates = new ArrayList<>();
+    predicates.add(cb.equal(userImplRoot.get("id"), user.getId()));
+    predicates.add(cb.equal(workgroupImplRoot.get("group"), persistentGroupRoot.get("id")));
+    predicates.add(
+        cb.isMember(userImplRoot.get("id"), persistentGroupRoot.<Set<User>>get("members")));
+    cq.multiselect(workgroupImplRoot.get("id"), workgroupImplRoot.get("run").get("id"))
+        .where(predicates.toArray(new Predicate[predicates.size()]));
+    Map<Long, Long> workgroupRunIds = new HashMap<Long, Long>();
+    for (Tuple tuple : entityManager.createQuery(cq).getResultList()) {
+      workgroupRunIds.put(tuple.get(0, Long.class), tuple.get(1, Long.class));
+    }
+    return workgroupRunIds;
+  }
 }
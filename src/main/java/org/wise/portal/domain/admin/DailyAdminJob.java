@@ -24,12 +24,6 @@
 package org.wise.portal.domain.admin;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
-import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.util.*;
 
@@ -43,10 +37,8 @@ import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicNameValuePair;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -54,22 +46,16 @@ import org.springframework.transaction.annotation.Transactional;
 import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.dao.run.RunDao;
 import org.wise.portal.dao.portal.PortalStatisticsDao;
-import org.wise.portal.dao.project.ProjectDao;
-import org.wise.portal.dao.user.UserDao;
-import org.wise.portal.domain.authentication.MutableUserDetails;
-import org.wise.portal.domain.authentication.impl.StudentUserDetails;
 import org.wise.portal.domain.authentication.impl.TeacherUserDetails;
 import org.wise.portal.domain.portal.Portal;
 import org.wise.portal.domain.portal.PortalStatistics;
-import org.wise.portal.domain.portal.impl.PortalStatisticsImpl;
-import org.wise.portal.domain.project.Project;
 import org.wise.portal.domain.run.Run;
 import org.wise.portal.domain.user.User;
 import org.wise.portal.service.mail.IMailFacade;
 import org.wise.portal.service.portal.PortalService;
 import org.wise.portal.service.portal.PortalStatisticsService;
+import org.wise.portal.service.portal.VLEStatisticsService;
 import org.wise.portal.service.user.UserService;
-import org.wise.vle.domain.statistics.VLEStatistics;
 
 /**
  * Jobs to be run daily such as creating and sending usage reports
@@ -88,12 +74,6 @@ public class DailyAdminJob {
   @Autowired
   private RunDao<Run> runDao;
 
-  @Autowired
-  private UserDao<User> userDao;
-
-  @Autowired
-  private ProjectDao<Project> projectDao;
-
   @Autowired
   private PortalStatisticsDao<PortalStatistics> portalStatisticsDao;
 
@@ -106,6 +86,9 @@ public class DailyAdminJob {
   @Autowired
   private PortalStatisticsService portalStatisticsService;
 
+  @Autowired
+  private VLEStatisticsService vleStatisticsService;
+
   private static final String WISE_HUB_URL = "http://wise5.org/postWISEStatistics.php";
 
   private boolean DEBUG = false;
@@ -127,8 +110,8 @@ public class DailyAdminJob {
     // query for the portal statistics and save a new row in the portalStatistics table
     gatherPortalStatistics();
 
-    // query the vle tables and save a new row in the vleStatistics table
-    gatherVLEStatistics();
+    // count the vle tables and save a new row in the vleStatistics table in the background
+    vleStatisticsService.gatherVLEStatistics();
 
     // create and send a message to uber_admin
     String messageBody = getSummaryMessage();
@@ -157,277 +140,24 @@ public class DailyAdminJob {
   }
 
   /**
-   * query for the portal statistics and save a new row in the portalStatistics table
+   * query for the portal statistics and save a new row in the portalStatistics table. The totals
+   * are counted and summed by the database, so memory use does not depend on the number of users,
+   * projects or runs.
    */
   private void gatherPortalStatistics() {
     debugOutput("gatherPortalStatistics start");
-
-    List<User> allStudents = userDao.retrieveAllStudents();
-    long totalNumberStudents = allStudents.size();
-    debugOutput("Number of students: " + totalNumberStudents);
-
-    List<User> allTeachers = userDao.retrieveAllTeachers();
-    long totalNumberTeachers = allTeachers.size();
-    debugOutput("Number of teachers: " + totalNumberTeachers);
-
-    long totalNumberStudentLogins = 0;
-    for (int x = 0; x < allStudents.size(); x++) {
-      User user = allStudents.get(x);
-      MutableUserDetails userDetails = user.getUserDetails();
-      totalNumberStudentLogins += ((StudentUserDetails) userDetails).getNumberOfLogins();
-    }
-    debugOutput("Number of student logins: " + totalNumberStudentLogins);
-
-    long totalNumberTeacherLogins = 0;
-    for (int x = 0; x < allTeachers.size(); x++) {
-      User user = allTeachers.get(x);
-      MutableUserDetails userDetails = user.getUserDetails();
-      totalNumberTeacherLogins += ((TeacherUserDetails) userDetails).getNumberOfLogins();
-    }
-    debugOutput("Number of teacher logins: " + totalNumberTeacherLogins);
-
-    List<Project> projectList = projectDao.getList();
-    long totalNumberProjects = projectList.size();
-    debugOutput("Number of projects: " + totalNumberProjects);
-
-    List<Run> runList = runDao.getList();
-    long totalNumberRuns = runList.size();
-    debugOutput("Number of runs: " + totalNumberRuns);
-
-    long totalNumberProjectsRun = 0;
-    for (int x = 0; x < runList.size(); x++) {
-      Run run = runList.get(x);
-      Integer timesRun = run.getTimesRun();
-      if (timesRun != null) {
-        totalNumberProjectsRun += timesRun;
-      }
-    }
-    debugOutput("Number of projects run: " + totalNumberProjectsRun);
-
-    PortalStatisticsImpl newPortalStatistics = new PortalStatisticsImpl();
-    newPortalStatistics.setTimestamp(new Date());
-    newPortalStatistics.setTotalNumberStudents(totalNumberStudents);
-    newPortalStatistics.setTotalNumberStudentLogins(totalNumberStudentLogins);
-    newPortalStatistics.setTotalNumberTeachers(totalNumberTeachers);
-    newPortalStatistics.setTotalNumberTeacherLogins(totalNumberTeacherLogins);
-    newPortalStatistics.setTotalNumberProjects(totalNumberProjects);
-    newPortalStatistics.setTotalNumberRuns(totalNumberRuns);
-    newPortalStatistics.setTotalNumberProjectsRun(totalNumberProjectsRun);
-
+    PortalStatistics newPortalStatistics = portalStatisticsDao.getCurrentPortalStatistics();
+    debugOutput("Number of students: " + newPortalStatistics.getTotalNumberStudents());
+    debugOutput("Number of teachers: " + newPortalStatistics.getTotalNumberTeachers());
+    debugOutput("Number of student logins: " + newPortalStatistics.getTotalNumberStudentLogins());
+    debugOutput("Number of teacher logins: " + newPortalStatistics.getTotalNumberTeacherLogins());
+    debugOutput("Number of projects: " + newPortalStatistics.getTotalNumberProjects());
+    debugOutput("Number of runs: " + newPortalStatistics.getTotalNumberRuns());
+    debugOutput("Number of projects run: " + newPortalStatistics.getTotalNumberProjectsRun());
     portalStatisticsDao.save(newPortalStatistics);
     debugOutput("gatherPortalStatistics end");
   }
 
-  public void gatherVLEStatistics() {
-    try {
-      String username = appProperties.getProperty("spring.datasource.username");
-      String password = appProperties.getProperty("spring.datasource.password");
-      String url = appProperties.getProperty("spring.datasource.url");
-      Class.forName("com.mysql.jdbc.Driver").newInstance();
-      Connection conn = DriverManager.getConnection(url, username, password);
-      Statement statement = conn.createStatement();
-      JSONObject vleStatistics = new JSONObject();
-      gatherStepWorkStatistics(statement, vleStatistics);
-      gatherNodeStatistics(statement, vleStatistics);
-      gatherAnnotationStatistics(statement, vleStatistics);
-      gatherHintStatistics(statement, vleStatistics);
-      Date date = new Date();
-      Timestamp timestamp = new Timestamp(date.getTime());
-      vleStatistics.put("timestamp", timestamp.getTime());
-      VLEStatistics vleStatisticsObject = new VLEStatistics();
-      vleStatisticsObject.setTimestamp(timestamp);
-      vleStatisticsObject.setData(vleStatistics.toString());
-      conn.close();
-    } catch (Exception ex) {
-      LoggerFactory.getLogger(getClass()).error(ex.getMessage());
-    }
-  }
-
-  /**
-   * Gather the StepWork statistics. This includes the total number of StepWork rows as well as how
-   * many StepWork rows for each step type.
-   * 
-   * @param statement
-   *                        the object to execute queries
-   * @param vleStatistics
-   *                        the JSONObject to store the statistics in
-   */
-  private void gatherStepWorkStatistics(Statement statement, JSONObject vleStatistics) {
-    try {
-      long stepWorkCount = 0;
-      JSONArray stepWorkNodeTypeCounts = new JSONArray();
-
-      /*
-       * the query to get the total step work rows for each node type e.g.
-       *
-       * nodeType | count(*) ------------------------------ AssessmentListNode | 331053
-       * BrainstormNode | 10936 CarGraphNode | 9 etc.
-       *
-       */
-      ResultSet stepWorkNodeTypeCountQuery = statement.executeQuery(
-          "select node.nodeType, count(*) from stepwork, node where stepwork.node_id=node.id group by nodeType");
-
-      while (stepWorkNodeTypeCountQuery.next()) {
-        String nodeType = stepWorkNodeTypeCountQuery.getString(1);
-        long nodeTypeCount = stepWorkNodeTypeCountQuery.getLong(2);
-        try {
-          if (nodeType != null && !nodeType.toLowerCase().equals("null")) {
-            JSONObject stepWorkNodeTypeObject = new JSONObject();
-            stepWorkNodeTypeObject.put("nodeType", nodeType);
-            stepWorkNodeTypeObject.put("count", nodeTypeCount);
-            stepWorkNodeTypeCounts.put(stepWorkNodeTypeObject);
-            stepWorkCount += nodeTypeCount;
-          }
-        } catch (JSONException e) {
-          e.printStackTrace();
-        }
-      }
-
-      vleStatistics.put("individualStepWorkNodeTypeCounts", stepWorkNodeTypeCounts);
-      vleStatistics.put("totalStepWorkCount", stepWorkCount);
-    } catch (SQLException e) {
-      e.printStackTrace();
-    } catch (JSONException e) {
-      e.printStackTrace();
-    }
-  }
-
-  /**
-   * Gather the Annotation statistics. This includes the total number of Annotation rows as well as
-   * how many Annotation nodes for each annotation type.
-   * 
-   * @param statement
-   *                        the object to execute queries
-   * @param vleStatistics
-   *                        the JSONObject to store the statistics in
-   */
-  private void gatherAnnotationStatistics(Statement statement, JSONObject vleStatistics) {
-    try {
-      ResultSet annotationCountQuery = statement.executeQuery("select count(*) from annotation");
-      if (annotationCountQuery.first()) {
-        long annotationCount = annotationCountQuery.getLong(1);
-        try {
-          vleStatistics.put("totalAnnotationCount", annotationCount);
-        } catch (JSONException e) {
-          e.printStackTrace();
-        }
-      }
-
-      // this will hold all the annotation types e.g. "comment", "score", "flag"
-      Vector<String> annotationTypes = new Vector<String>();
-
-      ResultSet annotationTypeQuery = statement
-          .executeQuery("select distinct type from annotation");
-
-      while (annotationTypeQuery.next()) {
-        String annotationType = annotationTypeQuery.getString(1);
-        annotationTypes.add(annotationType);
-      }
-
-      JSONArray annotationCounts = new JSONArray();
-      for (String annotationType : annotationTypes) {
-        if (annotationType != null && !annotationType.equals("") && !annotationType.equals("null")
-            && !annotationType.equals("NULL")) {
-          ResultSet annotationTypeCountQuery = statement
-              .executeQuery("select count(*) from annotation where type='" + annotationType + "'");
-
-          if (annotationTypeCountQuery.first()) {
-            long annotationTypeCount = annotationTypeCountQuery.getLong(1);
-
-            try {
-              JSONObject annotationObject = new JSONObject();
-              annotationObject.put("annotationType", annotationType);
-              annotationObject.put("count", annotationTypeCount);
-
-              annotationCounts.put(annotationObject);
-            } catch (JSONException e) {
-              e.printStackTrace();
-            }
-          }
-        }
-      }
-      vleStatistics.put("individualAnnotationCounts", annotationCounts);
-    } catch (SQLException e) {
-      e.printStackTrace();
-    } catch (JSONException e) {
-      e.printStackTrace();
-    }
-  }
-
-  /**
-   * Get the node statistics. This includes the total number of step nodes as well as how many step
-   * nodes for each node type.
-   * 
-   * @param statement
-   *                        the object to execute queries
-   * @param vleStatistics
-   *                        the JSONObject to store the statistics in
-   */
-  private void gatherNodeStatistics(Statement statement, JSONObject vleStatistics) {
-    try {
-      long nodeCount = 0;
-      JSONArray nodeTypeCounts = new JSONArray();
-
-      /*
-       * the query to get the total number of nodes for each node type e.g.
-       *
-       * nodeType | count(*) ------------------------------ AssessmentListNode | 3408 BrainstormNode
-       * | 98 CarGraphNode | 9 etc.
-       *
-       */
-      ResultSet nodeTypeCountQuery = statement
-          .executeQuery("select nodeType, count(*) from node group by nodeType");
-
-      while (nodeTypeCountQuery.next()) {
-        String nodeType = nodeTypeCountQuery.getString(1);
-        long nodeTypeCount = nodeTypeCountQuery.getLong(2);
-
-        if (nodeType != null && !nodeType.toLowerCase().equals("null")) {
-          try {
-            JSONObject nodeTypeObject = new JSONObject();
-            nodeTypeObject.put("nodeType", nodeType);
-            nodeTypeObject.put("count", nodeTypeCount);
-            nodeTypeCounts.put(nodeTypeObject);
-            nodeCount += nodeTypeCount;
-          } catch (JSONException e) {
-            e.printStackTrace();
-          }
-        }
-      }
-
-      vleStatistics.put("individualNodeTypeCounts", nodeTypeCounts);
-      vleStatistics.put("totalNodeCount", nodeCount);
-    } catch (SQLException e) {
-      e.printStackTrace();
-    } catch (JSONException e) {
-      e.printStackTrace();
-    }
-  }
-
-  /**
-   * Get the number of times hints were viewed by a student
-   * 
-   * @param statement
-   *                        the object to execute queries
-   * @param vleStatistics
-   *                        the JSONObject to store the statistics in
-   */
-  private void gatherHintStatistics(Statement statement, JSONObject vleStatistics) {
-    try {
-      ResultSet hintCountQuery = statement
-          .executeQuery("select count(*) from stepwork where data like '%hintStates\":[{%]%'");
-
-      if (hintCountQuery.first()) {
-        long hintCount = hintCountQuery.getLong(1);
-        vleStatistics.put("totalHintViewCount", hintCount);
-      }
-    } catch (SQLException e) {
-      e.printStackTrace();
-    } catch (JSONException e) {
-      e.printStackTrace();
-    }
-  }
-
   public String getSummaryMessage() {
     String messageBody = "";
     DateFormat df = DateFormat.getDateInstance(DateFormat.LONG);
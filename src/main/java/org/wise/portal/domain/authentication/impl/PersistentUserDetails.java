@@ -33,6 +33,7 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
@@ -56,7 +57,8 @@ import org.wise.portal.service.authentication.UserDetailsService;
  * @author Laurel Williams
  */
 @Entity
-@Table(name = PersistentUserDetails.DATA_STORE_NAME)
+@Table(name = PersistentUserDetails.DATA_STORE_NAME, indexes = {
+    @Index(columnList = "email_address", name = "user_detailsEmailAddressIndex") })
 @Inheritance(strategy = InheritanceType.JOINED)
 public class PersistentUserDetails implements MutableUserDetails {
 
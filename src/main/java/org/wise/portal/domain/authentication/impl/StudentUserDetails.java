@@ -29,6 +29,7 @@ import java.util.HashMap;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 
@@ -46,7 +47,9 @@ import org.wise.portal.domain.authentication.MutableUserDetails;
  * @author Hiroki Terashima
  */
 @Entity
-@Table(name = StudentUserDetails.DATA_STORE_NAME)
+@Table(name = StudentUserDetails.DATA_STORE_NAME, indexes = {
+    @Index(columnList = "firstname", name = "student_user_detailsFirstnameIndex"),
+    @Index(columnList = "lastname", name = "student_user_detailsLastnameIndex") })
 public class StudentUserDetails extends PersistentUserDetails implements MutableUserDetails {
 
   @Transient
@@ -28,6 +28,7 @@ import java.util.HashMap;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 
@@ -45,7 +46,10 @@ import org.wise.portal.domain.authentication.Schoollevel;
  * @author Hiroki Terashima
  */
 @Entity
-@Table(name = TeacherUserDetails.DATA_STORE_NAME)
+@Table(name = TeacherUserDetails.DATA_STORE_NAME, indexes = {
+    @Index(columnList = "firstname", name = "teacher_user_detailsFirstnameIndex"),
+    @Index(columnList = "lastname", name = "teacher_user_detailsLastnameIndex"),
+    @Index(columnList = "schoolname", name = "teacher_user_detailsSchoolnameIndex") })
 public class TeacherUserDetails extends PersistentUserDetails implements MutableUserDetails {
 
   @Transient
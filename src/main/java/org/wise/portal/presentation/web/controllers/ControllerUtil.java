@@ -22,7 +22,6 @@ package org.wise.portal.presentation.web.controllers;
 
 import java.io.BufferedReader;
 import java.io.DataOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.MalformedURLException;
@@ -30,6 +29,7 @@ import java.net.URL;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -88,7 +88,6 @@ public class ControllerUtil {
 
   private static boolean isReCaptchaEnabled = false;
   private static final String PROJECT_THUMB_PATH = "/assets/project_thumb.png";
-  private static final String LICENSE_PATH = "/license.txt";
 
   @Autowired
   public void setAppProperties(Properties appProperties){
@@ -235,7 +234,28 @@ public class ControllerUtil {
     return numStudents;
   }
 
+  /**
+   * Gets the JSON of each project, loading the owners, shared owners and shared owner permissions
+   * of all the projects in bulk instead of one project at a time
+   */
+  public static JSONArray getProjectsJSON(List<Project> projects) throws JSONException {
+    List<Project> projectsWithOwners = projectService.getProjectsWithOwners(projects);
+    Map<Long, Map<Long, List<Permission>>> sharedOwnerPermissions =
+        projectService.getSharedTeacherPermissions(projectsWithOwners);
+    JSONArray projectsJSON = new JSONArray();
+    for (Project project : projectsWithOwners) {
+      projectsJSON.put(getProjectJSON(project, getProjectSharedOwnersJSON(project,
+          sharedOwnerPermissions.get(project.getId()))));
+    }
+    return projectsJSON;
+  }
+
   public static JSONObject getProjectJSON(Project project) throws JSONException {
+    return getProjectJSON(project, getProjectSharedOwnersJSON(project));
+  }
+
+  private static JSONObject getProjectJSON(Project project, JSONArray sharedOwnersJSON)
+      throws JSONException {
     JSONObject projectJSON = new JSONObject();
     projectJSON.put("id", project.getId());
     projectJSON.put("name", project.getName());
@@ -244,7 +264,7 @@ public class ControllerUtil {
     projectJSON.put("dateArchived", project.getDateDeleted());
     projectJSON.put("projectThumb", getProjectPath(project) + PROJECT_THUMB_PATH);
     projectJSON.put("owner", getOwnerJSON(project.getOwner()));
-    projectJSON.put("sharedOwners", getProjectSharedOwnersJSON(project));
+    projectJSON.put("sharedOwners", sharedOwnersJSON);
     projectJSON.put("parentId", project.getParentProjectId());
     projectJSON.put("wiseVersion", project.getWiseVersion());
     projectJSON.put("uri", projectService.getProjectURI(project));
@@ -284,13 +304,31 @@ public class ControllerUtil {
     return sharedOwners;
   }
 
+  /**
+   * @param sharedOwnerPermissions permissions of each shared owner id
+   */
+  private static JSONArray getProjectSharedOwnersJSON(Project project,
+      Map<Long, List<Permission>> sharedOwnerPermissions) throws JSONException {
+    JSONArray sharedOwners = new JSONArray();
+    for (User sharedOwner : project.getSharedowners()) {
+      sharedOwners.put(getSharedOwnerJSON(sharedOwner,
+          getPermissionMasks(sharedOwnerPermissions.get(sharedOwner.getId()))));
+    }
+    return sharedOwners;
+  }
+
   public static JSONObject getSharedOwnerJSON(User sharedOwner, Project project) throws JSONException {
+    return getSharedOwnerJSON(sharedOwner, getSharedOwnerPermissions(project, sharedOwner));
+  }
+
+  private static JSONObject getSharedOwnerJSON(User sharedOwner, JSONArray permissions)
+      throws JSONException {
     JSONObject sharedOwnerJSON = new JSONObject();
     sharedOwnerJSON.put("id", sharedOwner.getId());
     sharedOwnerJSON.put("username", sharedOwner.getUserDetails().getUsername());
     sharedOwnerJSON.put("firstName", sharedOwner.getUserDetails().getFirstname());
     sharedOwnerJSON.put("lastName", sharedOwner.getUserDetails().getLastname());
-    sharedOwnerJSON.put("permissions", getSharedOwnerPermissions(project, sharedOwner));
+    sharedOwnerJSON.put("permissions", permissions);
     return sharedOwnerJSON;
   }
 
@@ -314,12 +352,18 @@ public class ControllerUtil {
   }
 
   public static JSONArray getSharedOwnerPermissions(Project project, User sharedOwner) {
-    JSONArray sharedOwnerPermissions = new JSONArray();
-    List<Permission> sharedTeacherPermissions = ControllerUtil.projectService.getSharedTeacherPermissions(project, sharedOwner);
-    for (Permission permission : sharedTeacherPermissions) {
-      sharedOwnerPermissions.put(permission.getMask());
+    return getPermissionMasks(
+        ControllerUtil.projectService.getSharedTeacherPermissions(project, sharedOwner));
+  }
+
+  private static JSONArray getPermissionMasks(List<Permission> permissions) {
+    JSONArray permissionMasks = new JSONArray();
+    if (permissions != null) {
+      for (Permission permission : permissions) {
+        permissionMasks.put(permission.getMask());
+      }
     }
-    return sharedOwnerPermissions;
+    return permissionMasks;
   }
 
   public static String getProjectPath(Project project) {
@@ -344,13 +388,7 @@ public class ControllerUtil {
   }
 
   public static String getLicensePath(Project project) {
-    String licensePath = getProjectLocalPath(project) + LICENSE_PATH;
-    File licenseFile = new File(licensePath);
-    if (licenseFile.isFile()) {
-      return getProjectPath(project) + LICENSE_PATH;
-    } else {
-      return "";
-    }
+    return projectService.getLicensePath(project);
   }
 
   /**
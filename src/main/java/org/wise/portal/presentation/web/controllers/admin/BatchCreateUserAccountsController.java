@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -41,6 +42,7 @@ import org.springframework.web.servlet.ModelAndView;
 import org.wise.portal.domain.AccountQuestion;
 import org.wise.portal.domain.authentication.Gender;
 import org.wise.portal.domain.authentication.impl.StudentUserDetails;
+import org.wise.portal.domain.impl.NewStudentAccountParameters;
 import org.wise.portal.domain.project.impl.Projectcode;
 import org.wise.portal.domain.user.BatchCreateUserAccountsUpload;
 import org.wise.portal.domain.user.User;
@@ -59,6 +61,11 @@ import org.wise.portal.service.user.UserService;
 @RequestMapping("/admin/account/batchcreateuseraccounts.html")
 public class BatchCreateUserAccountsController {
 
+  /**
+   * Number of accounts that are created and added to runs in each transaction
+   */
+  private static final int ACCOUNTS_PER_TRANSACTION = 500;
+
   @Autowired
   private UserService userService;
 
@@ -70,6 +77,8 @@ public class BatchCreateUserAccountsController {
       @ModelAttribute("csvFile") BatchCreateUserAccountsUpload csvUpload,
       BindingResult result) throws Exception {
     ArrayList<String> newUsernames = new ArrayList<String>();
+    List<NewStudentAccountParameters> accounts = new ArrayList<NewStudentAccountParameters>();
+    List<StudentUserDetails> userDetailsList = new ArrayList<StudentUserDetails>();
     MultipartFile csvFile = csvUpload.getFile();
     InputStreamReader inputStreamReader = new InputStreamReader(csvFile.getInputStream());
     Gender[] genderArray = {Gender.MALE,Gender.FEMALE,Gender.UNSPECIFIED};
@@ -107,12 +116,26 @@ public class BatchCreateUserAccountsController {
         birthday.set(Calendar.MONTH, birthmonth - 1);  // month is 0-based
         birthday.set(Calendar.DATE, birthdate);
         studentUserDetails.setBirthday(birthday.getTime());
-        User user = userService.createUser(studentUserDetails);
         String accessCode = userInfo[8];
         String period = userInfo[9];
-        Projectcode projectcode = new Projectcode(accessCode,period);
-        studentService.addStudentToRun(user, projectcode);
-        newUsernames.add(studentUserDetails.getUsername());
+        NewStudentAccountParameters account = new NewStudentAccountParameters();
+        account.setUserDetails(studentUserDetails);
+        account.setProjectcode(new Projectcode(accessCode, period));
+        accounts.add(account);
+        userDetailsList.add(studentUserDetails);
+      }
+      userService.assignUsernames(userDetailsList);
+      try {
+        userService.encodePasswords(userDetailsList);
+        for (int i = 0; i < accounts.size(); i += ACCOUNTS_PER_TRANSACTION) {
+          List<NewStudentAccountParameters> accountsInTransaction =
+              accounts.subList(i, Math.min(i + ACCOUNTS_PER_TRANSACTION, accounts.size()));
+          for (User user : studentService.createStudentAccounts(accountsInTransaction)) {
+            newUsernames.add(user.getUserDetails().getUsername());
+          }
+        }
+      } finally {
+        userService.releaseUsernames(userDetailsList);
       }
     } catch (IOException e) {
       e.printStackTrace();
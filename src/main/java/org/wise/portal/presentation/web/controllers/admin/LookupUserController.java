@@ -24,11 +24,13 @@
 package org.wise.portal.presentation.web.controllers.admin;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.validation.BindingResult;
@@ -37,11 +39,14 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.ModelAndView;
 import org.wise.portal.domain.admin.StudentFields;
 import org.wise.portal.domain.admin.TeacherFields;
 import org.wise.portal.domain.impl.LookupUserParameters;
 import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.user.UserSearchResult;
 import org.wise.portal.presentation.validators.LookupUserParametersValidator;
 import org.wise.portal.service.user.UserService;
 
@@ -54,6 +59,18 @@ import org.wise.portal.service.user.UserService;
 @RequestMapping("/admin/account/lookupuser")
 public class LookupUserController {
 
+  /**
+   * Fields that are looked up by prefix through the indexed user search, showing at most
+   * MAX_SEARCH_RESULTS users. The other fields are looked up by exact value.
+   */
+  private static final List<String> TEACHER_SEARCH_FIELDS =
+      Arrays.asList("username", "firstname", "lastname", "emailAddress", "schoolname");
+
+  private static final List<String> STUDENT_SEARCH_FIELDS =
+      Arrays.asList("username", "firstname", "lastname");
+
+  private static final int MAX_SEARCH_RESULTS = 500;
+
   @Autowired
   private UserService userService;
 
@@ -71,6 +88,77 @@ public class LookupUserController {
     String lookupField = param.getLookupField();
     String lookupData = param.getLookupData();
     String userType = request.getParameter("userType");
+    List<String> usernames = new ArrayList<String>();
+    boolean hasMoreResults = false;
+    if (isSearchField(userType, lookupField)) {
+      List<UserSearchResult> users = userService.searchUsers(userType, lookupField, lookupData,
+          null, MAX_SEARCH_RESULTS + 1);
+      hasMoreResults = users.size() > MAX_SEARCH_RESULTS;
+      for (UserSearchResult user : users.subList(0, Math.min(users.size(), MAX_SEARCH_RESULTS))) {
+        usernames.add(user.getUsername());
+      }
+    } else {
+      for (User user : retrieveUsers(userType, lookupField, lookupData)) {
+        usernames.add(user.getUserDetails().getUsername());
+      }
+    }
+    ModelAndView modelAndView = new ModelAndView("admin/account/manageusers");
+    if (hasMoreResults) {
+      modelAndView.addObject("searchResultsLimit", MAX_SEARCH_RESULTS);
+    }
+    if (usernames.isEmpty()) {
+      modelAndView.addObject("message", "No users given search criteria found.");
+    } else {
+      if ("student".equals(request.getParameter("userType"))) {
+        modelAndView.addObject("students", usernames);
+      } else {
+        modelAndView.addObject("teachers", usernames);
+      }
+    }
+    return modelAndView;
+  }
+
+  /**
+   * Gets a page of the teachers or students whose field starts with the query. To get the next
+   * page, pass the id of the last user of this page as after.
+   */
+  @GetMapping("/search")
+  @ResponseBody
+  protected List<UserSearchResult> searchUsers(@RequestParam String userType,
+      @RequestParam(defaultValue = "username") String field,
+      @RequestParam(defaultValue = "") String query,
+      @RequestParam(required = false) Long after,
+      @RequestParam(defaultValue = "100") int limit) {
+    if (!isSearchField(userType, field)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid search field: " + field);
+    }
+    return userService.searchUsers(userType, field, query, after,
+        Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+  }
+
+  @GetMapping
+  public ModelAndView showSearchForm(ModelMap model, @RequestParam String userType) {
+    ModelAndView mav = new ModelAndView();
+    mav.addObject("lookupUserParameters", new LookupUserParameters());
+    model.put("userType", userType);
+    if ("teacher".equals(userType)) {
+      model.put("fields", TeacherFields.values());
+    } else {
+      model.put("fields", StudentFields.values());
+    }
+    return mav;
+  }
+
+  private boolean isSearchField(String userType, String field) {
+    if ("teacher".equals(userType)) {
+      return TEACHER_SEARCH_FIELDS.contains(field);
+    } else if ("student".equals(userType)) {
+      return STUDENT_SEARCH_FIELDS.contains(field);
+    }
+    return false;
+  }
+
+  private List<User> retrieveUsers(String userType, String lookupField, String lookupData) {
     List<User> users = new ArrayList<User>();
     if ("teacher".equals(userType)) {
       if ("id".equals(lookupField)) {
@@ -78,15 +166,6 @@ public class LookupUserController {
         if (user != null) {
           users.add(user);
         }
-      } else if ("firstname".equals(lookupField)) {
-        users = userService.retrieveTeachersByFirstName(lookupData);
-      } else if ("lastname".equals(lookupField)) {
-        users = userService.retrieveTeachersByLastName(lookupData);
-      } else if ("username".equals(lookupField)) {
-        User user = userService.retrieveTeacherByUsername(lookupData);
-        if (user != null) {
-          users.add(user);
-        }
       } else if ("displayname".equals(lookupField)) {
         users = userService.retrieveTeachersByDisplayName(lookupData);
       } else if ("city".equals(lookupField)) {
@@ -95,12 +174,8 @@ public class LookupUserController {
         users = userService.retrieveTeachersByState(lookupData);
       } else if ("country".equals(lookupField)) {
         users = userService.retrieveTeachersByCountry(lookupData);
-      } else if ("schoolname".equals(lookupField)) {
-        users = userService.retrieveTeachersBySchoolName(lookupData);
       } else if ("schoollevel".equals(lookupField)) {
         users = userService.retrieveTeachersBySchoolLevel(lookupData);
-      } else if ("emailAddress".equals(lookupField)) {
-        users = userService.retrieveTeachersByEmail(lookupData);
       }
     } else if ("student".equals(userType)) {
       if ("id".equals(lookupField)) {
@@ -108,46 +183,10 @@ public class LookupUserController {
         if (user != null) {
           users.add(user);
         }
-      } else if ("firstname".equals(lookupField)) {
-        users = userService.retrieveStudentsByFirstName(lookupData);
-      } else if ("lastname".equals(lookupField)) {
-        users = userService.retrieveStudentsByLastName(lookupData);
-      } else if ("username".equals(lookupField)) {
-        User user = userService.retrieveStudentByUsername(lookupData);
-        if (user != null) {
-          users.add(user);
-        }
       } else if ("gender".equals(lookupField)) {
         users = userService.retrieveStudentsByGender(lookupData);
       }
     }
-    ModelAndView modelAndView = new ModelAndView("admin/account/manageusers");
-    List<String> usernames = new ArrayList<String>();
-    for (User user : users) {
-      usernames.add(user.getUserDetails().getUsername());
-    }
-    if (users.size() < 1) {
-      modelAndView.addObject("message", "No users given search criteria found.");
-    } else {
-      if ("student".equals(request.getParameter("userType"))) {
-        modelAndView.addObject("students", usernames);
-      } else {
-        modelAndView.addObject("teachers", usernames);
-      }
-    }
-    return modelAndView;
-  }
-
-  @GetMapping
-  public ModelAndView showSearchForm(ModelMap model, @RequestParam String userType) {
-    ModelAndView mav = new ModelAndView();
-    mav.addObject("lookupUserParameters", new LookupUserParameters());
-    model.put("userType", userType);
-    if ("teacher".equals(userType)) {
-      model.put("fields", TeacherFields.values());
-    } else {
-      model.put("fields", StudentFields.values());
-    }
-    return mav;
+    return users;
   }
 }
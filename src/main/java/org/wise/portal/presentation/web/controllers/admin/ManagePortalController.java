@@ -67,7 +67,7 @@ public class ManagePortalController {
       @RequestParam(value = "portalId", defaultValue = "1") Integer portalId,
       @RequestParam(value = "attr") String attr,
       @RequestParam(value = "val") String val) throws Exception {
-    Portal portal = portalService.getById(portalId);
+    Portal portal = portalService.getByIdForUpdate(portalId);
     try {
       if (attr.equals("portalName")) {
         portal.setPortalName(val);
@@ -36,7 +36,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.wise.portal.domain.authentication.impl.StudentUserDetails;
 import org.wise.portal.domain.authentication.impl.TeacherUserDetails;
 import org.wise.portal.domain.user.User;
-import org.wise.portal.service.authentication.UserDetailsService;
+import org.wise.portal.domain.user.UserSearchResult;
 import org.wise.portal.service.session.SessionService;
 import org.wise.portal.service.user.UserService;
 
@@ -50,9 +50,6 @@ public class ViewAllUsersController{
   @Autowired
   private UserService userService;
 
-  @Autowired
-  private UserDetailsService userDetailsService;
-
   @Autowired
   private SessionService sessionService;
 
@@ -68,7 +65,11 @@ public class ViewAllUsersController{
 
   protected static final String USER_TYPE = "userType";
 
-  private static final String USERNAMES = "usernames";
+  private static final String AFTER = "after";
+
+  private static final String NEXT_AFTER = "nextAfter";
+
+  private static final int USERS_PAGE_SIZE = 500;
 
   private static final String LOGGED_IN_STUDENT_USERNAMES = "loggedInStudentUsernames";
 
@@ -114,15 +115,18 @@ public class ViewAllUsersController{
       modelMap.put("teachersWhoLoggedInSince", teachersWhoLoggedInSince);
     } else {
       String userType = request.getParameter(USER_TYPE);
-      if (userType == null) {
-        List<String> allUsernames = this.userService.retrieveAllUsernames();
-        modelMap.put(USERNAMES, allUsernames);
-      } else if (userType.equals(STUDENT)) {
-        List<String> usernames = this.userDetailsService.retrieveAllStudentUsernames();
-        modelMap.put(STUDENTS, usernames);
-      } else if (userType.equals(TEACHER)) {
-        List<String> usernames = this.userDetailsService.retrieveAllTeacherUsernames();
-        modelMap.put(TEACHERS, usernames);
+      if (STUDENT.equals(userType) || TEACHER.equals(userType)) {
+        String after = request.getParameter(AFTER);
+        List<UserSearchResult> users = userService.searchUsers(userType, null, null,
+            after == null ? null : Long.valueOf(after), USERS_PAGE_SIZE);
+        List<String> usernames = new ArrayList<String>();
+        for (UserSearchResult user : users) {
+          usernames.add(user.getUsername());
+        }
+        modelMap.put(STUDENT.equals(userType) ? STUDENTS : TEACHERS, usernames);
+        if (users.size() == USERS_PAGE_SIZE) {
+          modelMap.put(NEXT_AFTER, users.get(users.size() - 1).getId());
+        }
       }
     }
     return "admin/account/manageusers";
@@ -44,13 +44,10 @@ import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.Authentication;
@@ -85,6 +82,7 @@ import org.wise.portal.service.project.ProjectService;
 import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.session.SessionService;
 import org.wise.portal.service.user.UserService;
+import org.wise.portal.spring.data.redis.MessageEnvelope;
 import org.wise.portal.spring.data.redis.MessagePublisher;
 import org.wise.vle.utils.FileManager;
 
@@ -261,10 +259,8 @@ public class AuthorAPIController {
 
   @GetMapping("/config")
   @ResponseBody
-  @SuppressWarnings("unchecked")
   protected HashMap<String, Object> getDefaultAuthorProjectConfig(Authentication auth,
-      HttpServletRequest request)
-      throws ObjectNotFoundException, JsonMappingException, JsonProcessingException {
+      HttpServletRequest request) throws ObjectNotFoundException {
     HashMap<String, Object> config = new HashMap<String, Object>();
     User user = userService.retrieveUserByUsername(auth.getName());
     String contextPath = request.getContextPath();
@@ -287,11 +283,9 @@ public class AuthorAPIController {
       projectMetadataSettings = portalService.getDefaultProjectMetadataSettings();
     }
     config.put("projectMetadataSettings", projectMetadataSettings);
-    String structures = portal.getStructures();
-    if (structures != null) {
-      ObjectMapper mapper = new ObjectMapper();
-      Map<String, Integer> map = mapper.readValue(structures, Map.class);
-      config.put("automatedAssessmentProjectId", map.get("automatedAssessmentProjectId"));
+    Map<String, Object> structures = portalService.getStructures(new Integer(1));
+    if (!structures.isEmpty()) {
+      config.put("automatedAssessmentProjectId", structures.get("automatedAssessmentProjectId"));
     }
 
     MutableUserDetails userDetails = user.getUserDetails();
@@ -451,11 +445,9 @@ public class AuthorAPIController {
   }
 
   private void notifyCurrentAuthors(Long projectId) throws JSONException {
-    JSONObject message = new JSONObject();
-    message.put("type", "currentAuthors");
-    message.put("topic", String.format("/topic/current-authors/%s", projectId));
-    message.put("currentAuthors", sessionService.getCurrentAuthors(projectId));
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("currentAuthors",
+        String.format("/topic/current-authors/%s", projectId),
+        new JSONArray(sessionService.getCurrentAuthors(projectId)).toString()));
   }
 
   /**
@@ -2,9 +2,6 @@ package org.wise.portal.presentation.web.controllers.author.project;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -13,7 +10,6 @@ import java.util.Properties;
 
 import javax.servlet.http.HttpServletResponse;
 
-import org.apache.commons.io.FileUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.MediaType;
@@ -30,8 +26,10 @@ import org.springframework.web.multipart.MultipartFile;
 import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.domain.project.Project;
 import org.wise.portal.domain.user.User;
+import org.wise.portal.service.asset.AssetUsageService;
 import org.wise.portal.service.project.ProjectService;
 import org.wise.portal.service.user.UserService;
+import org.wise.vle.web.AssetManager;
 
 /**
  * Project Asset API endpoint
@@ -53,6 +51,9 @@ public class ProjectAssetAPIController {
   @Autowired
   protected Properties appProperties;
 
+  @Autowired
+  protected AssetUsageService assetUsageService;
+
   @GetMapping("/{projectId}")
   @ResponseBody
   protected Map<String, Object> getProjectAssets(Authentication auth, @PathVariable Long projectId)
@@ -89,7 +90,6 @@ public class ProjectAssetAPIController {
   @SuppressWarnings("unchecked")
   private void addAsset(Project project, File projectAssetsDir, MultipartFile file, User user,
       Map<String, Object> result) throws IOException {
-    long sizeOfAssetsDirectory = FileUtils.sizeOfDirectory(projectAssetsDir);
     Long projectMaxTotalAssetsSize = project.getMaxTotalAssetsSize();
     if (projectMaxTotalAssetsSize == null) {
       projectMaxTotalAssetsSize = new Long(
@@ -100,14 +100,16 @@ public class ProjectAssetAPIController {
     if (!isUserAllowedToUpload(user, file)) {
       fileObject.put("message", "Upload file not allowed.");
       ((ArrayList<HashMap<String, String>>) result.get("error")).add(fileObject);
-    } else if (sizeOfAssetsDirectory + file.getSize() > projectMaxTotalAssetsSize) {
-      fileObject.put("message", "Exceeded project max asset size.\n"
-          + "Please delete unused assets.\n\nContact WISE if your project needs more disk space.");
-      ((ArrayList<HashMap<String, String>>) result.get("error")).add(fileObject);
     } else {
-      Path path = Paths.get(projectAssetsDir.getPath(), file.getOriginalFilename());
-      file.transferTo(path);
-      ((ArrayList<HashMap<String, String>>) result.get("success")).add(fileObject);
+      File asset = new File(projectAssetsDir, file.getOriginalFilename());
+      if (!AssetManager.writeAsset(file, asset, projectAssetsDir, projectMaxTotalAssetsSize)) {
+        fileObject.put("message", "Exceeded project max asset size.\n"
+            + "Please delete unused assets.\n\n"
+            + "Contact WISE if your project needs more disk space.");
+        ((ArrayList<HashMap<String, String>>) result.get("error")).add(fileObject);
+      } else {
+        ((ArrayList<HashMap<String, String>>) result.get("success")).add(fileObject);
+      }
     }
   }
 
@@ -130,7 +132,10 @@ public class ProjectAssetAPIController {
     if (projectService.canAuthorProject(project, user)) {
       String projectAssetsDirPath = getProjectAssetsDirectoryPath(project);
       File asset = new File(projectAssetsDirPath, assetFileName);
-      asset.delete();
+      long assetSize = asset.length();
+      if (asset.delete()) {
+        assetUsageService.addUsedBytes(new File(projectAssetsDirPath), -assetSize);
+      }
       return projectService.getDirectoryInfo(new File(projectAssetsDirPath));
     } else {
       return null;
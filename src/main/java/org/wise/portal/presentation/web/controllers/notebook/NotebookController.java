@@ -1,8 +1,15 @@
 package org.wise.portal.presentation.web.controllers.notebook;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.AccessDeniedException;
 import java.util.List;
 
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.Authentication;
@@ -46,6 +53,9 @@ public class NotebookController {
   @Autowired
   private UserService userService;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
   @Secured("ROLE_TEACHER")
   @ResponseBody
   @GetMapping("/{runId}")
@@ -56,8 +66,6 @@ public class NotebookController {
     if (runService.hasReadPermission(auth, run)) {
       if ("allNotebookItems".equals(exportType)) {
         return vleService.getNotebookItemsExport(run);
-      } else if ("latestNotebookItems".equals(exportType)) {
-        return vleService.getLatestNotebookItemsExport(run);
       } else {
         return vleService.getNotebookItems(run);
       }
@@ -65,6 +73,34 @@ public class NotebookController {
     throw new AccessDeniedException("Not allowed to view notebook items");
   }
 
+  /**
+   * Writes the latest revision of each of the run's notebook items to the response as they are
+   * read from the database, so the export does not need to hold the whole run in memory.
+   */
+  @Secured("ROLE_TEACHER")
+  @GetMapping(value = "/{runId}", params = "exportType=latestNotebookItems")
+  protected void getLatestNotebookItemsExport(@PathVariable Long runId, Authentication auth,
+      HttpServletResponse response) throws ObjectNotFoundException, AccessDeniedException,
+      IOException {
+    Run run = runService.retrieveById(runId);
+    if (!runService.hasReadPermission(auth, run)) {
+      throw new AccessDeniedException("Not allowed to view notebook items");
+    }
+    response.setContentType("application/json;charset=UTF-8");
+    try (JsonGenerator generator =
+        objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+      generator.writeStartArray();
+      vleService.forEachLatestNotebookItemExport(run, notebookItem -> {
+        try {
+          generator.writeObject(notebookItem);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      generator.writeEndArray();
+    }
+  }
+
   @Secured("ROLE_STUDENT")
   @ResponseBody
   @GetMapping("/{runId}/workgroup/{workgroupId}")
@@ -6,6 +6,8 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,12 +15,13 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.wise.portal.dao.ObjectNotFoundException;
-import org.wise.portal.domain.portal.Portal;
 import org.wise.portal.domain.project.Project;
 import org.wise.portal.domain.user.User;
 import org.wise.portal.presentation.web.controllers.ControllerUtil;
-import org.wise.portal.service.portal.PortalService;
+import org.wise.portal.service.project.ProjectLibrary;
+import org.wise.portal.service.project.ProjectLibraryService;
 import org.wise.portal.service.project.ProjectService;
 import org.wise.vle.web.SecurityUtils;
 
@@ -34,49 +37,25 @@ import org.wise.vle.web.SecurityUtils;
 public class ProjectAPIController {
 
   @Autowired
-  PortalService portalService;
+  ProjectLibraryService projectLibraryService;
 
   @Autowired
   ProjectService projectService;
 
+  /**
+   * Returns the project library tree that the signed in user can see, or 304 Not Modified if it
+   * has not changed since the client last got it
+   */
   @GetMapping("/library")
-  protected String getLibraryProjects(ModelMap modelMap) throws ObjectNotFoundException,
-      JSONException {
-    Portal portal = portalService.getById(new Integer(1));
-    String projectLibraryGroups = portal.getProjectLibraryGroups();
-    JSONArray projectLibraryGroupsJSON = new JSONArray(projectLibraryGroups);
-    for (int g = 0; g < projectLibraryGroupsJSON.length(); g++) {
-      JSONObject projectLibraryGroup = projectLibraryGroupsJSON.getJSONObject(g);
-      if (canAccess(projectLibraryGroup)) {
-        populateProjectMetadata(projectLibraryGroup);
-      } else {
-        projectLibraryGroupsJSON.remove(g--);
-      }
-    }
-    return projectLibraryGroupsJSON.toString();
-  }
-
-  private boolean canAccess(JSONObject projectLibraryGroup) throws JSONException {
-    if (!projectLibraryGroup.has("accessRoles")) {
-      return true;
-    }
-    User signedInUser = ControllerUtil.getSignedInUser();
-    if (signedInUser == null) {
-      return false;
-    } else {
-      JSONArray accessRoles = projectLibraryGroup.getJSONArray("accessRoles");
-      for (int a = 0; a < accessRoles.length(); a++) {
-        String accessRole = accessRoles.getString(a);
-        if (accessRole.equals("admin") && signedInUser.isAdmin()) {
-          return true;
-        } else if (accessRole.equals("researcher") && signedInUser.isResearcher()) {
-          return true;
-        } else if (accessRole.equals("teacher") && signedInUser.isTeacher()) {
-          return true;
-        }
-      }
-      return false;
+  protected ResponseEntity<byte[]> getLibraryProjects(WebRequest request)
+      throws ObjectNotFoundException, JSONException {
+    ProjectLibrary projectLibrary =
+        projectLibraryService.getProjectLibrary(ControllerUtil.getSignedInUser());
+    if (request.checkNotModified(projectLibrary.getETag())) {
+      return null;
     }
+    return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate())
+        .eTag(projectLibrary.getETag()).body(projectLibrary.getJSON());
   }
 
   @GetMapping("/community")
@@ -111,36 +90,7 @@ public class ProjectAPIController {
   }
 
   private JSONArray getProjectsJSON(List<Project> projectList) throws JSONException {
-    JSONArray projectsJSON = new JSONArray();
-    for (Project teacherSharedProject : projectList) {
-      projectsJSON.put(ControllerUtil.getProjectJSON(teacherSharedProject));
-    }
-    return projectsJSON;
-  }
-
-  private JSONObject populateProjectMetadata(JSONObject projectLibraryGroup) throws JSONException {
-    if (projectLibraryGroup.getString("type").equals("group")) {
-      JSONArray children = projectLibraryGroup.getJSONArray("children");
-      for (int c = 0; c < children.length(); c++) {
-        JSONObject childJSON = children.getJSONObject(c);
-        if (canAccess(childJSON)) {
-          children.put(c, populateProjectMetadata(childJSON));
-        } else {
-          children.remove(c--);
-        }
-      }
-    } else if (projectLibraryGroup.getString("type").equals("project")) {
-      Integer projectId = projectLibraryGroup.getInt("id");
-      try {
-        Project project = projectService.getById(projectId);
-        JSONObject projectJSON = ControllerUtil.getProjectJSON(project);
-        projectJSON.put("type", "project");
-        return projectJSON;
-      } catch (ObjectNotFoundException e) {
-        e.printStackTrace();
-      }
-    }
-    return projectLibraryGroup;
+    return ControllerUtil.getProjectsJSON(projectList);
   }
 
   @PostMapping("/copy")
@@ -7,7 +7,6 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.annotation.Secured;
@@ -29,6 +28,7 @@ import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.tag.TagService;
 import org.wise.portal.service.user.UserService;
 import org.wise.portal.service.workgroup.WorkgroupService;
+import org.wise.portal.spring.data.redis.MessageEnvelope;
 import org.wise.portal.spring.data.redis.MessagePublisher;
 
 @RestController
@@ -145,11 +145,9 @@ public class WorkgroupTagAPIController {
   }
 
   private void broadcastTags(Workgroup workgroup) throws JSONException, JsonProcessingException {
-    JSONObject message = new JSONObject();
-    message.put("type", "tagsToWorkgroup");
-    message.put("topic", String.format("/topic/workgroup/%s", workgroup.getId()));
     ObjectMapper mapper = new ObjectMapper();
-    message.put("tags", mapper.writeValueAsString(workgroup.getTags()));
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("tagsToWorkgroup",
+        String.format("/topic/workgroup/%s", workgroup.getId()),
+        mapper.writeValueAsString(workgroup.getTags())));
   }
 }
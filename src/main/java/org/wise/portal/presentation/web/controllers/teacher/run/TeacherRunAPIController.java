@@ -21,6 +21,7 @@ import org.wise.portal.domain.user.User;
 import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.user.UserService;
 import org.wise.portal.service.vle.wise5.VLEService;
+import org.wise.portal.spring.data.redis.MessageEnvelope;
 import org.wise.portal.spring.data.redis.MessagePublisher;
 import org.wise.vle.domain.status.StudentStatus;
 
@@ -63,21 +64,15 @@ public class TeacherRunAPIController {
   @MessageMapping("/pause/{runId}/{periodId}")
   public void pausePeriod(@DestinationVariable Integer runId, @DestinationVariable Integer periodId)
       throws Exception {
-    JSONObject message = new JSONObject();
-    message.put("type", "pause");
-    message.put("topic",
-        String.format("/topic/classroom/%s/%s", runId, periodId));
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("pause",
+        String.format("/topic/classroom/%s/%s", runId, periodId)));
   }
 
   @MessageMapping("/unpause/{runId}/{periodId}")
   public void unpausePeriod(@DestinationVariable Integer runId,
       @DestinationVariable Integer periodId) throws Exception {
-    JSONObject message = new JSONObject();
-    message.put("type", "unpause");
-    message.put("topic",
-        String.format("/topic/classroom/%s/%s", runId, periodId));
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("unpause",
+        String.format("/topic/classroom/%s/%s", runId, periodId)));
   }
 
   @MessageMapping("/api/teacher/run/{runId}/workgroup-to-node/{workgroupId}/{nodeId}")
@@ -86,11 +81,8 @@ public class TeacherRunAPIController {
       @DestinationVariable String nodeId) throws ObjectNotFoundException, JSONException {
     Run run = runService.retrieveById(runId);
     if (runService.hasReadPermission(auth, run)) {
-      JSONObject msg = new JSONObject();
-      msg.put("type", "goToNode");
-      msg.put("nodeId", nodeId);
-      msg.put("topic", String.format("/topic/workgroup/%s", workgroupId));
-      redisPublisher.publish(msg.toString());
+      redisPublisher.publish(new MessageEnvelope("goToNode",
+          String.format("/topic/workgroup/%s", workgroupId), nodeId));
     }
   }
 
@@ -100,10 +92,8 @@ public class TeacherRunAPIController {
       throws ObjectNotFoundException, JSONException {
     Run run = runService.retrieveById(runId);
     if (runService.hasReadPermission(auth, run)) {
-      JSONObject msg = new JSONObject();
-      msg.put("type", "goToNextNode");
-      msg.put("topic", String.format("/topic/workgroup/%s", workgroupId));
-      redisPublisher.publish(msg.toString());
+      redisPublisher.publish(new MessageEnvelope("goToNextNode",
+          String.format("/topic/workgroup/%s", workgroupId)));
     }
   }
 
@@ -113,11 +103,8 @@ public class TeacherRunAPIController {
       @DestinationVariable String nodeId) throws ObjectNotFoundException, JSONException {
     Run run = runService.retrieveById(runId);
     if (runService.hasReadPermission(auth, run)) {
-      JSONObject msg = new JSONObject();
-      msg.put("type", "goToNode");
-      msg.put("nodeId", nodeId);
-      msg.put("topic", String.format("/topic/classroom/%s/%s", runId, periodId));
-      redisPublisher.publish(msg.toString());
+      redisPublisher.publish(new MessageEnvelope("goToNode",
+          String.format("/topic/classroom/%s/%s", runId, periodId), nodeId));
     }
   }
 
@@ -127,11 +114,9 @@ public class TeacherRunAPIController {
       throws ObjectNotFoundException, JSONException {
     Run run = runService.retrieveById(runId);
     if (runService.hasReadPermission(auth, run)) {
-      JSONObject msg = new JSONObject();
-      msg.put("type", "node");
-      msg.put("node", new JSONObject(node));
-      msg.put("topic", String.format("/topic/classroom/%s/%s", runId, periodId));
-      redisPublisher.publish(msg.toString());
+      redisPublisher.publish(new MessageEnvelope("node",
+          String.format("/topic/classroom/%s/%s", runId, periodId),
+          new JSONObject(node).toString()));
     }
   }
 }
@@ -20,7 +20,9 @@
  */
 package org.wise.portal.service.acl;
 
+import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.acls.model.Permission;
@@ -74,6 +76,16 @@ public interface AclService<T> extends PermissionEvaluator {
    */
   List<Permission> getPermissions(T object, UserDetails userDetails);
 
+  /**
+   * Gets the Permissions that every user has on each of the specified objects, reading the acls
+   * of all the objects in one lookup.
+   *
+   * @param objects The objects to retrieve the permissions on.
+   * @return The <code>Permission</code>s of each username, by object id. Objects that do not
+   * have an acl are left out.
+   */
+  Map<Serializable, Map<String, List<Permission>>> getPermissions(List<T> objects);
+
   /**
    * Returns <code>boolean</code> true if the given <code>User</code> principle
    * has the given <code>Permission</code> on the give <code>Object</code>, returns
@@ -23,7 +23,9 @@ package org.wise.portal.service.acl.impl;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.hibernate.proxy.HibernateProxyHelper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +33,7 @@ import org.springframework.security.acls.domain.BasePermission;
 import org.springframework.security.acls.domain.ObjectIdentityImpl;
 import org.springframework.security.acls.domain.PrincipalSid;
 import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Acl;
 import org.springframework.security.acls.model.MutableAcl;
 import org.springframework.security.acls.model.MutableAclService;
 import org.springframework.security.acls.model.NotFoundException;
@@ -150,6 +153,51 @@ public class AclServiceImpl<T extends Persistable> implements AclService<T> {
     }
   }
 
+  public Map<Serializable, Map<String, List<Permission>>> getPermissions(List<T> objects) {
+    List<ObjectIdentity> objectIdentities = new ArrayList<ObjectIdentity>();
+    for (T object : objects) {
+      objectIdentities.add(new ObjectIdentityImpl(
+          HibernateProxyHelper.getClassWithoutInitializingProxy(object), object.getId()));
+    }
+    Map<ObjectIdentity, Acl> acls;
+    try {
+      acls = mutableAclService.readAclsById(objectIdentities);
+    } catch (NotFoundException nfe) {
+      acls = readExistingAcls(objectIdentities);
+    }
+    Map<Serializable, Map<String, List<Permission>>> permissions =
+        new HashMap<Serializable, Map<String, List<Permission>>>();
+    for (int i = 0; i < objects.size(); i++) {
+      Acl acl = acls.get(objectIdentities.get(i));
+      if (acl != null) {
+        Map<String, List<Permission>> usernamePermissions =
+            new HashMap<String, List<Permission>>();
+        for (AccessControlEntry ace : acl.getEntries()) {
+          if (ace.getSid() instanceof PrincipalSid) {
+            usernamePermissions.computeIfAbsent(((PrincipalSid) ace.getSid()).getPrincipal(),
+                username -> new ArrayList<Permission>()).add(ace.getPermission());
+          }
+        }
+        permissions.put(objects.get(i).getId(), usernamePermissions);
+      }
+    }
+    return permissions;
+  }
+
+  /**
+   * Reads the acls one at a time, leaving out the objects that do not have one
+   */
+  private Map<ObjectIdentity, Acl> readExistingAcls(List<ObjectIdentity> objectIdentities) {
+    Map<ObjectIdentity, Acl> acls = new HashMap<ObjectIdentity, Acl>();
+    for (ObjectIdentity objectIdentity : objectIdentities) {
+      try {
+        acls.put(objectIdentity, mutableAclService.readAclById(objectIdentity));
+      } catch (NotFoundException nfe) {
+      }
+    }
+    return acls;
+  }
+
   public boolean hasPermission(T object, Permission permission, User user) {
     return hasPermission(object, permission, user.getUserDetails());
   }
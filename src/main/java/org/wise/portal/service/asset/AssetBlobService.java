@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.asset;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Stores one copy of each distinct asset content in a blob folder under curriculum_base_dir and
+ * studentuploads_base_dir, named by the SHA-256 hash of the content. Copied assets are hard links
+ * to the blob, so copying a project or a student upload doesn't copy bytes. Assets must therefore
+ * be replaced, never written in place, when they change.
+ */
+public interface AssetBlobService {
+
+  /**
+   * Copies a project folder. The files in its assets folder are linked to blobs and the other
+   * files, which may be written in place, are copied.
+   * @param projectFolder the folder of the project to copy
+   * @param newProjectFolder the folder of the new project
+   */
+  void copyProjectFolder(File projectFolder, File newProjectFolder) throws IOException;
+
+  /**
+   * Copies a student upload by linking it to a blob
+   * @param studentAsset the uploaded file
+   * @param newStudentAsset the copy
+   */
+  void copyStudentAsset(File studentAsset, File newStudentAsset) throws IOException;
+
+  /**
+   * Deletes the blobs that are no longer linked to any asset
+   * @return the number of blobs that were deleted
+   */
+  int deleteUnusedBlobs();
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.asset;
+
+import java.io.File;
+
+/**
+ * Keeps a count of the bytes used by each asset folder, such as a workgroup's uploads folder in a
+ * run or a project's assets folder, so quota checks don't have to walk the folder. A folder is
+ * scanned the first time its usage is needed and its count is then updated as files are added
+ * and removed. Counts are shared by every server and reconciled with the folder in the background.
+ */
+public interface AssetUsageService {
+
+  /**
+   * @param folder the asset folder
+   * @return the number of bytes used by the files in the folder and its subfolders
+   */
+  long getUsedBytes(File folder);
+
+  /**
+   * Adds bytes to the folder's usage if that keeps it within the maximum. Call before writing
+   * the file, and release the bytes if the file can not be written.
+   * @param folder the asset folder
+   * @param bytes the number of bytes to add
+   * @param maxBytes the maximum usage allowed for the folder
+   * @return true iff the bytes were added
+   */
+  boolean reserveBytes(File folder, long bytes, long maxBytes);
+
+  /**
+   * Adds bytes to the folder's usage after files were added to it, or removes them if bytes is
+   * negative, without checking the maximum. Does nothing if the folder has not been scanned yet,
+   * since scanning it will count the change.
+   * @param folder the asset folder
+   * @param bytes the number of bytes to add
+   */
+  void addUsedBytes(File folder, long bytes);
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.asset.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.wise.portal.service.asset.AssetBlobService;
+import org.wise.vle.utils.FileManager;
+
+/**
+ * Blobs are kept in a .blobs folder in each base folder so that assets and their blobs are on the
+ * same file system and can be hard linked. Blobs are hard links to the first asset with their
+ * content, so a blob is unused once its link count drops to 1. If an asset can't be linked, e.g.
+ * because the file system doesn't support hard links, it is copied instead.
+ */
+@Service
+public class AssetBlobServiceImpl implements AssetBlobService {
+
+  private static final String BLOBS_FOLDER_NAME = ".blobs";
+
+  private static final String ASSETS_FOLDER_NAME = "assets";
+
+  @Autowired
+  private Properties appProperties;
+
+  public void copyProjectFolder(File projectFolder, File newProjectFolder) throws IOException {
+    Path blobsFolder = getBlobsFolder("curriculum_base_dir");
+    Path sourceFolder = projectFolder.toPath();
+    Path assetsFolder = sourceFolder.resolve(ASSETS_FOLDER_NAME);
+    Map<String, String> assetHashes = FileManager.getAssetHashes(assetsFolder.toFile());
+    for (Path path : listFiles(sourceFolder)) {
+      Path target = newProjectFolder.toPath().resolve(sourceFolder.relativize(path));
+      if (Files.isDirectory(path)) {
+        Files.createDirectories(target);
+      } else if (path.startsWith(assetsFolder)) {
+        String hash = assetsFolder.equals(path.getParent())
+            ? assetHashes.get(path.getFileName().toString()) : null;
+        linkOrCopy(blobsFolder, path, target, hash);
+      } else {
+        Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+  }
+
+  public void copyStudentAsset(File studentAsset, File newStudentAsset) throws IOException {
+    linkOrCopy(getBlobsFolder("studentuploads_base_dir"), studentAsset.toPath(),
+        newStudentAsset.toPath(), null);
+  }
+
+  @Scheduled(fixedDelayString = "${asset.blobs.cleanup.interval.ms:86400000}")
+  public int deleteUnusedBlobs() {
+    return deleteUnusedBlobs(getBlobsFolder("curriculum_base_dir"))
+        + deleteUnusedBlobs(getBlobsFolder("studentuploads_base_dir"));
+  }
+
+  /**
+   * Links the target to the blob with the source's content, creating the blob by linking it to the
+   * source if there is no such blob
+   * @param hash the hash of the source's content, or null to hash the source
+   */
+  private void linkOrCopy(Path blobsFolder, Path source, Path target, String hash)
+      throws IOException {
+    if (hash == null) {
+      hash = FileManager.getHash(source.toFile());
+    }
+    Path blob = blobsFolder.resolve(hash.substring(0, 2)).resolve(hash);
+    try {
+      if (!Files.exists(blob) || Files.size(blob) != Files.size(source)) {
+        Files.createDirectories(blob.getParent());
+        Files.deleteIfExists(blob);
+        Files.createLink(blob, source);
+      }
+      Files.deleteIfExists(target);
+      Files.createLink(target, blob);
+    } catch (FileSystemException | UnsupportedOperationException e) {
+      Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private int deleteUnusedBlobs(Path blobsFolder) {
+    int deletedBlobs = 0;
+    if (!Files.isDirectory(blobsFolder)) {
+      return deletedBlobs;
+    }
+    try {
+      for (Path path : listFiles(blobsFolder)) {
+        if (Files.isRegularFile(path) && (Integer) Files.getAttribute(path, "unix:nlink") <= 1
+            && Files.deleteIfExists(path)) {
+          deletedBlobs++;
+        }
+      }
+    } catch (IOException | UnsupportedOperationException e) {
+      e.printStackTrace();
+    }
+    return deletedBlobs;
+  }
+
+  /**
+   * @return the folders and files in the folder, parents before their children
+   */
+  private List<Path> listFiles(Path folder) throws IOException {
+    try (Stream<Path> paths = Files.walk(folder)) {
+      return paths.sorted().collect(Collectors.toList());
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private Path getBlobsFolder(String baseFolderProperty) {
+    return Paths.get(appProperties.getProperty(baseFolderProperty), BLOBS_FOLDER_NAME);
+  }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.asset.impl;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.wise.portal.service.asset.AssetUsageService;
+
+/**
+ * Keeps each folder's usage in a Redis key that expires a day after the folder was scanned, so
+ * usage that drifted from the folder (e.g. files changed outside of WISE) is eventually scanned
+ * again. The folders that this server scanned or changed are also scanned again on a fixed delay.
+ */
+@Service
+public class AssetUsageServiceImpl implements AssetUsageService {
+
+  private static final String KEY_PREFIX = "assetUsage:";
+
+  private static final long KEY_TIMEOUT_HOURS = 24;
+
+  /**
+   * Adds ARGV[1] to the usage in KEYS[1] and returns the new usage, or returns nil if the usage
+   * has expired so that it is not recreated without scanning the folder
+   */
+  private static final RedisScript<Long> ADD_IF_EXISTS_SCRIPT = new DefaultRedisScript<Long>(
+      "if redis.call('exists', KEYS[1]) == 1 then "
+      + "return redis.call('incrby', KEYS[1], ARGV[1]) end return nil", Long.class);
+
+  @Autowired
+  private StringRedisTemplate stringRedisTemplate;
+
+  /**
+   * Paths of the folders scanned or changed by this server since the last reconcile
+   */
+  private final Set<String> activeFolderPaths = ConcurrentHashMap.newKeySet();
+
+  public long getUsedBytes(File folder) {
+    String folderPath = getFolderPath(folder);
+    String usedBytes = stringRedisTemplate.opsForValue().get(getKey(folderPath));
+    if (usedBytes == null) {
+      return load(folderPath);
+    }
+    return Long.parseLong(usedBytes);
+  }
+
+  public boolean reserveBytes(File folder, long bytes, long maxBytes) {
+    String folderPath = getFolderPath(folder);
+    Long usedBytes = add(folderPath, bytes);
+    while (usedBytes == null) {
+      load(folderPath);
+      usedBytes = add(folderPath, bytes);
+    }
+    if (bytes > 0 && usedBytes > maxBytes) {
+      add(folderPath, -bytes);
+      return false;
+    }
+    return true;
+  }
+
+  public void addUsedBytes(File folder, long bytes) {
+    add(getFolderPath(folder), bytes);
+  }
+
+  /**
+   * Scans the folders that this server scanned or changed since the last reconcile and replaces
+   * their usage, unless it has expired. Changes made to a folder while it is being scanned may be
+   * counted twice or not at all until the folder is reconciled again.
+   */
+  @Scheduled(fixedDelayString = "${asset.usage.reconcile.interval.ms:600000}")
+  public void reconcile() {
+    for (String folderPath : activeFolderPaths) {
+      activeFolderPaths.remove(folderPath);
+      stringRedisTemplate.opsForValue().setIfPresent(getKey(folderPath),
+          String.valueOf(scan(folderPath)), KEY_TIMEOUT_HOURS, TimeUnit.HOURS);
+    }
+  }
+
+  /**
+   * Scans the folder and saves its usage unless another request saved it first
+   * @return the saved usage
+   */
+  private long load(String folderPath) {
+    long usedBytes = scan(folderPath);
+    String key = getKey(folderPath);
+    activeFolderPaths.add(folderPath);
+    if (Boolean.FALSE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key,
+        String.valueOf(usedBytes), KEY_TIMEOUT_HOURS, TimeUnit.HOURS))) {
+      String savedUsedBytes = stringRedisTemplate.opsForValue().get(key);
+      if (savedUsedBytes != null) {
+        return Long.parseLong(savedUsedBytes);
+      }
+    }
+    return usedBytes;
+  }
+
+  /**
+   * @return the new usage, or null if the folder's usage has not been saved
+   */
+  private Long add(String folderPath, long bytes) {
+    Long usedBytes = stringRedisTemplate.execute(ADD_IF_EXISTS_SCRIPT,
+        Collections.singletonList(getKey(folderPath)), String.valueOf(bytes));
+    if (usedBytes != null) {
+      activeFolderPaths.add(folderPath);
+    }
+    return usedBytes;
+  }
+
+  private long scan(String folderPath) {
+    File folder = new File(folderPath);
+    if (folder.isDirectory()) {
+      return FileUtils.sizeOfDirectory(folder);
+    }
+    return 0;
+  }
+
+  private String getFolderPath(File folder) {
+    return folder.toPath().toAbsolutePath().normalize().toString();
+  }
+
+  private String getKey(String folderPath) {
+    return KEY_PREFIX + folderPath;
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * An archive of a run's data that is built in the background. The id identifies the contents
+ * that the archive is built from, so two jobs with the same id produce the same archive.
+ */
+public class ExportJob {
+
+  public static final String STATUS_RUNNING = "running";
+
+  public static final String STATUS_DONE = "done";
+
+  public static final String STATUS_FAILED = "failed";
+
+  private final String id;
+
+  private final Long runId;
+
+  private final File archive;
+
+  private final CompletableFuture<File> result = new CompletableFuture<File>();
+
+  public ExportJob(String id, Long runId, File archive) {
+    this.id = id;
+    this.runId = runId;
+    this.archive = archive;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public Long getRunId() {
+    return runId;
+  }
+
+  public File getArchive() {
+    return archive;
+  }
+
+  public String getStatus() {
+    if (!result.isDone()) {
+      return STATUS_RUNNING;
+    }
+    return result.isCompletedExceptionally() ? STATUS_FAILED : STATUS_DONE;
+  }
+
+  /**
+   * Waits until the archive is built
+   * @return the archive
+   * @throws IOException if the archive could not be built
+   */
+  public File awaitArchive() throws IOException, InterruptedException {
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw new IOException("Could not build " + archive.getName(), e.getCause());
+    }
+  }
+
+  public void complete() {
+    result.complete(archive);
+  }
+
+  public void fail(Throwable cause) {
+    result.completeExceptionally(cause);
+  }
+}
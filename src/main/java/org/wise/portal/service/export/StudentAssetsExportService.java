@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.export;
+
+import java.io.IOException;
+
+/**
+ * Builds zip archives of the files that students uploaded in a run. Archives are built on a
+ * background executor and kept on disk until the uploads change.
+ */
+public interface StudentAssetsExportService {
+
+  /**
+   * Starts building an archive of the run's current uploads, unless one is already built or
+   * being built
+   * @param runId id of the run
+   * @return the job that builds the archive
+   * @throws IOException if the run's uploads could not be read
+   */
+  ExportJob exportStudentAssets(Long runId) throws IOException;
+
+  /**
+   * @param runId id of the run
+   * @param jobId id of a job returned by exportStudentAssets
+   * @return the job, or null if there is no such job and no archive that it built
+   */
+  ExportJob getExportJob(Long runId, String jobId);
+}
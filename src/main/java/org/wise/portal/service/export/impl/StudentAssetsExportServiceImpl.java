@@ -0,0 +1,293 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.export.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.wise.portal.service.export.ExportJob;
+import org.wise.portal.service.export.StudentAssetsExportService;
+
+/**
+ * Builds the archive of a run's uploads into export.cache.dir, named by a fingerprint of the
+ * path, size and modified time of every upload. An archive is only built again when the uploads
+ * change, and older archives of the run are deleted once the new one is built. Files that are
+ * already compressed are stored instead of deflated.
+ */
+@Service
+public class StudentAssetsExportServiceImpl implements StudentAssetsExportService {
+
+  private static final Set<String> COMPRESSED_FILE_EXTENSIONS = new HashSet<String>(
+      Arrays.asList("png", "jpg", "jpeg", "gif", "webp", "mp3", "m4a", "mp4", "mov", "webm",
+      "zip"));
+
+  private static final String ARCHIVE_PREFIX = "student_uploads_";
+
+  private static final String ARCHIVE_EXTENSION = ".zip";
+
+  private static final int CRC_BUFFER_SIZE = 65536;
+
+  @Autowired
+  private Properties appProperties;
+
+  @Value("${export.threads:2}")
+  private int exportThreads = 2;
+
+  @Value("${export.cache.dir:}")
+  private String exportCacheDir = "";
+
+  private ExecutorService executor;
+
+  /**
+   * Latest job of each run, by run id
+   */
+  private Map<Long, ExportJob> exportJobs = new ConcurrentHashMap<Long, ExportJob>();
+
+  @PostConstruct
+  public void init() {
+    if (exportCacheDir.isEmpty()) {
+      exportCacheDir = Paths.get(System.getProperty("java.io.tmpdir"), "wise-exports").toString();
+    }
+    executor = Executors.newFixedThreadPool(exportThreads);
+  }
+
+  @PreDestroy
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  public ExportJob exportStudentAssets(Long runId) throws IOException {
+    Path uploadsFolder = getUploadsFolder(runId);
+    String fingerprint = getFingerprint(uploadsFolder);
+    ExportJob newJob = new ExportJob(fingerprint, runId, getArchive(runId, fingerprint));
+    ExportJob job = exportJobs.compute(runId, (id, currentJob) ->
+        canReuse(currentJob, fingerprint) ? currentJob : newJob);
+    if (job == newJob) {
+      if (newJob.getArchive().isFile()) {
+        newJob.complete();
+      } else {
+        executor.execute(() -> buildArchive(uploadsFolder, newJob));
+      }
+    }
+    return job;
+  }
+
+  /**
+   * @return true if the job is building or has built the archive for the fingerprint, and a
+   * built archive has not since been deleted from the cache dir
+   */
+  private boolean canReuse(ExportJob job, String fingerprint) {
+    if (job == null || !job.getId().equals(fingerprint)) {
+      return false;
+    }
+    String status = job.getStatus();
+    return ExportJob.STATUS_RUNNING.equals(status)
+        || (ExportJob.STATUS_DONE.equals(status) && job.getArchive().isFile());
+  }
+
+  public ExportJob getExportJob(Long runId, String jobId) {
+    if (!jobId.matches("[0-9a-f]+")) {
+      return null;
+    }
+    ExportJob job = exportJobs.get(runId);
+    if (canReuse(job, jobId)) {
+      return job;
+    }
+    File archive = getArchive(runId, jobId);
+    if (archive.isFile()) {
+      job = new ExportJob(jobId, runId, archive);
+      job.complete();
+      return job;
+    }
+    return null;
+  }
+
+  private void buildArchive(Path uploadsFolder, ExportJob job) {
+    Path archive = job.getArchive().toPath();
+    try {
+      Files.createDirectories(archive.getParent());
+      Path partialArchive = Files.createTempFile(archive.getParent(), ARCHIVE_PREFIX, ".part");
+      try {
+        writeArchive(uploadsFolder, partialArchive);
+        Files.move(partialArchive, archive, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(partialArchive);
+      }
+      deleteOtherArchives(job);
+      job.complete();
+    } catch (IOException | RuntimeException e) {
+      job.fail(e);
+    }
+  }
+
+  private void writeArchive(Path uploadsFolder, Path archive) throws IOException {
+    try (ZipOutputStream zip = new ZipOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(archive)))) {
+      WritableByteChannel zipChannel = Channels.newChannel(zip);
+      for (Path path : listUploads(uploadsFolder)) {
+        String name = uploadsFolder.relativize(path).toString().replace(File.separatorChar, '/');
+        if (Files.isDirectory(path)) {
+          zip.putNextEntry(new ZipEntry(name + "/"));
+          zip.closeEntry();
+        } else {
+          try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setTime(Files.getLastModifiedTime(path).toMillis());
+            if (isCompressed(name)) {
+              entry.setMethod(ZipEntry.STORED);
+              entry.setSize(file.size());
+              entry.setCompressedSize(file.size());
+              entry.setCrc(getCrc(file));
+            }
+            zip.putNextEntry(entry);
+            transferFully(file, zipChannel);
+            zip.closeEntry();
+          }
+        }
+      }
+    }
+  }
+
+  private void transferFully(FileChannel file, WritableByteChannel target) throws IOException {
+    long size = file.size();
+    long position = 0;
+    while (position < size) {
+      position += file.transferTo(position, size - position, target);
+    }
+  }
+
+  private long getCrc(FileChannel file) throws IOException {
+    CRC32 crc = new CRC32();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(CRC_BUFFER_SIZE);
+    long position = 0;
+    int read;
+    while ((read = file.read(buffer, position)) > 0) {
+      position += read;
+      buffer.flip();
+      crc.update(buffer);
+      buffer.clear();
+    }
+    return crc.getValue();
+  }
+
+  private boolean isCompressed(String name) {
+    int lastIndexOfDot = name.lastIndexOf('.');
+    return lastIndexOfDot != -1 && COMPRESSED_FILE_EXTENSIONS.contains(
+        name.substring(lastIndexOfDot + 1).toLowerCase());
+  }
+
+  /**
+   * @return the folders and files in the uploads folder, in path order
+   */
+  private List<Path> listUploads(Path uploadsFolder) throws IOException {
+    if (!Files.isDirectory(uploadsFolder)) {
+      return Arrays.asList();
+    }
+    try (Stream<Path> paths = Files.walk(uploadsFolder)) {
+      return paths.filter(path -> !path.equals(uploadsFolder)).sorted()
+          .collect(Collectors.toList());
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private String getFingerprint(Path uploadsFolder) throws IOException {
+    StringBuilder fingerprint = new StringBuilder();
+    for (Path path : listUploads(uploadsFolder)) {
+      fingerprint.append(uploadsFolder.relativize(path)).append('\t');
+      if (!Files.isDirectory(path)) {
+        fingerprint.append(Files.size(path)).append('\t')
+            .append(Files.getLastModifiedTime(path).toMillis());
+      }
+      fingerprint.append('\n');
+    }
+    return DigestUtils.md5DigestAsHex(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Deletes the run's archives other than the one the job built. The archive of the run's latest
+   * job is never deleted, so a slow build of older uploads that finishes after a newer build
+   * does not delete the newer archive.
+   */
+  private void deleteOtherArchives(ExportJob job) throws IOException {
+    Path archive = job.getArchive().toPath();
+    try (DirectoryStream<Path> archives = Files.newDirectoryStream(archive.getParent(),
+        ARCHIVE_PREFIX + "*" + ARCHIVE_EXTENSION)) {
+      for (Path otherArchive : archives) {
+        if (!otherArchive.equals(archive) && !isLatestArchive(job.getRunId(), otherArchive)) {
+          Files.deleteIfExists(otherArchive);
+        }
+      }
+    }
+  }
+
+  private boolean isLatestArchive(Long runId, Path archive) {
+    ExportJob latestJob = exportJobs.get(runId);
+    return latestJob != null && latestJob.getArchive().toPath().equals(archive);
+  }
+
+  private Path getUploadsFolder(Long runId) {
+    return Paths.get(appProperties.getProperty("studentuploads_base_dir"), runId.toString());
+  }
+
+  private File getArchive(Long runId, String fingerprint) {
+    return Paths.get(exportCacheDir, runId.toString(),
+        ARCHIVE_PREFIX + fingerprint + ARCHIVE_EXTENSION).toFile();
+  }
+}
@@ -24,6 +24,7 @@
 package org.wise.portal.service.group.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -45,6 +46,7 @@ import org.wise.portal.domain.user.User;
 import org.wise.portal.service.acl.AclService;
 import org.wise.portal.service.group.CyclicalGroupException;
 import org.wise.portal.service.group.GroupService;
+import org.wise.portal.service.membership.MembershipService;
 
 /**
  * A class to provide services for Group objects.
@@ -64,6 +66,9 @@ public class GroupServiceImpl implements GroupService {
   @Autowired
   private AclService<Group> aclService;
 
+  @Autowired
+  private MembershipService membershipService;
+
   @Transactional()
   public void changeGroupName(Group group, String newName) {
     group.setName(newName);
@@ -97,6 +102,7 @@ public class GroupServiceImpl implements GroupService {
 
     groupDao.save(group);
     aclService.addPermission(group, BasePermission.ADMINISTRATION);
+    membershipService.evictMemberships(group.getMembers());
     return group;
   }
 
@@ -114,8 +120,10 @@ public class GroupServiceImpl implements GroupService {
       User user = userDao.getById(userId);
       members.add(user);
     }
+    membershipService.evictMemberships(new HashSet<User>(group.getMembers()));
     group.setMembers(members);
     groupDao.save(group);
+    membershipService.evictMemberships(members);
   }
 
   @Transactional()
@@ -137,6 +145,7 @@ public class GroupServiceImpl implements GroupService {
       group.addMember(member);
     }
     groupDao.save(group);
+    membershipService.evictMemberships(membersToAdd);
   }
 
   @Transactional()
@@ -144,6 +153,7 @@ public class GroupServiceImpl implements GroupService {
     Group group = retrieveById(groupId);
     group.addMember(user);
     groupDao.save(group);
+    membershipService.evictMemberships(Collections.singleton(user));
   }
 
   @Transactional()
@@ -152,12 +162,14 @@ public class GroupServiceImpl implements GroupService {
       group.removeMember(member);
     }
     groupDao.save(group);
+    membershipService.evictMemberships(membersToRemove);
   }
 
   @Transactional()
   public void removeMember(Group group, User memberToRemove) {
     group.removeMember(memberToRemove);
     groupDao.save(group);
+    membershipService.evictMemberships(Collections.singleton(memberToRemove));
   }
 
   /**
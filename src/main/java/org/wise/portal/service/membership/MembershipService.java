@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.membership;
+
+import java.util.Collection;
+
+import org.wise.portal.domain.user.User;
+
+/**
+ * Answers whether a user is in a run, period or workgroup from an index of the user's
+ * memberships, instead of loading the user's runs or workgroups for every check. The index is
+ * cached for a short time and evicted when the group service or workgroup service changes the
+ * user's memberships.
+ */
+public interface MembershipService {
+
+  /**
+   * @return whether the user is in one of the run's periods
+   */
+  boolean isUserInRun(User user, Long runId);
+
+  /**
+   * @return whether the user is in the specified period of the run
+   */
+  boolean isUserInPeriod(User user, Long runId, Long periodId);
+
+  /**
+   * @return whether the user is a member of the workgroup
+   */
+  boolean isUserInWorkgroup(User user, Long workgroupId);
+
+  /**
+   * @return whether the workgroup belongs to the run
+   */
+  boolean isWorkgroupInRun(Long workgroupId, Long runId);
+
+  /**
+   * @return the id of the workgroup's run, or null if there is no such workgroup
+   */
+  Long getWorkgroupRunId(Long workgroupId);
+
+  /**
+   * Evicts the cached memberships of the users after their memberships have changed
+   */
+  void evictMemberships(Collection<User> users);
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.membership;
+
+import java.util.Map;
+
+/**
+ * The runs, periods and workgroups that a user is a member of
+ */
+public class UserMemberships {
+
+  private final Map<Long, Long> runPeriodIds;
+
+  private final Map<Long, Long> workgroupRunIds;
+
+  /**
+   * @param runPeriodIds id of the period that the user is in for each run id
+   * @param workgroupRunIds id of the run of each workgroup that the user is in
+   */
+  public UserMemberships(Map<Long, Long> runPeriodIds, Map<Long, Long> workgroupRunIds) {
+    this.runPeriodIds = runPeriodIds;
+    this.workgroupRunIds = workgroupRunIds;
+  }
+
+  public boolean isInRun(Long runId) {
+    return runPeriodIds.containsKey(runId);
+  }
+
+  public boolean isInPeriod(Long runId, Long periodId) {
+    return periodId.equals(runPeriodIds.get(runId));
+  }
+
+  public boolean isInWorkgroup(Long workgroupId) {
+    return workgroupRunIds.containsKey(workgroupId);
+  }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.membership.impl;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import javax.annotation.PostConstruct;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.wise.portal.dao.ObjectNotFoundException;
+import org.wise.portal.dao.run.RunDao;
+import org.wise.portal.dao.workgroup.WorkgroupDao;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.workgroup.Workgroup;
+import org.wise.portal.service.membership.MembershipService;
+import org.wise.portal.service.membership.UserMemberships;
+
+/**
+ * Keeps the memberships of up to membership.cache.size recently checked users in memory for
+ * membership.cache.ttl.ms. A check
+ * that fails against cached memberships reloads them once, so a membership that was just added,
+ * possibly on another server, is never denied. A membership that was removed on another server
+ * can be allowed until the cached memberships expire.
+ */
+@Service
+public class MembershipServiceImpl implements MembershipService {
+
+  @Autowired
+  private RunDao<Run> runDao;
+
+  @Autowired
+  private WorkgroupDao<Workgroup> workgroupDao;
+
+  @Value("${membership.cache.ttl.ms:30000}")
+  private long membershipsTimeToLiveMillis = 30000;
+
+  @Value("${membership.cache.size:100000}")
+  private long cacheSize = 100000;
+
+  private Cache<Long, UserMemberships> userMemberships;
+
+  /**
+   * Run id of each workgroup that has been checked. A workgroup never moves to another run, so
+   * entries are only dropped when the cache is full or they have not been checked for an hour.
+   */
+  private Cache<Long, Long> workgroupRunIds;
+
+  @PostConstruct
+  public void init() {
+    userMemberships = Caffeine.newBuilder().maximumSize(cacheSize)
+        .expireAfterWrite(membershipsTimeToLiveMillis, TimeUnit.MILLISECONDS).build();
+    workgroupRunIds = Caffeine.newBuilder().maximumSize(cacheSize)
+        .expireAfterAccess(1, TimeUnit.HOURS).build();
+  }
+
+  @Transactional(readOnly = true)
+  public boolean isUserInRun(User user, Long runId) {
+    return isMember(user, memberships -> memberships.isInRun(runId));
+  }
+
+  @Transactional(readOnly = true)
+  public boolean isUserInPeriod(User user, Long runId, Long periodId) {
+    return isMember(user, memberships -> memberships.isInPeriod(runId, periodId));
+  }
+
+  @Transactional(readOnly = true)
+  public boolean isUserInWorkgroup(User user, Long workgroupId) {
+    return isMember(user, memberships -> memberships.isInWorkgroup(workgroupId));
+  }
+
+  @Transactional(readOnly = true)
+  public boolean isWorkgroupInRun(Long workgroupId, Long runId) {
+    return runId.equals(getWorkgroupRunId(workgroupId));
+  }
+
+  @Transactional(readOnly = true)
+  public Long getWorkgroupRunId(Long workgroupId) {
+    Long workgroupRunId = workgroupRunIds.getIfPresent(workgroupId);
+    if (workgroupRunId == null) {
+      try {
+        workgroupRunId = workgroupDao.getById(workgroupId).getRun().getId();
+      } catch (ObjectNotFoundException e) {
+        return null;
+      }
+      workgroupRunIds.put(workgroupId, workgroupRunId);
+    }
+    return workgroupRunId;
+  }
+
+  /**
+   * Evicts the memberships right away and again after the current transaction commits, so they
+   * are not cached again from data that the transaction has not committed yet.
+   */
+  public void evictMemberships(Collection<User> users) {
+    evict(users);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          evict(users);
+        }
+      });
+    }
+  }
+
+  private void evict(Collection<User> users) {
+    for (User user : users) {
+      userMemberships.invalidate(user.getId());
+    }
+  }
+
+  private boolean isMember(User user, Predicate<UserMemberships> isMember) {
+    UserMemberships memberships = userMemberships.getIfPresent(user.getId());
+    if (memberships != null && isMember.test(memberships)) {
+      return true;
+    }
+    memberships = new UserMemberships(runDao.getRunPeriodIdsByUser(user),
+        workgroupDao.getWorkgroupRunIdsByUser(user));
+    userMemberships.put(user.getId(), memberships);
+    return isMember.test(memberships);
+  }
+}
@@ -24,6 +24,7 @@
 package org.wise.portal.service.portal;
 
 import java.io.Serializable;
+import java.util.Map;
 
 import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.domain.portal.Portal;
@@ -34,10 +35,27 @@ import org.wise.portal.domain.portal.Portal;
  */
 public interface PortalService {
 
+  /**
+   * Gets the portal from the cache, loading it on the first call. The same instance is returned to
+   * every caller until the portal is updated, so callers must not change it. Use
+   * getByIdForUpdate to get a portal to change.
+   */
   Portal getById(Serializable id) throws ObjectNotFoundException;
 
   /**
-   * Updates specified portal
+   * Reads the portal from the database into a new instance that is not shared with the cache, so
+   * it can be changed and then saved with updatePortal.
+   */
+  Portal getByIdForUpdate(Serializable id) throws ObjectNotFoundException;
+
+  /**
+   * Gets the portal's structures settings, parsed once when the portal is cached
+   * @return an unmodifiable map, which is empty if the portal has no structures settings
+   */
+  Map<String, Object> getStructures(Serializable id) throws ObjectNotFoundException;
+
+  /**
+   * Updates specified portal and evicts it from the cache of every server
    */
   void updatePortal(Portal portal);
 
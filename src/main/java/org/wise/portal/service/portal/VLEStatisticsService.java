@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.portal;
+
+import org.wise.vle.domain.statistics.VLEStatistics;
+
+/**
+ * Counts the rows of the WISE5 student data tables by type and saves the counts as VLEStatistics.
+ * Each gathering only counts the rows added since the previous one.
+ */
+public interface VLEStatisticsService {
+
+  /**
+   * Gathers the statistics on a low priority background thread. Does nothing if a gathering is
+   * already in progress.
+   */
+  void gatherVLEStatistics();
+
+  /**
+   * Gathers and saves the statistics on the calling thread. If counting a table fails, the counts
+   * up to the last completed batch are saved and the next gathering continues from there.
+   * @return the saved statistics
+   */
+  VLEStatistics updateVLEStatistics();
+}
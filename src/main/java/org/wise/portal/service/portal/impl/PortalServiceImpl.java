@@ -24,37 +24,108 @@
 package org.wise.portal.service.portal.impl;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.dao.portal.PortalDao;
 import org.wise.portal.domain.portal.Portal;
 import org.wise.portal.service.portal.PortalService;
 
 /**
+ * Keeps each portal and its parsed settings in memory after the first time it is read. When a
+ * portal is updated, its id is published on the portalChanged Redis channel so that every server,
+ * including this one, evicts it and reads it again from the database.
+ *
  * @author Hiroki Terashima
  */
 @Service
-public class PortalServiceImpl implements PortalService {
+public class PortalServiceImpl implements PortalService, MessageListener {
+
+  static final String PORTAL_CHANGED_CHANNEL = "portalChanged";
 
   @Autowired
   private PortalDao<Portal> portalDao;
 
+  @Autowired
+  private StringRedisTemplate stringRedisTemplate;
+
+  @Autowired
+  private RedisMessageListenerContainer redisContainer;
+
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  /**
+   * Cached portals by id. Ids are kept as strings because callers pass both Integer and Long ids.
+   */
+  private Map<String, CachedPortal> cachedPortals = new ConcurrentHashMap<String, CachedPortal>();
+
   private String defaultProjectMetadataSettings = "{\"fields\":[{\"name\":\"Title\",\"key\":\"title\",\"type\":\"input\"},{\"name\":\"Summary\",\"key\":\"summary\",\"type\":\"textarea\"},{\"name\":\"Language\",\"key\":\"language\",\"type\":\"radio\",\"choices\":[\"English\",\"Chinese (Simplified)\",\"Chinese (Traditional)\",\"Dutch\",\"German\",\"Greek\",\"Hebrew\",\"Japanese\",\"Korean\",\"Portuguese\",\"Spanish\",\"Thai\",\"Turkish\"]},{\"name\":\"Subject\",\"key\":\"subject\",\"type\":\"radio\",\"choices\":[\"Life Science\",\"Physical Science\",\"Earth Science\",\"General Science\",\"Biology\",\"Chemistry\",\"Physics\",\"Other\"]},{\"name\":\"Time Required to Complete Project\",\"key\":\"time\",\"type\":\"input\"},{\"name\":\"Supported Devices\",\"key\":\"supportedDevices\",\"type\":\"checkbox\",\"choices\":[\"PC\",\"Tablet\"]}],\"i18n\":{\"lifeScience\":{\"en\":\"Life Science\",\"ja\":\"ライフサイエンス\"},\"earthScience\":{\"en\":\"Earth Science\",\"ja\":\"地球科学\"},\"physicalScience\":{\"en\":\"Physical Science\",\"ja\":\"物理科学\",\"es\":\"ciencia física\"}}}";
 
   private String defaultProjectLibraryGroups = "[{\"name\":\"Integrated\",\"id\":\"integrated\",\"type\":\"group\",\"children\":[{\"name\":\"Grade6\",\"id\":\"grade6\",\"type\":\"group\",\"children\":[]},{\"name\":\"Grade7\",\"id\":\"grade7\",\"type\":\"group\",\"children\":[]},{\"name\":\"Grade8\",\"id\":\"grade8\",\"type\":\"group\",\"children\":[]}]},{\"name\":\"DisciplineSpecific\",\"id\":\"disciplineSpecific\",\"type\":\"group\",\"children\":[]},{\"name\":\"Grade7\",\"id\":\"grade7\",\"type\":\"group\",\"children\":[]},{\"name\":\"Grade8\",\"id\":\"grade8\",\"type\":\"group\",\"children\":[]}]";
 
   private String defaultAnnouncement = "{\"visible\":false,\"bannerText\":\"\",\"bannerButton\":\"\",\"title\":\"\",\"content\":\"\",\"buttons\":[]}";
 
+  @PostConstruct
+  public void subscribeToPortalChanges() {
+    redisContainer.addMessageListener(this, new ChannelTopic(PORTAL_CHANGED_CHANNEL));
+  }
+
   public Portal getById(Serializable id) throws ObjectNotFoundException {
-    return portalDao.getById(id);
+    return getCachedPortal(id).portal;
+  }
+
+  public Portal getByIdForUpdate(Serializable id) throws ObjectNotFoundException {
+    return portalDao.getDetachedById(id);
+  }
+
+  public Map<String, Object> getStructures(Serializable id) throws ObjectNotFoundException {
+    return getCachedPortal(id).structures;
   }
 
+  /**
+   * Evicts the portal right away and publishes its id after the current transaction commits, so
+   * that no server caches it again from data that the transaction has not committed yet.
+   */
   @Transactional()
   public void updatePortal(Portal portal) {
-    portalDao.save(portal);
+    String id = String.valueOf(portal.getId());
+    try {
+      portalDao.save(portal);
+    } finally {
+      cachedPortals.remove(id);
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          publishPortalChanged(id);
+        }
+      });
+    } else {
+      publishPortalChanged(id);
+    }
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    cachedPortals.remove(new String(message.getBody(), StandardCharsets.UTF_8));
   }
 
   public String getWISEVersion() throws Exception {
@@ -80,4 +151,44 @@ public class PortalServiceImpl implements PortalService {
   public String getDefaultAnnouncement() {
     return this.defaultAnnouncement;
   }
+
+  private void publishPortalChanged(String id) {
+    cachedPortals.remove(id);
+    stringRedisTemplate.convertAndSend(PORTAL_CHANGED_CHANNEL, id);
+  }
+
+  private CachedPortal getCachedPortal(Serializable id) throws ObjectNotFoundException {
+    String key = String.valueOf(id);
+    CachedPortal cachedPortal = cachedPortals.get(key);
+    if (cachedPortal == null) {
+      Portal portal = portalDao.getDetachedById(id);
+      cachedPortal = new CachedPortal(portal);
+      if (portal != null) {
+        cachedPortals.putIfAbsent(key, cachedPortal);
+      }
+    }
+    return cachedPortal;
+  }
+
+  private class CachedPortal {
+
+    private final Portal portal;
+
+    private final Map<String, Object> structures;
+
+    @SuppressWarnings("unchecked")
+    CachedPortal(Portal portal) {
+      this.portal = portal;
+      Map<String, Object> structures = Collections.emptyMap();
+      if (portal != null && portal.getStructures() != null) {
+        try {
+          structures = Collections.unmodifiableMap(
+              objectMapper.readValue(portal.getStructures(), Map.class));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      this.structures = structures;
+    }
+  }
 }
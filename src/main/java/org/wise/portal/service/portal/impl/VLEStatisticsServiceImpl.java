@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.portal.impl;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.wise.portal.dao.statistics.VLEStatisticsDao;
+import org.wise.portal.service.portal.VLEStatisticsService;
+import org.wise.vle.domain.annotation.wise5.Annotation;
+import org.wise.vle.domain.statistics.VLEStatistics;
+import org.wise.vle.domain.work.Event;
+import org.wise.vle.domain.work.NotebookItem;
+import org.wise.vle.domain.work.StudentWork;
+
+/**
+ * The statistics of each table are saved as {"maxId", "total", "countsByType"}, where maxId is the
+ * id of the last row counted. Each count query covers at most batchSize ids and borrows a pooled
+ * connection only for that query, so gathering never holds a connection for long. The last idLag
+ * ids of each table are left for the next gathering, so that rows whose transactions commit after
+ * a row with a larger id are still counted.
+ */
+@Service
+public class VLEStatisticsServiceImpl implements VLEStatisticsService {
+
+  @Autowired
+  private VLEStatisticsDao<VLEStatistics> vleStatisticsDao;
+
+  @Value("${vle.statistics.batch.size:100000}")
+  private int batchSize = 100000;
+
+  @Value("${vle.statistics.id.lag:1000}")
+  private int idLag = 1000;
+
+  private ExecutorService executor;
+
+  private final AtomicBoolean gathering = new AtomicBoolean();
+
+  @PostConstruct
+  public void init() {
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "vle-statistics");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  public void gatherVLEStatistics() {
+    if (gathering.compareAndSet(false, true)) {
+      executor.execute(() -> {
+        try {
+          updateVLEStatistics();
+        } catch (RuntimeException e) {
+          LoggerFactory.getLogger(getClass()).error("Error gathering VLE statistics", e);
+        } finally {
+          gathering.set(false);
+        }
+      });
+    }
+  }
+
+  public VLEStatistics updateVLEStatistics() {
+    VLEStatistics previousStatistics = vleStatisticsDao.getLatestVLEStatistics();
+    JSONObject previousData = previousStatistics == null ? new JSONObject()
+        : previousStatistics.getJSONObject();
+    JSONObject data = new JSONObject();
+    Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    try {
+      data.put("studentWork", countTable(previousData.optJSONObject("studentWork"),
+          StudentWork.class, "componentType"));
+      data.put("events", countTable(previousData.optJSONObject("events"), Event.class,
+          "category"));
+      data.put("annotations", countTable(previousData.optJSONObject("annotations"),
+          Annotation.class, "type"));
+      data.put("notebookItems", countTable(previousData.optJSONObject("notebookItems"),
+          NotebookItem.class, "type"));
+      data.put("timestamp", timestamp.getTime());
+    } catch (JSONException e) {
+      e.printStackTrace();
+    }
+    VLEStatistics vleStatistics = new VLEStatistics();
+    vleStatistics.setTimestamp(timestamp);
+    vleStatistics.setData(data.toString());
+    vleStatisticsDao.saveVLEStatistics(vleStatistics);
+    return vleStatistics;
+  }
+
+  /**
+   * Adds the counts of the rows added since the previous statistics to the previous counts, up to
+   * idLag ids below the largest id. Rows without a type are only counted in the total.
+   * @param previousStatistics statistics of the table from the previous gathering, or null
+   */
+  private JSONObject countTable(JSONObject previousStatistics, Class<?> entityClass,
+      String typeField) throws JSONException {
+    int countedId = 0;
+    long total = 0;
+    JSONObject countsByType = new JSONObject();
+    if (previousStatistics != null) {
+      countedId = previousStatistics.optInt("maxId");
+      total = previousStatistics.optLong("total");
+      if (previousStatistics.optJSONObject("countsByType") != null) {
+        countsByType = previousStatistics.getJSONObject("countsByType");
+      }
+    }
+    try {
+      Integer maxId = vleStatisticsDao.getMaxId(entityClass);
+      int lastId = maxId == null ? 0 : maxId - idLag;
+      while (countedId < lastId) {
+        int toId = (int) Math.min((long) countedId + batchSize, lastId);
+        Map<String, Long> counts =
+            vleStatisticsDao.getCountsByType(entityClass, typeField, countedId, toId);
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+          total += count.getValue();
+          if (count.getKey() != null) {
+            countsByType.put(count.getKey(),
+                countsByType.optLong(count.getKey()) + count.getValue());
+          }
+        }
+        countedId = toId;
+      }
+    } catch (RuntimeException e) {
+      LoggerFactory.getLogger(getClass()).error("Stopped counting " + entityClass.getSimpleName()
+          + " after id " + countedId, e);
+    }
+    JSONObject statistics = new JSONObject();
+    statistics.put("maxId", countedId);
+    statistics.put("total", total);
+    statistics.put("countsByType", countsByType);
+    return statistics;
+  }
+}
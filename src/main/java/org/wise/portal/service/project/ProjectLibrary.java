@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.project;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.util.DigestUtils;
+import org.wise.portal.domain.portal.Portal;
+
+/**
+ * The project library tree as seen by one set of roles, rendered to JSON
+ */
+public class ProjectLibrary {
+
+  private final byte[] json;
+
+  private final String eTag;
+
+  private final Portal portal;
+
+  /**
+   * @param json the rendered project library tree
+   * @param portal the portal whose project library groups the tree was built from
+   */
+  public ProjectLibrary(String json, Portal portal) {
+    this.json = json.getBytes(StandardCharsets.UTF_8);
+    this.eTag = "\"" + DigestUtils.md5DigestAsHex(this.json) + "\"";
+    this.portal = portal;
+  }
+
+  /**
+   * @return the UTF-8 encoded JSON. Callers must not change it.
+   */
+  public byte[] getJSON() {
+    return json;
+  }
+
+  public String getETag() {
+    return eTag;
+  }
+
+  public boolean isBuiltFrom(Portal portal) {
+    return this.portal == portal;
+  }
+}
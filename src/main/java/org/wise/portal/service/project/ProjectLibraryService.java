@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.project;
+
+import org.json.JSONException;
+import org.wise.portal.dao.ObjectNotFoundException;
+import org.wise.portal.domain.user.User;
+
+/**
+ * Builds the project library tree from the portal's project library groups and keeps it in memory
+ * for each set of roles that can see a different tree
+ */
+public interface ProjectLibraryService {
+
+  /**
+   * Gets the project library tree that the user can see
+   * @param user the signed in user, or null if no one is signed in
+   * @return the project library, which is shared by all users with the same library roles
+   */
+  ProjectLibrary getProjectLibrary(User user) throws ObjectNotFoundException, JSONException;
+
+  /**
+   * Rebuilds the project in the library of every server after the current transaction commits.
+   * Call this when the project's metadata, tags, owner or shared owners change.
+   * @param projectId id of the project that changed
+   */
+  void evictProject(Long projectId);
+}
@@ -311,6 +311,21 @@ public interface ProjectService {
 
   List<Permission> getSharedTeacherPermissions(Project project, User sharedTeacher);
 
+  /**
+   * Gets the permissions of the shared teachers of all the projects in one acl lookup
+   * @param projects projects whose shared teachers' permissions to get
+   * @return the permissions of each shared teacher id, by project id
+   */
+  Map<Long, Map<Long, List<Permission>>> getSharedTeacherPermissions(List<Project> projects);
+
+  /**
+   * Loads the owners and shared owners of the projects in bulk, so that listing the projects
+   * does not load them one project at a time
+   * @param projects projects to load the owners and shared owners of
+   * @return the projects in the same order
+   */
+  List<Project> getProjectsWithOwners(List<Project> projects);
+
   SharedOwner addSharedTeacher(Long projectId, String username)
       throws ObjectNotFoundException, TeacherAlreadySharedWithProjectException;
 
@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.project.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.wise.portal.dao.ObjectNotFoundException;
+import org.wise.portal.dao.project.ProjectDao;
+import org.wise.portal.domain.portal.Portal;
+import org.wise.portal.domain.project.Project;
+import org.wise.portal.domain.user.User;
+import org.wise.portal.presentation.web.controllers.ControllerUtil;
+import org.wise.portal.service.portal.PortalService;
+import org.wise.portal.service.project.ProjectLibrary;
+import org.wise.portal.service.project.ProjectLibraryService;
+
+/**
+ * Keeps the rendered JSON of each library project and the library tree of each set of roles in
+ * memory. A library is rebuilt from the cached project JSON when the portal's project library
+ * groups change or when one of its projects is evicted, so only the changed project is rendered
+ * again. Evicted project ids are published on a Redis channel so that every server evicts them.
+ */
+@Service
+public class ProjectLibraryServiceImpl implements ProjectLibraryService, MessageListener {
+
+  static final String PROJECT_CHANGED_CHANNEL = "projectLibraryProjectChanged";
+
+  private static final Integer PORTAL_ID = 1;
+
+  @Autowired
+  private PortalService portalService;
+
+  @Autowired
+  private ProjectDao<Project> projectDao;
+
+  @Autowired
+  private StringRedisTemplate stringRedisTemplate;
+
+  @Autowired
+  private RedisMessageListenerContainer redisContainer;
+
+  /**
+   * Rendered JSON of each library project, by project id
+   */
+  private Map<Long, String> projectJSONs = new ConcurrentHashMap<Long, String>();
+
+  /**
+   * Library of each set of roles, by the roles joined with commas
+   */
+  private Map<String, ProjectLibrary> projectLibraries =
+      new ConcurrentHashMap<String, ProjectLibrary>();
+
+  /**
+   * Number of evictions so far. Anything rendered while an eviction happened is not cached,
+   * because it may have been rendered from the project before it changed.
+   */
+  private AtomicLong evictionCount = new AtomicLong();
+
+  @PostConstruct
+  public void subscribeToProjectChanges() {
+    redisContainer.addMessageListener(this, new ChannelTopic(PROJECT_CHANGED_CHANNEL));
+  }
+
+  @Transactional(readOnly = true)
+  public ProjectLibrary getProjectLibrary(User user)
+      throws ObjectNotFoundException, JSONException {
+    List<String> roles = getLibraryRoles(user);
+    String key = String.join(",", roles);
+    Portal portal = portalService.getById(PORTAL_ID);
+    ProjectLibrary projectLibrary = projectLibraries.get(key);
+    if (projectLibrary == null || !projectLibrary.isBuiltFrom(portal)) {
+      long evictions = evictionCount.get();
+      projectLibrary = new ProjectLibrary(buildLibrary(portal, roles), portal);
+      if (evictionCount.get() == evictions) {
+        projectLibraries.put(key, projectLibrary);
+      }
+    }
+    return projectLibrary;
+  }
+
+  /**
+   * Evicts the project right away and publishes its id after the current transaction commits, so
+   * that no server renders it again from data that the transaction has not committed yet.
+   */
+  public void evictProject(Long projectId) {
+    evict(projectId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          publishProjectChanged(projectId);
+        }
+      });
+    } else {
+      publishProjectChanged(projectId);
+    }
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    evict(Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Renders the project as it appears in the library
+   */
+  String renderProject(Project project) throws JSONException {
+    JSONObject projectJSON = ControllerUtil.getProjectJSON(project);
+    projectJSON.put("type", "project");
+    return projectJSON.toString();
+  }
+
+  private void publishProjectChanged(Long projectId) {
+    evict(projectId);
+    stringRedisTemplate.convertAndSend(PROJECT_CHANGED_CHANNEL, String.valueOf(projectId));
+  }
+
+  private void evict(Long projectId) {
+    evictionCount.incrementAndGet();
+    if (projectJSONs.remove(projectId) != null) {
+      projectLibraries.clear();
+    }
+  }
+
+  private List<String> getLibraryRoles(User user) {
+    List<String> roles = new ArrayList<String>();
+    if (user != null) {
+      if (user.isAdmin()) {
+        roles.add("admin");
+      }
+      if (user.isResearcher()) {
+        roles.add("researcher");
+      }
+      if (user.isTeacher()) {
+        roles.add("teacher");
+      }
+    }
+    return roles;
+  }
+
+  private String buildLibrary(Portal portal, List<String> roles) throws JSONException {
+    JSONArray projectLibraryGroupsJSON = new JSONArray(portal.getProjectLibraryGroups());
+    for (int g = 0; g < projectLibraryGroupsJSON.length(); g++) {
+      JSONObject projectLibraryGroup = projectLibraryGroupsJSON.getJSONObject(g);
+      if (canAccess(projectLibraryGroup, roles)) {
+        populateProjectMetadata(projectLibraryGroup, roles);
+      } else {
+        projectLibraryGroupsJSON.remove(g--);
+      }
+    }
+    return projectLibraryGroupsJSON.toString();
+  }
+
+  private boolean canAccess(JSONObject projectLibraryGroup, List<String> roles)
+      throws JSONException {
+    if (!projectLibraryGroup.has("accessRoles")) {
+      return true;
+    }
+    JSONArray accessRoles = projectLibraryGroup.getJSONArray("accessRoles");
+    for (int a = 0; a < accessRoles.length(); a++) {
+      if (roles.contains(accessRoles.getString(a))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private JSONObject populateProjectMetadata(JSONObject projectLibraryGroup, List<String> roles)
+      throws JSONException {
+    if (projectLibraryGroup.getString("type").equals("group")) {
+      JSONArray children = projectLibraryGroup.getJSONArray("children");
+      for (int c = 0; c < children.length(); c++) {
+        JSONObject childJSON = children.getJSONObject(c);
+        if (canAccess(childJSON, roles)) {
+          children.put(c, populateProjectMetadata(childJSON, roles));
+        } else {
+          children.remove(c--);
+        }
+      }
+    } else if (projectLibraryGroup.getString("type").equals("project")) {
+      Long projectId = projectLibraryGroup.getLong("id");
+      try {
+        return new JSONObject(getProjectJSON(projectId));
+      } catch (ObjectNotFoundException e) {
+        e.printStackTrace();
+      }
+    }
+    return projectLibraryGroup;
+  }
+
+  private String getProjectJSON(Long projectId) throws ObjectNotFoundException, JSONException {
+    String projectJSON = projectJSONs.get(projectId);
+    if (projectJSON == null) {
+      long evictions = evictionCount.get();
+      projectJSON = renderProject(projectDao.getById(projectId));
+      if (evictionCount.get() == evictions) {
+        projectJSONs.put(projectId, projectJSON);
+      }
+    }
+    return projectJSON;
+  }
+}
@@ -41,6 +41,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -80,7 +81,9 @@ import org.wise.portal.presentation.web.exception.NotAuthorizedException;
 import org.wise.portal.presentation.web.exception.TeacherAlreadySharedWithProjectException;
 import org.wise.portal.presentation.web.response.SharedOwner;
 import org.wise.portal.service.acl.AclService;
+import org.wise.portal.service.asset.AssetBlobService;
 import org.wise.portal.service.authentication.UserDetailsService;
+import org.wise.portal.service.project.ProjectLibraryService;
 import org.wise.portal.service.project.ProjectService;
 import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.tag.TagService;
@@ -115,8 +118,32 @@ public class ProjectServiceImpl implements ProjectService {
   @Autowired
   private RunService runService;
 
+  @Autowired
+  private ProjectLibraryService projectLibraryService;
+
+  @Autowired
+  private AssetBlobService assetBlobService;
+
   private static final String LICENSE_PATH = "/license.txt";
 
+  private static final int PROJECT_IDS_PER_QUERY = 1000;
+
+  /**
+   * How long a project folder without a license file is remembered before checking the disk
+   * again, in case another server wrote the license file
+   */
+  private static final long MISSING_LICENSE_RECHECK_MILLIS = 60000;
+
+  /**
+   * Local paths of license files that exist. License files are never deleted.
+   */
+  private Set<String> existingLicensePaths = ConcurrentHashMap.newKeySet();
+
+  /**
+   * When each license file was last found to be missing, by local path
+   */
+  private Map<String, Long> missingLicenseCheckTimes = new ConcurrentHashMap<String, Long>();
+
   public void addBookmarkerToProject(Project project, User bookmarker) {
     project.getBookmarkers().add(bookmarker);
     projectDao.save(project);
@@ -128,6 +155,7 @@ public class ProjectServiceImpl implements ProjectService {
     User user = userService.retrieveUserByUsername(sharedOwnerUsername);
     project.getSharedowners().add(user);
     projectDao.save(project);
+    projectLibraryService.evictProject((Long) project.getId());
 
     String permission = addSharedTeacherParameters.getPermission();
     if (permission.equals(UserDetailsService.PROJECT_WRITE_ROLE)) {
@@ -152,6 +180,7 @@ public class ProjectServiceImpl implements ProjectService {
     if (!project.isSharedTeacher(user)) {
       project.getSharedowners().add(user);
       projectDao.save(project);
+      projectLibraryService.evictProject(projectId);
       aclService.addPermission(project, ProjectPermission.VIEW_PROJECT, user);
       List<Integer> newPermissions = new ArrayList<>();
       newPermissions.add(ProjectPermission.VIEW_PROJECT.getMask());
@@ -167,6 +196,7 @@ public class ProjectServiceImpl implements ProjectService {
   public void removeSharedTeacherFromProject(Project project, User user) {
     removeSharedTeacherAndPermissions(project, user);
     projectDao.save(project);
+    projectLibraryService.evictProject((Long) project.getId());
   }
 
   private void removeSharedTeacherAndPermissions(Project project, User user) {
@@ -353,6 +383,7 @@ public class ProjectServiceImpl implements ProjectService {
     if (canAuthorProject(project, user)
         || (run != null && runService.hasRunPermission(run, user, BasePermission.WRITE))) {
       projectDao.save(project);
+      projectLibraryService.evictProject((Long) project.getId());
     } else {
       throw new NotAuthorizedException("You are not authorized to update this project");
     }
@@ -405,6 +436,7 @@ public class ProjectServiceImpl implements ProjectService {
 
     project.getTags().add(tag);
     projectDao.save(project);
+    projectLibraryService.evictProject(projectId);
     return (Integer) tag.getId();
   }
 
@@ -421,6 +453,7 @@ public class ProjectServiceImpl implements ProjectService {
     if (tag != null && project != null) {
       project.getTags().remove(tag);
       projectDao.save(project);
+      projectLibraryService.evictProject(projectId);
       tagService.removeIfOrphaned((Integer) tag.getId());
     }
   }
@@ -527,7 +560,7 @@ public class ProjectServiceImpl implements ProjectService {
     File parentProjectDir = new File(FileManager.getProjectFolderPath(parentProject));
     String curriculumBaseDir = appProperties.getProperty("curriculum_base_dir");
     File newProjectDir = new File(curriculumBaseDir, String.valueOf(newProjectId));
-    FileManager.copy(parentProjectDir, newProjectDir);
+    assetBlobService.copyProjectFolder(parentProjectDir, newProjectDir);
     String projectModulePath = parentProject.getModulePath();
     String projectJSONFilename = projectModulePath
         .substring(projectModulePath.lastIndexOf("/") + 1);
@@ -558,6 +591,47 @@ public class ProjectServiceImpl implements ProjectService {
     return aclService.getPermissions(project, sharedTeacher.getUserDetails());
   }
 
+  public Map<Long, Map<Long, List<Permission>>> getSharedTeacherPermissions(
+      List<Project> projects) {
+    Map<Serializable, Map<String, List<Permission>>> projectPermissions =
+        aclService.getPermissions(projects);
+    Map<Long, Map<Long, List<Permission>>> sharedTeacherPermissions =
+        new HashMap<Long, Map<Long, List<Permission>>>();
+    for (Project project : projects) {
+      Map<String, List<Permission>> usernamePermissions =
+          projectPermissions.getOrDefault(project.getId(),
+          new HashMap<String, List<Permission>>());
+      Map<Long, List<Permission>> userPermissions = new HashMap<Long, List<Permission>>();
+      for (User sharedTeacher : project.getSharedowners()) {
+        userPermissions.put(sharedTeacher.getId(), usernamePermissions.getOrDefault(
+            sharedTeacher.getUserDetails().getUsername(), new ArrayList<Permission>()));
+      }
+      sharedTeacherPermissions.put((Long) project.getId(), userPermissions);
+    }
+    return sharedTeacherPermissions;
+  }
+
+  @Transactional(readOnly = true)
+  public List<Project> getProjectsWithOwners(List<Project> projects) {
+    List<Long> projectIds = new ArrayList<Long>();
+    for (Project project : projects) {
+      projectIds.add((Long) project.getId());
+    }
+    Map<Serializable, Project> projectsById = new HashMap<Serializable, Project>();
+    for (int i = 0; i < projectIds.size(); i += PROJECT_IDS_PER_QUERY) {
+      List<Long> ids = projectIds.subList(i, Math.min(i + PROJECT_IDS_PER_QUERY,
+          projectIds.size()));
+      for (Project project : projectDao.getProjectsWithOwners(ids)) {
+        projectsById.put(project.getId(), project);
+      }
+    }
+    List<Project> projectsWithOwners = new ArrayList<Project>();
+    for (Project project : projects) {
+      projectsWithOwners.add(projectsById.getOrDefault(project.getId(), project));
+    }
+    return projectsWithOwners;
+  }
+
   SharedOwner createNewSharedOwner(String username) {
     User user = userService.retrieveUserByUsername(username);
     MutableUserDetails userDetails = user.getUserDetails();
@@ -580,6 +654,7 @@ public class ProjectServiceImpl implements ProjectService {
     Project project = getById(projectId);
     if (project.getSharedowners().contains(user)) {
       aclService.addPermission(project, new ProjectPermission(permissionId), user);
+      projectLibraryService.evictProject(projectId);
     }
   }
 
@@ -589,6 +664,7 @@ public class ProjectServiceImpl implements ProjectService {
     Project project = getById(projectId);
     if (project.getSharedowners().contains(user)) {
       aclService.removePermission(project, new ProjectPermission(permissionId), user);
+      projectLibraryService.evictProject(projectId);
     }
   }
 
@@ -603,6 +679,7 @@ public class ProjectServiceImpl implements ProjectService {
     addSharedTeacherWithViewAndEditPermissions(project, oldOwner);
     removeAdministrationPermission(project, oldOwner);
     projectDao.save(project);
+    projectLibraryService.evictProject((Long) project.getId());
   }
 
   private void setOwner(Project project, User user) {
@@ -732,15 +809,31 @@ public class ProjectServiceImpl implements ProjectService {
   }
 
   public String getLicensePath(Project project) {
-    String licensePath = getProjectLocalPath(project) + LICENSE_PATH;
-    File licenseFile = new File(licensePath);
-    if (licenseFile.isFile()) {
+    if (hasLicenseFile(getProjectLocalPath(project) + LICENSE_PATH)) {
       return getProjectPath(project) + LICENSE_PATH;
     } else {
       return "";
     }
   }
 
+  private boolean hasLicenseFile(String licensePath) {
+    if (existingLicensePaths.contains(licensePath)) {
+      return true;
+    }
+    Long missingLicenseCheckTime = missingLicenseCheckTimes.get(licensePath);
+    if (missingLicenseCheckTime != null
+        && System.currentTimeMillis() - missingLicenseCheckTime < MISSING_LICENSE_RECHECK_MILLIS) {
+      return false;
+    }
+    if (new File(licensePath).isFile()) {
+      existingLicensePaths.add(licensePath);
+      missingLicenseCheckTimes.remove(licensePath);
+      return true;
+    }
+    missingLicenseCheckTimes.put(licensePath, System.currentTimeMillis());
+    return false;
+  }
+
   private String getProjectLocalPath(Project project) {
     String modulePath = project.getModulePath();
     int lastIndexOfSlash = modulePath.lastIndexOf("/");
@@ -815,6 +908,7 @@ public class ProjectServiceImpl implements ProjectService {
           new OutputStreamWriter(new FileOutputStream(licenseFile), "UTF-8"));
       writer.write(license);
       writer.close();
+      missingLicenseCheckTimes.remove(getProjectLocalPath(project) + LICENSE_PATH);
     } catch (IOException e) {
       e.printStackTrace();
     }
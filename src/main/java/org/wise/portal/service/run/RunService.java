@@ -237,6 +237,19 @@ public interface RunService {
    */
   Run retrieveRunByRuncode(String runcode) throws ObjectNotFoundException;
 
+  /**
+   * Retrieves the Run domain object using a unique runcode and locks it until the current
+   * transaction ends, so that concurrent changes to the run's periods are serialized on all
+   * servers.
+   *
+   * @param runcode
+   *                  <code>String</code> runcode to use for lookup
+   * @return <code>Run</code> The Run object with the runcode, with up-to-date periods
+   * @throws <code>RunNotFoundException</code>
+   * when runcode cannot be used to find an existing run
+   */
+  Run retrieveRunByRuncodeForUpdate(String runcode) throws ObjectNotFoundException;
+
   /**
    * Retrieves the Run domain object using a unique runId
    *
@@ -248,6 +261,16 @@ public interface RunService {
    */
   Run retrieveById(Long runId) throws ObjectNotFoundException;
 
+  /**
+   * Gets the WISE version of the run's project. The version is cached after the first lookup
+   * because a run's project never changes, so frequent callers don't need to load the run.
+   *
+   * @param runId id of the run
+   * @return the WISE version of the run's project, e.g. 4 or 5
+   * @throws ObjectNotFoundException when the run does not exist
+   */
+  Integer getWiseVersion(Long runId) throws ObjectNotFoundException;
+
   /**
    * Gets all of the Workgroups that are associated with this run
    *
@@ -34,6 +34,9 @@ import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -92,6 +95,8 @@ public class RunServiceImpl implements RunService {
 
   private static final int MAX_RUNCODE_DIGIT = 1000;
 
+  private static final int WISE_VERSIONS_CACHE_SIZE = 10000;
+
   @Autowired
   private PortalService portalService;
 
@@ -119,6 +124,12 @@ public class RunServiceImpl implements RunService {
   @Autowired
   private ProjectService projectService;
 
+  /**
+   * A run's wise version never changes, so it is cached for the most recently used runs
+   */
+  private Cache<Long, Integer> wiseVersions = Caffeine.newBuilder()
+      .maximumSize(WISE_VERSIONS_CACHE_SIZE).build();
+
   @Transactional(readOnly = true)
   public List<Run> getRunList() {
     // for some reason, runDao.getList returns all runs, when it should
@@ -521,10 +532,25 @@ public class RunServiceImpl implements RunService {
     return runDao.retrieveByRunCode(runcode);
   }
 
+  @Transactional()
+  public Run retrieveRunByRuncodeForUpdate(String runcode) throws ObjectNotFoundException {
+    return runDao.retrieveByRunCodeForUpdate(runcode);
+  }
+
   public Run retrieveById(Long runId) throws ObjectNotFoundException {
     return runDao.getById(runId);
   }
 
+  @Transactional(readOnly = true)
+  public Integer getWiseVersion(Long runId) throws ObjectNotFoundException {
+    Integer wiseVersion = wiseVersions.getIfPresent(runId);
+    if (wiseVersion == null) {
+      wiseVersion = retrieveById(runId).getProject().getWiseVersion();
+      wiseVersions.put(runId, wiseVersion);
+    }
+    return wiseVersion;
+  }
+
   @Transactional()
   public void endRun(Run run) {
     if (run.getEndtime() == null) {
@@ -30,6 +30,7 @@ import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.domain.PeriodNotFoundException;
 import org.wise.portal.domain.RunHasEndedException;
 import org.wise.portal.domain.StudentUserAlreadyAssociatedWithRunException;
+import org.wise.portal.domain.impl.NewStudentAccountParameters;
 import org.wise.portal.domain.project.impl.Projectcode;
 import org.wise.portal.domain.run.Run;
 import org.wise.portal.domain.run.StudentRunInfo;
@@ -61,6 +62,24 @@ public interface StudentService {
       throws ObjectNotFoundException, PeriodNotFoundException,
       StudentUserAlreadyAssociatedWithRunException, RunHasEndedException;
 
+  /**
+   * Creates the student accounts and adds each student to the period of the run in its
+   * <code>Projectcode</code>, in one transaction. Each run is locked once, in runcode order, and
+   * each period is saved once. The usernames must already be assigned and the passwords encoded,
+   * e.g. with <code>UserService.assignUsernames</code> and <code>UserService.encodePasswords</code>.
+   *
+   * @param accounts the student accounts to create
+   * @return the created students in the same order as the accounts
+   * @throws ObjectNotFoundException when a runcode could not be used to retrieve an existing
+   * <code>Run</code>
+   * @throws PeriodNotFoundException when a periodname could not be used to retrieve an existing
+   * period of the <code>Run</code>
+   * @throws RunHasEndedException when a run has ended
+   */
+  @Transactional
+  List<User> createStudentAccounts(List<NewStudentAccountParameters> accounts)
+      throws ObjectNotFoundException, PeriodNotFoundException, RunHasEndedException;
+
   /**
    * Returns a list of teachers that this student is associated with through runs.
    * @param studentUser
@@ -26,16 +26,22 @@ package org.wise.portal.service.student.impl;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.domain.PeriodNotFoundException;
 import org.wise.portal.domain.RunHasEndedException;
 import org.wise.portal.domain.StudentUserAlreadyAssociatedWithRunException;
+import org.wise.portal.domain.authentication.impl.StudentUserDetails;
 import org.wise.portal.domain.group.Group;
+import org.wise.portal.domain.impl.NewStudentAccountParameters;
 import org.wise.portal.domain.project.impl.Projectcode;
 import org.wise.portal.domain.run.Run;
 import org.wise.portal.domain.run.StudentRunInfo;
@@ -44,6 +50,7 @@ import org.wise.portal.domain.workgroup.Workgroup;
 import org.wise.portal.service.group.GroupService;
 import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.student.StudentService;
+import org.wise.portal.service.user.UserService;
 import org.wise.portal.service.workgroup.WorkgroupService;
 
 /**
@@ -61,13 +68,22 @@ public class StudentServiceImpl implements StudentService {
   @Autowired
   private WorkgroupService workgroupService;
 
-  public synchronized void addStudentToRun(User studentUser, Projectcode projectcode)
+  @Autowired
+  private UserService userService;
+
+  /**
+   * Registrations into the same run wait on a lock on the run's row, which is held until the
+   * transaction commits and is seen by all servers, so a student can't be added to a run twice.
+   * Registrations into different runs don't wait on each other.
+   */
+  @Transactional()
+  public void addStudentToRun(User studentUser, Projectcode projectcode)
       throws ObjectNotFoundException, PeriodNotFoundException,
       StudentUserAlreadyAssociatedWithRunException, RunHasEndedException {
     String runcode = projectcode.getRuncode();
     String periodName = projectcode.getRunPeriod();
 
-    Run run = runService.retrieveRunByRuncode(runcode);
+    Run run = runService.retrieveRunByRuncodeForUpdate(runcode);
     Date currentTime = new Date();
     if (run.getEndtime() != null && run.getEndtime().before(currentTime)) {
       throw new RunHasEndedException(run);
@@ -88,6 +104,51 @@ public class StudentServiceImpl implements StudentService {
     }
   }
 
+  @Transactional()
+  public List<User> createStudentAccounts(List<NewStudentAccountParameters> accounts)
+      throws ObjectNotFoundException, PeriodNotFoundException, RunHasEndedException {
+    List<StudentUserDetails> userDetailsList = new ArrayList<StudentUserDetails>();
+    Map<String, Run> runs = new TreeMap<String, Run>();
+    for (NewStudentAccountParameters account : accounts) {
+      userDetailsList.add(account.getUserDetails());
+      runs.put(account.getProjectcode().getRuncode(), null);
+    }
+    Date currentTime = new Date();
+    for (String runcode : runs.keySet()) {
+      Run run = runService.retrieveRunByRuncodeForUpdate(runcode);
+      if (run.getEndtime() != null && run.getEndtime().before(currentTime)) {
+        throw new RunHasEndedException(run);
+      }
+      runs.put(runcode, run);
+    }
+    // PeriodNotFoundException is checked and would not roll back the transaction, so every period
+    // is retrieved before any user is created
+    List<Group> periods = new ArrayList<Group>();
+    for (NewStudentAccountParameters account : accounts) {
+      Projectcode projectcode = account.getProjectcode();
+      periods.add(runs.get(projectcode.getRuncode()).getPeriodByName(projectcode.getRunPeriod()));
+    }
+    List<User> students = userService.createUsers(userDetailsList);
+    // periods of different runs can be equal because they are compared by name
+    Map<Group, Set<User>> periodMembers = new IdentityHashMap<Group, Set<User>>();
+    for (int i = 0; i < accounts.size(); i++) {
+      User student = students.get(i);
+      Run run = runs.get(accounts.get(i).getProjectcode().getRuncode());
+      Group period = periods.get(i);
+      periodMembers.computeIfAbsent(period, p -> new HashSet<User>()).add(student);
+      if (run.getMaxWorkgroupSize() == 1) {
+        String name = "Workgroup for user: " + student.getUserDetails().getUsername();
+        Set<User> members = new HashSet<User>();
+        members.add(student);
+        workgroupService.createWorkgroup(name, members, run, period);
+      }
+    }
+    for (Map.Entry<Group, Set<User>> entry : periodMembers.entrySet()) {
+      groupService.addMembers(entry.getKey(), entry.getValue());
+    }
+    return students;
+  }
+
   public List<User> getTeachersOfStudent(User studentUser) {
     List<Run> runList = runService.getRunList(studentUser);
     List<User> teachers = new ArrayList<User>();
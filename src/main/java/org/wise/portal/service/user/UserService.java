@@ -26,6 +26,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.domain.authentication.MutableUserDetails;
 import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.user.UserSearchResult;
 import org.wise.portal.presentation.web.exception.IncorrectPasswordException;
 import org.wise.portal.service.authentication.DuplicateUsernameException;
 
@@ -47,6 +48,38 @@ public interface UserService {
    */
   User createUser(MutableUserDetails userDetails) throws DuplicateUsernameException;
 
+  /**
+   * Assigns an unused username to each of the user details. The existing usernames that start
+   * with the core usernames are retrieved with one query per chunk of core usernames, and the
+   * suffixes are chosen in memory, so usernames are not checked one at a time. Each username is
+   * reserved in Redis so that concurrent imports on any server don't assign it too. The
+   * reservations should be released with releaseUsernames once the users are created.
+   * @param userDetailsList user details without usernames
+   */
+  void assignUsernames(List<? extends MutableUserDetails> userDetailsList);
+
+  /**
+   * Releases the usernames reserved by assignUsernames.
+   * @param userDetailsList user details with usernames from assignUsernames
+   */
+  void releaseUsernames(List<? extends MutableUserDetails> userDetailsList);
+
+  /**
+   * Encodes the passwords of the user details in parallel on the service's bounded pool of
+   * user.password.encoding.threads threads, which is shared by all callers.
+   * @param userDetailsList user details with plain text passwords
+   */
+  void encodePasswords(List<? extends MutableUserDetails> userDetailsList);
+
+  /**
+   * Creates users from user details that already have unique usernames and encoded passwords,
+   * e.g. from assignUsernames and encodePasswords. Each role is retrieved once for all of the
+   * users.
+   * @param userDetailsList user details with usernames and encoded passwords
+   * @return the created users in the same order as the user details
+   */
+  List<User> createUsers(List<? extends MutableUserDetails> userDetailsList);
+
   /**
    * Retrieve user with the given user details.
    * @param userDetails that has valid authentication credentials
@@ -105,6 +138,19 @@ public interface UserService {
    */
   List<String> retrieveAllUsernames();
 
+  /**
+   * Gets a page of the teachers or students whose field starts with the prefix, without loading
+   * the users.
+   * @param userType "teacher" or "student"
+   * @param field username, firstname, lastname, emailAddress or schoolname (teachers only)
+   * @param prefix start of the field value, or null or empty for all users of the type
+   * @param afterId id of the last user of the previous page, or null for the first page
+   * @param maxResults page size
+   * @return the users ordered by id
+   */
+  List<UserSearchResult> searchUsers(String userType, String field, String prefix, Long afterId,
+      int maxResults);
+
   /**
    * Retrieves User domain object using unique userId
    * @param userId <code>Long</code> userId to use for lookup
@@ -20,11 +20,27 @@
  */
 package org.wise.portal.service.user.impl;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -39,6 +55,7 @@ import org.wise.portal.domain.authentication.MutableUserDetails;
 import org.wise.portal.domain.authentication.impl.StudentUserDetails;
 import org.wise.portal.domain.authentication.impl.TeacherUserDetails;
 import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.user.UserSearchResult;
 import org.wise.portal.domain.user.impl.UserImpl;
 import org.wise.portal.presentation.web.exception.IncorrectPasswordException;
 import org.wise.portal.service.authentication.DuplicateUsernameException;
@@ -54,6 +71,18 @@ import org.wise.portal.service.user.UserService;
 @Service
 public class UserServiceImpl implements UserService {
 
+  /**
+   * Bounds the size of the username query when assigning usernames in bulk
+   */
+  private static final int USERNAME_PREFIXES_PER_QUERY = 1000;
+
+  private static final String RESERVED_USERNAME_KEY_PREFIX = "reservedUsername:";
+
+  /**
+   * Reservations are released when the users are created, but expire in case that never happens
+   */
+  private static final long RESERVED_USERNAME_TIMEOUT_HOURS = 1;
+
   @Autowired
   private UserDetailsDao<MutableUserDetails> userDetailsDao;
 
@@ -66,6 +95,24 @@ public class UserServiceImpl implements UserService {
   @Autowired
   protected PasswordEncoder passwordEncoder;
 
+  @Autowired
+  private StringRedisTemplate stringRedisTemplate;
+
+  @Value("${user.password.encoding.threads:4}")
+  private int passwordEncodingThreads = 4;
+
+  private ExecutorService passwordEncodingExecutor;
+
+  @PostConstruct
+  public void init() {
+    passwordEncodingExecutor = Executors.newFixedThreadPool(passwordEncodingThreads);
+  }
+
+  @PreDestroy
+  public void destroy() {
+    passwordEncodingExecutor.shutdownNow();
+  }
+
   @Transactional(readOnly = true)
   public User retrieveUser(UserDetails userDetails) {
     return userDao.retrieveByUserDetails(userDetails);
@@ -97,10 +144,7 @@ public class UserServiceImpl implements UserService {
       assignRole(userDetails, UserDetailsService.AUTHOR_ROLE);
     }
 
-    details.setFirstname(details.getFirstname().trim());
-    details.setLastname(details.getLastname().trim());
-    details.setNumberOfLogins(0);
-    details.setSignupdate(Calendar.getInstance().getTime());
+    initializeUserDetails(details);
 
     String currentUsernameSuffix = null;
     User createdUser = null;
@@ -127,6 +171,112 @@ public class UserServiceImpl implements UserService {
     return createdUser;
   }
 
+  @Transactional(readOnly = true)
+  public void assignUsernames(List<? extends MutableUserDetails> userDetailsList) {
+    Set<String> coreUsernames = new LinkedHashSet<String>();
+    for (MutableUserDetails userDetails : userDetailsList) {
+      initializeUserDetails(userDetails);
+      coreUsernames.add(userDetails.getCoreUsername());
+    }
+    Set<String> usedUsernames = new HashSet<String>();
+    List<String> coreUsernamesList = new ArrayList<String>(coreUsernames);
+    for (int i = 0; i < coreUsernamesList.size(); i += USERNAME_PREFIXES_PER_QUERY) {
+      List<String> prefixes = coreUsernamesList.subList(i,
+          Math.min(i + USERNAME_PREFIXES_PER_QUERY, coreUsernamesList.size()));
+      for (String username : userDetailsDao.retrieveUsernamesByPrefixes(prefixes)) {
+        usedUsernames.add(username.toLowerCase());
+      }
+    }
+    for (MutableUserDetails userDetails : userDetailsList) {
+      String coreUsername = userDetails.getCoreUsername();
+      String usernameSuffix = userDetails.getNextUsernameSuffix(null);
+      while (!usedUsernames.add((coreUsername + usernameSuffix).toLowerCase())
+          || !reserveUsername(coreUsername + usernameSuffix)) {
+        usernameSuffix = userDetails.getNextUsernameSuffix(usernameSuffix);
+      }
+      userDetails.setUsername(coreUsername + usernameSuffix);
+    }
+  }
+
+  public void releaseUsernames(List<? extends MutableUserDetails> userDetailsList) {
+    List<String> keys = new ArrayList<String>();
+    for (MutableUserDetails userDetails : userDetailsList) {
+      if (userDetails.getUsername() != null) {
+        keys.add(getReservedUsernameKey(userDetails.getUsername()));
+      }
+    }
+    stringRedisTemplate.delete(keys);
+  }
+
+  /**
+   * @return true iff the username was not already reserved, possibly by another server
+   */
+  private boolean reserveUsername(String username) {
+    return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(
+        getReservedUsernameKey(username), "", RESERVED_USERNAME_TIMEOUT_HOURS, TimeUnit.HOURS));
+  }
+
+  private String getReservedUsernameKey(String username) {
+    return RESERVED_USERNAME_KEY_PREFIX + username.toLowerCase();
+  }
+
+  public void encodePasswords(List<? extends MutableUserDetails> userDetailsList) {
+    List<Future<?>> encodings = new ArrayList<Future<?>>();
+    try {
+      for (MutableUserDetails userDetails : userDetailsList) {
+        encodings.add(passwordEncodingExecutor.submit(() -> encodePassword(userDetails)));
+      }
+      for (Future<?> encoding : encodings) {
+        encoding.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while encoding passwords", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Could not encode password", e.getCause());
+    } finally {
+      for (Future<?> encoding : encodings) {
+        encoding.cancel(true);
+      }
+    }
+  }
+
+  @Transactional()
+  public List<User> createUsers(List<? extends MutableUserDetails> userDetailsList) {
+    Map<String, GrantedAuthority> authorities = new HashMap<String, GrantedAuthority>();
+    List<User> users = new ArrayList<User>();
+    for (MutableUserDetails userDetails : userDetailsList) {
+      for (String role : getRoles(userDetails)) {
+        userDetails.addAuthority(
+            authorities.computeIfAbsent(role, grantedAuthorityDao::retrieveByName));
+      }
+      User user = new UserImpl();
+      user.setUserDetails(userDetails);
+      userDao.save(user);
+      users.add(user);
+    }
+    return users;
+  }
+
+  private List<String> getRoles(MutableUserDetails userDetails) {
+    List<String> roles = new ArrayList<String>();
+    if (userDetails instanceof StudentUserDetails) {
+      roles.add(UserDetailsService.STUDENT_ROLE);
+    } else if (userDetails instanceof TeacherUserDetails) {
+      roles.add(UserDetailsService.TEACHER_ROLE);
+      roles.add(UserDetailsService.AUTHOR_ROLE);
+    }
+    roles.add(UserDetailsService.USER_ROLE);
+    return roles;
+  }
+
+  private void initializeUserDetails(MutableUserDetails userDetails) {
+    userDetails.setFirstname(userDetails.getFirstname().trim());
+    userDetails.setLastname(userDetails.getLastname().trim());
+    userDetails.setNumberOfLogins(0);
+    userDetails.setSignupdate(Calendar.getInstance().getTime());
+  }
+
   void encodePassword(MutableUserDetails userDetails) {
     userDetails.setPassword(passwordEncoder.encode(userDetails.getPassword()));
   }
@@ -181,6 +331,12 @@ public class UserServiceImpl implements UserService {
     return userDao.retrieveAllUsernames();
   }
 
+  @Transactional(readOnly = true)
+  public List<UserSearchResult> searchUsers(String userType, String field, String prefix,
+      Long afterId, int maxResults) {
+    return userDao.searchUsers(userType, field, prefix, afterId, maxResults);
+  }
+
   @Transactional(readOnly = true)
   public User retrieveById(Long userId) throws ObjectNotFoundException {
     return userDao.getById(userId);
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.vle.wise5;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import org.wise.vle.domain.annotation.wise5.Annotation;
+import org.wise.vle.domain.work.Event;
+import org.wise.vle.domain.work.StudentWork;
+
+/**
+ * StudentWork, Events and Annotations that were saved together from a single student data POST.
+ * Each list is in the same order as the rows that were posted. A row that could not be saved has
+ * a null entry so that callers can match saved objects back to their request tokens.
+ */
+@Getter
+public class StudentDataSaveResult {
+
+  private List<StudentWork> studentWorkList = new ArrayList<>();
+
+  private List<Event> events = new ArrayList<>();
+
+  private List<Annotation> annotations = new ArrayList<>();
+}
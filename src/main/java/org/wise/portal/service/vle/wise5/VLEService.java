@@ -25,6 +25,7 @@ package org.wise.portal.service.vle.wise5;
 
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -57,9 +58,24 @@ public interface VLEService {
       Integer workgroupId, Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId,
       String componentType, List<JSONObject> components, Boolean onlyGetLatest);
 
+  /**
+   * Passes each StudentWork with the specified fields to the consumer in the order that they were
+   * saved. The StudentWork is read from the data store one at a time instead of being loaded into
+   * a list, so memory use does not grow with the size of the run.
+   */
+  void forEachStudentWork(Integer id, Integer runId, Integer periodId, Integer workgroupId,
+      Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId,
+      String componentType, List<JSONObject> components, Boolean onlyGetLatest,
+      Consumer<StudentWork> consumer);
+
   List<NotebookItem> getNotebookItemsExport(Run run);
 
-  List<NotebookItem> getLatestNotebookItemsExport(Run run);
+  /**
+   * Passes the latest revision of each of the run's NotebookItems to the consumer, ordered by
+   * workgroup. The NotebookItems are read from the data store one at a time instead of being
+   * loaded into a list, so memory use does not grow with the size of the run.
+   */
+  void forEachLatestNotebookItemExport(Run run, Consumer<NotebookItem> consumer);
 
   /**
    * @return JSONArray of notification for researcher export for the given run id.
@@ -73,6 +89,29 @@ public interface VLEService {
       Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId, String componentType,
       String studentData, String clientSaveTime) throws ObjectNotFoundException;
 
+  /**
+   * Saves the StudentWork, Events and Annotations that a student posted together in one request.
+   * Each run, period and workgroup referenced by the rows is only retrieved once and all the rows
+   * are saved in a single transaction. An Annotation without a studentWorkId that is for a
+   * component whose StudentWork is in the same request (e.g. CRater) is attached to that
+   * StudentWork.
+   *
+   * A row that cannot be saved, because it is malformed, references something that does not exist
+   * or is missing a required field, is skipped and its entry in the result is null, so the other
+   * rows in the request are still saved. An error from the data store itself rolls back the whole
+   * request and the client resends all of the rows.
+   *
+   * @param studentWorkJSONArray
+   *                               student work to save, ex: [{"runId":2,"nodeId":"node4",...}]
+   * @param eventsJSONArray
+   *                               events to save
+   * @param annotationsJSONArray
+   *                               annotations to save
+   * @return the saved objects in the order that they were posted, with null for skipped rows
+   */
+  StudentDataSaveResult saveStudentData(JSONArray studentWorkJSONArray,
+      JSONArray eventsJSONArray, JSONArray annotationsJSONArray);
+
   /**
    * @return List of Event objects with the specified fields. If none matches, return an empty list.
    */
@@ -80,12 +119,30 @@ public interface VLEService {
       String nodeId, String componentId, String componentType, String context, String category,
       String event, List<JSONObject> components);
 
+  /**
+   * Passes each Event with the specified fields to the consumer in the order that they were saved,
+   * reading them from the data store one at a time.
+   */
+  void forEachEvent(Integer id, Integer runId, Integer periodId, Integer workgroupId,
+      String nodeId, String componentId, String componentType, String context, String category,
+      String event, List<JSONObject> components, Consumer<Event> consumer);
+
   public List<Event> getAllEvents(Run run);
 
   public List<Event> getStudentEvents(Run run);
 
   public List<Event> getTeacherEvents(Run run);
 
+  /**
+   * Gets a page of the run's events in id order. Pass the id of the last event of a page as afterId
+   * to get the next page. If both or neither of includeStudentEvents and includeTeacherEvents are
+   * true, all events of the run are included.
+   *
+   * @return the events of the page. If it has less than pageSize events, it is the last page.
+   */
+  List<Event> getEventsPage(Run run, Integer afterId, boolean includeStudentEvents,
+      boolean includeTeacherEvents, int pageSize);
+
   /**
    * Saves Event in the data store
    */
@@ -114,6 +171,15 @@ public interface VLEService {
       Integer fromWorkgroupId, Integer toWorkgroupId, String nodeId, String componentId,
       Integer studentWorkId, String localNotebookItemId, Integer notebookItemId, String type);
 
+  /**
+   * Passes each Annotation with the specified fields to the consumer, reading them from the data
+   * store one at a time.
+   */
+  void forEachAnnotation(Integer id, Integer runId, Integer periodId, Integer fromWorkgroupId,
+      Integer toWorkgroupId, String nodeId, String componentId, Integer studentWorkId,
+      String localNotebookItemId, Integer notebookItemId, String type,
+      Consumer<Annotation> consumer);
+
   /**
    * Saves Annotation in the data store
    */
@@ -24,10 +24,13 @@
 package org.wise.portal.service.vle.wise5.impl;
 
 import java.sql.Timestamp;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.transaction.Transactional;
 
@@ -45,7 +48,9 @@ import org.wise.portal.dao.notification.NotificationDao;
 import org.wise.portal.dao.status.RunStatusDao;
 import org.wise.portal.dao.status.StudentStatusDao;
 import org.wise.portal.dao.work.EventDao;
+import org.wise.portal.dao.work.LatestStudentWorkDao;
 import org.wise.portal.dao.work.NotebookItemDao;
+import org.wise.portal.dao.work.NotebookItemGroupDao;
 import org.wise.portal.dao.work.StudentAssetDao;
 import org.wise.portal.dao.work.StudentWorkDao;
 import org.wise.portal.domain.group.Group;
@@ -55,6 +60,7 @@ import org.wise.portal.service.group.GroupService;
 import org.wise.portal.service.project.ProjectService;
 import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.user.UserService;
+import org.wise.portal.service.vle.wise5.StudentDataSaveResult;
 import org.wise.portal.service.vle.wise5.VLEService;
 import org.wise.portal.service.workgroup.WorkgroupService;
 import org.wise.vle.domain.achievement.Achievement;
@@ -63,8 +69,10 @@ import org.wise.vle.domain.notification.Notification;
 import org.wise.vle.domain.status.RunStatus;
 import org.wise.vle.domain.status.StudentStatus;
 import org.wise.vle.domain.work.Event;
+import org.wise.vle.domain.work.LatestStudentWork;
 import org.wise.vle.domain.work.NotebookItem;
 import org.wise.vle.domain.work.NotebookItemAlreadyInGroupException;
+import org.wise.vle.domain.work.NotebookItemGroup;
 import org.wise.vle.domain.work.StudentAsset;
 import org.wise.vle.domain.work.StudentWork;
 
@@ -79,6 +87,9 @@ public class VLEServiceImpl implements VLEService {
   @Autowired
   private StudentWorkDao studentWorkDao;
 
+  @Autowired
+  private LatestStudentWorkDao<LatestStudentWork> latestStudentWorkDao;
+
   @Autowired
   private EventDao eventDao;
 
@@ -95,6 +106,9 @@ public class VLEServiceImpl implements VLEService {
   @Autowired
   private NotebookItemDao notebookItemDao;
 
+  @Autowired
+  private NotebookItemGroupDao<NotebookItemGroup> notebookItemGroupDao;
+
   @Autowired
   private NotificationDao notificationDao;
 
@@ -123,63 +137,99 @@ public class VLEServiceImpl implements VLEService {
   public List<StudentWork> getStudentWorkList(Integer id, Integer runId, Integer periodId,
       Integer workgroupId, Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId,
       String componentType, List<JSONObject> components, Boolean onlyGetLatest) {
-    Run run = null;
+    Run run = retrieveRun(runId);
+    Group period = retrievePeriod(periodId);
+    Workgroup workgroup = retrieveWorkgroup(workgroupId);
+    if (Boolean.TRUE.equals(onlyGetLatest)) {
+      if (isLatestStudentWorkQuery(id, run, isAutoSave, isSubmit, nodeId, componentId,
+          componentType, components)) {
+        return latestStudentWorkDao.getLatestStudentWorkList(run, period, workgroup, nodeId,
+            componentId);
+      }
+      return studentWorkDao.getLatestStudentWorkListByParams(id, run, period, workgroup,
+          isAutoSave, isSubmit, nodeId, componentId, componentType, components);
+    } else {
+      return studentWorkDao.getStudentWorkListByParams(id, run, period, workgroup, isAutoSave,
+          isSubmit, nodeId, componentId, componentType, components);
+    }
+  }
+
+  /**
+   * @return true iff the query is for a single component of a run and has no other filters than
+   *         period and workgroup, in which case it can be answered from the latestStudentWork table
+   */
+  private boolean isLatestStudentWorkQuery(Integer id, Run run, Boolean isAutoSave,
+      Boolean isSubmit, String nodeId, String componentId, String componentType,
+      List<JSONObject> components) {
+    return id == null && run != null && isAutoSave == null && isSubmit == null && nodeId != null
+        && componentId != null && componentType == null && components == null;
+  }
+
+  @Override
+  @Transactional
+  public void forEachStudentWork(Integer id, Integer runId, Integer periodId,
+      Integer workgroupId, Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId,
+      String componentType, List<JSONObject> components, Boolean onlyGetLatest,
+      Consumer<StudentWork> consumer) {
+    if (Boolean.TRUE.equals(onlyGetLatest)) {
+      getStudentWorkList(id, runId, periodId, workgroupId, isAutoSave, isSubmit, nodeId,
+          componentId, componentType, components, true).forEach(consumer);
+      return;
+    }
+    Run run = retrieveRun(runId);
+    Group period = retrievePeriod(periodId);
+    Workgroup workgroup = retrieveWorkgroup(workgroupId);
+    try (Stream<StudentWork> studentWork = studentWorkDao.streamStudentWorkListByParams(id, run,
+        period, workgroup, isAutoSave, isSubmit, nodeId, componentId, componentType,
+        components)) {
+      studentWork.forEach(consumer);
+    }
+  }
+
+  private Run retrieveRun(Integer runId) {
     if (runId != null) {
       try {
-        run = runService.retrieveById(new Long(runId));
+        return runService.retrieveById(new Long(runId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
-    Group period = null;
+    return null;
+  }
+
+  private Group retrievePeriod(Integer periodId) {
     if (periodId != null) {
       try {
-        period = groupService.retrieveById(new Long(periodId));
+        return groupService.retrieveById(new Long(periodId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
-    Workgroup workgroup = null;
+    return null;
+  }
+
+  private Workgroup retrieveWorkgroup(Integer workgroupId) {
     if (workgroupId != null) {
       try {
-        workgroup = workgroupService.retrieveById(new Long(workgroupId));
+        return workgroupService.retrieveById(new Long(workgroupId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
-
-    List<StudentWork> studentWorkListByParams = studentWorkDao.getStudentWorkListByParams(id, run,
-        period, workgroup, isAutoSave, isSubmit, nodeId, componentId, componentType, components);
-    if (Boolean.TRUE.equals(onlyGetLatest)) {
-      return filterLatestWorkForEachWorkgroup(studentWorkListByParams);
-    } else {
-      return studentWorkListByParams;
-    }
-  }
-
-  private List<StudentWork> filterLatestWorkForEachWorkgroup(
-      List<StudentWork> allStudentWork) {
-    HashMap<Long, StudentWork> latestWorkPerWorkgroup = new HashMap<Long, StudentWork>();
-    for (StudentWork studentWork : allStudentWork) {
-      Long key = studentWork.getWorkgroup().getId();
-      if (latestWorkPerWorkgroup.containsKey(key)) {
-        if (studentWork.getServerSaveTime().after(
-            latestWorkPerWorkgroup.get(key).getServerSaveTime())) {
-          latestWorkPerWorkgroup.put(key, studentWork);
-        }
-      } else {
-        latestWorkPerWorkgroup.put(studentWork.getWorkgroup().getId(), studentWork);
-      }
-    }
-    return new ArrayList<StudentWork>(latestWorkPerWorkgroup.values());
+    return null;
   }
 
   public List<NotebookItem> getNotebookItemsExport(Run run) {
     return notebookItemDao.getNotebookItemsExport(run);
   }
 
-  public List<NotebookItem> getLatestNotebookItemsExport(Run run) {
-    return notebookItemDao.getLatestNotebookItemsExport(run);
+  @Override
+  @Transactional
+  public void forEachLatestNotebookItemExport(Run run, Consumer<NotebookItem> consumer) {
+    try (Stream<NotebookItem> notebookItems =
+        notebookItemDao.streamLatestNotebookItemsExport(run)) {
+      notebookItems.forEach(consumer);
+    }
   }
 
   public JSONArray getNotificationsExport(Integer runId) {
@@ -197,9 +247,17 @@ public class VLEServiceImpl implements VLEService {
   }
 
   @Override
+  @Transactional
   public StudentWork saveStudentWork(Integer id, Integer runId, Integer periodId,
       Integer workgroupId, Boolean isAutoSave, Boolean isSubmit, String nodeId, String componentId,
       String componentType, String studentData, String clientSaveTime) {
+    return saveStudentWork(new ReferenceCache(), id, runId, periodId, workgroupId, isAutoSave,
+        isSubmit, nodeId, componentId, componentType, studentData, clientSaveTime);
+  }
+
+  private StudentWork saveStudentWork(ReferenceCache references, Integer id, Integer runId,
+      Integer periodId, Integer workgroupId, Boolean isAutoSave, Boolean isSubmit, String nodeId,
+      String componentId, String componentType, String studentData, String clientSaveTime) {
     StudentWork studentWork;
     if (id != null) {
       // if the id is passed in, the client is requesting an update, so fetch the StudentWork from
@@ -216,21 +274,21 @@ public class VLEServiceImpl implements VLEService {
     }
     if (runId != null) {
       try {
-        studentWork.setRun(runService.retrieveById(new Long(runId)));
+        studentWork.setRun(references.getRun(runId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
     if (periodId != null) {
       try {
-        studentWork.setPeriod(groupService.retrieveById(new Long(periodId)));
+        studentWork.setPeriod(references.getPeriod(periodId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
     if (workgroupId != null) {
       try {
-        studentWork.setWorkgroup(workgroupService.retrieveById(new Long(workgroupId)));
+        studentWork.setWorkgroup(references.getWorkgroup(workgroupId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
@@ -270,42 +328,151 @@ public class VLEServiceImpl implements VLEService {
       studentWork.setStudentData(studentData);
     }
 
+    if (studentWork.getRun() == null || studentWork.getPeriod() == null
+        || studentWork.getWorkgroup() == null || studentWork.getNodeId() == null
+        || studentWork.getClientSaveTime() == null || studentWork.getStudentData() == null) {
+      // the row would violate a not-null constraint, which would roll back every other row saved
+      // in the same transaction, so reject just this row
+      return null;
+    }
     studentWorkDao.save(studentWork);
+    latestStudentWorkDao.updateLatestStudentWork(studentWork);
     return studentWork;
   }
 
   @Override
-  public List<Event> getEvents(Integer id, Integer runId, Integer periodId, Integer workgroupId,
-      String nodeId, String componentId, String componentType, String context, String category,
-      String event, List<JSONObject> components) {
-    Run run = null;
-    if (runId != null) {
+  @Transactional
+  public StudentDataSaveResult saveStudentData(JSONArray studentWorkJSONArray,
+      JSONArray eventsJSONArray, JSONArray annotationsJSONArray) {
+    StudentDataSaveResult result = new StudentDataSaveResult();
+    ReferenceCache references = new ReferenceCache();
+
+    // maps nodeId_componentId to StudentWork, used for annotations posted along with student work
+    HashMap<String, StudentWork> savedStudentWork = new HashMap<String, StudentWork>();
+    for (int c = 0; c < studentWorkJSONArray.length(); c++) {
+      StudentWork studentWork = null;
       try {
-        run = runService.retrieveById(new Long(runId));
-      } catch (ObjectNotFoundException e) {
+        JSONObject studentWorkJSONObject = studentWorkJSONArray.getJSONObject(c);
+        studentWork = saveStudentWork(references,
+            getInteger(studentWorkJSONObject, "id"),
+            getInteger(studentWorkJSONObject, "runId"),
+            getInteger(studentWorkJSONObject, "periodId"),
+            getInteger(studentWorkJSONObject, "workgroupId"),
+            getBoolean(studentWorkJSONObject, "isAutoSave"),
+            getBoolean(studentWorkJSONObject, "isSubmit"),
+            getString(studentWorkJSONObject, "nodeId"),
+            getString(studentWorkJSONObject, "componentId"),
+            getString(studentWorkJSONObject, "componentType"),
+            getString(studentWorkJSONObject, "studentData"),
+            getString(studentWorkJSONObject, "clientSaveTime"));
+        if (studentWork != null && studentWork.getNodeId() != null
+            && studentWork.getComponentId() != null) {
+          savedStudentWork.put(studentWork.getNodeId() + "_" + studentWork.getComponentId(),
+              studentWork);
+        }
+      } catch (JSONException | NumberFormatException e) {
         e.printStackTrace();
       }
+      result.getStudentWorkList().add(studentWork);
     }
-    Group period = null;
-    if (periodId != null) {
+
+    for (int e = 0; e < eventsJSONArray.length(); e++) {
+      Event event = null;
       try {
-        period = groupService.retrieveById(new Long(periodId));
-      } catch (ObjectNotFoundException e) {
-        e.printStackTrace();
+        JSONObject eventJSONObject = eventsJSONArray.getJSONObject(e);
+        event = saveEvent(references,
+            getInteger(eventJSONObject, "id"),
+            getInteger(eventJSONObject, "runId"),
+            getInteger(eventJSONObject, "periodId"),
+            getInteger(eventJSONObject, "workgroupId"),
+            getString(eventJSONObject, "nodeId"),
+            getString(eventJSONObject, "componentId"),
+            getString(eventJSONObject, "componentType"),
+            getString(eventJSONObject, "context"),
+            getString(eventJSONObject, "category"),
+            getString(eventJSONObject, "event"),
+            getString(eventJSONObject, "data"),
+            getString(eventJSONObject, "clientSaveTime"),
+            getInteger(eventJSONObject, "projectId"),
+            getInteger(eventJSONObject, "userId"));
+      } catch (JSONException | NumberFormatException exception) {
+        exception.printStackTrace();
       }
+      result.getEvents().add(event);
     }
-    Workgroup workgroup = null;
-    if (workgroupId != null) {
+
+    for (int a = 0; a < annotationsJSONArray.length(); a++) {
+      Annotation annotation = null;
       try {
-        workgroup = workgroupService.retrieveById(new Long(workgroupId));
-      } catch (ObjectNotFoundException e) {
+        JSONObject annotationJSONObject = annotationsJSONArray.getJSONObject(a);
+        Integer studentWorkId = getInteger(annotationJSONObject, "studentWorkId");
+        String localNotebookItemId = getString(annotationJSONObject, "localNotebookItemId");
+        Integer notebookItemId = getInteger(annotationJSONObject, "notebookItemId");
+        String nodeId = getString(annotationJSONObject, "nodeId");
+        String componentId = getString(annotationJSONObject, "componentId");
+        if (studentWorkId == null && nodeId != null && componentId != null
+            && savedStudentWork.containsKey(nodeId + "_" + componentId)) {
+          // this is an annotation for a StudentWork that we just saved, so it is not for a
+          // notebook item
+          studentWorkId = savedStudentWork.get(nodeId + "_" + componentId).getId();
+          localNotebookItemId = null;
+          notebookItemId = null;
+        }
+        annotation = saveAnnotation(references,
+            getInteger(annotationJSONObject, "id"),
+            getInteger(annotationJSONObject, "runId"),
+            getInteger(annotationJSONObject, "periodId"),
+            getInteger(annotationJSONObject, "fromWorkgroupId"),
+            getInteger(annotationJSONObject, "toWorkgroupId"),
+            nodeId, componentId, studentWorkId, localNotebookItemId, notebookItemId,
+            getString(annotationJSONObject, "type"),
+            getString(annotationJSONObject, "data"),
+            getString(annotationJSONObject, "clientSaveTime"));
+      } catch (JSONException | NumberFormatException e) {
         e.printStackTrace();
       }
+      result.getAnnotations().add(annotation);
     }
+    return result;
+  }
+
+  private Integer getInteger(JSONObject jsonObject, String key) throws JSONException {
+    return jsonObject.isNull(key) ? null : jsonObject.getInt(key);
+  }
+
+  private Boolean getBoolean(JSONObject jsonObject, String key) throws JSONException {
+    return jsonObject.isNull(key) ? null : jsonObject.getBoolean(key);
+  }
+
+  private String getString(JSONObject jsonObject, String key) throws JSONException {
+    return jsonObject.isNull(key) ? null : jsonObject.getString(key);
+  }
+
+  @Override
+  public List<Event> getEvents(Integer id, Integer runId, Integer periodId, Integer workgroupId,
+      String nodeId, String componentId, String componentType, String context, String category,
+      String event, List<JSONObject> components) {
+    Run run = retrieveRun(runId);
+    Group period = retrievePeriod(periodId);
+    Workgroup workgroup = retrieveWorkgroup(workgroupId);
     return eventDao.getEventsByParams(id, run, period, workgroup, nodeId, componentId,
         componentType, context, category, event, components);
   }
 
+  @Override
+  @Transactional
+  public void forEachEvent(Integer id, Integer runId, Integer periodId, Integer workgroupId,
+      String nodeId, String componentId, String componentType, String context, String category,
+      String event, List<JSONObject> components, Consumer<Event> consumer) {
+    Run run = retrieveRun(runId);
+    Group period = retrievePeriod(periodId);
+    Workgroup workgroup = retrieveWorkgroup(workgroupId);
+    try (Stream<Event> events = eventDao.streamEventsByParams(id, run, period, workgroup, nodeId,
+        componentId, componentType, context, category, event, components)) {
+      events.forEach(consumer);
+    }
+  }
+
   public List<Event> getAllEvents(Run run) {
     return eventDao.getEvents(run);
   }
@@ -318,10 +485,26 @@ public class VLEServiceImpl implements VLEService {
     return eventDao.getTeacherEvents(run);
   }
 
+  @Override
+  @Transactional
+  public List<Event> getEventsPage(Run run, Integer afterId, boolean includeStudentEvents,
+      boolean includeTeacherEvents, int pageSize) {
+    return eventDao.getEventsPage(run, afterId, includeStudentEvents, includeTeacherEvents,
+        pageSize);
+  }
+
   @Override
   public Event saveEvent(Integer id, Integer runId, Integer periodId, Integer workgroupId,
       String nodeId, String componentId, String componentType, String context, String category,
       String eventString, String data, String clientSaveTime, Integer projectId, Integer userId) {
+    return saveEvent(new ReferenceCache(), id, runId, periodId, workgroupId, nodeId, componentId,
+        componentType, context, category, eventString, data, clientSaveTime, projectId, userId);
+  }
+
+  private Event saveEvent(ReferenceCache references, Integer id, Integer runId, Integer periodId,
+      Integer workgroupId, String nodeId, String componentId, String componentType, String context,
+      String category, String eventString, String data, String clientSaveTime, Integer projectId,
+      Integer userId) {
     Event event;
     if (id != null) {
       // if the id is passed in, the client is requesting an update, so fetch the Event from data
@@ -340,21 +523,21 @@ public class VLEServiceImpl implements VLEService {
     }
     if (runId != null) {
       try {
-        event.setRun(runService.retrieveById(new Long(runId)));
+        event.setRun(references.getRun(runId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
     if (periodId != null) {
       try {
-        event.setPeriod(groupService.retrieveById(new Long(periodId)));
+        event.setPeriod(references.getPeriod(periodId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
     if (workgroupId != null) {
       try {
-        event.setWorkgroup(workgroupService.retrieveById(new Long(workgroupId)));
+        event.setWorkgroup(references.getWorkgroup(workgroupId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
@@ -401,6 +584,10 @@ public class VLEServiceImpl implements VLEService {
     Calendar now = Calendar.getInstance();
     Timestamp serverSaveTimestamp = new Timestamp(now.getTimeInMillis());
     event.setServerSaveTime(serverSaveTimestamp);
+    if (event.getContext() == null || event.getCategory() == null || event.getEvent() == null
+        || event.getClientSaveTime() == null) {
+      return null;
+    }
     eventDao.save(event);
     return event;
   }
@@ -477,57 +664,55 @@ public class VLEServiceImpl implements VLEService {
   public List<Annotation> getAnnotations(Integer id, Integer runId, Integer periodId,
       Integer fromWorkgroupId, Integer toWorkgroupId, String nodeId, String componentId,
       Integer studentWorkId, String localNotebookItemId, Integer notebookItemId, String type) {
-    Run run = null;
-    if (runId != null) {
-      try {
-        run = runService.retrieveById(new Long(runId));
-      } catch (ObjectNotFoundException e) {
-        e.printStackTrace();
-      }
-    }
-    Group period = null;
-    if (periodId != null) {
-      try {
-        period = groupService.retrieveById(new Long(periodId));
-      } catch (ObjectNotFoundException e) {
-        e.printStackTrace();
-      }
-    }
-    Workgroup fromWorkgroup = null;
-    if (fromWorkgroupId != null) {
-      try {
-        fromWorkgroup = workgroupService.retrieveById(new Long(fromWorkgroupId));
-      } catch (ObjectNotFoundException e) {
-        e.printStackTrace();
-      }
-    }
-    Workgroup toWorkgroup = null;
-    if (toWorkgroupId != null) {
-      try {
-        toWorkgroup = workgroupService.retrieveById(new Long(toWorkgroupId));
-      } catch (ObjectNotFoundException e) {
-        e.printStackTrace();
-      }
+    Run run = retrieveRun(runId);
+    Group period = retrievePeriod(periodId);
+    Workgroup fromWorkgroup = retrieveWorkgroup(fromWorkgroupId);
+    Workgroup toWorkgroup = retrieveWorkgroup(toWorkgroupId);
+    StudentWork studentWork = retrieveStudentWork(studentWorkId);
+    NotebookItem notebookItem = retrieveNotebookItem(notebookItemId);
+    return annotationDao.getAnnotationsByParams(id, run, period, fromWorkgroup, toWorkgroup, nodeId,
+        componentId, studentWork, localNotebookItemId, notebookItem, type);
+  }
+
+  @Override
+  @Transactional
+  public void forEachAnnotation(Integer id, Integer runId, Integer periodId,
+      Integer fromWorkgroupId, Integer toWorkgroupId, String nodeId, String componentId,
+      Integer studentWorkId, String localNotebookItemId, Integer notebookItemId, String type,
+      Consumer<Annotation> consumer) {
+    Run run = retrieveRun(runId);
+    Group period = retrievePeriod(periodId);
+    Workgroup fromWorkgroup = retrieveWorkgroup(fromWorkgroupId);
+    Workgroup toWorkgroup = retrieveWorkgroup(toWorkgroupId);
+    StudentWork studentWork = retrieveStudentWork(studentWorkId);
+    NotebookItem notebookItem = retrieveNotebookItem(notebookItemId);
+    try (Stream<Annotation> annotations = annotationDao.streamAnnotationsByParams(id, run, period,
+        fromWorkgroup, toWorkgroup, nodeId, componentId, studentWork, localNotebookItemId,
+        notebookItem, type)) {
+      annotations.forEach(consumer);
     }
-    StudentWork studentWork = null;
+  }
+
+  private StudentWork retrieveStudentWork(Integer studentWorkId) {
     if (studentWorkId != null) {
       try {
-        studentWork = (StudentWork) studentWorkDao.getById(studentWorkId);
+        return (StudentWork) studentWorkDao.getById(studentWorkId);
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
+    return null;
+  }
 
-    NotebookItem notebookItem = null;
+  private NotebookItem retrieveNotebookItem(Integer notebookItemId) {
     if (notebookItemId != null) {
       try {
-        notebookItem = (NotebookItem) notebookItemDao.getById(notebookItemId);
+        return (NotebookItem) notebookItemDao.getById(notebookItemId);
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
-    return annotationDao.getAnnotationsByParams(id, run, period, fromWorkgroup, toWorkgroup, nodeId,
-        componentId, studentWork, localNotebookItemId, notebookItem, type);
+    return null;
   }
 
   @Override
@@ -535,6 +720,15 @@ public class VLEServiceImpl implements VLEService {
       Integer fromWorkgroupId, Integer toWorkgroupId, String nodeId, String componentId,
       Integer studentWorkId, String localNotebookItemId, Integer notebookItemId, String type,
       String data, String clientSaveTime) {
+    return saveAnnotation(new ReferenceCache(), id, runId, periodId, fromWorkgroupId,
+        toWorkgroupId, nodeId, componentId, studentWorkId, localNotebookItemId, notebookItemId, type,
+        data, clientSaveTime);
+  }
+
+  private Annotation saveAnnotation(ReferenceCache references, Integer id, Integer runId,
+      Integer periodId, Integer fromWorkgroupId, Integer toWorkgroupId, String nodeId,
+      String componentId, Integer studentWorkId, String localNotebookItemId,
+      Integer notebookItemId, String type, String data, String clientSaveTime) {
     Annotation annotation;
     if (id != null) {
       // if the id is passed in, the client is requesting an update, so fetch the Event from data
@@ -553,28 +747,28 @@ public class VLEServiceImpl implements VLEService {
     }
     if (runId != null) {
       try {
-        annotation.setRun(runService.retrieveById(new Long(runId)));
+        annotation.setRun(references.getRun(runId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
     if (periodId != null) {
       try {
-        annotation.setPeriod(groupService.retrieveById(new Long(periodId)));
+        annotation.setPeriod(references.getPeriod(periodId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
     if (fromWorkgroupId != null) {
       try {
-        annotation.setFromWorkgroup(workgroupService.retrieveById(new Long(fromWorkgroupId)));
+        annotation.setFromWorkgroup(references.getWorkgroup(fromWorkgroupId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
     }
     if (toWorkgroupId != null) {
       try {
-        annotation.setToWorkgroup(workgroupService.retrieveById(new Long(toWorkgroupId)));
+        annotation.setToWorkgroup(references.getWorkgroup(toWorkgroupId));
       } catch (ObjectNotFoundException e) {
         e.printStackTrace();
       }
@@ -615,6 +809,11 @@ public class VLEServiceImpl implements VLEService {
     Calendar now = Calendar.getInstance();
     Timestamp serverSaveTimestamp = new Timestamp(now.getTimeInMillis());
     annotation.setServerSaveTime(serverSaveTimestamp);
+    if (annotation.getRun() == null || annotation.getPeriod() == null
+        || annotation.getToWorkgroup() == null || annotation.getType() == null
+        || annotation.getData() == null || annotation.getClientSaveTime() == null) {
+      return null;
+    }
     annotationDao.save(annotation);
     return annotation;
   }
@@ -741,10 +940,11 @@ public class VLEServiceImpl implements VLEService {
   }
 
   public List<NotebookItem> getNotebookItemsByGroup(Integer runId, String groupName) {
-    return notebookItemDao.getNotebookItemByGroup(runId, groupName);
+    return notebookItemGroupDao.getLatestNotebookItemsInGroup(runId, groupName);
   }
 
   @Override
+  @Transactional
   public NotebookItem saveNotebookItem(Integer id, Integer runId, Integer periodId,
       Integer workgroupId, String nodeId, String componentId, Integer studentWorkId,
       Integer studentAssetId, String localNotebookItemId, String type, String title, String content,
@@ -841,33 +1041,48 @@ public class VLEServiceImpl implements VLEService {
       notebookItem.setServerDeleteTime(null);
     }
 
-    notebookItemDao.save(notebookItem);
+    saveNotebookItem(notebookItem);
     return notebookItem;
   }
 
+  /**
+   * Saves the NotebookItem and makes its NotebookItemGroups match the groups in its groups JSON
+   * array, in the same transaction.
+   */
+  private void saveNotebookItem(NotebookItem notebookItem) {
+    boolean isNew = notebookItem.getId() == null;
+    notebookItemDao.save(notebookItem);
+    Set<String> groupNames = notebookItem.getGroupNames();
+    if (!isNew) {
+      for (NotebookItemGroup notebookItemGroup :
+          notebookItemGroupDao.getNotebookItemGroups(notebookItem)) {
+        if (!groupNames.remove(notebookItemGroup.getGroupName())) {
+          notebookItemGroupDao.delete(notebookItemGroup);
+        }
+      }
+    }
+    for (String groupName : groupNames) {
+      NotebookItemGroup notebookItemGroup = new NotebookItemGroup();
+      notebookItemGroup.setNotebookItem(notebookItem);
+      notebookItemGroup.setRun(notebookItem.getRun());
+      notebookItemGroup.setGroupName(groupName);
+      notebookItemGroupDao.save(notebookItemGroup);
+    }
+  }
+
+  @Transactional
   public NotebookItem addNotebookItemToGroup(Integer notebookItemId, String group,
       String clientSaveTime) throws NotebookItemAlreadyInGroupException {
     try {
       NotebookItem notebookItem = (NotebookItem) notebookItemDao.getById(notebookItemId);
-      NotebookItem copiedNotebookItem = notebookItem.copy();
-      if (copiedNotebookItem.isInGroup(group)) {
+      Set<String> groupNames = notebookItem.getGroupNames();
+      if (!groupNames.add(group)) {
         throw new NotebookItemAlreadyInGroupException(notebookItem, group);
       }
-      String groups = copiedNotebookItem.getGroups();
-      try {
-        JSONArray groupsJSONArray;
-        if (groups == null) {
-          groupsJSONArray = new JSONArray();
-        } else {
-          groupsJSONArray = new JSONArray(groups);
-        }
-        groupsJSONArray.put(group);
-        copiedNotebookItem.setGroups(groupsJSONArray.toString());
-        copiedNotebookItem.setClientSaveTime(new Timestamp(new Long(clientSaveTime)));
-        notebookItemDao.save(copiedNotebookItem);
-      } catch (JSONException e) {
-        e.printStackTrace();
-      }
+      NotebookItem copiedNotebookItem = notebookItem.copy();
+      copiedNotebookItem.setGroupNames(groupNames);
+      copiedNotebookItem.setClientSaveTime(new Timestamp(new Long(clientSaveTime)));
+      saveNotebookItem(copiedNotebookItem);
       return copiedNotebookItem;
     } catch (ObjectNotFoundException e) {
       e.printStackTrace();
@@ -875,34 +1090,19 @@ public class VLEServiceImpl implements VLEService {
     }
   }
 
+  @Transactional
   public NotebookItem removeNotebookItemFromGroup(Integer notebookItemId, String group,
       String clientSaveTime) {
     try {
       NotebookItem notebookItem = (NotebookItem) notebookItemDao.getById(notebookItemId);
-      if (!notebookItem.isInGroup(group)) {
+      Set<String> groupNames = notebookItem.getGroupNames();
+      if (!groupNames.remove(group)) {
         return notebookItem;
       }
       NotebookItem copiedNotebookItem = notebookItem.copy();
-      String groups = copiedNotebookItem.getGroups();
-      try {
-        JSONArray groupsJSONArray = new JSONArray(groups);
-        for (int g = 0; g < groupsJSONArray.length(); g++) {
-          String groupName = groupsJSONArray.getString(g);
-          if (group.equals(groupName)) {
-            groupsJSONArray.remove(g);
-            g--;
-          }
-        }
-        if (groupsJSONArray.length() == 0) {
-          copiedNotebookItem.setGroups(null);
-        } else {
-          copiedNotebookItem.setGroups(groupsJSONArray.toString());
-        }
-        copiedNotebookItem.setClientSaveTime(new Timestamp(new Long(clientSaveTime)));
-        notebookItemDao.save(copiedNotebookItem);
-      } catch (JSONException e) {
-        e.printStackTrace();
-      }
+      copiedNotebookItem.setGroupNames(groupNames);
+      copiedNotebookItem.setClientSaveTime(new Timestamp(new Long(clientSaveTime)));
+      saveNotebookItem(copiedNotebookItem);
       return copiedNotebookItem;
     } catch (ObjectNotFoundException e) {
       e.printStackTrace();
@@ -1088,4 +1288,44 @@ public class VLEServiceImpl implements VLEService {
   public RunStatus getRunStatusByRunId(Long runId) {
     return runStatusDao.getRunStatusByRunId(runId);
   }
+
+  /**
+   * Remembers the runs, periods and workgroups that have been retrieved while saving student data
+   * so that rows saved together only look up each of them once.
+   */
+  private class ReferenceCache {
+
+    private Map<Integer, Run> runs = new HashMap<Integer, Run>();
+
+    private Map<Integer, Group> periods = new HashMap<Integer, Group>();
+
+    private Map<Integer, Workgroup> workgroups = new HashMap<Integer, Workgroup>();
+
+    Run getRun(Integer runId) throws ObjectNotFoundException {
+      Run run = runs.get(runId);
+      if (run == null) {
+        run = runService.retrieveById(new Long(runId));
+        runs.put(runId, run);
+      }
+      return run;
+    }
+
+    Group getPeriod(Integer periodId) throws ObjectNotFoundException {
+      Group period = periods.get(periodId);
+      if (period == null) {
+        period = groupService.retrieveById(new Long(periodId));
+        periods.put(periodId, period);
+      }
+      return period;
+    }
+
+    Workgroup getWorkgroup(Integer workgroupId) throws ObjectNotFoundException {
+      Workgroup workgroup = workgroups.get(workgroupId);
+      if (workgroup == null) {
+        workgroup = workgroupService.retrieveById(new Long(workgroupId));
+        workgroups.put(workgroupId, workgroup);
+      }
+      return workgroup;
+    }
+  }
 }
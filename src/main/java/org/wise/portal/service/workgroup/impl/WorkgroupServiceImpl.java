@@ -40,6 +40,7 @@ import org.wise.portal.domain.workgroup.Workgroup;
 import org.wise.portal.domain.workgroup.impl.WorkgroupImpl;
 import org.wise.portal.service.acl.AclService;
 import org.wise.portal.service.group.GroupService;
+import org.wise.portal.service.membership.MembershipService;
 import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.user.UserService;
 import org.wise.portal.service.workgroup.WorkgroupService;
@@ -69,12 +70,16 @@ public class WorkgroupServiceImpl implements WorkgroupService {
   @Autowired
   protected AclService<Workgroup> aclService;
 
+  @Autowired
+  private MembershipService membershipService;
+
   @Transactional()
   public Workgroup createWorkgroup(String name, Set<User> members, Run run, Group period) {
     Workgroup workgroup = createWorkgroup(members, run, period);
     groupDao.save(workgroup.getGroup());
     workgroupDao.save(workgroup);
     aclService.addPermission(workgroup, BasePermission.ADMINISTRATION);
+    membershipService.evictMemberships(members);
     return workgroup;
   }
 
@@ -124,6 +129,7 @@ public class WorkgroupServiceImpl implements WorkgroupService {
     }
     groupDao.save(workgroup.getGroup());
     workgroupDao.save(workgroup);
+    membershipService.evictMemberships(membersToAdd);
   }
 
   @Transactional()
@@ -133,6 +139,7 @@ public class WorkgroupServiceImpl implements WorkgroupService {
     }
     groupDao.save(workgroup.getGroup());
     workgroupDao.save(workgroup);
+    membershipService.evictMemberships(membersToRemove);
   }
 
   @Transactional()
@@ -0,0 +1,117 @@
+package org.wise.portal.spring.data.redis;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MessagePublisher that buffers the messages sent to teacher topics for a short window and then
+ * publishes them together. Within a window, a message with a supersede key replaces the buffered
+ * message with the same key, so a teacher only receives the latest autosave of each workgroup's
+ * component. When a topic has more than one message at the end of a window, the messages are
+ * published as one batch message that RedisMessageSubscriber sends as a single frame.
+ * Messages to other topics are published right away.
+ */
+public class CoalescingMessagePublisher implements MessagePublisher {
+
+  public static final String BATCH_TYPE = "batch";
+
+  private static final String TEACHER_TOPIC_PREFIX = "/topic/teacher/";
+
+  private final MessagePublisher publisher;
+
+  private final long windowMillis;
+
+  private final ScheduledExecutorService scheduler;
+
+  private Map<String, Map<String, MessageEnvelope>> bufferedMessages = new LinkedHashMap<>();
+
+  private long messageCount = 0;
+
+  /**
+   * @param publisher publishes the messages at the end of each window
+   * @param windowMillis how long to buffer messages for. 0 or less publishes every message right
+   *                     away.
+   */
+  public CoalescingMessagePublisher(MessagePublisher publisher, long windowMillis) {
+    this.publisher = publisher;
+    this.windowMillis = windowMillis;
+    if (windowMillis > 0) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "coalescing-message-publisher");
+        thread.setDaemon(true);
+        return thread;
+      });
+      scheduler.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis,
+          TimeUnit.MILLISECONDS);
+    } else {
+      scheduler = null;
+    }
+  }
+
+  public void publish(MessageEnvelope message) {
+    if (windowMillis <= 0 || !isBufferedTopic(message.getTopic())) {
+      publisher.publish(message);
+      return;
+    }
+    synchronized (this) {
+      Map<String, MessageEnvelope> topicMessages = bufferedMessages
+          .computeIfAbsent(message.getTopic(), topic -> new LinkedHashMap<>());
+      String key = message.getSupersedeKey();
+      if (key == null) {
+        key = String.valueOf(messageCount++);
+      } else {
+        topicMessages.remove(key);
+      }
+      topicMessages.put(key, message);
+    }
+  }
+
+  /**
+   * Publishes the messages that have been buffered since the last flush, one message per topic.
+   */
+  public void flush() {
+    Map<String, Map<String, MessageEnvelope>> messagesToPublish;
+    synchronized (this) {
+      if (bufferedMessages.isEmpty()) {
+        return;
+      }
+      messagesToPublish = bufferedMessages;
+      bufferedMessages = new LinkedHashMap<>();
+    }
+    for (Map.Entry<String, Map<String, MessageEnvelope>> topicMessages :
+        messagesToPublish.entrySet()) {
+      try {
+        publisher.publish(createTopicMessage(topicMessages.getKey(),
+            new ArrayList<>(topicMessages.getValue().values())));
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Stops buffering and publishes the messages that are still buffered.
+   */
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+    flush();
+  }
+
+  private MessageEnvelope createTopicMessage(String topic, List<MessageEnvelope> messages) {
+    if (messages.size() == 1) {
+      return messages.get(0);
+    }
+    return MessageEnvelope.batch(BATCH_TYPE, topic, messages);
+  }
+
+  private boolean isBufferedTopic(String topic) {
+    return topic.startsWith(TEACHER_TOPIC_PREFIX);
+  }
+}
@@ -0,0 +1,64 @@
+package org.wise.portal.spring.data.redis;
+
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.data.redis.listener.ChannelTopic;
+
+/**
+ * Maps each websocket destination to the Redis channel of its run, so that an app node only
+ * receives the messages of the runs that its websocket clients are in. The teacher, classroom and
+ * workgroup destinations of a run all go through the run's channel, which also keeps the messages
+ * of each destination in order. Current authors destinations go through the channel of their
+ * project, and any other destination through one shared channel.
+ */
+public class MessageChannelSharding {
+
+  private static final Pattern RUN_DESTINATION =
+      Pattern.compile("/topic/(?:teacher|classroom)/(\\d{1,18})(?:/.*)?");
+
+  private static final Pattern WORKGROUP_DESTINATION =
+      Pattern.compile("/topic/workgroup/(\\d{1,18})");
+
+  private static final Pattern PROJECT_DESTINATION =
+      Pattern.compile("/topic/current-authors/(\\d{1,18})");
+
+  private final String channelPrefix;
+
+  private final Function<Long, Long> workgroupRunIds;
+
+  private final ChannelTopic otherChannel;
+
+  /**
+   * @param channelPrefix prefix of the channel names, e.g. "wise" maps destinations to channels
+   *                      "wise:run:{runId}", "wise:project:{projectId}" and "wise:other"
+   * @param workgroupRunIds gets the id of a workgroup's run, or null if there is no such workgroup
+   */
+  public MessageChannelSharding(String channelPrefix, Function<Long, Long> workgroupRunIds) {
+    this.channelPrefix = channelPrefix;
+    this.workgroupRunIds = workgroupRunIds;
+    this.otherChannel = new ChannelTopic(channelPrefix + ":other");
+  }
+
+  public ChannelTopic getChannel(String destination) {
+    Matcher matcher = RUN_DESTINATION.matcher(destination);
+    if (matcher.matches()) {
+      return getRunChannel(Long.valueOf(matcher.group(1)));
+    }
+    matcher = WORKGROUP_DESTINATION.matcher(destination);
+    if (matcher.matches()) {
+      Long runId = workgroupRunIds.apply(Long.valueOf(matcher.group(1)));
+      return runId == null ? otherChannel : getRunChannel(runId);
+    }
+    matcher = PROJECT_DESTINATION.matcher(destination);
+    if (matcher.matches()) {
+      return new ChannelTopic(channelPrefix + ":project:" + matcher.group(1));
+    }
+    return otherChannel;
+  }
+
+  public ChannelTopic getRunChannel(Long runId) {
+    return new ChannelTopic(channelPrefix + ":run:" + runId);
+  }
+}
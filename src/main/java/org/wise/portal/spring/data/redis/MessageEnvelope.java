@@ -0,0 +1,127 @@
+package org.wise.portal.spring.data.redis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * A message that is published on the Redis channel of its run and forwarded to a websocket topic
+ * by RedisMessageSubscriber. The payload is kept as the UTF-8 bytes that the publisher created,
+ * e.g. the JSON of a StudentWork, so it can be forwarded without being parsed again.
+ *
+ * The envelope is encoded as a version byte, the type, the topic, the payload length and the
+ * payload. A batch envelope's payload is the encoded envelopes that it contains.
+ */
+@Getter
+public class MessageEnvelope {
+
+  private static final byte VERSION = 1;
+
+  private static final byte[] EMPTY_PAYLOAD = new byte[0];
+
+  private final String type;
+
+  private final String topic;
+
+  private final byte[] payload;
+
+  /**
+   * Key that a later envelope with the same key supersedes while they are buffered by
+   * CoalescingMessagePublisher, or null if the envelope can't be superseded. It is not encoded.
+   */
+  private final String supersedeKey;
+
+  public MessageEnvelope(String type, String topic) {
+    this(type, topic, EMPTY_PAYLOAD, null);
+  }
+
+  public MessageEnvelope(String type, String topic, String payload) {
+    this(type, topic, payload, null);
+  }
+
+  public MessageEnvelope(String type, String topic, String payload, String supersedeKey) {
+    this(type, topic, payload.getBytes(StandardCharsets.UTF_8), supersedeKey);
+  }
+
+  public MessageEnvelope(String type, String topic, byte[] payload, String supersedeKey) {
+    this.type = type;
+    this.topic = topic;
+    this.payload = payload;
+    this.supersedeKey = supersedeKey;
+  }
+
+  /**
+   * @return an envelope of the specified type whose payload is the encoded envelopes
+   */
+  public static MessageEnvelope batch(String type, String topic, List<MessageEnvelope> envelopes) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(envelopes.size());
+      for (MessageEnvelope envelope : envelopes) {
+        envelope.writeTo(out);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new MessageEnvelope(type, topic, bytes.toByteArray(), null);
+  }
+
+  /**
+   * @return the envelopes in the payload of a batch envelope
+   */
+  public List<MessageEnvelope> unbatch() throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+    int size = in.readInt();
+    List<MessageEnvelope> envelopes = new ArrayList<MessageEnvelope>(size);
+    for (int e = 0; e < size; e++) {
+      envelopes.add(readFrom(in));
+    }
+    return envelopes;
+  }
+
+  public byte[] encode() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 64);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writeTo(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static MessageEnvelope decode(byte[] bytes) throws IOException {
+    return readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+  }
+
+  public String getPayloadAsString() {
+    return new String(payload, StandardCharsets.UTF_8);
+  }
+
+  private void writeTo(DataOutputStream out) throws IOException {
+    out.writeByte(VERSION);
+    out.writeUTF(type);
+    out.writeUTF(topic);
+    out.writeInt(payload.length);
+    out.write(payload);
+  }
+
+  private static MessageEnvelope readFrom(DataInputStream in) throws IOException {
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported message envelope version " + version);
+    }
+    String type = in.readUTF();
+    String topic = in.readUTF();
+    byte[] payload = new byte[in.readInt()];
+    in.readFully(payload);
+    return new MessageEnvelope(type, topic, payload, null);
+  }
+}
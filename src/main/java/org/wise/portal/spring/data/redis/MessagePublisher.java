@@ -1,5 +1,5 @@
 package org.wise.portal.spring.data.redis;
 
 public interface MessagePublisher {
-  void publish(Object message);
+  void publish(MessageEnvelope message);
 }
@@ -0,0 +1,119 @@
+package org.wise.portal.spring.data.redis;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+/**
+ * Subscribes this node to the Redis channel of a websocket destination while at least one of its
+ * websocket clients is subscribed to a destination on that channel, and unsubscribes when the last
+ * of those clients unsubscribes or disconnects.
+ */
+public class RedisChannelSubscriptionManager
+    implements ApplicationListener<AbstractSubProtocolEvent> {
+
+  private static final String TOPIC_PREFIX = "/topic/";
+
+  private final RedisMessageListenerContainer container;
+
+  private final MessageListener messageListener;
+
+  private final MessageChannelSharding channelSharding;
+
+  /**
+   * Channel of each websocket subscription, by session id and subscription id
+   */
+  private final Map<String, Map<String, ChannelTopic>> sessionSubscriptions =
+      new HashMap<String, Map<String, ChannelTopic>>();
+
+  /**
+   * Number of websocket subscriptions on each channel
+   */
+  private final Map<ChannelTopic, Integer> channelSubscriptionCounts =
+      new HashMap<ChannelTopic, Integer>();
+
+  public RedisChannelSubscriptionManager(RedisMessageListenerContainer container,
+      MessageListener messageListener, MessageChannelSharding channelSharding) {
+    this.container = container;
+    this.messageListener = messageListener;
+    this.channelSharding = channelSharding;
+  }
+
+  @Override
+  public void onApplicationEvent(AbstractSubProtocolEvent event) {
+    SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+    if (event instanceof SessionSubscribeEvent) {
+      subscribe(headers.getSessionId(), headers.getSubscriptionId(), headers.getDestination());
+    } else if (event instanceof SessionUnsubscribeEvent) {
+      unsubscribe(headers.getSessionId(), headers.getSubscriptionId());
+    } else if (event instanceof SessionDisconnectEvent) {
+      disconnect(((SessionDisconnectEvent) event).getSessionId());
+    }
+  }
+
+  public void subscribe(String sessionId, String subscriptionId, String destination) {
+    if (sessionId == null || subscriptionId == null || destination == null
+        || !destination.startsWith(TOPIC_PREFIX)) {
+      return;
+    }
+    // looking up the run of a workgroup can read the database, so it is done outside the lock
+    subscribe(sessionId, subscriptionId, channelSharding.getChannel(destination));
+  }
+
+  private synchronized void subscribe(String sessionId, String subscriptionId,
+      ChannelTopic channel) {
+    ChannelTopic previousChannel = sessionSubscriptions
+        .computeIfAbsent(sessionId, id -> new HashMap<String, ChannelTopic>())
+        .put(subscriptionId, channel);
+    if (previousChannel != null) {
+      releaseChannel(previousChannel);
+    }
+    int count = channelSubscriptionCounts.getOrDefault(channel, 0);
+    if (count == 0) {
+      container.addMessageListener(messageListener, channel);
+    }
+    channelSubscriptionCounts.put(channel, count + 1);
+  }
+
+  public synchronized void unsubscribe(String sessionId, String subscriptionId) {
+    Map<String, ChannelTopic> subscriptions = sessionSubscriptions.get(sessionId);
+    if (subscriptions == null) {
+      return;
+    }
+    ChannelTopic channel = subscriptions.remove(subscriptionId);
+    if (subscriptions.isEmpty()) {
+      sessionSubscriptions.remove(sessionId);
+    }
+    if (channel != null) {
+      releaseChannel(channel);
+    }
+  }
+
+  public synchronized void disconnect(String sessionId) {
+    Map<String, ChannelTopic> subscriptions = sessionSubscriptions.remove(sessionId);
+    if (subscriptions != null) {
+      for (ChannelTopic channel : subscriptions.values()) {
+        releaseChannel(channel);
+      }
+    }
+  }
+
+  private void releaseChannel(ChannelTopic channel) {
+    int count = channelSubscriptionCounts.getOrDefault(channel, 0) - 1;
+    if (count <= 0) {
+      channelSubscriptionCounts.remove(channel);
+      container.removeMessageListener(messageListener, channel);
+    } else {
+      channelSubscriptionCounts.put(channel, count);
+    }
+  }
+}
@@ -1,8 +1,10 @@
 package org.wise.portal.spring.data.redis;
 
+import java.nio.charset.StandardCharsets;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.listener.ChannelTopic;
 
 public class RedisMessagePublisher implements MessagePublisher {
 
@@ -10,18 +12,24 @@ public class RedisMessagePublisher implements MessagePublisher {
   private RedisTemplate<String, Object> redisTemplate;
 
   @Autowired
-  private ChannelTopic topic;
+  private MessageChannelSharding channelSharding;
 
   public RedisMessagePublisher() {
   }
 
   public RedisMessagePublisher(
-    RedisTemplate<String, Object> redisTemplate, ChannelTopic topic) {
+    RedisTemplate<String, Object> redisTemplate, MessageChannelSharding channelSharding) {
     this.redisTemplate = redisTemplate;
-    this.topic = topic;
+    this.channelSharding = channelSharding;
   }
 
-  public void publish(Object message) {
-    redisTemplate.convertAndSend(topic.getTopic(), message);
+  /**
+   * Publishes the message on the channel of its topic.
+   */
+  public void publish(MessageEnvelope message) {
+    byte[] channel = channelSharding.getChannel(message.getTopic()).getTopic()
+        .getBytes(StandardCharsets.UTF_8);
+    byte[] body = message.encode();
+    redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, body));
   }
 }
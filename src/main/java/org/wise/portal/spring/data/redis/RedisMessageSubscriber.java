@@ -1,87 +1,145 @@
 package org.wise.portal.spring.data.redis;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
-import org.wise.vle.domain.WebSocketMessage;
+import org.springframework.util.MimeTypeUtils;
 
+/**
+ * Forwards the MessageEnvelopes published on the Redis run channels to their websocket topic.
+ * Each envelope type has a FrameWriter that creates the frame sent to the topic, usually a
+ * WebSocketMessage whose content is the envelope's payload. The frame is written straight from
+ * the payload bytes, so the payload is never parsed.
+ */
 @Service
 public class RedisMessageSubscriber implements MessageListener {
 
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final byte[] BATCH_FRAME_START = ("{\"type\":\""
+      + CoalescingMessagePublisher.BATCH_TYPE + "\",\"content\":[")
+      .getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] BATCH_FRAME_END = "]}".getBytes(StandardCharsets.UTF_8);
+
   @Autowired
   private SimpMessagingTemplate simpMessagingTemplate;
 
+  private final Map<String, FrameWriter> frameWriters = new HashMap<String, FrameWriter>();
+
+  public RedisMessageSubscriber() {
+    registerWebSocketMessage("studentWorkToClassroom", "studentWork");
+    registerWebSocketMessage("studentWorkToTeacher", "studentWork");
+    registerWebSocketMessage("annotationToTeacher", "annotation");
+    registerWebSocketMessage("annotationToClassroom", "annotation");
+    registerWebSocketMessage("annotationToStudent", "annotation");
+    registerWebSocketMessage("studentStatusToTeacher", "studentStatus");
+    registerWebSocketMessage("achievementToTeacher", "newStudentAchievement");
+    registerWebSocketMessage("notification", "notification");
+    registerWebSocketMessage("pause", "pause");
+    registerWebSocketMessage("unpause", "unpause");
+    registerWebSocketMessage("goToNode", "goToNode");
+    registerWebSocketMessage("goToNextNode", "goToNextNode");
+    registerWebSocketMessage("node", "node");
+    registerWebSocketMessage("tagsToWorkgroup", "tagsToWorkgroup");
+    frameWriters.put("currentAuthors", MessageEnvelope::getPayload);
+    frameWriters.put(CoalescingMessagePublisher.BATCH_TYPE, this::writeBatchFrame);
+  }
+
+  public RedisMessageSubscriber(SimpMessagingTemplate simpMessagingTemplate) {
+    this();
+    this.simpMessagingTemplate = simpMessagingTemplate;
+  }
+
   public void onMessage(Message message, byte[] pattern) {
     try {
-      JSONObject messageJSON = new JSONObject(new String(message.getBody()));
-      if (messageJSON.get("type").equals("currentAuthors")) {
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"),
-            messageJSON.getJSONArray("currentAuthors").toString());
-      } else if (messageJSON.get("type").equals("studentWorkToClassroom") ||
-          messageJSON.get("type").equals("studentWorkToTeacher")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("studentWork", messageJSON.getString("studentWork"));
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"), webSockeMessage);
-      } else if (messageJSON.get("type").equals("annotationToTeacher") ||
-          messageJSON.get("type").equals("annotationToClassroom")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("annotation", messageJSON.getString("annotation"));
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"), webSockeMessage);
-      } else if (messageJSON.get("type").equals("studentStatusToTeacher")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("studentStatus",
-            messageJSON.getString("studentStatus"));
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"),
-            webSockeMessage);
-      } else if (messageJSON.get("type").equals("achievementToTeacher")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage(
-            "newStudentAchievement", messageJSON.getString("achievement"));
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"),
-            webSockeMessage);
-      } else if (messageJSON.get("type").equals("annotationToStudent")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("annotation",
-            messageJSON.getString("annotation"));
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"),
-            webSockeMessage);
-      } else if (messageJSON.get("type").equals("notification")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("notification",
-            messageJSON.getString("notification"));
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"),
-            webSockeMessage);
-      } else if (messageJSON.get("type").equals("pause")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("pause", "");
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"),
-            webSockeMessage);
-      } else if (messageJSON.get("type").equals("unpause")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("unpause", "");
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"),
-            webSockeMessage);
-      } else if (messageJSON.get("type").equals("goToNode")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("goToNode",
-            messageJSON.getString("nodeId"));
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"),
-            webSockeMessage);
-      } else if (messageJSON.get("type").equals("goToNextNode")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("goToNextNode",
-            "");
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"), webSockeMessage);
-      } else if (messageJSON.get("type").equals("node")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("node",
-            messageJSON.getString("node"));
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"), webSockeMessage);
-      } else if (messageJSON.get("type").equals("node")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("node",
-            messageJSON.getString("node"));
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"),
-            webSockeMessage);
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"), webSockeMessage);
-      } else if (messageJSON.get("type").equals("tagsToWorkgroup")) {
-        WebSocketMessage webSockeMessage = new WebSocketMessage("tagsToWorkgroup", messageJSON.getString("tags"));
-        simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"), webSockeMessage);
-      }
-    } catch (JSONException e) {
+      forward(MessageEnvelope.decode(message.getBody()));
+    } catch (IOException e) {
       e.printStackTrace();
     }
   }
+
+  /**
+   * Sends the envelope's frame to its websocket topic
+   */
+  public void forward(MessageEnvelope envelope) throws IOException {
+    byte[] frame = writeFrame(envelope);
+    if (frame != null) {
+      send(envelope.getTopic(), frame);
+    }
+  }
+
+  /**
+   * @return the frame to send for the envelope, or null if the envelope's type is not registered
+   */
+  private byte[] writeFrame(MessageEnvelope envelope) throws IOException {
+    FrameWriter frameWriter = frameWriters.get(envelope.getType());
+    return frameWriter == null ? null : frameWriter.write(envelope);
+  }
+
+  /**
+   * Registers a FrameWriter that writes the envelope as a WebSocketMessage of the specified type
+   * whose content is the payload string.
+   */
+  private void registerWebSocketMessage(String envelopeType, String webSocketMessageType) {
+    frameWriters.put(envelopeType, envelope -> {
+      byte[] payload = envelope.getPayload();
+      ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.length + 64);
+      try (JsonGenerator generator = JSON_FACTORY.createGenerator(frame)) {
+        generator.writeStartObject();
+        generator.writeStringField("type", webSocketMessageType);
+        generator.writeFieldName("content");
+        generator.writeUTF8String(payload, 0, payload.length);
+        generator.writeEndObject();
+      }
+      return frame.toByteArray();
+    });
+  }
+
+  /**
+   * Writes the envelopes in a batch as one WebSocketMessage whose content is the array of their
+   * frames.
+   */
+  private byte[] writeBatchFrame(MessageEnvelope batch) throws IOException {
+    ByteArrayOutputStream frame = new ByteArrayOutputStream(batch.getPayload().length + 64);
+    frame.write(BATCH_FRAME_START);
+    boolean isFirstFrame = true;
+    for (MessageEnvelope envelope : batch.unbatch()) {
+      byte[] messageFrame = writeFrame(envelope);
+      if (messageFrame != null) {
+        if (!isFirstFrame) {
+          frame.write(',');
+        }
+        frame.write(messageFrame);
+        isFirstFrame = false;
+      }
+    }
+    frame.write(BATCH_FRAME_END);
+    return frame.toByteArray();
+  }
+
+  private void send(String topic, byte[] frame) {
+    SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+    headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+    headers.setLeaveMutable(true);
+    simpMessagingTemplate.send(topic, MessageBuilder.createMessage(frame,
+        headers.getMessageHeaders()));
+  }
+
+  private interface FrameWriter {
+    byte[] write(MessageEnvelope envelope) throws IOException;
+  }
 }
@@ -0,0 +1,26 @@
+package org.wise.portal.spring.data.redis;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * MessagePublisher that sends messages straight to the websocket topics without going through
+ * Redis. Used when the websocket broker is an external STOMP broker relay, because the relay
+ * already delivers a message to the subscribers connected to every server.
+ */
+public class SimpMessagePublisher implements MessagePublisher {
+
+  private final RedisMessageSubscriber subscriber;
+
+  public SimpMessagePublisher(RedisMessageSubscriber subscriber) {
+    this.subscriber = subscriber;
+  }
+
+  public void publish(MessageEnvelope message) {
+    try {
+      subscriber.forward(message);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -58,6 +58,15 @@ public class HibernateConfig {
   @Value("${spring.jpa.hibernate.ddl-auto:none}")
   private String hibernateDDLAuto;
 
+  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+  private String hibernateJdbcBatchSize;
+
+  @Value("${spring.jpa.properties.hibernate.order_inserts:true}")
+  private String hibernateOrderInserts;
+
+  @Value("${spring.jpa.properties.hibernate.order_updates:true}")
+  private String hibernateOrderUpdates;
+
   @Bean
   @Primary
   public LocalSessionFactoryBean sessionFactory() {
@@ -81,6 +90,9 @@ public class HibernateConfig {
     properties.setProperty("hibernate.storage_engine", hibernateStorageEngine);
     properties.setProperty("hibernate.id.new_generator_mappings", hibernateGeneratorMappings);
     properties.setProperty("hibernate.hbm2ddl.auto", hibernateDDLAuto);
+    properties.setProperty("hibernate.jdbc.batch_size", hibernateJdbcBatchSize);
+    properties.setProperty("hibernate.order_inserts", hibernateOrderInserts);
+    properties.setProperty("hibernate.order_updates", hibernateOrderUpdates);
     return properties;
   }
 }
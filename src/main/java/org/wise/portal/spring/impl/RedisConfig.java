@@ -1,6 +1,10 @@
 package org.wise.portal.spring.impl;
 
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -8,19 +12,26 @@ import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
 import org.springframework.data.redis.serializer.GenericToStringSerializer;
 import org.springframework.session.data.redis.config.ConfigureRedisAction;
+import org.wise.portal.service.membership.MembershipService;
+import org.wise.portal.spring.data.redis.CoalescingMessagePublisher;
+import org.wise.portal.spring.data.redis.MessageChannelSharding;
 import org.wise.portal.spring.data.redis.MessagePublisher;
+import org.wise.portal.spring.data.redis.RedisChannelSubscriptionManager;
 import org.wise.portal.spring.data.redis.RedisMessagePublisher;
 import org.wise.portal.spring.data.redis.RedisMessageSubscriber;
+import org.wise.portal.spring.data.redis.SimpMessagePublisher;
 import redis.clients.jedis.JedisPoolConfig;
 
 @Configuration
 public class RedisConfig {
 
+  @Autowired
+  private MembershipService membershipService;
+
   @Value("${spring.redis.host}")
   private String redisHostName;
 
@@ -33,6 +44,18 @@ public class RedisConfig {
   @Value("${spring.redis.pool.max.total}")
   private int redisPoolMaxTotal;
 
+  @Value("${spring.redis.publisher.batch.window.ms:100}")
+  private long redisPublisherBatchWindowMillis;
+
+  @Value("${" + WebSocketConfig.BROKER_MODE_PROPERTY + ":" + WebSocketConfig.BROKER_MODE_SIMPLE
+      + "}")
+  private String brokerMode;
+
+  @PostConstruct
+  public void checkBrokerMode() {
+    WebSocketConfig.checkBrokerMode(brokerMode);
+  }
+
   @Bean
   public RedisConnectionFactory redisConnectionFactory() {
     JedisPoolConfig poolConfig = new JedisPoolConfig();
@@ -78,17 +101,30 @@ public class RedisConfig {
   RedisMessageListenerContainer redisContainer() {
     RedisMessageListenerContainer container = new RedisMessageListenerContainer();
     container.setConnectionFactory(redisConnectionFactory());
-    container.addMessageListener(messageListener(), topic());
     return container;
   }
 
   @Bean
+  @ConditionalOnProperty(name = WebSocketConfig.BROKER_MODE_PROPERTY,
+      havingValue = WebSocketConfig.BROKER_MODE_SIMPLE, matchIfMissing = true)
+  RedisChannelSubscriptionManager redisChannelSubscriptionManager() {
+    return new RedisChannelSubscriptionManager(redisContainer(), messageListener(),
+        messageChannelSharding());
+  }
+
+  @Bean(destroyMethod = "destroy")
   MessagePublisher redisPublisher() {
-    return new RedisMessagePublisher(redisTemplate(), topic());
+    MessagePublisher publisher;
+    if (WebSocketConfig.BROKER_MODE_RELAY.equals(brokerMode)) {
+      publisher = new SimpMessagePublisher(redisMessageSubscriber());
+    } else {
+      publisher = new RedisMessagePublisher(redisTemplate(), messageChannelSharding());
+    }
+    return new CoalescingMessagePublisher(publisher, redisPublisherBatchWindowMillis);
   }
 
   @Bean
-  ChannelTopic topic() {
-    return new ChannelTopic("messageQueue");
+  MessageChannelSharding messageChannelSharding() {
+    return new MessageChannelSharding("wise", membershipService::getWorkgroupRunId);
   }
 }
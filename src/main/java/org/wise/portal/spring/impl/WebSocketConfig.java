@@ -1,11 +1,13 @@
 package org.wise.portal.spring.impl;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
 import org.springframework.messaging.handler.invocation.HandlerMethodReturnValueHandler;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.TaskExecutorRegistration;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -13,13 +15,87 @@ import org.springframework.web.socket.config.annotation.WebSocketTransportRegist
 
 import java.util.List;
 
+import javax.annotation.PostConstruct;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+  /**
+   * "simple" uses the in-memory broker of each server and shares messages between servers through
+   * Redis. "relay" relays to an external STOMP broker (e.g. ActiveMQ Artemis or RabbitMQ) that
+   * all servers connect to.
+   */
+  public static final String BROKER_MODE_PROPERTY = "websocket.broker.mode";
+
+  public static final String BROKER_MODE_SIMPLE = "simple";
+
+  public static final String BROKER_MODE_RELAY = "relay";
+
+  @Value("${" + BROKER_MODE_PROPERTY + ":" + BROKER_MODE_SIMPLE + "}")
+  private String brokerMode;
+
+  @Value("${websocket.broker.relay.host:localhost}")
+  private String relayHost;
+
+  @Value("${websocket.broker.relay.port:61613}")
+  private int relayPort;
+
+  @Value("${websocket.broker.relay.login:guest}")
+  private String relayLogin;
+
+  @Value("${websocket.broker.relay.passcode:guest}")
+  private String relayPasscode;
+
+  @Value("${websocket.inbound.pool.core.size:0}")
+  private int inboundCorePoolSize;
+
+  @Value("${websocket.inbound.pool.max.size:0}")
+  private int inboundMaxPoolSize;
+
+  @Value("${websocket.outbound.pool.core.size:0}")
+  private int outboundCorePoolSize;
+
+  @Value("${websocket.outbound.pool.max.size:0}")
+  private int outboundMaxPoolSize;
+
+  @Value("${websocket.message.size.limit:65536}")
+  private int messageSizeLimit;
+
+  @Value("${websocket.send.buffer.size.limit:524288}")
+  private int sendBufferSizeLimit;
+
+  @Value("${websocket.send.time.limit.ms:10000}")
+  private int sendTimeLimit;
+
+  /**
+   * Fails the startup on an unknown broker mode instead of running without a working broker.
+   */
+  @PostConstruct
+  public void checkBrokerMode() {
+    checkBrokerMode(brokerMode);
+  }
+
+  public static void checkBrokerMode(String brokerMode) {
+    if (!BROKER_MODE_SIMPLE.equals(brokerMode) && !BROKER_MODE_RELAY.equals(brokerMode)) {
+      throw new IllegalStateException(BROKER_MODE_PROPERTY + " must be \"" + BROKER_MODE_SIMPLE
+          + "\" or \"" + BROKER_MODE_RELAY + "\" but is \"" + brokerMode + "\"");
+    }
+  }
+
   @Override
   public void configureMessageBroker(MessageBrokerRegistry config) {
-    config.enableSimpleBroker("/topic");
+    if (BROKER_MODE_RELAY.equals(brokerMode)) {
+      config.enableStompBrokerRelay("/topic")
+          .setRelayHost(relayHost)
+          .setRelayPort(relayPort)
+          .setClientLogin(relayLogin)
+          .setClientPasscode(relayPasscode)
+          .setSystemLogin(relayLogin)
+          .setSystemPasscode(relayPasscode);
+    } else {
+      config.enableSimpleBroker("/topic");
+    }
     config.setApplicationDestinationPrefixes("/app");
   }
 
@@ -30,17 +106,35 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
   @Override
   public void configureWebSocketTransport(WebSocketTransportRegistration webSocketTransportRegistration) {
-
+    webSocketTransportRegistration.setMessageSizeLimit(messageSizeLimit)
+        .setSendBufferSizeLimit(sendBufferSizeLimit)
+        .setSendTimeLimit(sendTimeLimit);
   }
 
   @Override
   public void configureClientInboundChannel(ChannelRegistration channelRegistration) {
-
+    configureTaskExecutor(channelRegistration, inboundCorePoolSize, inboundMaxPoolSize);
   }
 
   @Override
   public void configureClientOutboundChannel(ChannelRegistration channelRegistration) {
+    configureTaskExecutor(channelRegistration, outboundCorePoolSize, outboundMaxPoolSize);
+  }
 
+  /**
+   * Sets the pool sizes of the channel's executor. A size of 0 or less keeps Spring's default.
+   */
+  private void configureTaskExecutor(ChannelRegistration channelRegistration, int corePoolSize,
+      int maxPoolSize) {
+    if (corePoolSize > 0 || maxPoolSize > 0) {
+      TaskExecutorRegistration taskExecutor = channelRegistration.taskExecutor();
+      if (corePoolSize > 0) {
+        taskExecutor.corePoolSize(corePoolSize);
+      }
+      if (maxPoolSize > 0) {
+        taskExecutor.maxPoolSize(maxPoolSize);
+      }
+    }
   }
 
   @Override
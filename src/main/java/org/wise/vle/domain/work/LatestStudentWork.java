@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2008-2020 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.vle.domain.work;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.wise.portal.domain.group.Group;
+import org.wise.portal.domain.group.impl.PersistentGroup;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.run.impl.RunImpl;
+import org.wise.portal.domain.workgroup.Workgroup;
+import org.wise.portal.domain.workgroup.impl.WorkgroupImpl;
+import org.wise.vle.domain.PersistableDomain;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Points to the latest StudentWork that a workgroup saved for a component. There is one row per
+ * workgroup and component, which is updated every time the workgroup saves work for the component.
+ */
+@Entity
+@Table(name = "latestStudentWork", uniqueConstraints = {
+    @UniqueConstraint(columnNames = { "runId", "workgroupId", "nodeId", "componentId" },
+        name = "latestStudentWorkUnique") },
+    indexes = {
+    @Index(columnList = "runId, nodeId, componentId", name = "latestStudentWorkComponentIndex") })
+@Getter
+@Setter
+public class LatestStudentWork extends PersistableDomain {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.AUTO)
+  private Integer id = null;
+
+  @ManyToOne(targetEntity = RunImpl.class, cascade = {
+      CascadeType.PERSIST }, fetch = FetchType.LAZY)
+  @JoinColumn(name = "runId", nullable = false)
+  private Run run;
+
+  @ManyToOne(targetEntity = PersistentGroup.class, cascade = {
+      CascadeType.PERSIST }, fetch = FetchType.LAZY)
+  @JoinColumn(name = "periodId", nullable = false)
+  private Group period;
+
+  @ManyToOne(targetEntity = WorkgroupImpl.class, cascade = {
+      CascadeType.PERSIST }, fetch = FetchType.LAZY)
+  @JoinColumn(name = "workgroupId", nullable = false)
+  private Workgroup workgroup;
+
+  @Column(name = "nodeId", nullable = false, length = 30)
+  private String nodeId;
+
+  @Column(name = "componentId", nullable = false, length = 30)
+  private String componentId;
+
+  @ManyToOne(targetEntity = StudentWork.class, fetch = FetchType.LAZY)
+  @JoinColumn(name = "studentWorkId", nullable = false)
+  private StudentWork studentWork;
+
+  @Override
+  protected Class<?> getObjectClass() {
+    return LatestStudentWork.class;
+  }
+}
@@ -25,6 +25,9 @@ package org.wise.vle.domain.work;
 
 import java.sql.Timestamp;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -61,7 +64,9 @@ import lombok.Setter;
 @Entity
 @Table(name = "notebookItems",  indexes = {
     @Index(columnList = "runId", name = "notebookItemsRunIdIndex"),
-    @Index(columnList = "workgroupId", name = "notebookItemsWorkgroupIdIndex")})
+    @Index(columnList = "workgroupId", name = "notebookItemsWorkgroupIdIndex"),
+    @Index(columnList = "runId, workgroupId, localNotebookItemId, id",
+        name = "notebookItemsRunLatestIndex")})
 @Getter
 @Setter
 public class NotebookItem extends PersistableDomain {
@@ -136,20 +141,33 @@ public class NotebookItem extends PersistableDomain {
   }
 
   public boolean isInGroup(String groupName) {
+    return getGroupNames().contains(groupName);
+  }
+
+  /**
+   * @return the names of the groups in the groups JSON array, without duplicates
+   */
+  @JsonIgnore
+  public Set<String> getGroupNames() {
+    Set<String> groupNames = new LinkedHashSet<String>();
     if (groups != null) {
       try {
         JSONArray groupsArray = new JSONArray(groups);
         for (int i = 0; i < groupsArray.length(); i++) {
-          String group = (String) groupsArray.get(i);
-          if (group.equals(groupName)) {
-            return true;
-          }
+          groupNames.add(groupsArray.getString(i));
         }
       } catch (JSONException e) {
         e.printStackTrace();
       }
     }
-    return false;
+    return groupNames;
+  }
+
+  /**
+   * Sets the groups JSON array to the group names, or to null if there are none
+   */
+  public void setGroupNames(Collection<String> groupNames) {
+    groups = groupNames.isEmpty() ? null : new JSONArray(groupNames).toString();
   }
 
   public NotebookItem copy() {
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2008-2020 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.vle.domain.work;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.run.impl.RunImpl;
+import org.wise.vle.domain.PersistableDomain;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Membership of a NotebookItem in one of the groups in its groups JSON array, e.g. "public". There
+ * is one row per NotebookItem and group, kept in sync with the JSON array whenever the
+ * NotebookItem is saved, so the items in a group can be found with an index lookup.
+ */
+@Entity
+@Table(name = "notebookItemGroups", uniqueConstraints = {
+    @UniqueConstraint(columnNames = { "notebookItemId", "groupName" },
+        name = "notebookItemGroupsUnique") },
+    indexes = {
+    @Index(columnList = "runId, groupName, notebookItemId", name = "notebookItemGroupsRunIndex") })
+@Getter
+@Setter
+public class NotebookItemGroup extends PersistableDomain {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.AUTO)
+  private Integer id = null;
+
+  @ManyToOne(targetEntity = NotebookItem.class, fetch = FetchType.LAZY)
+  @JoinColumn(name = "notebookItemId", nullable = false)
+  private NotebookItem notebookItem;
+
+  @ManyToOne(targetEntity = RunImpl.class, cascade = {
+      CascadeType.PERSIST }, fetch = FetchType.LAZY)
+  @JoinColumn(name = "runId", nullable = false)
+  private Run run;
+
+  @Column(name = "groupName", nullable = false)
+  private String groupName;
+
+  @Override
+  protected Class<?> getObjectClass() {
+    return NotebookItemGroup.class;
+  }
+}
@@ -49,7 +49,9 @@ import org.wise.vle.domain.PersistableDomain;
 @Entity
 @Table(name = "studentWork", indexes = {
     @Index(columnList = "runId", name = "studentWorkRunIdIndex"),
-    @Index(columnList = "workgroupId", name = "studentWorkWorkgroupIdIndex") })
+    @Index(columnList = "workgroupId", name = "studentWorkWorkgroupIdIndex"),
+    @Index(columnList = "runId, nodeId, componentId, workgroupId, serverSaveTime",
+        name = "studentWorkLatestWorkIndex") })
 @Getter
 @Setter
 public class StudentWork extends PersistableDomain {
@@ -29,9 +29,20 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import org.apache.commons.io.FileUtils;
+import org.json.JSONException;
+import org.json.JSONObject;
 import org.wise.portal.domain.project.Project;
 
 /**
@@ -44,6 +55,14 @@ public class FileManager {
 
   private static Properties appProperties = null;
 
+  /**
+   * File in a project folder that keeps the hash, size and modified time of each file in the
+   * project's assets folder, so assets are only hashed again when they change
+   */
+  static final String ASSETS_MANIFEST_FILE_NAME = "assets-manifest.json";
+
+  private static final int HASH_BUFFER_SIZE = 8192;
+
   static {
     try {
       appProperties = new Properties();
@@ -108,7 +127,6 @@ public class FileManager {
   public static String importAssetInContent(String fromAssetFileName, String fromAssetFileContent,
       File fromProjectAssetsFolder, File toProjectAssetsFolder) {
     String toAssetFileName = null;
-    String toAssetFileContent = null;
     File fromAsset = new File(fromProjectAssetsFolder, fromAssetFileName);
     if (fromAsset.exists()) {
       toAssetFileName = fromAssetFileName;
@@ -125,27 +143,24 @@ public class FileManager {
        * is different, we will look for another file name to use. if the file does not exist, we
        * will make it.
        */
+      String fromAssetHash = null;
+      Map<String, String> toAssetHashes = null;
       while (!assetCompleted) {
         if (toAsset.exists()) {
           try {
-            toAssetFileContent = FileUtils.readFileToString(toAsset);
-          } catch (IOException e1) {
-            e1.printStackTrace();
-          }
-
-          try {
-            boolean contentMatches = false;
-            if (fromAssetFileContent != null) {
+            if (fromAssetHash == null) {
               /*
-               * the from asset file content was passed in so we will compare it with the to asset
-               * file content
+               * if the from asset file content was passed in we will compare its hash with the
+               * hash of the to asset file
                */
-              if (fromAssetFileContent.equals(toAssetFileContent)) {
-                contentMatches = true;
-              }
-            } else if (FileUtils.contentEquals(fromAsset, toAsset)) {
-              contentMatches = true;
+              fromAssetHash = fromAssetFileContent != null
+                  ? getHash(fromAssetFileContent.getBytes(Charset.defaultCharset()))
+                  : getAssetHash(fromProjectAssetsFolder,
+                  getAssetHashes(fromProjectAssetsFolder), fromAsset);
+              toAssetHashes = getAssetHashes(toProjectAssetsFolder);
             }
+            boolean contentMatches = getAssetHash(toProjectAssetsFolder, toAssetHashes, toAsset)
+                .equals(fromAssetHash);
 
             if (contentMatches) {
               assetCompleted = true;
@@ -176,6 +191,120 @@ public class FileManager {
     return toAssetFileName;
   }
 
+  /**
+   * Gets the SHA-256 hashes of the files in the assets folder from the project's assets manifest,
+   * hashing the files that are not in the manifest or that changed since they were hashed and
+   * saving them to the manifest
+   * @param assetsFolder the assets folder of a project
+   * @return the hex hash of each file in the assets folder, by file name
+   */
+  public static Map<String, String> getAssetHashes(File assetsFolder) throws IOException {
+    Map<String, String> assetHashes = new HashMap<String, String>();
+    File[] assets = assetsFolder.listFiles(File::isFile);
+    if (assets == null) {
+      return assetHashes;
+    }
+    File manifestFile = new File(assetsFolder.getParentFile(), ASSETS_MANIFEST_FILE_NAME);
+    JSONObject manifest = readAssetsManifest(manifestFile);
+    JSONObject newManifest = new JSONObject();
+    boolean isManifestChanged = manifest.length() != assets.length;
+    try {
+      for (File asset : assets) {
+        JSONObject entry = manifest.optJSONObject(asset.getName());
+        if (entry == null || entry.optLong("size") != asset.length()
+            || entry.optLong("lastModified") != asset.lastModified()) {
+          entry = new JSONObject();
+          entry.put("size", asset.length());
+          entry.put("lastModified", asset.lastModified());
+          entry.put("sha256", getHash(asset));
+          isManifestChanged = true;
+        }
+        newManifest.put(asset.getName(), entry);
+        assetHashes.put(asset.getName(), entry.getString("sha256"));
+      }
+    } catch (JSONException e) {
+      throw new IOException(e);
+    }
+    if (isManifestChanged) {
+      writeAssetsManifest(manifestFile, newManifest);
+    }
+    return assetHashes;
+  }
+
+  /**
+   * @return the asset's hash from the hashes of its assets folder, or its computed hash if it is
+   * in a subfolder
+   */
+  private static String getAssetHash(File assetsFolder, Map<String, String> assetHashes,
+      File asset) throws IOException {
+    if (assetsFolder.equals(asset.getParentFile()) && assetHashes.containsKey(asset.getName())) {
+      return assetHashes.get(asset.getName());
+    }
+    return getHash(asset);
+  }
+
+  private static JSONObject readAssetsManifest(File manifestFile) {
+    if (manifestFile.isFile()) {
+      try {
+        return new JSONObject(FileUtils.readFileToString(manifestFile, "UTF-8"));
+      } catch (IOException | JSONException e) {
+        e.printStackTrace();
+      }
+    }
+    return new JSONObject();
+  }
+
+  /**
+   * Replaces the manifest so that readers never see a partly written manifest. If two requests
+   * write the manifest at the same time, the hashes of one of them are lost and computed again.
+   */
+  private static void writeAssetsManifest(File manifestFile, JSONObject manifest)
+      throws IOException {
+    Path tempFile = Files.createTempFile(manifestFile.getParentFile().toPath(),
+        ASSETS_MANIFEST_FILE_NAME, ".tmp");
+    try {
+      FileUtils.writeStringToFile(tempFile.toFile(), manifest.toString(), "UTF-8");
+      Files.move(tempFile, manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  /**
+   * @return the hex SHA-256 hash of the file's content
+   */
+  public static String getHash(File file) throws IOException {
+    MessageDigest digest = getSHA256Digest();
+    try (InputStream in = new FileInputStream(file)) {
+      byte[] buffer = new byte[HASH_BUFFER_SIZE];
+      int length;
+      while ((length = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, length);
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * @return the hex SHA-256 hash of the content
+   */
+  public static String getHash(byte[] content) {
+    return toHex(getSHA256Digest().digest(content));
+  }
+
+  private static MessageDigest getSHA256Digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] hash) {
+    return String.format("%0" + (hash.length * 2) + "x", new BigInteger(1, hash));
+  }
+
   /**
    * Create a new file name by adding '-' and a number to the end of the file name.
    *
@@ -30,6 +30,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Calendar;
 import java.util.Enumeration;
 import java.util.Iterator;
@@ -37,6 +40,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -44,7 +49,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -61,6 +65,8 @@ import org.wise.portal.domain.run.Run;
 import org.wise.portal.domain.user.User;
 import org.wise.portal.domain.workgroup.Workgroup;
 import org.wise.portal.presentation.web.controllers.ControllerUtil;
+import org.wise.portal.service.asset.AssetBlobService;
+import org.wise.portal.service.asset.AssetUsageService;
 import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.workgroup.WorkgroupService;
 
@@ -75,8 +81,19 @@ import org.wise.portal.service.workgroup.WorkgroupService;
 @RequestMapping("/assetManager")
 public class AssetManager {
 
+  private static final int COPY_BUFFER_SIZE = 8192;
+
+  /**
+   * Number of bytes added to a folder's usage at a time while a zip file is extracted
+   */
+  private static final long ZIP_RESERVATION_BYTES = 1048576;
+
   private static Properties appProperties;
 
+  private static AssetUsageService assetUsageService;
+
+  private static AssetBlobService assetBlobService;
+
   @Autowired
   private RunService runService;
 
@@ -88,6 +105,16 @@ public class AssetManager {
     AssetManager.appProperties = appProperties;
   }
 
+  @Autowired
+  public void setAssetUsageService(AssetUsageService assetUsageService) {
+    AssetManager.assetUsageService = assetUsageService;
+  }
+
+  @Autowired
+  public void setAssetBlobService(AssetBlobService assetBlobService) {
+    AssetManager.assetBlobService = assetBlobService;
+  }
+
   public AssetManager() {
     super();
   }
@@ -270,42 +297,16 @@ public class AssetManager {
       if (SecurityUtils.isAllowedAccess(path, assetsDir)) {
         String filename = file.getOriginalFilename();
         File asset = new File(assetsDir, filename);
-        byte[] content = file.getBytes();
+        File folderToCheckSize = new File(pathToCheckSize);
 
-        if (Long.parseLong(getFolderSize(pathToCheckSize)) + content.length > maxTotalAssetsSize) {
+        if (!writeAsset(file, asset, folderToCheckSize, maxTotalAssetsSize)) {
           return false;
-        } else {
-          if (!asset.exists()) {
-            asset.createNewFile();
-          }
-          FileOutputStream fos = new FileOutputStream(asset);
-          fos.write(content);
-          fos.flush();
-          fos.close();
         }
 
         if ("application/zip".equals(file.getContentType()) ||
             "application/x-zip".equals(file.getContentType()) ||
             "application/x-zip-compressed".equals(file.getContentType())) {
-          ZipFile zipFile = new ZipFile(asset);
-          Enumeration<? extends ZipEntry> entries = zipFile.entries();
-          while (entries.hasMoreElements()) {
-            ZipEntry entry = entries.nextElement();
-            File entryDestination = new File(assetsDir, entry.getName());
-            if (entry.isDirectory()) {
-              entryDestination.mkdirs();
-            } else {
-              File parent = entryDestination.getParentFile();
-              if (!parent.exists() && !parent.mkdirs()) {
-                throw new IllegalStateException("Couldn't create dir: " + parent);
-              }
-              InputStream in = zipFile.getInputStream(entry);
-              OutputStream out = new FileOutputStream(entryDestination);
-              IOUtils.copy(in, out);
-              IOUtils.closeQuietly(in);
-              IOUtils.closeQuietly(out);
-            }
-          }
+          extractZip(asset, assetsDir, folderToCheckSize, maxTotalAssetsSize);
         } else {
         }
         return true;
@@ -353,7 +354,8 @@ public class AssetManager {
     File referencedAsset = new File(referencedAssetsFullDir, newFilename);
 
     try {
-      AssetManager.copy(unreferencedAsset, referencedAsset);
+      assetBlobService.copyStudentAsset(unreferencedAsset, referencedAsset);
+      assetUsageService.addUsedBytes(referencedAssetsFullDir, referencedAsset.length());
     } catch (FileNotFoundException e) {
       e.printStackTrace();
       return null;
@@ -388,7 +390,7 @@ public class AssetManager {
           File assetFile = new File(assetDir, assetFileName);
           if (assetFile.exists() && assetFile.isFile()) {
             if (SecurityUtils.isAllowedAccess(path, assetFile.getCanonicalPath())) {
-              return assetFile.delete();
+              return deleteAsset(assetDir, assetFile);
             } else {
               return false;
             }
@@ -434,18 +436,11 @@ public class AssetManager {
             MultipartFile file = fileMap.get(key);
             String filename = file.getOriginalFilename();
             File asset = new File(assetsDir, filename);
-            byte[] content = file.getBytes();
+            File folderToCheckSize = new File(pathToCheckSize);
 
-            if (Long.parseLong(getFolderSize(pathToCheckSize)) + content.length > maxTotalAssetsSize) {
-              successMessage += "Uploading " + filename + " of size " + appropriateSize(content.length) + " would exceed your maximum storage capacity of "  + appropriateSize(maxTotalAssetsSize) + ". Operation aborted.";
+            if (!writeAsset(file, asset, folderToCheckSize, maxTotalAssetsSize)) {
+              successMessage += "Uploading " + filename + " of size " + appropriateSize(file.getSize()) + " would exceed your maximum storage capacity of "  + appropriateSize(maxTotalAssetsSize) + ". Operation aborted.";
             } else {
-              if (!asset.exists()) {
-                asset.createNewFile();
-              }
-              FileOutputStream fos = new FileOutputStream(asset);
-              fos.write(content);
-              fos.flush();
-              fos.close();
               successMessage += asset.getName() + " was successfully uploaded! ";
             }
 
@@ -455,29 +450,13 @@ public class AssetManager {
               String unzippedFolderName = filename.substring(0, filename.lastIndexOf(".zip"));
               File unzippedFolder = new File(assetsDir, unzippedFolderName);
               if (unzippedFolder.exists()) {
+                long unzippedFolderSize = FileUtils.sizeOfDirectory(unzippedFolder);
                 FileUtils.deleteDirectory(unzippedFolder);
+                assetUsageService.addUsedBytes(folderToCheckSize, -unzippedFolderSize);
               }
-              ZipFile zipFile = new ZipFile(asset);
-              Enumeration<? extends ZipEntry> entries = zipFile.entries();
-              while (entries.hasMoreElements()) {
-                ZipEntry entry = entries.nextElement();
-                File entryDestination = new File(assetsDir, entry.getName());
-                if (entry.isDirectory()) {
-                  entryDestination.mkdirs();
-                } else {
-                  File parent = entryDestination.getParentFile();
-                  if (!parent.exists() && !parent.mkdirs()) {
-                    throw new IllegalStateException("Couldn't create dir: " + parent);
-                  }
-                  InputStream in = zipFile.getInputStream(entry);
-                  OutputStream out = new FileOutputStream(entryDestination);
-                  IOUtils.copy(in, out);
-                  IOUtils.closeQuietly(in);
-                  IOUtils.closeQuietly(out);
-                }
-              }
+              extractZip(asset, assetsDir, folderToCheckSize, maxTotalAssetsSize);
               successMessage += "WISE also extracted files from the zip file! ";
-              asset.delete();
+              deleteAsset(folderToCheckSize, asset);
             } else {
             }
           }
@@ -528,7 +507,8 @@ public class AssetManager {
     File referencedAsset = new File(referencedAssetsFullDir, newFilename);
 
     try {
-      AssetManager.copy(unreferencedAsset, referencedAsset);
+      assetBlobService.copyStudentAsset(unreferencedAsset, referencedAsset);
+      assetUsageService.addUsedBytes(referencedAssetsFullDir, referencedAsset.length());
     } catch (FileNotFoundException e) {
       e.printStackTrace();
     } catch (IOException e) {
@@ -544,6 +524,160 @@ public class AssetManager {
     return response.toString();
   }
 
+  /**
+   * Streams the uploaded file to a temporary file next to the asset folder and moves it into place
+   * if the folder's usage stays within the maximum, replacing the asset if it exists. The upload
+   * is never read into memory.
+   * @param file the uploaded file
+   * @param asset the file to write
+   * @param folderToCheckSize the folder whose usage includes the asset
+   * @param maxTotalAssetsSize the max disk space usage allowable
+   * @return true iff the asset was written
+   */
+  public static boolean writeAsset(MultipartFile file, File asset, File folderToCheckSize,
+      long maxTotalAssetsSize) throws IOException {
+    long addedBytes = file.getSize() - (asset.isFile() ? asset.length() : 0);
+    if (!assetUsageService.reserveBytes(folderToCheckSize, addedBytes, maxTotalAssetsSize)) {
+      return false;
+    }
+    Path tempFile = null;
+    try {
+      tempFile = Files.createTempFile(getTempFolder(asset.getParentFile()), "upload", ".tmp");
+      file.transferTo(tempFile);
+      Files.move(tempFile, asset.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      assetUsageService.addUsedBytes(folderToCheckSize, -addedBytes);
+      throw e;
+    } finally {
+      if (tempFile != null) {
+        Files.deleteIfExists(tempFile);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Extracts the entries of the zip file into a temporary folder and then moves them into the
+   * folder, replacing files that exist. The bytes are added to the usage of folderToCheckSize as
+   * they are extracted, so extracting stops as soon as the usage would exceed the maximum.
+   * Nothing is moved into the folder if extracting fails.
+   * @throws IOException if the zip file has too many entries, has an entry outside of the folder
+   * or would exceed the maximum usage
+   */
+  private static void extractZip(File zip, File folder, File folderToCheckSize,
+      long maxTotalAssetsSize) throws IOException {
+    int maxEntries = Integer.parseInt(appProperties.getProperty("asset_zip_max_entries", "1000"));
+    Path tempFolder = Files.createTempDirectory(getTempFolder(folder), "extract");
+    long reservedBytes = 0;
+    long extractedBytes = 0;
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      if (zipFile.size() > maxEntries) {
+        throw new IOException(zip.getName() + " has more than " + maxEntries + " entries");
+      }
+      byte[] buffer = new byte[COPY_BUFFER_SIZE];
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        Path entryDestination = tempFolder.resolve(entry.getName()).normalize();
+        if (!entryDestination.startsWith(tempFolder)) {
+          throw new IOException(entry.getName() + " is outside of the folder");
+        }
+        if (entry.isDirectory()) {
+          Files.createDirectories(entryDestination);
+        } else {
+          Files.createDirectories(entryDestination.getParent());
+          try (InputStream in = zipFile.getInputStream(entry);
+              OutputStream out = Files.newOutputStream(entryDestination)) {
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+              extractedBytes += length;
+              if (extractedBytes > reservedBytes) {
+                reservedBytes += reserveZipBytes(zip, folderToCheckSize,
+                    extractedBytes - reservedBytes, maxTotalAssetsSize);
+              }
+              out.write(buffer, 0, length);
+            }
+          }
+        }
+      }
+      long replacedBytes = moveFiles(tempFolder, folder.toPath());
+      assetUsageService.addUsedBytes(folderToCheckSize,
+          extractedBytes - reservedBytes - replacedBytes);
+    } catch (IOException | RuntimeException e) {
+      assetUsageService.addUsedBytes(folderToCheckSize, -reservedBytes);
+      throw e;
+    } finally {
+      FileUtils.deleteQuietly(tempFolder.toFile());
+    }
+  }
+
+  /**
+   * Adds ZIP_RESERVATION_BYTES to the folder's usage, or just the bytes that are needed if that
+   * would exceed the maximum
+   * @return the number of bytes added
+   * @throws IOException if the needed bytes would exceed the maximum
+   */
+  private static long reserveZipBytes(File zip, File folderToCheckSize, long neededBytes,
+      long maxTotalAssetsSize) throws IOException {
+    long bytes = Math.max(neededBytes, ZIP_RESERVATION_BYTES);
+    if (assetUsageService.reserveBytes(folderToCheckSize, bytes, maxTotalAssetsSize)) {
+      return bytes;
+    } else if (bytes > neededBytes
+        && assetUsageService.reserveBytes(folderToCheckSize, neededBytes, maxTotalAssetsSize)) {
+      return neededBytes;
+    }
+    throw new IOException("Extracting " + zip.getName() + " would exceed the maximum storage "
+        + "capacity of " + appropriateSize(maxTotalAssetsSize));
+  }
+
+  /**
+   * Moves the files in the source folder to the same paths in the target folder, replacing files
+   * that exist
+   * @return the number of bytes used by the files that were replaced
+   */
+  private static long moveFiles(Path sourceFolder, Path targetFolder) throws IOException {
+    List<Path> paths;
+    try (Stream<Path> walk = Files.walk(sourceFolder)) {
+      paths = walk.sorted().collect(Collectors.toList());
+    }
+    long replacedBytes = 0;
+    for (Path path : paths) {
+      Path target = targetFolder.resolve(sourceFolder.relativize(path));
+      if (Files.isDirectory(path)) {
+        Files.createDirectories(target);
+      } else {
+        if (Files.isRegularFile(target)) {
+          replacedBytes += Files.size(target);
+        }
+        Files.move(path, target, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      }
+    }
+    return replacedBytes;
+  }
+
+  /**
+   * Temporary files are created next to the asset folder so they can be moved into it atomically
+   * without being counted in its usage while they are written
+   */
+  private static Path getTempFolder(File folder) {
+    return folder.getAbsoluteFile().getParentFile().toPath();
+  }
+
+  /**
+   * Deletes the asset and removes the bytes it used from the usage of the folder
+   * @return true iff the asset was deleted
+   */
+  private static boolean deleteAsset(File folder, File asset) {
+    long assetSize = asset.length();
+    if (asset.delete()) {
+      assetUsageService.addUsedBytes(folder, -assetSize);
+      return true;
+    }
+    return false;
+  }
+
   /**
    * Copies the given <code>File</code> src to the given <code>File</code> dest. If they
    * are directories, recursively copies the contents of the directories.
@@ -577,7 +711,8 @@ public class AssetManager {
   }
 
   /**
-   * Returns the size in bytes of all of the files in the specified path/dirname
+   * Returns the size in bytes of all of the files in the specified path/dirname and its
+   * subfolders, as counted by the AssetUsageService
    * @param path the path to the parent directory
    * @param dirName the directory name
    * @return the disk space usage of the folder
@@ -590,12 +725,7 @@ public class AssetManager {
       if (projectDir.exists()) {
         File assetsDir = new File(projectDir, dirName);
         if (assetsDir.exists() && assetsDir.isDirectory()) {
-          long total = 0;
-          File[] files = assetsDir.listFiles();
-          for (File file : files) {
-            total += file.length();
-          }
-          return String.valueOf(total);
+          return String.valueOf(assetUsageService.getUsedBytes(assetsDir));
         } else {
           return "0";
         }
@@ -605,27 +735,6 @@ public class AssetManager {
     }
   }
 
-  /**
-   * Returns the size in bytes of all of the files in the specified path/dirname
-   * @param folderPath the path to the folder as a string
-   * @return <code>String</code> size of all files in assets folder in bytes
-   */
-  public static String getFolderSize(String folderPath) {
-    String folderSize = "";
-    if (folderPath != null) {
-      File folder = new File(folderPath);
-      if (folder.exists() && folder.isDirectory()) {
-        long sizeOfDirectory = FileUtils.sizeOfDirectory(folder);
-        folderSize = String.valueOf(sizeOfDirectory);
-      } else {
-        folderSize = "Given folder path does not exist or is not a folder.";
-      }
-    } else {
-      folderSize = "Folder path not provided.";
-    }
-    return folderSize;
-  }
-
   /**
    * Removes an asset from the folder
    * @param path the path to the parent folder
@@ -651,7 +760,7 @@ public class AssetManager {
           File assetFile = new File(assetDir, assetFileName);
           if (assetFile.exists() && assetFile.isFile()) {
             if (SecurityUtils.isAllowedAccess(path, assetFile.getCanonicalPath())) {
-              if (assetFile.delete()) {
+              if (deleteAsset(assetDir, assetFile)) {
                 result = "Asset " + assetFileName + " successfully deleted from server.";
               } else {
                 result = "Server Error";
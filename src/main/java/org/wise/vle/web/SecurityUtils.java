@@ -26,7 +26,6 @@ package org.wise.vle.web;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -37,12 +36,11 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.domain.authentication.MutableUserDetails;
-import org.wise.portal.domain.group.Group;
 import org.wise.portal.domain.run.Run;
 import org.wise.portal.domain.user.User;
-import org.wise.portal.domain.workgroup.Workgroup;
 import org.wise.portal.presentation.web.controllers.ControllerUtil;
 import org.wise.portal.service.authentication.UserDetailsService;
+import org.wise.portal.service.membership.MembershipService;
 import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.workgroup.WorkgroupService;
 
@@ -57,6 +55,8 @@ public final class SecurityUtils {
 
   private static RunService runService;
 
+  private static MembershipService membershipService;
+
   private static boolean isPortalMode = true;
 
   private static List<String> ALLOWED_REFERRERS;
@@ -66,6 +66,11 @@ public final class SecurityUtils {
     SecurityUtils.runService = runService;
   }
 
+  @Autowired
+  public void setMembershipService(MembershipService membershipService){
+    SecurityUtils.membershipService = membershipService;
+  }
+
   @Autowired
   public void setWorkgroupService(WorkgroupService workgroupService){
     SecurityUtils.workgroupService = workgroupService;
@@ -278,22 +283,7 @@ public final class SecurityUtils {
    * @return whether the user is in the run
    */
   public static boolean isUserInRun(User user, Long runId) {
-    boolean result = false;
-    if (user != null && runId != null) {
-      List<Run> runList =  runService.getRunList(user);
-      Iterator<Run> runListIterator = runList.iterator();
-      while (runListIterator.hasNext()) {
-        Run tempRun = runListIterator.next();
-        if (tempRun != null) {
-          Long tempRunId = tempRun.getId();
-          if (runId.equals(tempRunId)) {
-            result = true;
-            break;
-          }
-        }
-      }
-    }
-    return result;
+    return user != null && runId != null && membershipService.isUserInRun(user, runId);
   }
 
   /**
@@ -304,21 +294,8 @@ public final class SecurityUtils {
    * @return whether the user is in the period
    */
   public static boolean isUserInPeriod(User user, Long runId, Long periodId) {
-    boolean result = false;
-    if (user != null && runId != null && periodId != null) {
-      try {
-        Run run =  runService.retrieveById(runId);
-        Group periodOfStudent = run.getPeriodOfStudent(user);
-        if (periodOfStudent != null) {
-          Long tempPeriodId = periodOfStudent.getId();
-          if(periodId.equals(tempPeriodId)) {
-            result = true;
-          }
-        }
-      } catch (ObjectNotFoundException e) {
-      }
-    }
-    return result;
+    return user != null && runId != null && periodId != null &&
+        membershipService.isUserInPeriod(user, runId, periodId);
   }
 
   /**
@@ -328,22 +305,8 @@ public final class SecurityUtils {
    * @return whether the user is in the workgroup
    */
   public static boolean isUserInWorkgroup(User user, Long workgroupId) {
-    boolean result = false;
-    if (user != null && workgroupId != null) {
-      List<Workgroup> workgroupsForUser = workgroupService.getWorkgroupsForUser(user);
-      Iterator<Workgroup> workgroupsForUserIterator = workgroupsForUser.iterator();
-      while (workgroupsForUserIterator.hasNext()) {
-        Workgroup tempWorkgroup = workgroupsForUserIterator.next();
-        if (tempWorkgroup != null) {
-          Long tempWorkgroupId = tempWorkgroup.getId();
-          if (workgroupId.equals(tempWorkgroupId)) {
-            result = true;
-            break;
-          }
-        }
-      }
-    }
-    return result;
+    return user != null && workgroupId != null &&
+        membershipService.isUserInWorkgroup(user, workgroupId);
   }
 
   /**
@@ -353,24 +316,8 @@ public final class SecurityUtils {
    * @return whether the workgroup is in the run
    */
   public static boolean isWorkgroupInRun(Long workgroupId, Long runId) {
-    boolean result = false;
-    if (workgroupId != null && runId != null) {
-      try {
-        List<Workgroup> workgroupsInRun = runService.getWorkgroups(runId);
-        Iterator<Workgroup> workgroupsInRunIterator = workgroupsInRun.iterator();
-        while (workgroupsInRunIterator.hasNext()) {
-          Workgroup tempWorkgroup = workgroupsInRunIterator.next();
-          Long tempWorkgroupId = tempWorkgroup.getId();
-          if (workgroupId.equals(tempWorkgroupId)) {
-            result = true;
-            break;
-          }
-        }
-      } catch (ObjectNotFoundException e) {
-        e.printStackTrace();
-      }
-    }
-    return result;
+    return workgroupId != null && runId != null &&
+        membershipService.isWorkgroupInRun(workgroupId, runId);
   }
 
   /**
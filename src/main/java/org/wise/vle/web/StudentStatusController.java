@@ -24,25 +24,22 @@
 package org.wise.vle.web;
 
 import java.io.IOException;
-import java.sql.Timestamp;
-import java.util.Calendar;
 
 import javax.servlet.http.HttpServletResponse;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.servlet.ModelAndView;
-import org.wise.portal.domain.run.Run;
 import org.wise.portal.domain.user.User;
 import org.wise.portal.presentation.web.controllers.ControllerUtil;
 import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.vle.wise5.VLEService;
+import org.wise.portal.spring.data.redis.MessageEnvelope;
 import org.wise.portal.spring.data.redis.MessagePublisher;
 import org.wise.vle.domain.status.StudentStatus;
 
@@ -112,20 +109,11 @@ public class StudentStatusController {
       return null;
     }
 
-    StudentStatus studentStatus = vleService.getStudentStatusByWorkgroupId(workgroupId);
-    if (studentStatus == null) {
-      studentStatus = new StudentStatus(runId, periodId, workgroupId, status);
-    } else {
-      Calendar now = Calendar.getInstance();
-      studentStatus.setTimestamp(new Timestamp(now.getTimeInMillis()));
-      studentStatus.setStatus(status);
-    }
-
+    StudentStatus studentStatus = new StudentStatus(runId, periodId, workgroupId, status);
     vleService.saveStudentStatus(studentStatus);
 
     try {
-      Run run = runService.retrieveById(runId);
-      Integer wiseVersion = run.getProject().getWiseVersion();
+      Integer wiseVersion = runService.getWiseVersion(runId);
       if (wiseVersion.equals(5)) {
         this.broadcastStudentStatusToTeacher(studentStatus);
       }
@@ -136,11 +124,9 @@ public class StudentStatusController {
   }
 
   public void broadcastStudentStatusToTeacher(StudentStatus studentStatus) throws Exception {
-    JSONObject message = new JSONObject();
-    message.put("type", "studentStatusToTeacher");
-    message.put("topic", String.format("/topic/teacher/%s", studentStatus.getRunId()));
-    message.put("studentStatus", studentStatus.getStatus());
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("studentStatusToTeacher",
+        String.format("/topic/teacher/%s", studentStatus.getRunId()), studentStatus.getStatus(),
+        "studentStatus/" + studentStatus.getWorkgroupId()));
   }
 
 }
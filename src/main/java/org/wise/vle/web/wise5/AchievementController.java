@@ -4,7 +4,6 @@ import java.io.IOException;
 import java.util.List;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
@@ -21,6 +20,7 @@ import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.user.UserService;
 import org.wise.portal.service.vle.wise5.VLEService;
 import org.wise.portal.service.workgroup.WorkgroupService;
+import org.wise.portal.spring.data.redis.MessageEnvelope;
 import org.wise.portal.spring.data.redis.MessagePublisher;
 import org.wise.vle.domain.achievement.Achievement;
 
@@ -109,10 +109,8 @@ public class AchievementController {
   }
 
   public void broadcastAchievementToTeacher(Achievement achievement) throws JSONException {
-    JSONObject message = new JSONObject();
-    message.put("type", "achievementToTeacher");
-    message.put("topic", String.format("/topic/teacher/%s", achievement.getRunId()));
-    message.put("achievement", achievement.toJSON());
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("achievementToTeacher",
+        String.format("/topic/teacher/%s", achievement.getRunId()),
+        achievement.toJSON().toString()));
   }
 }
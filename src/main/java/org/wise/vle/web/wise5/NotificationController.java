@@ -8,7 +8,6 @@ import java.util.Calendar;
 import java.util.List;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.acls.domain.BasePermission;
@@ -29,6 +28,7 @@ import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.user.UserService;
 import org.wise.portal.service.vle.wise5.VLEService;
 import org.wise.portal.service.workgroup.WorkgroupService;
+import org.wise.portal.spring.data.redis.MessageEnvelope;
 import org.wise.portal.spring.data.redis.MessagePublisher;
 import org.wise.vle.domain.notification.Notification;
 
@@ -59,11 +59,9 @@ public class NotificationController {
 
   public void broadcastNotification(Notification notification) throws JSONException {
     notification.convertToClientNotification();
-    JSONObject message = new JSONObject();
-    message.put("type", "notification");
-    message.put("topic", String.format("/topic/workgroup/%s", notification.getToWorkgroupId()));
-    message.put("notification", notification.toJSON());
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("notification",
+        String.format("/topic/workgroup/%s", notification.getToWorkgroupId()),
+        notification.toJSON().toString()));
   }
 
   @GetMapping("/notification/{runId}")
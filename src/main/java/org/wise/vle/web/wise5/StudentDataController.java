@@ -24,12 +24,15 @@
 package org.wise.vle.web.wise5;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.PrintWriter;
-import java.util.HashMap;
+import java.sql.Timestamp;
 import java.util.List;
 
 import javax.servlet.http.HttpServletResponse;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import org.json.JSONArray;
@@ -47,7 +50,9 @@ import org.wise.portal.domain.run.Run;
 import org.wise.portal.domain.user.User;
 import org.wise.portal.presentation.web.controllers.ControllerUtil;
 import org.wise.portal.service.run.RunService;
+import org.wise.portal.service.vle.wise5.StudentDataSaveResult;
 import org.wise.portal.service.vle.wise5.VLEService;
+import org.wise.portal.spring.data.redis.MessageEnvelope;
 import org.wise.portal.spring.data.redis.MessagePublisher;
 import org.wise.vle.domain.annotation.wise5.Annotation;
 import org.wise.vle.domain.work.Event;
@@ -96,92 +101,84 @@ public class StudentDataController {
       @RequestParam(value = "annotationType", required = false) String annotationType,
       @RequestParam(value = "components", required = false) List<JSONObject> components,
       @RequestParam(value = "onlyGetLatest", required = false) Boolean onlyGetLatest) {
-    JSONObject result = new JSONObject();
-    if (getStudentWork) {
-      List<StudentWork> studentWorkList = vleService.getStudentWorkList(id, runId, periodId,
-          workgroupId, isAutoSave, isSubmit, nodeId, componentId, componentType, components,
-          onlyGetLatest);
-      JSONArray studentWorkJSONArray = new JSONArray();
-      for (int c = 0; c < studentWorkList.size(); c++) {
-        StudentWork studentWork = studentWorkList.get(c);
-        studentWorkJSONArray.put(studentWork.toJSON());
-      }
-      try {
-        result.put("studentWorkList", studentWorkJSONArray);
-      } catch (JSONException e) {
-        e.printStackTrace();
+    response.setContentType("application/json;charset=UTF-8");
+    try (JsonGenerator generator = new JsonFactory().createGenerator(response.getOutputStream())) {
+      generator.writeStartObject();
+      if (getStudentWork) {
+        generator.writeArrayFieldStart("studentWorkList");
+        vleService.forEachStudentWork(id, runId, periodId, workgroupId, isAutoSave, isSubmit,
+            nodeId, componentId, componentType, components, onlyGetLatest,
+            studentWork -> writeRawValue(generator, studentWork.toJSON()));
+        generator.writeEndArray();
       }
-    }
-    if (getEvents) {
-      List<Event> events = vleService.getEvents(id, runId, periodId, workgroupId, nodeId,
-          componentId, componentType, context, category, event, components);
-      JSONArray eventsJSONArray = new JSONArray();
-      for (int e = 0; e < events.size(); e++) {
-        Event eventObject = events.get(e);
-        eventsJSONArray.put(eventObject.toJSON());
+      if (getEvents) {
+        generator.writeArrayFieldStart("events");
+        vleService.forEachEvent(id, runId, periodId, workgroupId, nodeId, componentId,
+            componentType, context, category, event, components,
+            eventObject -> writeRawValue(generator, eventObject.toJSON()));
+        generator.writeEndArray();
       }
-      try {
-        result.put("events", eventsJSONArray);
-      } catch (JSONException e) {
-        e.printStackTrace();
-      }
-    }
-    if (getAnnotations) {
-      List<Annotation> annotations = vleService.getAnnotations(id, runId, periodId, fromWorkgroupId,
-          toWorkgroupId, nodeId, componentId, studentWorkId, localNotebookItemId, notebookItemId,
-          annotationType);
-      JSONArray annotationsJSONArray = new JSONArray();
-      for (int a = 0; a < annotations.size(); a++) {
-        Annotation annotationObject = annotations.get(a);
-        annotationsJSONArray.put(annotationObject.toJSON());
-      }
-      try {
-        result.put("annotations", annotationsJSONArray);
-      } catch (JSONException e) {
-        e.printStackTrace();
+      if (getAnnotations) {
+        generator.writeArrayFieldStart("annotations");
+        vleService.forEachAnnotation(id, runId, periodId, fromWorkgroupId, toWorkgroupId, nodeId,
+            componentId, studentWorkId, localNotebookItemId, notebookItemId, annotationType,
+            annotation -> writeRawValue(generator, annotation.toJSON()));
+        generator.writeEndArray();
       }
+      generator.writeEndObject();
+    } catch (IOException | UncheckedIOException e) {
+      e.printStackTrace();
     }
+  }
+
+  /**
+   * Writes the JSON object as the next value of the array that the generator is writing so that
+   * the rows do not need to be collected in memory before the response is sent.
+   */
+  private void writeRawValue(JsonGenerator generator, JSONObject jsonObject) {
     try {
-      PrintWriter writer = response.getWriter();
-      writer.write(result.toString());
-      writer.close();
+      generator.writeRawValue(jsonObject.toString());
     } catch (IOException e) {
-      e.printStackTrace();
+      throw new UncheckedIOException(e);
     }
   }
 
   public void broadcastAnnotationToTeacher(Annotation annotation) throws JSONException {
-    JSONObject message = new JSONObject();
-    message.put("type", "annotationToTeacher");
-    message.put("topic", String.format("/topic/teacher/%s", annotation.getRunId()));
-    message.put("annotation", annotation.toJSON());
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("annotationToTeacher",
+        String.format("/topic/teacher/%s", annotation.getRunId()),
+        annotation.toJSON().toString()));
   }
 
   public void broadcastAnnotationToClassroom(Annotation annotation) throws JSONException {
-    JSONObject message = new JSONObject();
-    message.put("type", "annotationToClassroom");
-    message.put("topic", String.format("/topic/classroom/%s/%s",
-        annotation.getRunId(), annotation.getPeriodId()));
-    message.put("annotation", annotation.toJSON());
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("annotationToClassroom",
+        String.format("/topic/classroom/%s/%s", annotation.getRunId(), annotation.getPeriodId()),
+        annotation.toJSON().toString()));
   }
 
   public void broadcastStudentWorkToClassroom(StudentWork componentState) throws JSONException {
-    JSONObject message = new JSONObject();
-    message.put("type", "studentWorkToClassroom");
-    message.put("topic", String.format("/topic/classroom/%s/%s", componentState.getRunId(),
-        componentState.getPeriodId()));
-    message.put("studentWork", componentState.toJSON());
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("studentWorkToClassroom",
+        String.format("/topic/classroom/%s/%s", componentState.getRunId(),
+        componentState.getPeriodId()), componentState.toJSON().toString()));
   }
 
   public void broadcastStudentWorkToTeacher(StudentWork componentState) throws JSONException {
-    JSONObject message = new JSONObject();
-    message.put("type", "studentWorkToTeacher");
-    message.put("topic", String.format("/topic/teacher/%s", componentState.getRunId()));
-    message.put("studentWork", componentState.toJSON());
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("studentWorkToTeacher",
+        String.format("/topic/teacher/%s", componentState.getRunId()),
+        componentState.toJSON().toString(), getSupersedeKey(componentState)));
+  }
+
+  /**
+   * @return key that lets a later autosave of the same component replace this StudentWork while
+   *         it is buffered by the publisher. Submitted and Discussion student work is never
+   *         superseded so the teacher receives every submit and every post.
+   */
+  private String getSupersedeKey(StudentWork componentState) {
+    if (Boolean.TRUE.equals(componentState.getIsSubmit())
+        || "Discussion".equals(componentState.getComponentType())) {
+      return null;
+    }
+    return "studentWork/" + componentState.getWorkgroup().getId() + "/"
+        + componentState.getNodeId() + "/" + componentState.getComponentId();
   }
 
   /**
@@ -209,193 +206,69 @@ public class StudentDataController {
     try {
       Run run = runService.retrieveById(new Long(runId));
       if (run.isActive() && run.isStudentAssociatedToThisRun(signedInUser)) {
-        // maps nodeId_componentId to StudentWork.
-        HashMap<String, StudentWork> savedStudentWorkList = new HashMap<>();
-        // Used later for handling simultaneous POST of CRater annotation
-        // handle POST'ed studentWork
         JSONArray studentWorkJSONArray = new JSONArray(studentWorkList);
-        if (studentWorkJSONArray != null) {
-          JSONArray studentWorkResultJSONArray = new JSONArray();
-          for (int c = 0; c < studentWorkJSONArray.length(); c++) {
-            try {
-              JSONObject studentWorkJSONObject = studentWorkJSONArray.getJSONObject(c);
-              String requestToken = studentWorkJSONObject.getString("requestToken");
-              StudentWork studentWork = vleService.saveStudentWork(
-                  studentWorkJSONObject.isNull("id") ? null : studentWorkJSONObject.getInt("id"),
-                  studentWorkJSONObject.isNull("runId") ? null
-                    : studentWorkJSONObject.getInt("runId"),
-                  studentWorkJSONObject.isNull("periodId") ? null
-                    : studentWorkJSONObject.getInt("periodId"),
-                  studentWorkJSONObject.isNull("workgroupId") ? null
-                    : studentWorkJSONObject.getInt("workgroupId"),
-                  studentWorkJSONObject.isNull("isAutoSave") ? null
-                    : studentWorkJSONObject.getBoolean("isAutoSave"),
-                  studentWorkJSONObject.isNull("isSubmit") ? null
-                    : studentWorkJSONObject.getBoolean("isSubmit"),
-                  studentWorkJSONObject.isNull("nodeId") ? null
-                    : studentWorkJSONObject.getString("nodeId"),
-                  studentWorkJSONObject.isNull("componentId") ? null
-                    : studentWorkJSONObject.getString("componentId"),
-                  studentWorkJSONObject.isNull("componentType") ? null
-                    : studentWorkJSONObject.getString("componentType"),
-                  studentWorkJSONObject.isNull("studentData") ? null
-                    : studentWorkJSONObject.getString("studentData"),
-                  studentWorkJSONObject.isNull("clientSaveTime") ? null
-                    : studentWorkJSONObject.getString("clientSaveTime"));
-
-              if (studentWork.getNodeId() != null && studentWork.getComponentId() != null) {
-                // the student work was a component state, so save it for later when we might need
-                // it to add annotations
-                savedStudentWorkList
-                    .put(studentWork.getNodeId() + "_" + studentWork.getComponentId(), studentWork);
-              }
-
-              // before returning saved StudentWork, strip all fields except id, responseToken, and
-              // serverSaveTime to minimize response size
-              JSONObject savedStudentWorkJSONObject = new JSONObject();
-              savedStudentWorkJSONObject.put("id", studentWork.getId());
-              savedStudentWorkJSONObject.put("requestToken", requestToken);
-              savedStudentWorkJSONObject.put("serverSaveTime",
-                  studentWork.getServerSaveTime().getTime());
-              studentWorkResultJSONArray.put(savedStudentWorkJSONObject);
+        JSONArray eventsJSONArray = new JSONArray(events);
+        JSONArray annotationsJSONArray = new JSONArray(annotations);
+        StudentDataSaveResult savedStudentData = vleService.saveStudentData(studentWorkJSONArray,
+            eventsJSONArray, annotationsJSONArray);
 
-              studentWork.convertToClientStudentWork();
-              broadcastStudentWorkToTeacher(studentWork);
-              if (studentWork.getComponentType().equals("Discussion")) {
-                broadcastStudentWorkToClassroom(studentWork);
-              }
-            } catch (Exception e) {
-              e.printStackTrace();
+        JSONArray studentWorkResultJSONArray = new JSONArray();
+        List<StudentWork> savedStudentWorkList = savedStudentData.getStudentWorkList();
+        for (int c = 0; c < savedStudentWorkList.size(); c++) {
+          StudentWork studentWork = savedStudentWorkList.get(c);
+          if (studentWork == null) {
+            continue;
+          }
+          try {
+            // before returning saved StudentWork, strip all fields except id, responseToken, and
+            // serverSaveTime to minimize response size
+            studentWorkResultJSONArray.put(createSavedResponseJSONObject(studentWork.getId(),
+                studentWorkJSONArray.getJSONObject(c), studentWork.getServerSaveTime()));
+            studentWork.convertToClientStudentWork();
+            broadcastStudentWorkToTeacher(studentWork);
+            if (studentWork.getComponentType().equals("Discussion")) {
+              broadcastStudentWorkToClassroom(studentWork);
             }
+          } catch (Exception e) {
+            e.printStackTrace();
           }
-          result.put("studentWorkList", studentWorkResultJSONArray);
         }
-        JSONArray eventsJSONArray = new JSONArray(events);
-        if (eventsJSONArray != null) {
-          JSONArray eventsResultJSONArray = new JSONArray();
-          for (int e = 0; e < eventsJSONArray.length(); e++) {
-            try {
-              JSONObject eventJSONObject = eventsJSONArray.getJSONObject(e);
-              String requestToken = eventJSONObject.getString("requestToken");
-              Event event = vleService.saveEvent(
-                  eventJSONObject.isNull("id") ? null : eventJSONObject.getInt("id"),
-                  eventJSONObject.isNull("runId") ? null : eventJSONObject.getInt("runId"),
-                  eventJSONObject.isNull("periodId") ? null : eventJSONObject.getInt("periodId"),
-                  eventJSONObject.isNull("workgroupId") ? null
-                    : eventJSONObject.getInt("workgroupId"),
-                  eventJSONObject.isNull("nodeId") ? null : eventJSONObject.getString("nodeId"),
-                  eventJSONObject.isNull("componentId") ? null
-                    : eventJSONObject.getString("componentId"),
-                  eventJSONObject.isNull("componentType") ? null
-                    : eventJSONObject.getString("componentType"),
-                  eventJSONObject.isNull("context") ? null : eventJSONObject.getString("context"),
-                  eventJSONObject.isNull("category") ? null : eventJSONObject.getString("category"),
-                  eventJSONObject.isNull("event") ? null : eventJSONObject.getString("event"),
-                  eventJSONObject.isNull("data") ? null : eventJSONObject.getString("data"),
-                  eventJSONObject.isNull("clientSaveTime") ? null
-                    : eventJSONObject.getString("clientSaveTime"),
-                  eventJSONObject.isNull("projectId") ? null : eventJSONObject.getInt("projectId"),
-                  eventJSONObject.isNull("userId") ? null : eventJSONObject.getInt("userId"));
+        result.put("studentWorkList", studentWorkResultJSONArray);
 
-              // before returning saved Event, strip all fields except id, responseToken, and
-              // serverSaveTime to minimize response size
-              JSONObject savedEventJSONObject = new JSONObject();
-              savedEventJSONObject.put("id", event.getId());
-              savedEventJSONObject.put("requestToken", requestToken);
-              savedEventJSONObject.put("serverSaveTime", event.getServerSaveTime().getTime());
-              eventsResultJSONArray.put(savedEventJSONObject);
-            } catch (Exception exception) {
-              exception.printStackTrace();
-            }
+        JSONArray eventsResultJSONArray = new JSONArray();
+        List<Event> savedEvents = savedStudentData.getEvents();
+        for (int e = 0; e < savedEvents.size(); e++) {
+          Event event = savedEvents.get(e);
+          if (event == null) {
+            continue;
+          }
+          try {
+            eventsResultJSONArray.put(createSavedResponseJSONObject(event.getId(),
+                eventsJSONArray.getJSONObject(e), event.getServerSaveTime()));
+          } catch (Exception exception) {
+            exception.printStackTrace();
           }
-          result.put("events", eventsResultJSONArray);
         }
-        JSONArray annotationsJSONArray = new JSONArray(annotations);
-        if (annotationsJSONArray != null) {
-          JSONArray annotationsResultJSONArray = new JSONArray();
-          for (int a = 0; a < annotationsJSONArray.length(); a++) {
-            try {
-              JSONObject annotationJSONObject = annotationsJSONArray.getJSONObject(a);
-              String requestToken = annotationJSONObject.getString("requestToken");
-              Annotation annotation;
-              // check to see if this Annotation was posted along with a StudentWork (e.g. CRater)
-              if (annotationJSONObject.isNull("studentWorkId")
-                  && !annotationJSONObject.isNull("nodeId")
-                  && !annotationJSONObject.isNull("componentId")
-                  && savedStudentWorkList.containsKey(annotationJSONObject.getString("nodeId") + "_"
-                      + annotationJSONObject.getString("componentId"))) {
-                // this is an annotation for a StudentWork that we just saved.
-                String localNotebookItemId = null; // since this is an annotation on student work,
-                                                   // notebook item should be null.
-                Integer notebookItemId = null; // since this is an annotation on student work,
-                                               // notebook item should be null.
-                StudentWork savedStudentWork = savedStudentWorkList
-                    .get(annotationJSONObject.getString("nodeId") + "_"
-                        + annotationJSONObject.getString("componentId"));
-                Integer savedStudentWorkId = savedStudentWork.getId();
-                annotation = vleService.saveAnnotation(
-                    annotationJSONObject.isNull("id") ? null : annotationJSONObject.getInt("id"),
-                    annotationJSONObject.isNull("runId") ? null : annotationJSONObject.getInt("runId"),
-                    annotationJSONObject.isNull("periodId") ? null : annotationJSONObject.getInt("periodId"),
-                    annotationJSONObject.isNull("fromWorkgroupId") ? null : annotationJSONObject.getInt("fromWorkgroupId"),
-                    annotationJSONObject.isNull("toWorkgroupId") ? null : annotationJSONObject.getInt("toWorkgroupId"),
-                    annotationJSONObject.isNull("nodeId") ? null : annotationJSONObject.getString("nodeId"),
-                    annotationJSONObject.isNull("componentId") ? null : annotationJSONObject.getString("componentId"),
-                    savedStudentWorkId, localNotebookItemId, notebookItemId,
-                    annotationJSONObject.isNull("type") ? null : annotationJSONObject.getString("type"),
-                    annotationJSONObject.isNull("data") ? null : annotationJSONObject.getString("data"),
-                    annotationJSONObject.isNull("clientSaveTime") ? null : annotationJSONObject.getString("clientSaveTime"));
-
-                // send this annotation immediately to the teacher so the Classroom Monitor can be
-                // updated
-                annotation.convertToClientAnnotation();
-                broadcastAnnotationToTeacher(annotation);
-              } else {
-                annotation = vleService.saveAnnotation(
-                    annotationJSONObject.isNull("id") ? null : annotationJSONObject.getInt("id"),
-                    annotationJSONObject.isNull("runId") ? null
-                      : annotationJSONObject.getInt("runId"),
-                    annotationJSONObject.isNull("periodId") ? null
-                      : annotationJSONObject.getInt("periodId"),
-                    annotationJSONObject.isNull("fromWorkgroupId") ? null
-                      : annotationJSONObject.getInt("fromWorkgroupId"),
-                    annotationJSONObject.isNull("toWorkgroupId") ? null
-                      : annotationJSONObject.getInt("toWorkgroupId"),
-                    annotationJSONObject.isNull("nodeId") ? null
-                      : annotationJSONObject.getString("nodeId"),
-                    annotationJSONObject.isNull("componentId") ? null
-                      : annotationJSONObject.getString("componentId"),
-                    annotationJSONObject.isNull("studentWorkId") ? null
-                      : annotationJSONObject.getInt("studentWorkId"),
-                    annotationJSONObject.isNull("localNotebookItemId") ? null
-                      : annotationJSONObject.getString("localNotebookItemId"),
-                    annotationJSONObject.isNull("notebookItemId") ? null
-                      : annotationJSONObject.getInt("notebookItemId"),
-                    annotationJSONObject.isNull("type") ? null
-                      : annotationJSONObject.getString("type"),
-                    annotationJSONObject.isNull("data") ? null
-                      : annotationJSONObject.getString("data"),
-                    annotationJSONObject.isNull("clientSaveTime") ? null
-                      : annotationJSONObject.getString("clientSaveTime"));
-              }
-              annotation.convertToClientAnnotation();
-              broadcastAnnotationToTeacher(annotation);
-              broadcastAnnotationToClassroom(annotation);
+        result.put("events", eventsResultJSONArray);
 
-              // before returning saved Annotation, strip all fields except id, responseToken, and
-              // serverSaveTime to minimize response size
-              JSONObject savedAnnotationJSONObject = new JSONObject();
-              savedAnnotationJSONObject.put("id", annotation.getId());
-              savedAnnotationJSONObject.put("requestToken", requestToken);
-              savedAnnotationJSONObject.put("serverSaveTime",
-                  annotation.getServerSaveTime().getTime());
-              annotationsResultJSONArray.put(savedAnnotationJSONObject);
-            } catch (Exception e) {
-              e.printStackTrace();
-            }
+        JSONArray annotationsResultJSONArray = new JSONArray();
+        List<Annotation> savedAnnotations = savedStudentData.getAnnotations();
+        for (int a = 0; a < savedAnnotations.size(); a++) {
+          Annotation annotation = savedAnnotations.get(a);
+          if (annotation == null) {
+            continue;
+          }
+          try {
+            annotationsResultJSONArray.put(createSavedResponseJSONObject(annotation.getId(),
+                annotationsJSONArray.getJSONObject(a), annotation.getServerSaveTime()));
+            annotation.convertToClientAnnotation();
+            broadcastAnnotationToTeacher(annotation);
+            broadcastAnnotationToClassroom(annotation);
+          } catch (Exception e) {
+            e.printStackTrace();
           }
-          result.put("annotations", annotationsResultJSONArray);
         }
+        result.put("annotations", annotationsResultJSONArray);
       }
     } catch (ObjectNotFoundException e) {
       e.printStackTrace();
@@ -410,4 +283,17 @@ public class StudentDataController {
       e.printStackTrace();
     }
   }
+
+  /**
+   * Creates the response for a saved object. All fields except id, requestToken, and
+   * serverSaveTime are stripped to minimize response size.
+   */
+  private JSONObject createSavedResponseJSONObject(Integer id, JSONObject postedJSONObject,
+      Timestamp serverSaveTime) throws JSONException {
+    JSONObject savedJSONObject = new JSONObject();
+    savedJSONObject.put("id", id);
+    savedJSONObject.put("requestToken", postedJSONObject.getString("requestToken"));
+    savedJSONObject.put("serverSaveTime", serverSaveTime.getTime());
+    return savedJSONObject;
+  }
 }
@@ -1,30 +1,38 @@
 package org.wise.vle.web.wise5;
 
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Properties;
+import java.util.Map;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.function.Consumer;
 
-import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.apache.commons.io.IOUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVWriter;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -34,14 +42,16 @@ import org.wise.portal.domain.project.Project;
 import org.wise.portal.domain.run.Run;
 import org.wise.portal.domain.user.User;
 import org.wise.portal.presentation.web.controllers.ControllerUtil;
+import org.wise.portal.service.export.ExportJob;
+import org.wise.portal.service.export.StudentAssetsExportService;
 import org.wise.portal.service.project.ProjectService;
 import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.vle.wise5.VLEService;
+import org.wise.portal.spring.data.redis.MessageEnvelope;
 import org.wise.portal.spring.data.redis.MessagePublisher;
 import org.wise.vle.domain.annotation.wise5.Annotation;
 import org.wise.vle.domain.notification.Notification;
 import org.wise.vle.domain.work.Event;
-import org.wise.vle.domain.work.StudentWork;
 
 /**
  * Controller for handling GET and POST of WISE5 Teacher related data like annotations.
@@ -49,6 +59,12 @@ import org.wise.vle.domain.work.StudentWork;
 @Controller("wise5TeacherDataController")
 public class TeacherDataController {
 
+  private static final int EVENTS_EXPORT_PAGE_SIZE = 1000;
+
+  private static final String[] EVENTS_CSV_HEADER = { "id", "runId", "periodId", "workgroupId",
+      "nodeId", "componentId", "componentType", "context", "category", "event", "data",
+      "clientSaveTime", "serverSaveTime" };
+
   @Autowired
   private VLEService vleService;
 
@@ -59,10 +75,13 @@ public class TeacherDataController {
   private RunService runService;
 
   @Autowired
-  private Properties appProperties;
+  private MessagePublisher redisPublisher;
+
+  @Autowired
+  private ObjectMapper objectMapper;
 
   @Autowired
-  private MessagePublisher redisPublisher;
+  private StudentAssetsExportService studentAssetsExportService;
 
   /**
    * Handles requests for exporting of data for teachers/researchers like student work, events,
@@ -80,7 +99,7 @@ public class TeacherDataController {
       @RequestParam(value = "componentId", required = false) String componentId,
       @RequestParam(value = "componentType", required = false) String componentType,
       @RequestParam(value = "components", required = false) String[] components,
-      HttpServletResponse response) {
+      HttpServletRequest request, HttpServletResponse response) {
     try {
       User signedInUser = ControllerUtil.getSignedInUser();
       Run run = runService.retrieveById(new Long(runId));
@@ -95,17 +114,9 @@ public class TeacherDataController {
           writer.write(resultArray.toString());
           writer.close();
         } else if ("studentAssets".equals(exportType)) {
-          String studentUploadsBaseDir = appProperties.getProperty("studentuploads_base_dir");
-          String sep = System.getProperty("file.separator");
-          String runStudentAssetsDir = studentUploadsBaseDir + sep + runId.toString() + sep;
-          String zipFileName = runId.toString() + "_student_uploads.zip";
-          response.setContentType("application/zip");
-          response.addHeader("Content-Disposition", "attachment;filename=\"" + zipFileName + "\"");
-          ServletOutputStream outputStream = response.getOutputStream();
-          ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(outputStream));
-          File zipFolder = new File(runStudentAssetsDir);
-          addFolderToZip(zipFolder, out, runStudentAssetsDir);
-          out.close();
+          ExportJob job = studentAssetsExportService.exportStudentAssets(new Long(runId));
+          job.awaitArchive();
+          response.sendRedirect(getArchiveURL(request.getContextPath(), job));
         }
       } else {
         response.sendError(HttpServletResponse.SC_UNAUTHORIZED,
@@ -115,73 +126,205 @@ public class TeacherDataController {
       e.printStackTrace();
     } catch (ObjectNotFoundException onfe) {
       onfe.printStackTrace();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
   }
 
-  private void addFolderToZip(File folder, ZipOutputStream zip, String baseName)
-      throws IOException {
-    File[] files = folder.listFiles();
-    if (files != null) {
-      for (File file : files) {
-        if (file.isDirectory()) {
-          String name = file.getAbsolutePath().substring(baseName.length());
-          ZipEntry zipEntry = new ZipEntry(name + "/");
-          zip.putNextEntry(zipEntry);
-          zip.closeEntry();
-          addFolderToZip(file, zip, baseName);
-        } else {
-          String fileName = file.getAbsolutePath().substring(baseName.length());
-          ZipEntry zipEntry = new ZipEntry(fileName);
-          zip.putNextEntry(zipEntry);
-          IOUtils.copy(new FileInputStream(file), zip);
-          zip.closeEntry();
-        }
-      }
+  /**
+   * Starts building an archive of the files that students uploaded in the run. The archive is
+   * built in the background and reused until the uploads change.
+   * @return the job with its id, status and the URL to download the archive from once it is done
+   */
+  @ResponseBody
+  @PostMapping("/teacher/export/{runId}/studentAssets/jobs")
+  public ResponseEntity<Map<String, String>> startStudentAssetsExport(@PathVariable Long runId,
+      HttpServletRequest request) throws ObjectNotFoundException, IOException {
+    if (!canExport(runService.retrieveById(runId))) {
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+    return ResponseEntity.ok(getExportJobMap(
+        studentAssetsExportService.exportStudentAssets(runId), request.getContextPath()));
+  }
+
+  @ResponseBody
+  @GetMapping("/teacher/export/{runId}/studentAssets/jobs/{jobId}")
+  public ResponseEntity<Map<String, String>> getStudentAssetsExport(@PathVariable Long runId,
+      @PathVariable String jobId, HttpServletRequest request) throws ObjectNotFoundException {
+    if (!canExport(runService.retrieveById(runId))) {
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+    ExportJob job = studentAssetsExportService.getExportJob(runId, jobId);
+    if (job == null) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok(getExportJobMap(job, request.getContextPath()));
+  }
+
+  /**
+   * Sends the archive that the job built. Range requests are supported so interrupted downloads
+   * can be resumed.
+   */
+  @GetMapping("/teacher/export/{runId}/studentAssets/jobs/{jobId}/archive")
+  public ResponseEntity<Resource> getStudentAssetsExportArchive(@PathVariable Long runId,
+      @PathVariable String jobId) throws ObjectNotFoundException {
+    if (!canExport(runService.retrieveById(runId))) {
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+    ExportJob job = studentAssetsExportService.getExportJob(runId, jobId);
+    if (job == null || !ExportJob.STATUS_DONE.equals(job.getStatus())) {
+      return ResponseEntity.notFound().build();
     }
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType("application/zip"))
+        .header(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment;filename=\"" + runId + "_student_uploads.zip\"")
+        .body(new FileSystemResource(job.getArchive()));
   }
 
+  private Map<String, String> getExportJobMap(ExportJob job, String contextPath) {
+    Map<String, String> jobMap = new HashMap<String, String>();
+    jobMap.put("id", job.getId());
+    jobMap.put("status", job.getStatus());
+    jobMap.put("archiveURL", getArchiveURL(contextPath, job));
+    return jobMap;
+  }
+
+  private String getArchiveURL(String contextPath, ExportJob job) {
+    return contextPath + "/teacher/export/" + job.getRunId() + "/studentAssets/jobs/"
+        + job.getId() + "/archive";
+  }
+
+  private boolean canExport(Run run) {
+    User signedInUser = ControllerUtil.getSignedInUser();
+    return run.getOwner().equals(signedInUser) || run.getSharedowners().contains(signedInUser)
+        || signedInUser.isAdmin();
+  }
+
+  /**
+   * Exports the events of a run. The events are read a page at a time in id order and each page is
+   * written to the response before the next one is read, so large runs can be exported without
+   * holding all of their events in memory.
+   *
+   * @param format json (default) writes {"events":[...]}, ndjson writes one event JSON object per
+   *               line and csv writes one event per row
+   */
   @RequestMapping(method = RequestMethod.GET, value = "/teacher/export/events")
   public void getEvents(HttpServletResponse response, Authentication authentication,
       @RequestParam(value = "runId", required = false) Integer runId,
-      @RequestParam(value = "includeStudentEvents", required = false) Boolean includeStudentEvents,
-      @RequestParam(value = "includeTeacherEvents", required = false) Boolean includeTeacherEvents)
-      throws JSONException, ObjectNotFoundException, IOException {
-    JSONObject result = new JSONObject();
+      @RequestParam(value = "includeStudentEvents", defaultValue = "false")
+      boolean includeStudentEvents,
+      @RequestParam(value = "includeTeacherEvents", defaultValue = "false")
+      boolean includeTeacherEvents,
+      @RequestParam(value = "format", defaultValue = "json") String format)
+      throws ObjectNotFoundException, IOException {
     Run run = runService.retrieveById(new Long(runId));
-    if (runService.hasReadPermission(authentication, run)) {
-      List<Event> events = getEvents(run, includeStudentEvents, includeTeacherEvents);
-      JSONArray eventsJSONArray = convertEventsToJSON(events);
-      result.put("events", eventsJSONArray);
+    boolean hasReadPermission = runService.hasReadPermission(authentication, run);
+    if ("csv".equals(format)) {
+      response.setContentType("text/csv;charset=UTF-8");
+      response.addHeader("Content-Disposition",
+          "attachment;filename=\"" + runId + "_events.csv\"");
+      if (hasReadPermission) {
+        writeEventsCSV(response.getWriter(), run, includeStudentEvents, includeTeacherEvents);
+      }
+    } else if ("ndjson".equals(format)) {
+      response.setContentType("application/x-ndjson;charset=UTF-8");
+      if (hasReadPermission) {
+        writeEventsNDJSON(response.getWriter(), run, includeStudentEvents, includeTeacherEvents);
+      }
+    } else {
+      response.setContentType("application/json;charset=UTF-8");
+      writeEventsJSON(response.getOutputStream(), hasReadPermission, run, includeStudentEvents,
+          includeTeacherEvents);
     }
-    PrintWriter writer = response.getWriter();
-    writer.write(result.toString());
-    writer.close();
   }
 
-  List<Event> getEvents(Run run, Boolean includeStudentEvents, Boolean includeTeacherEvents) {
-    List<Event> events = vleService.getAllEvents(run);
-    if (includeStudentEvents && includeTeacherEvents) {
-      events = vleService.getAllEvents(run);
-    } else if (includeStudentEvents) {
-      events = vleService.getStudentEvents(run);
-    } else if (includeTeacherEvents) {
-      events = vleService.getTeacherEvents(run);
+  private void writeEventsJSON(OutputStream outputStream, boolean hasReadPermission, Run run,
+      boolean includeStudentEvents, boolean includeTeacherEvents) throws IOException {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+      generator.writeStartObject();
+      if (hasReadPermission) {
+        generator.writeArrayFieldStart("events");
+        forEachEventsPage(run, includeStudentEvents, includeTeacherEvents, events -> {
+          try {
+            for (Event event : events) {
+              generator.writeRawValue(event.toJSON().toString());
+            }
+            generator.flush();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+        generator.writeEndArray();
+      }
+      generator.writeEndObject();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
     }
-    return events;
   }
 
-  JSONArray convertEventsToJSON(List<Event> events) {
-    JSONArray eventsJSONArray = new JSONArray();
-    for (int e = 0; e < events.size(); e++) {
-      Event eventObject = events.get(e);
-      eventsJSONArray.put(eventObject.toJSON());
+  private void writeEventsNDJSON(PrintWriter writer, Run run, boolean includeStudentEvents,
+      boolean includeTeacherEvents) {
+    forEachEventsPage(run, includeStudentEvents, includeTeacherEvents, events -> {
+      for (Event event : events) {
+        writer.write(event.toJSON().toString());
+        writer.write("\n");
+      }
+      writer.flush();
+    });
+    writer.close();
+  }
+
+  private void writeEventsCSV(PrintWriter writer, Run run, boolean includeStudentEvents,
+      boolean includeTeacherEvents) throws IOException {
+    try (CSVWriter csvWriter = new CSVWriter(writer)) {
+      csvWriter.writeNext(EVENTS_CSV_HEADER);
+      forEachEventsPage(run, includeStudentEvents, includeTeacherEvents, events -> {
+        for (Event event : events) {
+          csvWriter.writeNext(getEventCSVRow(event));
+        }
+        writer.flush();
+      });
     }
-    return eventsJSONArray;
+  }
+
+  private String[] getEventCSVRow(Event event) {
+    return new String[] {
+        String.valueOf(event.getId()),
+        event.getRun() == null ? "" : String.valueOf(event.getRun().getId()),
+        event.getPeriod() == null ? "" : String.valueOf(event.getPeriod().getId()),
+        event.getWorkgroup() == null ? "" : String.valueOf(event.getWorkgroup().getId()),
+        event.getNodeId(),
+        event.getComponentId(),
+        event.getComponentType(),
+        event.getContext(),
+        event.getCategory(),
+        event.getEvent(),
+        event.getData(),
+        String.valueOf(event.getClientSaveTime().getTime()),
+        String.valueOf(event.getServerSaveTime().getTime()) };
+  }
+
+  /**
+   * Reads the run's events a page at a time, keyed on the id of the last event of the previous
+   * page, and passes each page to the consumer.
+   */
+  private void forEachEventsPage(Run run, boolean includeStudentEvents,
+      boolean includeTeacherEvents, Consumer<List<Event>> consumer) {
+    Integer afterId = null;
+    List<Event> events;
+    do {
+      events = vleService.getEventsPage(run, afterId, includeStudentEvents, includeTeacherEvents,
+          EVENTS_EXPORT_PAGE_SIZE);
+      if (!events.isEmpty()) {
+        consumer.accept(events);
+        afterId = events.get(events.size() - 1).getId();
+      }
+    } while (events.size() == EVENTS_EXPORT_PAGE_SIZE);
   }
 
   @GetMapping("/teacher/data")
-  @ResponseBody
-  protected HashMap<String, Object> getWISE5TeacherData(
+  protected void getWISE5TeacherData(HttpServletResponse response,
       @RequestParam(value = "getStudentWork", defaultValue = "false") boolean getStudentWork,
       @RequestParam(value = "getEvents", defaultValue = "false") boolean getEvents,
       @RequestParam(value = "getAnnotations", defaultValue = "false") boolean getAnnotations,
@@ -205,8 +348,10 @@ public class TeacherDataController {
       @RequestParam(value = "annotationType", required = false) String annotationType,
       @RequestParam(value = "components", required = false) List<JSONObject> components,
       @RequestParam(value = "onlyGetLatest", required = false) Boolean onlyGetLatest) {
-    HashMap<String, Object> data = new HashMap<String, Object>();
-    try {
+    response.setContentType("application/json;charset=UTF-8");
+    try (JsonGenerator generator = objectMapper.getFactory()
+        .createGenerator(response.getOutputStream())) {
+      generator.writeStartObject();
       User signedInUser = ControllerUtil.getSignedInUser();
       Run run = runService.retrieveById(new Long(runId));
       User owner = run.getOwner();
@@ -214,27 +359,41 @@ public class TeacherDataController {
       if (owner.equals(signedInUser) || sharedOwners.contains(signedInUser)
           || signedInUser.isAdmin()) {
         if (getStudentWork) {
-          List<StudentWork> studentWorkList = vleService.getStudentWorkList(id, runId, periodId,
-              workgroupId, isAutoSave, isSubmit, nodeId, componentId, componentType, components,
-              onlyGetLatest);
-          data.put("studentWorkList", studentWorkList);
+          generator.writeArrayFieldStart("studentWorkList");
+          vleService.forEachStudentWork(id, runId, periodId, workgroupId, isAutoSave, isSubmit,
+              nodeId, componentId, componentType, components, onlyGetLatest,
+              studentWork -> writeObject(generator, studentWork));
+          generator.writeEndArray();
         }
         if (getEvents) {
-          List<Event> events = vleService.getEvents(id, runId, periodId, workgroupId, nodeId,
-              componentId, componentType, context, category, event, components);
-          data.put("events", events);
+          generator.writeArrayFieldStart("events");
+          vleService.forEachEvent(id, runId, periodId, workgroupId, nodeId, componentId,
+              componentType, context, category, event, components,
+              eventObject -> writeObject(generator, eventObject));
+          generator.writeEndArray();
         }
         if (getAnnotations) {
-          List<Annotation> annotations = vleService.getAnnotations(id, runId, periodId,
-              fromWorkgroupId, toWorkgroupId, nodeId, componentId, studentWorkId,
-              localNotebookItemId, notebookItemId, annotationType);
-          data.put("annotations", annotations);
+          generator.writeArrayFieldStart("annotations");
+          vleService.forEachAnnotation(id, runId, periodId, fromWorkgroupId, toWorkgroupId,
+              nodeId, componentId, studentWorkId, localNotebookItemId, notebookItemId,
+              annotationType, annotation -> writeObject(generator, annotation));
+          generator.writeEndArray();
         }
       }
+      generator.writeEndObject();
     } catch (ObjectNotFoundException onfe) {
       onfe.printStackTrace();
+    } catch (IOException | UncheckedIOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void writeObject(JsonGenerator generator, Object object) {
+    try {
+      generator.writeObject(object);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
-    return data;
   }
 
   @RequestMapping(method = RequestMethod.POST, value = "/teacher/data")
@@ -444,41 +603,29 @@ public class TeacherDataController {
   public void broadcastAnnotationToStudent(Long toWorkgroupId, Annotation annotation)
       throws JSONException {
     annotation.convertToClientAnnotation();
-    JSONObject message = new JSONObject();
-    message.put("type", "annotationToStudent");
-    message.put("topic", String.format("/topic/workgroup/%s", toWorkgroupId));
-    message.put("annotation", annotation.toJSON());
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("annotationToStudent",
+        String.format("/topic/workgroup/%s", toWorkgroupId), annotation.toJSON().toString()));
   }
 
   public void broadcastNotificationToStudent(Long toWorkgroupId, Notification notification)
       throws JSONException {
     notification.convertToClientNotification();
-    JSONObject message = new JSONObject();
-    message.put("type", "notification");
-    message.put("topic", String.format("/topic/workgroup/%s", toWorkgroupId));
-    message.put("notification", notification.toJSON());
-    redisPublisher.publish(message.toString());
+    redisPublisher.publish(new MessageEnvelope("notification",
+        String.format("/topic/workgroup/%s", toWorkgroupId), notification.toJSON().toString()));
   }
 
   public void broadcastEventToAgent(Event event) throws JSONException {
     if (event.getEvent().equals("sendWorkgroupToNode")) {
       JSONObject data = new JSONObject(event.getData());
       String workgroupId = data.getString("workgroupId");
-      JSONObject message = new JSONObject();
-      message.put("type", "eventToAgent");
-      message.put("topic", String.format("/topic/workgroup/%s", workgroupId));
-      message.put("event", event.toJSON());
-      redisPublisher.publish(message.toString());
+      redisPublisher.publish(new MessageEnvelope("eventToAgent",
+          String.format("/topic/workgroup/%s", workgroupId), event.toJSON().toString()));
     } else if (event.getEvent().equals("sendAllWorkgroupsToNode")) {
       JSONObject data = new JSONObject(event.getData());
       String runId = data.getString("runId");
       String periodId = data.getString("periodId");
-      JSONObject message = new JSONObject();
-      message.put("type", "eventToAgent");
-      message.put("topic", String.format("/topic/classroom/%s/%s", runId, periodId));
-      message.put("event", event.toJSON());
-      redisPublisher.publish(message.toString());
+      redisPublisher.publish(new MessageEnvelope("eventToAgent",
+          String.format("/topic/classroom/%s/%s", runId, periodId), event.toJSON().toString()));
     }
   }
 }
@@ -143,6 +143,23 @@ create table groups_related_to_users (
     primary key (group_fk, user_fk)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
+create table latestStudentWork (
+    id integer not null auto_increment,
+    componentId varchar(30) not null,
+    nodeId varchar(30) not null,
+    periodId bigint not null,
+    runId bigint not null,
+    studentWorkId integer not null,
+    workgroupId bigint not null,
+    index latestStudentWorkComponentIndex (runId, nodeId, componentId),
+    constraint latestStudentWorkUnique unique (runId, workgroupId, nodeId, componentId),
+    constraint latestStudentWorkPeriodIdFK foreign key (periodId) references `groups` (id),
+    constraint latestStudentWorkRunIdFK foreign key (runId) references runs (id),
+    constraint latestStudentWorkStudentWorkIdFK foreign key (studentWorkId) references studentWork (id),
+    constraint latestStudentWorkWorkgroupIdFK foreign key (workgroupId) references workgroups (id),
+    primary key (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
 create table newsitem (
     id integer not null auto_increment,
     date datetime not null,
@@ -154,6 +171,18 @@ create table newsitem (
     primary key (id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
+create table notebookItemGroups (
+    id integer not null auto_increment,
+    groupName varchar(255) not null,
+    notebookItemId integer not null,
+    runId bigint not null,
+    index notebookItemGroupsRunIndex (runId, groupName, notebookItemId),
+    constraint notebookItemGroupsUnique unique (notebookItemId, groupName),
+    constraint notebookItemGroupsNotebookItemIdFK foreign key (notebookItemId) references notebookItems (id),
+    constraint notebookItemGroupsRunIdFK foreign key (runId) references runs (id),
+    primary key (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
 create table notebookItems (
     id integer not null auto_increment,
     clientDeleteTime datetime,
@@ -175,6 +204,7 @@ create table notebookItems (
     `groups` text,
     index notebookItemsRunIdIndex (runId),
     index notebookItemsWorkgroupIdIndex (workgroupId),
+    index notebookItemsRunLatestIndex (runId, workgroupId, localNotebookItemId, id),
     constraint notebookItemsPeriodIdFK foreign key (periodId) references `groups` (id),
     constraint notebookItemsRunIdFK foreign key (runId) references runs (id),
     constraint notebookItemsStudentIdFK foreign key (studentAssetId) references studentAssets (id),
@@ -387,6 +417,7 @@ create table studentWork (
     workgroupId bigint not null,
     index studentWorkRunIdIndex (runId),
     index studentWorkWorkgroupIdIndex (workgroupId),
+    index studentWorkLatestWorkIndex (runId, nodeId, componentId, workgroupId, serverSaveTime),
     constraint studentWorkPeriodIdFK foreign key (periodId) references `groups` (id),
     constraint studentWorkRunIdFK foreign key (runId) references runs (id),
     constraint studentWorkWorkgroupIdFK foreign key (workgroupId) references workgroups (id),
@@ -414,6 +445,8 @@ create table student_user_details (
     numberoflogins integer not null,
     signupdate datetime not null,
     id bigint not null,
+    index student_user_detailsFirstnameIndex (firstname),
+    index student_user_detailsLastnameIndex (lastname),
     constraint student_user_detailsUserDetailsFK foreign key (id) references user_details (id),
     primary key (id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
@@ -453,6 +486,9 @@ create table teacher_user_details (
     signupdate datetime not null,
     state varchar(255),
     id bigint not null,
+    index teacher_user_detailsFirstnameIndex (firstname),
+    index teacher_user_detailsLastnameIndex (lastname),
+    index teacher_user_detailsSchoolnameIndex (schoolname),
     constraint teacher_user_detailsUserDetailsFK foreign key (id) references user_details (id),
     primary key (id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
@@ -477,6 +513,7 @@ create table user_details (
     reset_password_request_time datetime,
     username varchar(255) not null,
     OPTLOCK integer,
+    index user_detailsEmailAddressIndex (email_address),
     constraint user_detailsUsernameUnique unique (username),
     primary key (id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
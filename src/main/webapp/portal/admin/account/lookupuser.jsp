@@ -76,6 +76,7 @@ function lookupFieldChanged() {
 	<input type="hidden" name="userType" value="${userType}" />
 	<input type="submit" id="save" value="<spring:message code="submit" />" />
 </form:form>
+<p><spring:message code="admin.account.lookupteacher.prefixSearch" /></p>
 </div>
 </div>
 
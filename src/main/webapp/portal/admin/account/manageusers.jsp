@@ -144,7 +144,10 @@ a:hover {
     <c:otherwise>
         <c:choose>
             <c:when test="${fn:length(teachers) > 0}">
-                <h3><spring:message code="admin.account.manageusers.totalNumberOfTeachers" />: ${fn:length(teachers)}</h3>
+                <h3><spring:message code="admin.account.manageusers.teachersShown" />: ${fn:length(teachers)}</h3>
+                <c:if test="${searchResultsLimit != null}">
+                    <h5><spring:message code="admin.account.manageusers.moreResults" arguments="${searchResultsLimit}" /></h5>
+                </c:if>
                 <table id="teachersTable" class='userTable' border="2">
                     <c:forEach var="username" items="${teachers}">
                         <tr>
@@ -156,9 +159,15 @@ a:hover {
                         </tr>
                     </c:forEach>
                 </table>
+                <c:if test="${nextAfter != null}">
+                    <h5><a href='manageusers?userType=teacher&after=${nextAfter}'><spring:message code="admin.account.manageusers.nextPage" /></a></h5>
+                </c:if>
             </c:when>
             <c:otherwise>
-                <h3><spring:message code="admin.account.manageusers.totalNumberOfStudents" />: ${fn:length(students)}</h3>
+                <h3><spring:message code="admin.account.manageusers.studentsShown" />: ${fn:length(students)}</h3>
+                <c:if test="${searchResultsLimit != null}">
+                    <h5><spring:message code="admin.account.manageusers.moreResults" arguments="${searchResultsLimit}" /></h5>
+                </c:if>
                 <table id="studentsTable" class='userTable' border="2">
                     <c:forEach var="username" items="${students}">
                         <tr>
@@ -169,6 +178,9 @@ a:hover {
                         </tr>
                     </c:forEach>
                 </table>
+                <c:if test="${nextAfter != null}">
+                    <h5><a href='manageusers?userType=student&after=${nextAfter}'><spring:message code="admin.account.manageusers.nextPage" /></a></h5>
+                </c:if>
 </c:otherwise>
 </c:choose>
 
@@ -478,6 +478,51 @@ function getVLEStatisticsCallback(data, textStatus, jqXHR) {
 	parseVLEStatistics(vleStatisticsArray);
 }
 
+/**
+ * Entries are saved with the counts of each table as {maxId, total, countsByType}.
+ * Set the total and type counts of the student work and annotations tables in
+ * the fields that older entries used so both are graphed the same way.
+ * @param vleStatisticsEntry a vle statistics entry
+ */
+function addTableCounts(vleStatisticsEntry) {
+	var studentWork = vleStatisticsEntry.studentWork;
+
+	if(studentWork != null) {
+		vleStatisticsEntry.totalStepWorkCount = studentWork.total;
+		vleStatisticsEntry.individualStepWorkNodeTypeCounts = getTypeCounts(studentWork.countsByType, 'nodeType');
+	}
+
+	var annotations = vleStatisticsEntry.annotations;
+
+	if(annotations != null) {
+		vleStatisticsEntry.totalAnnotationCount = annotations.total;
+		vleStatisticsEntry.individualAnnotationCounts = getTypeCounts(annotations.countsByType, 'annotationType');
+	}
+}
+
+/**
+ * Get the counts by type as an array sorted by type
+ * @param countsByType an object with the types as keys and the counts as values
+ * @param typeField the name of the field to put the type in
+ * @return an array of objects with the type field and a count field
+ */
+function getTypeCounts(countsByType, typeField) {
+	var typeCounts = [];
+
+	if(countsByType != null) {
+		var types = Object.keys(countsByType).sort();
+
+		for(var t=0; t<types.length; t++) {
+			var typeCount = {};
+			typeCount[typeField] = types[t];
+			typeCount.count = countsByType[types[t]];
+			typeCounts.push(typeCount);
+		}
+	}
+
+	return typeCounts;
+}
+
 /**
  * Parse the vle statistics
  * @param vleStatisticsArray the array of vle statistics
@@ -488,6 +533,9 @@ function parseVLEStatistics(vleStatisticsArray) {
 		//get a vle statistics entry
 		var vleStatisticsEntry = vleStatisticsArray[x];
 
+		//read the counts of entries saved per table
+		addTableCounts(vleStatisticsEntry);
+
 		//get the timestamp
 		var timestamp = vleStatisticsEntry.timestamp;
 
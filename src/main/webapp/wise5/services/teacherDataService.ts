@@ -211,9 +211,27 @@ export class TeacherDataService extends DataService {
   }
 
   retrieveStudentAssetsExport() {
-    window.location.href = this.getExportURL(this.ConfigService.getRunId(), 'studentAssets');
+    const jobsURL = this.getExportURL(this.ConfigService.getRunId(), 'studentAssets') + '/jobs';
+    return this.http.post(jobsURL, null).toPromise().then((job: any) => {
+      return this.waitForStudentAssetsExportJob(jobsURL, job);
+    }).then((job: any) => {
+      window.location.href = job.archiveURL;
+      return [];
+    });
+  }
+
+  waitForStudentAssetsExportJob(jobsURL, job) {
+    if (job.status === 'done') {
+      return Promise.resolve(job);
+    } else if (job.status === 'failed') {
+      return Promise.reject(job);
+    }
     return new Promise(resolve => {
-      resolve([]);
+      setTimeout(resolve, 1000);
+    }).then(() => {
+      return this.http.get(`${jobsURL}/${job.id}`).toPromise();
+    }).then((updatedJob: any) => {
+      return this.waitForStudentAssetsExportJob(jobsURL, updatedJob);
     });
   }
 
@@ -61,23 +61,33 @@ export class TeacherWebSocketService {
 
   subscribeToTeacherTopic() {
     this.getStomp().subscribe(`/topic/teacher/${this.runId}`, (message, headers, res) => {
-      if (message.type === 'studentWork') {
-        const studentWork = JSON.parse(message.content);
-        this.broadcastNewStudentWorkReceived({studentWork: studentWork});
-      } else if (message.type === 'studentStatus') {
-        const status = JSON.parse(message.content);
-        this.StudentStatusService.setStudentStatus(status);
-        this.StudentStatusService.broadcastStudentStatusReceived({studentStatus: status});
-      } else if (message.type === 'newStudentAchievement') {
-        const achievement = JSON.parse(message.content);
-        this.AchievementService.broadcastNewStudentAchievement({studentAchievement: achievement});
-      } else if (message.type === 'annotation') {
-        const annotationData = JSON.parse(message.content);
-        this.broadcastNewAnnotationReceived({annotation: annotationData});
+      if (message.type === 'batch') {
+        message.content.forEach((batchMessage) => {
+          this.handleTeacherTopicMessage(batchMessage);
+        });
+      } else {
+        this.handleTeacherTopicMessage(message);
       }
     });
   }
 
+  handleTeacherTopicMessage(message) {
+    if (message.type === 'studentWork') {
+      const studentWork = JSON.parse(message.content);
+      this.broadcastNewStudentWorkReceived({studentWork: studentWork});
+    } else if (message.type === 'studentStatus') {
+      const status = JSON.parse(message.content);
+      this.StudentStatusService.setStudentStatus(status);
+      this.StudentStatusService.broadcastStudentStatusReceived({studentStatus: status});
+    } else if (message.type === 'newStudentAchievement') {
+      const achievement = JSON.parse(message.content);
+      this.AchievementService.broadcastNewStudentAchievement({studentAchievement: achievement});
+    } else if (message.type === 'annotation') {
+      const annotationData = JSON.parse(message.content);
+      this.broadcastNewAnnotationReceived({annotation: annotationData});
+    }
+  }
+
   broadcastNewStudentWorkReceived(args: any) {
     this.newStudentWorkReceivedSource.next(args);
   }
@@ -23,6 +23,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
@@ -116,4 +117,17 @@ public class HibernateUserDetailsDaoTest extends AbstractTransactionalDbTests {
   public void hasUsername_WithExistingStudentUsername_ShouldReturnTrue() {
     assertTrue(userDetailsDao.hasUsername("PatrickS0101"));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void retrieveUsernamesByPrefixes_WithMatchingPrefixes_ShouldReturnUsernames() {
+    List<String> usernames =
+        userDetailsDao.retrieveUsernamesByPrefixes(Arrays.asList("SpongebobS", "Mr"));
+    assertEquals(3, usernames.size());
+    assertTrue(usernames.containsAll(Arrays.asList("SpongebobS0101", "MrsPuff", "MrKrabs")));
+  }
+
+  @Test
+  public void retrieveUsernamesByPrefixes_WithWildcardInPrefix_ShouldMatchWildcardLiterally() {
+    assertEquals(0, userDetailsDao.retrieveUsernamesByPrefixes(Arrays.asList("Mr_")).size());
+  }
+}
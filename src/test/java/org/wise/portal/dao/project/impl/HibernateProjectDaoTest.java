@@ -25,10 +25,12 @@ package org.wise.portal.dao.project.impl;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.hibernate.Hibernate;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -36,6 +38,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.wise.portal.dao.user.impl.HibernateUserDao;
+import org.wise.portal.domain.authentication.Schoollevel;
 import org.wise.portal.domain.project.Project;
 import org.wise.portal.domain.project.impl.ProjectImpl;
 import org.wise.portal.domain.user.User;
@@ -81,6 +84,31 @@ public class HibernateProjectDaoTest extends AbstractTransactionalDbTests {
     assertEquals("Airbags", projectMap.get("name"));
 	}
 
+  @Test
+  public void getProjectsWithOwners_TwoProjects_ShouldLoadOwnersAndSharedOwners()
+      throws Exception {
+    User sharedOwner = createTeacherUser("Mrs", "Puff", "MrsPuff", "Mrs. Puff", "boat",
+        "Bikini Bottom", "Water State", "Pacific Ocean", "mrspuff@bikinibottom.com",
+        "Boating School", Schoollevel.COLLEGE, "1234567890");
+    project.getSharedowners().add(sharedOwner);
+    projectDao.save(project);
+    projectDao.save(createProject(2L, "Photosynthesis", project.getOwner()));
+    projectDao.save(createProject(3L, "Mitosis", project.getOwner()));
+    toilet.flush();
+    sessionFactory.getCurrentSession().clear();
+    List<Project> projects = projectDao.getProjectsWithOwners(Arrays.asList(1L, 2L));
+    assertEquals(2, projects.size());
+    for (Project retrievedProject : projects) {
+      assertTrue(Hibernate.isInitialized(retrievedProject.getOwner()));
+      assertTrue(Hibernate.isInitialized(retrievedProject.getSharedowners()));
+      if (retrievedProject.getId().equals(1L)) {
+        assertEquals(1, retrievedProject.getSharedowners().size());
+      } else {
+        assertTrue(retrievedProject.getSharedowners().isEmpty());
+      }
+    }
+  }
+
 	private void verifyDataStoreIsEmpty() {
     assertTrue(retrieveProjectListFromDb().isEmpty());
   }
@@ -31,6 +31,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -155,6 +156,22 @@ public class HibernateRunDaoTest extends AbstractTransactionalDbTests {
     }
   }
 
+  @Test
+  public void retrieveByRunCodeForUpdate_ValidRunCode_Success() throws Exception {
+    Run run = runDao.retrieveByRunCodeForUpdate(runCode);
+    assertEquals(runCode, run.getRuncode());
+    assertEquals(2, run.getPeriods().size());
+  }
+
+  @Test
+  public void retrieveByRunCodeForUpdate_NonExistingRunCode_ShouldThrowException() {
+    try {
+      runDao.retrieveByRunCodeForUpdate(runCodeNotInDB);
+      fail("Expected ObjectNotFoundException");
+    } catch (ObjectNotFoundException e) {
+    }
+  }
+
   @Test
   public void getWorkgroupsForRun_OnePeriod_Success() throws Exception {
     Long runId = run.getId();
@@ -264,6 +281,15 @@ public class HibernateRunDaoTest extends AbstractTransactionalDbTests {
     assertEquals(1, runsByUser.size());
   }
 
+  @Test
+  public void getRunPeriodIdsByUser_StudentInPeriod_ShouldReturnRunAndPeriod() throws Exception {
+    assertEquals(0, runDao.getRunPeriodIdsByUser(student1).size());
+    period1.addMember(student1);
+    Map<Long, Long> runPeriodIds = runDao.getRunPeriodIdsByUser(student1);
+    assertEquals(1, runPeriodIds.size());
+    assertEquals(period1.getId(), runPeriodIds.get(run.getId()));
+  }
+
   @Test
   public void getRunsOfProject_NoRuns_Success() {
     List<Run> runs = runDao.getRunsOfProject(0L);
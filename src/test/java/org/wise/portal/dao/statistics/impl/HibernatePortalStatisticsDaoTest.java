@@ -28,16 +28,24 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.sql.Timestamp;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.List;
 
+import org.hibernate.Session;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.wise.portal.dao.portal.impl.HibernatePortalStatisticsDao;
+import org.wise.portal.domain.authentication.Gender;
+import org.wise.portal.domain.authentication.Schoollevel;
+import org.wise.portal.domain.authentication.impl.StudentUserDetails;
+import org.wise.portal.domain.authentication.impl.TeacherUserDetails;
 import org.wise.portal.domain.portal.PortalStatistics;
 import org.wise.portal.domain.portal.impl.PortalStatisticsImpl;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.user.User;
 import org.wise.portal.junit.AbstractTransactionalDbTests;
 
 /**
@@ -50,6 +58,8 @@ public class HibernatePortalStatisticsDaoTest extends AbstractTransactionalDbTes
   @Autowired
   HibernatePortalStatisticsDao portalStatisticsDao;
 
+  private int numStudents = 0;
+
   @Test
   public void getAllPortalStatistics_WhenThereAreNone_ShouldReturnNone() {
     List<PortalStatistics> portalStatistics = portalStatisticsDao.getAllPortalStatistics();
@@ -81,6 +91,73 @@ public class HibernatePortalStatisticsDaoTest extends AbstractTransactionalDbTes
     assertEquals(201L, portalStatistics.getTotalNumberStudents());
   }
 
+  @Test
+  public void getCurrentPortalStatistics_MoreStudents_ShouldNotLoadAnyEntities() throws Exception {
+    PortalStatistics initialStatistics = getCurrentPortalStatistics();
+    createStudents(10, 3);
+    PortalStatistics statistics = getCurrentPortalStatistics();
+    assertEquals(initialStatistics.getTotalNumberStudents() + 10,
+        statistics.getTotalNumberStudents().longValue());
+    assertEquals(initialStatistics.getTotalNumberStudentLogins() + 30,
+        statistics.getTotalNumberStudentLogins().longValue());
+    createStudents(200, 2);
+    statistics = getCurrentPortalStatistics();
+    assertEquals(initialStatistics.getTotalNumberStudents() + 210,
+        statistics.getTotalNumberStudents().longValue());
+    assertEquals(initialStatistics.getTotalNumberStudentLogins() + 430,
+        statistics.getTotalNumberStudentLogins().longValue());
+  }
+
+  @Test
+  public void getCurrentPortalStatistics_TeachersProjectsAndRuns_ShouldCountAndSum()
+      throws Exception {
+    PortalStatistics initialStatistics = getCurrentPortalStatistics();
+    User teacher = createTeacherUser("Mrs", "Puff", "MrsPuff", "Mrs. Puff", "boat",
+        "Bikini Bottom", "Water State", "Pacific Ocean", "mrspuff@bikinibottom.com",
+        "Boating School", Schoollevel.COLLEGE, "1234567890");
+    ((TeacherUserDetails) teacher.getUserDetails()).setNumberOfLogins(5);
+    Date startTime = Calendar.getInstance().getTime();
+    Run run1 = createProjectAndRun(getNextAvailableProjectId(), "How to be a Fry Cook", teacher,
+        startTime, "Panda123");
+    run1.setTimesRun(2);
+    Run run2 = createProjectAndRun(getNextAvailableProjectId(), "How to Drive a Boat", teacher,
+        startTime, "Otter123");
+    run2.setTimesRun(null);
+    PortalStatistics statistics = getCurrentPortalStatistics();
+    assertEquals(initialStatistics.getTotalNumberTeachers() + 1,
+        statistics.getTotalNumberTeachers().longValue());
+    assertEquals(initialStatistics.getTotalNumberTeacherLogins() + 5,
+        statistics.getTotalNumberTeacherLogins().longValue());
+    assertEquals(initialStatistics.getTotalNumberProjects() + 2,
+        statistics.getTotalNumberProjects().longValue());
+    assertEquals(initialStatistics.getTotalNumberRuns() + 2,
+        statistics.getTotalNumberRuns().longValue());
+    assertEquals(initialStatistics.getTotalNumberProjectsRun() + 2,
+        statistics.getTotalNumberProjectsRun().longValue());
+  }
+
+  /**
+   * Gets the current statistics with an empty session and checks that getting them did not load
+   * any entities into the session.
+   */
+  private PortalStatistics getCurrentPortalStatistics() {
+    toilet.flush();
+    Session session = sessionFactory.getCurrentSession();
+    session.clear();
+    PortalStatistics statistics = portalStatisticsDao.getCurrentPortalStatistics();
+    assertEquals(0, session.getStatistics().getEntityCount());
+    return statistics;
+  }
+
+  private void createStudents(int count, int numberOfLogins) throws Exception {
+    for (int s = 0; s < count; s++) {
+      numStudents++;
+      User student = createStudentUser("Student", "Number" + numStudents,
+          "StudentN0101" + numStudents, "password", 1, 1, Gender.FEMALE);
+      ((StudentUserDetails) student.getUserDetails()).setNumberOfLogins(numberOfLogins);
+    }
+  }
+
   private PortalStatistics createPortalStatistics(Long totalNumberStudents, 
       Long totalNumberStudentLogins, Long totalNumberTeachers, Long totalNumberTeacherLogins,
       Long totalNumberProjects, Long totalNumberRuns, Long totalNumberProjectsRun) {
@@ -29,6 +29,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import java.sql.Timestamp;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -37,6 +38,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.wise.portal.junit.AbstractTransactionalDbTests;
 import org.wise.vle.domain.statistics.VLEStatistics;
+import org.wise.vle.domain.work.Event;
 
 /**
  * @author Geoffrey Kwan
@@ -80,6 +82,37 @@ public class HibernateVLEStatisticsDaoTest
     assertEquals("vleStatistics2", vleStatistics.getData());
   }
 
+  @Test
+  public void getMaxId_WhenThereAreNone_ShouldReturnNull() {
+    assertNull(vleStatisticsDao.getMaxId(Event.class));
+  }
+
+  @Test
+  public void getCountsByType_IdRange_ShouldOnlyCountRowsInRange() {
+    Event event1 = createEvent("Navigation");
+    createEvent("Navigation");
+    createEvent("StudentInteraction");
+    Event event4 = createEvent("Navigation");
+    assertEquals(event4.getId(), vleStatisticsDao.getMaxId(Event.class));
+    Map<String, Long> counts = vleStatisticsDao.getCountsByType(Event.class, "category",
+        event1.getId(), event4.getId() - 1);
+    assertEquals(2, counts.size());
+    assertEquals(Long.valueOf(1), counts.get("Navigation"));
+    assertEquals(Long.valueOf(1), counts.get("StudentInteraction"));
+  }
+
+  private Event createEvent(String category) {
+    Event event = new Event();
+    event.setContext("VLE");
+    event.setCategory(category);
+    event.setEvent("nodeEntered");
+    Timestamp timestamp = new Timestamp(Calendar.getInstance().getTimeInMillis());
+    event.setClientSaveTime(timestamp);
+    event.setServerSaveTime(timestamp);
+    sessionFactory.getCurrentSession().save(event);
+    return event;
+  }
+
   private VLEStatistics createVLEStatistics(String data) {
     VLEStatistics vleStatistics = new VLEStatistics();
     vleStatistics.setData(data);
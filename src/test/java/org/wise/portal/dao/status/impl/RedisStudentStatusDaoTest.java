@@ -0,0 +1,151 @@
+package org.wise.portal.dao.status.impl;
+
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.easymock.TestSubject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.wise.vle.domain.status.StudentStatus;
+
+@RunWith(EasyMockRunner.class)
+public class RedisStudentStatusDaoTest {
+
+  private static final String RUN_KEY = "studentStatus:run:1";
+
+  @TestSubject
+  private RedisStudentStatusDao studentStatusDao = new RedisStudentStatusDao();
+
+  @Mock
+  private StringRedisTemplate stringRedisTemplate;
+
+  @Mock
+  private HibernateStudentStatusDao hibernateStudentStatusDao;
+
+  private HashOperations<String, String, String> hashOperations;
+
+  private StudentStatus studentStatus;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    hashOperations = createMock(HashOperations.class);
+    expect(stringRedisTemplate.<String, String>opsForHash()).andReturn(hashOperations).anyTimes();
+    studentStatus = new StudentStatus(1L, 2L, 100L, "{\"currentNodeId\":\"node1\"}");
+  }
+
+  @Test
+  public void saveStudentStatus_ThenFlushTwice_ShouldWriteToDatabaseOnce() {
+    hashOperations.put(eq(RUN_KEY), eq("100"), anyString());
+    expectLastCall();
+    expect(stringRedisTemplate.expire(RUN_KEY, 24, TimeUnit.HOURS)).andReturn(true);
+    expect(hibernateStudentStatusDao.getStudentStatusByWorkgroupId(100L)).andReturn(null);
+    hibernateStudentStatusDao.save(isA(StudentStatus.class));
+    expectLastCall().once();
+    replay(stringRedisTemplate, hashOperations, hibernateStudentStatusDao);
+    studentStatusDao.saveStudentStatus(studentStatus);
+    assertEquals(studentStatus, studentStatusDao.getStudentStatusByWorkgroupId(100L));
+    studentStatusDao.flush();
+    studentStatusDao.flush();
+    verify(stringRedisTemplate, hashOperations, hibernateStudentStatusDao);
+  }
+
+  @Test
+  public void flush_TransactionNotCommitted_ShouldFlushAgainNextTime() {
+    hashOperations.put(eq(RUN_KEY), eq("100"), anyString());
+    expectLastCall();
+    expect(stringRedisTemplate.expire(RUN_KEY, 24, TimeUnit.HOURS)).andReturn(true);
+    expect(hibernateStudentStatusDao.getStudentStatusByWorkgroupId(100L)).andReturn(null)
+        .times(2);
+    hibernateStudentStatusDao.save(isA(StudentStatus.class));
+    expectLastCall().times(2);
+    replay(stringRedisTemplate, hashOperations, hibernateStudentStatusDao);
+    studentStatusDao.saveStudentStatus(studentStatus);
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      studentStatusDao.flush();
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    studentStatusDao.flush();
+    studentStatusDao.flush();
+    verify(stringRedisTemplate, hashOperations, hibernateStudentStatusDao);
+  }
+
+  @Test
+  public void flush_SavedStatusIsNewer_ShouldNotOverwriteIt() {
+    hashOperations.put(eq(RUN_KEY), eq("100"), anyString());
+    expectLastCall();
+    expect(stringRedisTemplate.expire(RUN_KEY, 24, TimeUnit.HOURS)).andReturn(true);
+    StudentStatus savedStudentStatus = new StudentStatus(1L, 2L, 100L,
+        "{\"currentNodeId\":\"node2\"}");
+    savedStudentStatus.setTimestamp(
+        new Timestamp(studentStatus.getTimestamp().getTime() + 1000));
+    expect(hibernateStudentStatusDao.getStudentStatusByWorkgroupId(100L))
+        .andReturn(savedStudentStatus);
+    replay(stringRedisTemplate, hashOperations, hibernateStudentStatusDao);
+    studentStatusDao.saveStudentStatus(studentStatus);
+    studentStatusDao.flush();
+    assertEquals("{\"currentNodeId\":\"node2\"}", savedStudentStatus.getStatus());
+    verify(stringRedisTemplate, hashOperations, hibernateStudentStatusDao);
+  }
+
+  @Test
+  public void getStudentStatusesByRunId_LoadedRun_ShouldNotQueryDatabase() throws Exception {
+    Map<String, String> statuses = new HashMap<String, String>();
+    statuses.put("loaded", "true");
+    statuses.put("100", new ObjectMapper().writeValueAsString(studentStatus));
+    expect(hashOperations.entries(RUN_KEY)).andReturn(statuses);
+    replay(stringRedisTemplate, hashOperations, hibernateStudentStatusDao);
+    List<StudentStatus> studentStatuses = studentStatusDao.getStudentStatusesByRunId(1L);
+    assertEquals(1, studentStatuses.size());
+    assertEquals(Long.valueOf(100L), studentStatuses.get(0).getWorkgroupId());
+    assertEquals(studentStatus.getStatus(), studentStatuses.get(0).getStatus());
+    verify(stringRedisTemplate, hashOperations, hibernateStudentStatusDao);
+  }
+
+  @Test
+  public void getStudentStatusesByRunId_RunNotLoaded_ShouldLoadFromDatabase() throws Exception {
+    studentStatus.setId(5L);
+    String studentStatusJSON = new ObjectMapper().writeValueAsString(studentStatus);
+    Map<String, String> loadedStatuses = new HashMap<String, String>();
+    loadedStatuses.put("loaded", "true");
+    loadedStatuses.put("100", studentStatusJSON);
+    List<StudentStatus> savedStudentStatuses = new ArrayList<StudentStatus>();
+    savedStudentStatuses.add(studentStatus);
+    expect(hashOperations.entries(RUN_KEY)).andReturn(new HashMap<String, String>())
+        .andReturn(loadedStatuses);
+    expect(hibernateStudentStatusDao.getStudentStatusesByRunId(1L))
+        .andReturn(savedStudentStatuses);
+    expect(hashOperations.putIfAbsent(RUN_KEY, "100", studentStatusJSON)).andReturn(true);
+    hashOperations.put(RUN_KEY, "loaded", "true");
+    expectLastCall();
+    expect(stringRedisTemplate.expire(RUN_KEY, 24, TimeUnit.HOURS)).andReturn(true);
+    replay(stringRedisTemplate, hashOperations, hibernateStudentStatusDao);
+    List<StudentStatus> studentStatuses = studentStatusDao.getStudentStatusesByRunId(1L);
+    assertEquals(1, studentStatuses.size());
+    verify(stringRedisTemplate, hashOperations, hibernateStudentStatusDao);
+  }
+}
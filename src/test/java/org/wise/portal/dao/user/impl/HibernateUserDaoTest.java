@@ -35,6 +35,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.wise.portal.domain.authentication.Gender;
 import org.wise.portal.domain.authentication.Schoollevel;
 import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.user.UserSearchResult;
 import org.wise.portal.junit.AbstractTransactionalDbTests;
 
 /**
@@ -81,6 +82,36 @@ public class HibernateUserDaoTest extends AbstractTransactionalDbTests {
     assertTrue(usernames.contains("PatrickS0101"));
   }
 
+  @Test
+  public void searchUsers_TeacherFirstnamePrefix_ShouldReturnMatchingTeachers() {
+    List<UserSearchResult> users = userDao.searchUsers("teacher", "firstname", "Mr", null, 10);
+    assertEquals(2, users.size());
+    assertEquals(teacher1.getId(), users.get(0).getId());
+    assertEquals("MrsPuff", users.get(0).getUsername());
+    assertEquals("Boating School", users.get(0).getSchoolname());
+    assertEquals("MrKrabs", users.get(1).getUsername());
+  }
+
+  @Test
+  public void searchUsers_StudentPages_ShouldReturnEachStudentOnce() {
+    List<UserSearchResult> firstPage = userDao.searchUsers("student", null, null, null, 1);
+    assertEquals(1, firstPage.size());
+    assertEquals("SpongebobS0101", firstPage.get(0).getUsername());
+    assertEquals("Squarepants", firstPage.get(0).getLastname());
+    List<UserSearchResult> secondPage = userDao.searchUsers("student", null, null,
+        firstPage.get(0).getId(), 1);
+    assertEquals(1, secondPage.size());
+    assertEquals("PatrickS0101", secondPage.get(0).getUsername());
+    assertEquals(0, userDao.searchUsers("student", null, null, secondPage.get(0).getId(), 1)
+        .size());
+  }
+
+  @Test
+  public void searchUsers_PrefixWithWildcard_ShouldMatchWildcardLiterally() {
+    assertEquals(0, userDao.searchUsers("teacher", "username", "%Puff", null, 10).size());
+    assertEquals(0, userDao.searchUsers("teacher", "username", "M_Krabs", null, 10).size());
+  }
+
   @Test
   public void retrieveByUsername_WithExistingTeacherUsername_ShouldReturnTeacher() {
     User user = userDao.retrieveByUsername("MrsPuff");
@@ -359,4 +359,49 @@ public class HibernateEventDaoTest extends AbstractTransactionalDbTests {
     assertEquals("event2", events.get(0).getData());
     assertEquals("event4", events.get(1).getData());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void getStudentEvents_RunWithStudentAndTeacherEvents_ShouldReturnStudentEvents() {
+    createTeacherEvent("teacherEvent1");
+    List<Event> events = eventDao.getStudentEvents(run);
+    assertEquals(4, events.size());
+  }
+
+  @Test
+  public void getTeacherEvents_RunWithStudentAndTeacherEvents_ShouldReturnTeacherEvents() {
+    createTeacherEvent("teacherEvent1");
+    List<Event> events = eventDao.getTeacherEvents(run);
+    assertEquals(1, events.size());
+    assertEquals("teacherEvent1", events.get(0).getData());
+  }
+
+  @Test
+  public void getEventsPage_AfterId_ShouldReturnNextPage() {
+    createTeacherEvent("teacherEvent1");
+    List<Event> firstPage = eventDao.getEventsPage(run, null, true, true, 3);
+    assertEquals(3, firstPage.size());
+    assertEquals("event1", firstPage.get(0).getData());
+    assertEquals("event3", firstPage.get(2).getData());
+    List<Event> secondPage = eventDao.getEventsPage(run, firstPage.get(2).getId(), true, true, 3);
+    assertEquals(2, secondPage.size());
+    assertEquals("event4", secondPage.get(0).getData());
+    assertEquals("teacherEvent1", secondPage.get(1).getData());
+  }
+
+  @Test
+  public void getEventsPage_OnlyTeacherEvents_ShouldReturnTeacherEvents() {
+    createTeacherEvent("teacherEvent1");
+    List<Event> events = eventDao.getEventsPage(run, null, false, true, 3);
+    assertEquals(1, events.size());
+    assertEquals("teacherEvent1", events.get(0).getData());
+  }
+
+  private Event createTeacherEvent(String data) {
+    Event event = createEvent(run, null, null, null, null, null, "ClassroomMonitor", "Navigation",
+        "nodeEntered", data, null);
+    event.setUser(teacher1);
+    eventDao.save(event);
+    toilet.flush();
+    return event;
+  }
+}
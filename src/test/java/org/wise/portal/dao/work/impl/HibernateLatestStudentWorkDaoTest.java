@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2008-2020 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.dao.work.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.wise.portal.dao.work.LatestStudentWorkDao;
+import org.wise.portal.dao.work.StudentWorkDao;
+import org.wise.portal.domain.authentication.Gender;
+import org.wise.portal.domain.authentication.Schoollevel;
+import org.wise.portal.domain.group.Group;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.workgroup.Workgroup;
+import org.wise.portal.junit.AbstractTransactionalDbTests;
+import org.wise.vle.domain.work.LatestStudentWork;
+import org.wise.vle.domain.work.StudentWork;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class HibernateLatestStudentWorkDaoTest extends AbstractTransactionalDbTests {
+
+  Run run;
+  Group period1, period2;
+  Workgroup workgroup1, workgroup2;
+  long serverSaveTime = Calendar.getInstance().getTimeInMillis();
+
+  @Autowired
+  private LatestStudentWorkDao<LatestStudentWork> latestStudentWorkDao;
+
+  @Autowired
+  private StudentWorkDao<StudentWork> studentWorkDao;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    Long id = getNextAvailableProjectId();
+    String projectName = "How to be a Fry Cook";
+    Date startTime = Calendar.getInstance().getTime();
+    String runCode = "Panda123";
+    User teacher = createTeacherUser("Mrs", "Puff", "MrsPuff", "Mrs. Puff", "boat", "Bikini Bottom",
+        "Water State", "Pacific Ocean", "mrspuff@bikinibottom.com", "Boating School",
+        Schoollevel.COLLEGE, "1234567890");
+    run = createProjectAndRun(id, projectName, teacher, startTime, runCode);
+    period1 = createPeriod("Period 1");
+    period2 = createPeriod("Period 2");
+    Set<Group> periods = new TreeSet<Group>();
+    periods.add(period1);
+    periods.add(period2);
+    run.setPeriods(periods);
+    User student1 = createStudentUser("Spongebob", "Squarepants", "SpongebobS0101", "burger", 1, 1,
+        Gender.MALE);
+    Set<User> members1 = new HashSet<User>();
+    members1.add(student1);
+    workgroup1 = createWorkgroup(members1, run, period1);
+    User student2 = createStudentUser("Patrick", "Star", "PatrickS0101", "rock", 1, 1, Gender.MALE);
+    Set<User> members2 = new HashSet<User>();
+    members2.add(student2);
+    workgroup2 = createWorkgroup(members2, run, period2);
+  }
+
+  @Test
+  public void getLatestStudentWork_NoWorkSaved_ShouldReturnNull() {
+    assertNull(latestStudentWorkDao.getLatestStudentWork(run, workgroup1, "node1", "component1"));
+  }
+
+  @Test
+  public void getLatestStudentWork_WorkSaved_ShouldReturnLatestStudentWork() {
+    StudentWork studentWork = createStudentWork(workgroup1, period1, "node1", "studentWork1");
+    createLatestStudentWork(studentWork);
+    LatestStudentWork latestStudentWork = latestStudentWorkDao.getLatestStudentWork(run,
+        workgroup1, "node1", "component1");
+    assertEquals(studentWork, latestStudentWork.getStudentWork());
+  }
+
+  @Test
+  public void getLatestStudentWorkList_ByComponent_ShouldReturnLatestForEachWorkgroup() {
+    createLatestStudentWork(createStudentWork(workgroup1, period1, "node1", "studentWork1"));
+    createLatestStudentWork(createStudentWork(workgroup2, period2, "node1", "studentWork2"));
+    createLatestStudentWork(createStudentWork(workgroup1, period1, "node2", "studentWork3"));
+    List<StudentWork> studentWorkList = latestStudentWorkDao.getLatestStudentWorkList(run, null,
+        null, "node1", "component1");
+    assertEquals(2, studentWorkList.size());
+    assertEquals("studentWork1", studentWorkList.get(0).getStudentData());
+    assertEquals("studentWork2", studentWorkList.get(1).getStudentData());
+  }
+
+  @Test
+  public void getLatestStudentWorkList_ByPeriod_ShouldReturnLatestForWorkgroupsInPeriod() {
+    createLatestStudentWork(createStudentWork(workgroup1, period1, "node1", "studentWork1"));
+    createLatestStudentWork(createStudentWork(workgroup2, period2, "node1", "studentWork2"));
+    List<StudentWork> studentWorkList = latestStudentWorkDao.getLatestStudentWorkList(run, period2,
+        null, "node1", "component1");
+    assertEquals(1, studentWorkList.size());
+    assertEquals("studentWork2", studentWorkList.get(0).getStudentData());
+  }
+
+  @Test
+  public void updateLatestStudentWork_FirstSave_ShouldCreateLatestStudentWork() {
+    StudentWork studentWork = createStudentWork(workgroup1, period1, "node1", "studentWork1");
+    latestStudentWorkDao.updateLatestStudentWork(studentWork);
+    assertEquals(studentWork, latestStudentWorkDao.getLatestStudentWork(run, workgroup1, "node1",
+        "component1").getStudentWork());
+  }
+
+  @Test
+  public void updateLatestStudentWork_NewerStudentWork_ShouldMoveForward() {
+    latestStudentWorkDao.updateLatestStudentWork(
+        createStudentWork(workgroup1, period1, "node1", "studentWork1"));
+    StudentWork newerStudentWork = createStudentWork(workgroup1, period2, "node1", "studentWork2");
+    latestStudentWorkDao.updateLatestStudentWork(newerStudentWork);
+    LatestStudentWork latestStudentWork = latestStudentWorkDao.getLatestStudentWork(run,
+        workgroup1, "node1", "component1");
+    assertEquals(newerStudentWork, latestStudentWork.getStudentWork());
+    assertEquals(period2, latestStudentWork.getPeriod());
+  }
+
+  @Test
+  public void updateLatestStudentWork_OlderStudentWork_ShouldNotMoveBack() {
+    StudentWork olderStudentWork = createStudentWork(workgroup1, period1, "node1",
+        "studentWork1");
+    StudentWork newerStudentWork = createStudentWork(workgroup1, period1, "node1",
+        "studentWork2");
+    latestStudentWorkDao.updateLatestStudentWork(newerStudentWork);
+    latestStudentWorkDao.updateLatestStudentWork(olderStudentWork);
+    assertEquals(newerStudentWork, latestStudentWorkDao.getLatestStudentWork(run, workgroup1,
+        "node1", "component1").getStudentWork());
+  }
+
+  @Test
+  public void updateLatestStudentWork_NoComponentId_ShouldKeepOneRow() {
+    StudentWork studentWork1 = createStudentWork(workgroup1, period1, "node1", "studentWork1");
+    studentWork1.setComponentId(null);
+    latestStudentWorkDao.updateLatestStudentWork(studentWork1);
+    StudentWork studentWork2 = createStudentWork(workgroup1, period1, "node1", "studentWork2");
+    studentWork2.setComponentId(null);
+    latestStudentWorkDao.updateLatestStudentWork(studentWork2);
+    List<StudentWork> studentWorkList = latestStudentWorkDao.getLatestStudentWorkList(run, null,
+        null, "node1", null);
+    assertEquals(1, studentWorkList.size());
+    assertEquals(studentWork2, studentWorkList.get(0));
+  }
+
+  private StudentWork createStudentWork(Workgroup workgroup, Group period, String nodeId,
+      String studentData) {
+    StudentWork studentWork = new StudentWork();
+    serverSaveTime += 1000;
+    Timestamp timestamp = new Timestamp(serverSaveTime);
+    studentWork.setClientSaveTime(timestamp);
+    studentWork.setServerSaveTime(timestamp);
+    studentWork.setRun(run);
+    studentWork.setPeriod(period);
+    studentWork.setNodeId(nodeId);
+    studentWork.setComponentId("component1");
+    studentWork.setWorkgroup(workgroup);
+    studentWork.setIsAutoSave(false);
+    studentWork.setIsSubmit(false);
+    studentWork.setStudentData(studentData);
+    studentWorkDao.save(studentWork);
+    return studentWork;
+  }
+
+  private LatestStudentWork createLatestStudentWork(StudentWork studentWork) {
+    LatestStudentWork latestStudentWork = new LatestStudentWork();
+    latestStudentWork.setRun(studentWork.getRun());
+    latestStudentWork.setPeriod(studentWork.getPeriod());
+    latestStudentWork.setWorkgroup(studentWork.getWorkgroup());
+    latestStudentWork.setNodeId(studentWork.getNodeId());
+    latestStudentWork.setComponentId(studentWork.getComponentId());
+    latestStudentWork.setStudentWork(studentWork);
+    latestStudentWorkDao.save(latestStudentWork);
+    return latestStudentWork;
+  }
+}
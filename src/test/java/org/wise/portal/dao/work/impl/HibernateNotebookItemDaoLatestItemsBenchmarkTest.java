@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.dao.work.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.wise.portal.dao.work.NotebookItemDao;
+import org.wise.portal.domain.authentication.Gender;
+import org.wise.portal.domain.authentication.Schoollevel;
+import org.wise.portal.domain.group.Group;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.workgroup.Workgroup;
+import org.wise.portal.junit.AbstractTransactionalDbTests;
+import org.wise.vle.domain.work.NotebookItem;
+
+/**
+ * Regression benchmark for getting the latest revision of each notebook item in a run. Exports a
+ * small run, then fills the H2 test database with 100,000 revisions in another run and exports
+ * the small run again, once with the run-scoped query and once with the previous query that
+ * grouped the whole notebookItems table. HibernateNotebookItemDaoTest checks that the queries
+ * return the same items. It is excluded from the default test run; run it with
+ * -Dtest=HibernateNotebookItemDaoLatestItemsBenchmarkTest.
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class HibernateNotebookItemDaoLatestItemsBenchmarkTest
+    extends AbstractTransactionalDbTests {
+
+  private static final int NUM_WORKGROUPS = 5;
+
+  private static final int NUM_ITEMS = 20;
+
+  private static final int NUM_REVISIONS_PER_ITEM = 5;
+
+  private static final int NUM_OTHER_RUN_WORKGROUPS = 50;
+
+  private static final int NUM_OTHER_RUN_ITEMS = 200;
+
+  private static final int NUM_OTHER_RUN_REVISIONS_PER_ITEM = 10;
+
+  private static final String INSERT_NOTEBOOK_ITEM_SQL = "insert into notebookItems "
+      + "(clientSaveTime, serverSaveTime, localNotebookItemId, type, content, runId, workgroupId) "
+      + "values (?, ?, ?, 'note', ?, ?, ?)";
+
+  private static final String UNSCOPED_LATEST_NOTEBOOK_ITEMS_QUERY = "from NotebookItem n "
+      + "where n.run = :run and n.id in (select max(m.id) from NotebookItem m "
+      + "group by m.workgroup.id, m.localNotebookItemId) order by n.workgroup.id, n.id";
+
+  @Autowired
+  private NotebookItemDao<NotebookItem> notebookItemDao;
+
+  private Run run, otherRun;
+
+  private List<Workgroup> workgroups = new ArrayList<Workgroup>();
+
+  private List<Workgroup> otherRunWorkgroups = new ArrayList<Workgroup>();
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    Date startTime = Calendar.getInstance().getTime();
+    User teacher = createTeacherUser("Mrs", "Puff", "MrsPuff", "Mrs. Puff", "boat", "Bikini Bottom",
+        "Water State", "Pacific Ocean", "mrspuff@bikinibottom.com", "Boating School",
+        Schoollevel.COLLEGE, "1234567890");
+    run = createProjectAndRun(getNextAvailableProjectId(), "How to be a Fry Cook", teacher,
+        startTime, "Panda123");
+    otherRun = createProjectAndRun(getNextAvailableProjectId(), "How to Drive a Boat", teacher,
+        startTime, "Otter123");
+    createWorkgroups(run, NUM_WORKGROUPS, workgroups);
+    createWorkgroups(otherRun, NUM_OTHER_RUN_WORKGROUPS, otherRunWorkgroups);
+    toilet.flush();
+    insertRevisions(run, workgroups, NUM_ITEMS, NUM_REVISIONS_PER_ITEM);
+  }
+
+  private void createWorkgroups(Run run, int numWorkgroups, List<Workgroup> workgroups) {
+    Group period = createPeriod("Period 1");
+    Set<Group> periods = new TreeSet<Group>();
+    periods.add(period);
+    run.setPeriods(periods);
+    for (int w = 0; w < numWorkgroups; w++) {
+      User student = createStudentUser("Student", "Number" + w, "Student" + run.getRuncode() + w,
+          "password", 1, 1, Gender.FEMALE);
+      Set<User> members = new HashSet<User>();
+      members.add(student);
+      workgroups.add(createWorkgroup(members, run, period));
+    }
+  }
+
+  private void insertRevisions(Run run, List<Workgroup> workgroups, int numItems,
+      int numRevisionsPerItem) {
+    long startTime = Calendar.getInstance().getTimeInMillis();
+    List<Object[]> rows = new ArrayList<Object[]>();
+    for (int r = 0; r < numRevisionsPerItem; r++) {
+      Timestamp saveTime = new Timestamp(startTime + r * 1000L);
+      for (int i = 0; i < numItems; i++) {
+        for (Workgroup workgroup : workgroups) {
+          rows.add(new Object[] { saveTime, saveTime, "item" + i, "revision " + r, run.getId(),
+              workgroup.getId() });
+        }
+      }
+    }
+    jdbcTemplate.batchUpdate(INSERT_NOTEBOOK_ITEM_SQL, rows);
+  }
+
+  @Test
+  public void getLatestNotebookItemsExport_100kRevisionsInOtherRun_ShouldNotDependOnOtherRun() {
+    long start = System.nanoTime();
+    List<NotebookItem> latestAlone = notebookItemDao.getLatestNotebookItemsExport(run);
+    long aloneMillis = (System.nanoTime() - start) / 1000000;
+    sessionFactory.getCurrentSession().clear();
+
+    insertRevisions(otherRun, otherRunWorkgroups, NUM_OTHER_RUN_ITEMS,
+        NUM_OTHER_RUN_REVISIONS_PER_ITEM);
+    start = System.nanoTime();
+    List<NotebookItem> latest = notebookItemDao.getLatestNotebookItemsExport(run);
+    long scopedMillis = (System.nanoTime() - start) / 1000000;
+    sessionFactory.getCurrentSession().clear();
+
+    start = System.nanoTime();
+    List<NotebookItem> unscopedLatest = sessionFactory.getCurrentSession()
+        .createQuery(UNSCOPED_LATEST_NOTEBOOK_ITEMS_QUERY, NotebookItem.class)
+        .setParameter("run", run).getResultList();
+    long unscopedMillis = (System.nanoTime() - start) / 1000000;
+
+    assertEquals(NUM_WORKGROUPS * NUM_ITEMS, latestAlone.size());
+    assertEquals(NUM_WORKGROUPS * NUM_ITEMS, latest.size());
+    assertEquals(NUM_WORKGROUPS * NUM_ITEMS, unscopedLatest.size());
+    System.out.println("latest notebook items of a run with "
+        + NUM_WORKGROUPS * NUM_ITEMS * NUM_REVISIONS_PER_ITEM + " revisions: alone " + aloneMillis
+        + "ms, with " + NUM_OTHER_RUN_WORKGROUPS * NUM_OTHER_RUN_ITEMS
+        * NUM_OTHER_RUN_REVISIONS_PER_ITEM + " revisions in another run " + scopedMillis
+        + "ms, unscoped query " + unscopedMillis + "ms");
+  }
+}
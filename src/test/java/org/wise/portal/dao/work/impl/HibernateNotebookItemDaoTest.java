@@ -32,6 +32,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -56,6 +58,10 @@ import org.wise.vle.domain.work.NotebookItem;
 @RunWith(SpringRunner.class)
 public class HibernateNotebookItemDaoTest extends AbstractTransactionalDbTests {
 
+  private static final String UNSCOPED_LATEST_NOTEBOOK_ITEMS_QUERY = "from NotebookItem n "
+      + "where n.run = :run and n.id in (select max(m.id) from NotebookItem m "
+      + "group by m.workgroup.id, m.localNotebookItemId) order by n.workgroup.id, n.id";
+
   Run run;
   Workgroup workgroup1, workgroup2;
 
@@ -116,27 +122,6 @@ public class HibernateNotebookItemDaoTest extends AbstractTransactionalDbTests {
     assertEquals("notebookItem2", notebookItems.get(1).getContent());
   }
 
-  @Test
-  public void getNotebookItemByGroup_WithNoNotebookItemsInGroup_ShouldReturnNone() {
-    createNotebookItem(run, workgroup1, "localId1", null, "notebookItem1");
-    createNotebookItem(run, workgroup1, "localId2", null, "notebookItem2");
-    List<NotebookItem> notebookItems =
-        notebookItemDao.getNotebookItemByGroup(run.getId().intValue(), "group1");
-    assertEquals(0, notebookItems.size());
-  }
-
-  @Test
-  public void getNotebookItemByGroup_WithNotebookItemsInGroup_ShouldReturnNotebookItems() {
-    createNotebookItem(run, workgroup1, "localId1", "[group1]", "notebookItem1");
-    createNotebookItem(run, workgroup1, "localId2", "[group2]", "notebookItem2");
-    createNotebookItem(run, workgroup2, "localId1", "[group1]", "notebookItem3");
-    List<NotebookItem> notebookItems =
-        notebookItemDao.getNotebookItemByGroup(run.getId().intValue(), "group1");
-    assertEquals(2, notebookItems.size());
-    assertEquals("notebookItem1", notebookItems.get(0).getContent());
-    assertEquals("notebookItem3", notebookItems.get(1).getContent());
-  }
-
   @Test
   public void getNotebookItemsExport_WithExistingRevisions_ShouldReturnAllNotebookItems() {
     createNotebookItem(run, workgroup1, "localId1", null, "notebookItem1");
@@ -165,6 +150,57 @@ public class HibernateNotebookItemDaoTest extends AbstractTransactionalDbTests {
     assertEquals("notebookItem4", notebookItems.get(1).getContent());
   }
 
+  @Test
+  public void streamLatestNotebookItemsExport_WithExistingRevisions_ShouldStreamLatestRevisions() {
+    createNotebookItem(run, workgroup1, "localId1", null, "notebookItem1");
+    createNotebookItem(run, workgroup2, "localId1", null, "notebookItem2");
+    createNotebookItem(run, workgroup1, "localId1", null, "notebookItem3");
+    createNotebookItem(run, workgroup1, "localId2", null, "notebookItem4");
+    List<NotebookItem> notebookItems;
+    try (Stream<NotebookItem> stream = notebookItemDao.streamLatestNotebookItemsExport(run)) {
+      notebookItems = stream.collect(Collectors.toList());
+    }
+    assertEquals(3, notebookItems.size());
+    assertEquals("notebookItem3", notebookItems.get(0).getContent());
+    assertEquals("notebookItem4", notebookItems.get(1).getContent());
+    assertEquals("notebookItem2", notebookItems.get(2).getContent());
+  }
+
+  @Test
+  public void getLatestNotebookItemsExport_RevisionsInOtherRun_ShouldMatchUnscopedQuery() {
+    Run otherRun = createProjectAndRun(getNextAvailableProjectId(), "How to Drive a Boat",
+        run.getOwner(), Calendar.getInstance().getTime(), "Otter123");
+    Group otherPeriod = createPeriod("Period 1");
+    Set<Group> otherPeriods = new TreeSet<Group>();
+    otherPeriods.add(otherPeriod);
+    otherRun.setPeriods(otherPeriods);
+    Set<User> otherMembers = new HashSet<User>();
+    otherMembers.add(createStudentUser("Sandy", "Cheeks", "SandyC0101", "acorn", 1, 1,
+        Gender.FEMALE));
+    Workgroup otherWorkgroup = createWorkgroup(otherMembers, otherRun, otherPeriod);
+    createNotebookItem(run, workgroup1, "localId1", null, "notebookItem1");
+    createNotebookItem(otherRun, otherWorkgroup, "localId1", null, "otherNotebookItem1");
+    createNotebookItem(run, workgroup2, "localId1", null, "notebookItem2");
+    createNotebookItem(run, workgroup1, "localId1", null, "notebookItem3");
+    createNotebookItem(otherRun, otherWorkgroup, "localId1", null, "otherNotebookItem2");
+    createNotebookItem(run, workgroup1, "localId2", null, "notebookItem4");
+    List<NotebookItem> notebookItems = notebookItemDao.getLatestNotebookItemsExport(run);
+    List<NotebookItem> unscopedNotebookItems = sessionFactory.getCurrentSession()
+        .createQuery(UNSCOPED_LATEST_NOTEBOOK_ITEMS_QUERY, NotebookItem.class)
+        .setParameter("run", run).getResultList();
+    List<NotebookItem> streamedNotebookItems;
+    try (Stream<NotebookItem> stream = notebookItemDao.streamLatestNotebookItemsExport(run)) {
+      streamedNotebookItems = stream.collect(Collectors.toList());
+    }
+    assertEquals(3, notebookItems.size());
+    assertEquals(getIds(unscopedNotebookItems), getIds(notebookItems));
+    assertEquals(getIds(streamedNotebookItems), getIds(notebookItems));
+  }
+
+  private List<Integer> getIds(List<NotebookItem> notebookItems) {
+    return notebookItems.stream().map(NotebookItem::getId).collect(Collectors.toList());
+  }
+
   private NotebookItem createNotebookItem(Run run, Workgroup workgroup, String localNotebookItemId,
       String groups, String content) {
     NotebookItem notebookItem = new NotebookItem();
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2008-2020 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.dao.work.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.wise.portal.dao.work.NotebookItemDao;
+import org.wise.portal.dao.work.NotebookItemGroupDao;
+import org.wise.portal.domain.authentication.Gender;
+import org.wise.portal.domain.authentication.Schoollevel;
+import org.wise.portal.domain.group.Group;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.workgroup.Workgroup;
+import org.wise.portal.junit.AbstractTransactionalDbTests;
+import org.wise.vle.domain.work.NotebookItem;
+import org.wise.vle.domain.work.NotebookItemGroup;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class HibernateNotebookItemGroupDaoTest extends AbstractTransactionalDbTests {
+
+  Run run;
+  Workgroup workgroup1, workgroup2;
+
+  @Autowired
+  private NotebookItemDao<NotebookItem> notebookItemDao;
+
+  @Autowired
+  private NotebookItemGroupDao<NotebookItemGroup> notebookItemGroupDao;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    Long id = getNextAvailableProjectId();
+    Date startTime = Calendar.getInstance().getTime();
+    User teacher = createTeacherUser("Mrs", "Puff", "MrsPuff", "Mrs. Puff", "boat", "Bikini Bottom",
+        "Water State", "Pacific Ocean", "mrspuff@bikinibottom.com", "Boating School",
+        Schoollevel.COLLEGE, "1234567890");
+    run = createProjectAndRun(id, "How to be a Fry Cook", teacher, startTime, "Panda123");
+    Group period1 = createPeriod("Period 1");
+    Set<Group> periods = new TreeSet<Group>();
+    periods.add(period1);
+    run.setPeriods(periods);
+    User student1 = createStudentUser("Spongebob", "Squarepants", "SpongebobS0101", "burger", 1, 1,
+        Gender.MALE);
+    Set<User> members1 = new HashSet<User>();
+    members1.add(student1);
+    workgroup1 = createWorkgroup(members1, run, period1);
+    User student2 = createStudentUser("Patrick", "Star", "PatrickS0101", "rock", 1, 1, Gender.MALE);
+    Set<User> members2 = new HashSet<User>();
+    members2.add(student2);
+    workgroup2 = createWorkgroup(members2, run, period1);
+  }
+
+  @Test
+  public void getLatestNotebookItemsInGroup_WithNoNotebookItemsInGroup_ShouldReturnNone() {
+    createNotebookItem(workgroup1, "localId1", "notebookItem1");
+    createNotebookItem(workgroup1, "localId2", "notebookItem2", "group2");
+    List<NotebookItem> notebookItems =
+        notebookItemGroupDao.getLatestNotebookItemsInGroup(run.getId().intValue(), "group1");
+    assertEquals(0, notebookItems.size());
+  }
+
+  @Test
+  public void getLatestNotebookItemsInGroup_WithNotebookItemsInGroup_ShouldReturnNotebookItems() {
+    createNotebookItem(workgroup1, "localId1", "notebookItem1", "group1");
+    createNotebookItem(workgroup1, "localId2", "notebookItem2", "group2");
+    createNotebookItem(workgroup2, "localId1", "notebookItem3", "group2", "group1");
+    List<NotebookItem> notebookItems =
+        notebookItemGroupDao.getLatestNotebookItemsInGroup(run.getId().intValue(), "group1");
+    assertEquals(2, notebookItems.size());
+    assertEquals("notebookItem1", notebookItems.get(0).getContent());
+    assertEquals("notebookItem3", notebookItems.get(1).getContent());
+  }
+
+  @Test
+  public void getLatestNotebookItemsInGroup_GroupNameContainsName_ShouldNotReturnNotebookItem() {
+    createNotebookItem(workgroup1, "localId1", "notebookItem1", "group10");
+    createNotebookItem(workgroup1, "localId2", "notebookItem2", "group1");
+    List<NotebookItem> notebookItems =
+        notebookItemGroupDao.getLatestNotebookItemsInGroup(run.getId().intValue(), "group1");
+    assertEquals(1, notebookItems.size());
+    assertEquals("notebookItem2", notebookItems.get(0).getContent());
+  }
+
+  @Test
+  public void getLatestNotebookItemsInGroup_WithRevisions_ShouldReturnLatestRevisions() {
+    createNotebookItem(workgroup1, "localId1", "notebookItem1", "group1");
+    createNotebookItem(workgroup1, "localId1", "notebookItem2", "group1");
+    createNotebookItem(workgroup2, "localId1", "notebookItem3", "group1");
+    createNotebookItem(workgroup1, "localId1", "notebookItem4", "group1");
+    List<NotebookItem> notebookItems =
+        notebookItemGroupDao.getLatestNotebookItemsInGroup(run.getId().intValue(), "group1");
+    assertEquals(2, notebookItems.size());
+    assertEquals("notebookItem3", notebookItems.get(0).getContent());
+    assertEquals("notebookItem4", notebookItems.get(1).getContent());
+  }
+
+  @Test
+  public void getNotebookItemGroups_WithGroups_ShouldReturnGroupsOfNotebookItem() {
+    NotebookItem notebookItem = createNotebookItem(workgroup1, "localId1", "notebookItem1",
+        "group1", "group2");
+    createNotebookItem(workgroup2, "localId1", "notebookItem2", "group1");
+    List<NotebookItemGroup> notebookItemGroups =
+        notebookItemGroupDao.getNotebookItemGroups(notebookItem);
+    assertEquals(2, notebookItemGroups.size());
+  }
+
+  private NotebookItem createNotebookItem(Workgroup workgroup, String localNotebookItemId,
+      String content, String... groupNames) {
+    NotebookItem notebookItem = new NotebookItem();
+    Timestamp timestamp = new Timestamp(Calendar.getInstance().getTimeInMillis());
+    notebookItem.setClientSaveTime(timestamp);
+    notebookItem.setServerSaveTime(timestamp);
+    notebookItem.setRun(run);
+    notebookItem.setWorkgroup(workgroup);
+    notebookItem.setLocalNotebookItemId(localNotebookItemId);
+    notebookItem.setContent(content);
+    notebookItemDao.save(notebookItem);
+    for (String groupName : groupNames) {
+      NotebookItemGroup notebookItemGroup = new NotebookItemGroup();
+      notebookItemGroup.setNotebookItem(notebookItem);
+      notebookItemGroup.setRun(run);
+      notebookItemGroup.setGroupName(groupName);
+      notebookItemGroupDao.save(notebookItemGroup);
+    }
+    return notebookItem;
+  }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.dao.work.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.wise.portal.dao.work.StudentWorkDao;
+import org.wise.portal.domain.authentication.Gender;
+import org.wise.portal.domain.authentication.Schoollevel;
+import org.wise.portal.domain.group.Group;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.workgroup.Workgroup;
+import org.wise.portal.junit.AbstractTransactionalDbTests;
+import org.wise.vle.domain.work.StudentWork;
+
+/**
+ * Regression benchmark for getting the latest StudentWork for each workgroup. Fills the H2 test
+ * database with a synthetic run of 100,000 revisions and compares loading every revision and
+ * filtering in memory with letting the database find the latest revisions. It is excluded from
+ * the default test run; run it with -Dtest=HibernateStudentWorkDaoLatestWorkBenchmarkTest.
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class HibernateStudentWorkDaoLatestWorkBenchmarkTest extends AbstractTransactionalDbTests {
+
+  private static final int NUM_WORKGROUPS = 20;
+
+  private static final int NUM_COMPONENTS = 5;
+
+  private static final int NUM_REVISIONS_PER_COMPONENT = 1000;
+
+  private static final String INSERT_STUDENT_WORK_SQL = "insert into studentWork "
+      + "(clientSaveTime, componentId, componentType, isAutoSave, isSubmit, nodeId, "
+      + "serverSaveTime, studentData, periodId, runId, workgroupId) "
+      + "values (?, ?, 'OpenResponse', true, false, 'node1', ?, ?, ?, ?, ?)";
+
+  @Autowired
+  private StudentWorkDao<StudentWork> studentWorkDao;
+
+  private Run run;
+
+  private Group period;
+
+  private List<Workgroup> workgroups = new ArrayList<Workgroup>();
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    Long id = getNextAvailableProjectId();
+    Date startTime = Calendar.getInstance().getTime();
+    User teacher = createTeacherUser("Mrs", "Puff", "MrsPuff", "Mrs. Puff", "boat", "Bikini Bottom",
+        "Water State", "Pacific Ocean", "mrspuff@bikinibottom.com", "Boating School",
+        Schoollevel.COLLEGE, "1234567890");
+    run = createProjectAndRun(id, "How to be a Fry Cook", teacher, startTime, "Panda123");
+    period = createPeriod("Period 1");
+    Set<Group> periods = new TreeSet<Group>();
+    periods.add(period);
+    run.setPeriods(periods);
+    for (int w = 0; w < NUM_WORKGROUPS; w++) {
+      User student = createStudentUser("Student", "Number" + w, "StudentN0101" + w, "password", 1,
+          1, Gender.FEMALE);
+      Set<User> members = new HashSet<User>();
+      members.add(student);
+      workgroups.add(createWorkgroup(members, run, period));
+    }
+    toilet.flush();
+    insertRevisions();
+  }
+
+  private void insertRevisions() {
+    long startTime = Calendar.getInstance().getTimeInMillis();
+    List<Object[]> rows = new ArrayList<Object[]>();
+    for (int r = 0; r < NUM_REVISIONS_PER_COMPONENT; r++) {
+      Timestamp saveTime = new Timestamp(startTime + r * 1000L);
+      for (int c = 0; c < NUM_COMPONENTS; c++) {
+        for (Workgroup workgroup : workgroups) {
+          rows.add(new Object[] { saveTime, "component" + c, saveTime,
+              "{\"response\":\"revision " + r + "\"}", period.getId(), run.getId(),
+              workgroup.getId() });
+        }
+      }
+    }
+    jdbcTemplate.batchUpdate(INSERT_STUDENT_WORK_SQL, rows);
+  }
+
+  @Test
+  public void getLatestStudentWorkListByParams_100kRevisions_ShouldMatchInMemoryFilter() {
+    long start = System.nanoTime();
+    List<StudentWork> allRevisions = studentWorkDao.getStudentWorkListByParams(null, run, null,
+        null, null, null, "node1", "component0", null, null);
+    Map<Long, StudentWork> inMemoryLatest = filterLatestWorkForEachWorkgroup(allRevisions);
+    long inMemoryMillis = (System.nanoTime() - start) / 1000000;
+    sessionFactory.getCurrentSession().clear();
+
+    start = System.nanoTime();
+    List<StudentWork> latest = studentWorkDao.getLatestStudentWorkListByParams(null, run, null,
+        null, null, null, "node1", "component0", null, null);
+    long databaseMillis = (System.nanoTime() - start) / 1000000;
+
+    assertEquals(NUM_WORKGROUPS * NUM_REVISIONS_PER_COMPONENT, allRevisions.size());
+    assertEquals(NUM_WORKGROUPS, latest.size());
+    for (StudentWork studentWork : latest) {
+      assertEquals(inMemoryLatest.get(studentWork.getWorkgroup().getId()).getId(),
+          studentWork.getId());
+      assertEquals("{\"response\":\"revision " + (NUM_REVISIONS_PER_COMPONENT - 1) + "\"}",
+          studentWork.getStudentData());
+    }
+    System.out.println("latest work for " + NUM_WORKGROUPS + " workgroups out of "
+        + NUM_WORKGROUPS * NUM_COMPONENTS * NUM_REVISIONS_PER_COMPONENT + " revisions: in memory "
+        + inMemoryMillis + "ms, database " + databaseMillis + "ms");
+  }
+
+  private Map<Long, StudentWork> filterLatestWorkForEachWorkgroup(
+      List<StudentWork> allStudentWork) {
+    Map<Long, StudentWork> latestWorkPerWorkgroup = new HashMap<Long, StudentWork>();
+    for (StudentWork studentWork : allStudentWork) {
+      Long key = studentWork.getWorkgroup().getId();
+      StudentWork latestWork = latestWorkPerWorkgroup.get(key);
+      if (latestWork == null
+          || !studentWork.getServerSaveTime().before(latestWork.getServerSaveTime())) {
+        latestWorkPerWorkgroup.put(key, studentWork);
+      }
+    }
+    return latestWorkPerWorkgroup;
+  }
+}
@@ -32,6 +32,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -133,10 +135,61 @@ public class HibernateStudentWorkDaoTest extends AbstractTransactionalDbTests {
     assertEquals("studentWork3", studentWorkList.get(1).getStudentData());
   }
 
+  @Test
+  public void getLatestStudentWorkListByParams_ByNodeId_ShouldReturnLatestForEachWorkgroup() {
+    createStudentWork(workgroup1, "node1", "studentWork1", 1000);
+    createStudentWork(workgroup2, "node1", "studentWork2", 2000);
+    createStudentWork(workgroup1, "node1", "studentWork3", 3000);
+    createStudentWork(workgroup1, "node2", "studentWork4", 4000);
+    List<StudentWork> studentWorkList = studentWorkDao.getLatestStudentWorkListByParams(null, run,
+        null, null, null, null, "node1", null, null, null);
+    assertEquals(2, studentWorkList.size());
+    assertEquals("studentWork2", studentWorkList.get(0).getStudentData());
+    assertEquals("studentWork3", studentWorkList.get(1).getStudentData());
+  }
+
+  @Test
+  public void getLatestStudentWorkListByParams_SameServerSaveTime_ShouldReturnLastSaved() {
+    createStudentWork(workgroup1, "node1", "studentWork1", 1000);
+    createStudentWork(workgroup1, "node1", "studentWork2", 1000);
+    List<StudentWork> studentWorkList = studentWorkDao.getLatestStudentWorkListByParams(null, run,
+        null, null, null, null, "node1", null, null, null);
+    assertEquals(1, studentWorkList.size());
+    assertEquals("studentWork2", studentWorkList.get(0).getStudentData());
+  }
+
+  @Test
+  public void getLatestStudentWorkListByParams_NoStudentWork_ShouldReturnEmptyList() {
+    List<StudentWork> studentWorkList = studentWorkDao.getLatestStudentWorkListByParams(null, run,
+        null, null, null, null, null, null, null, null);
+    assertEquals(0, studentWorkList.size());
+  }
+
+  @Test
+  public void streamStudentWorkListByParams_ByNodeId_ShouldStreamStudentWorkInOrder() {
+    createStudentWork(workgroup1, "node1", "studentWork1");
+    createStudentWork(workgroup1, "node2", "studentWork2");
+    createStudentWork(workgroup2, "node1", "studentWork3");
+    List<String> studentDataList;
+    try (Stream<StudentWork> studentWork = studentWorkDao.streamStudentWorkListByParams(null, run,
+        null, null, null, null, "node1", null, null, null)) {
+      studentDataList = studentWork.map(StudentWork::getStudentData)
+          .collect(Collectors.toList());
+    }
+    assertEquals(2, studentDataList.size());
+    assertEquals("studentWork1", studentDataList.get(0));
+    assertEquals("studentWork3", studentDataList.get(1));
+  }
+
   private StudentWork createStudentWork(Workgroup workgroup, String nodeId, String studentData) {
+    return createStudentWork(workgroup, nodeId, studentData,
+        Calendar.getInstance().getTimeInMillis());
+  }
+
+  private StudentWork createStudentWork(Workgroup workgroup, String nodeId, String studentData,
+      long serverSaveTime) {
     StudentWork studentWork = new StudentWork();
-    Calendar now = Calendar.getInstance();
-    Timestamp timestamp = new Timestamp(now.getTimeInMillis());
+    Timestamp timestamp = new Timestamp(serverSaveTime);
     studentWork.setClientSaveTime(timestamp);
     studentWork.setServerSaveTime(timestamp);
     studentWork.setRun(run);
@@ -29,6 +29,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -107,4 +108,12 @@ public class HibernateWorkgroupDaoTest extends AbstractTransactionalDbTests {
     assertEquals(1, workgroups.size());
     assertTrue(workgroups.get(0).getMembers().contains(student1));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void getWorkgroupRunIdsByUser_WithWorkgroup_ShouldReturnWorkgroupAndRun() {
+    assertEquals(0, workgroupDao.getWorkgroupRunIdsByUser(student2).size());
+    Map<Long, Long> workgroupRunIds = workgroupDao.getWorkgroupRunIdsByUser(student1);
+    assertEquals(1, workgroupRunIds.size());
+    assertEquals(run.getId(), workgroupRunIds.values().iterator().next());
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2008-2017 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.presentation.web.controllers.admin;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.easymock.MockType;
+import org.easymock.TestSubject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.ModelAndView;
+import org.wise.portal.domain.impl.LookupUserParameters;
+import org.wise.portal.domain.user.UserSearchResult;
+import org.wise.portal.presentation.validators.LookupUserParametersValidator;
+import org.wise.portal.service.user.UserService;
+
+@RunWith(EasyMockRunner.class)
+public class LookupUserControllerTest {
+
+  @TestSubject
+  private LookupUserController controller = new LookupUserController();
+
+  @Mock
+  private UserService userService;
+
+  @Mock(type = MockType.NICE)
+  private LookupUserParametersValidator lookupUserParametersValidator;
+
+  @Test
+  public void lookupUser_FewerMatchesThanLimit_ShouldShowAllMatches() {
+    expect(userService.searchUsers("teacher", "lastname", "Kwan", null, 501))
+        .andReturn(createUsers(2));
+    replay(userService);
+    ModelAndView modelAndView = lookupUser("teacher", "lastname", "Kwan");
+    assertEquals(2, ((List<?>) modelAndView.getModel().get("teachers")).size());
+    assertNull(modelAndView.getModel().get("searchResultsLimit"));
+    verify(userService);
+  }
+
+  @Test
+  public void lookupUser_MoreMatchesThanLimit_ShouldShowFirstMatchesAndLimit() {
+    expect(userService.searchUsers("student", "username", "s", null, 501))
+        .andReturn(createUsers(501));
+    replay(userService);
+    ModelAndView modelAndView = lookupUser("student", "username", "s");
+    List<?> students = (List<?>) modelAndView.getModel().get("students");
+    assertEquals(500, students.size());
+    assertEquals("user500", students.get(499));
+    assertEquals(500, modelAndView.getModel().get("searchResultsLimit"));
+    verify(userService);
+  }
+
+  @Test
+  public void searchUsers_InvalidField_ShouldRespondBadRequest() {
+    replay(userService);
+    try {
+      controller.searchUsers("teacher", "password", "a", null, 100);
+      fail("Expected ResponseStatusException");
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+    verify(userService);
+  }
+
+  private ModelAndView lookupUser(String userType, String lookupField, String lookupData) {
+    LookupUserParameters params = new LookupUserParameters();
+    params.setLookupField(lookupField);
+    params.setLookupCriteria("like");
+    params.setLookupData(lookupData);
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setParameter("userType", userType);
+    return controller.lookupUser(params,
+        new BeanPropertyBindingResult(params, "lookupUserParameters"), request);
+  }
+
+  private List<UserSearchResult> createUsers(int numUsers) {
+    List<UserSearchResult> users = new ArrayList<UserSearchResult>();
+    for (long id = 1; id <= numUsers; id++) {
+      users.add(new UserSearchResult(id, "user" + id, "User", "Number" + id, null));
+    }
+    return users;
+  }
+}
@@ -42,8 +42,8 @@ import org.springframework.ui.ModelMap;
 import org.wise.portal.domain.authentication.impl.StudentUserDetails;
 import org.wise.portal.domain.authentication.impl.TeacherUserDetails;
 import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.user.UserSearchResult;
 import org.wise.portal.domain.user.impl.UserImpl;
-import org.wise.portal.service.authentication.impl.UserDetailsServiceImpl;
 import org.wise.portal.service.user.UserService;
 
 /**
@@ -62,9 +62,6 @@ public class ViewAllUsersControllerTest extends TestCase {
   @Mock
   private UserService userService;
 
-  @Mock
-  private UserDetailsServiceImpl userDetailsService;
-
   private List<User> allUsers;
 
   private List<User> teachers;
@@ -96,53 +93,49 @@ public class ViewAllUsersControllerTest extends TestCase {
 
   @Test
   public void showUsers_onlyTeachers_OK() throws Exception {
-    List<String> allTeacherUsernames = new ArrayList<>();
-    allTeacherUsernames.add("hirokiterashima");
-    allTeacherUsernames.add("geoffreykwan");
-    allTeacherUsernames.add("jonathanlimbreitbart");
-    EasyMock.expect(userDetailsService.retrieveAllTeacherUsernames())
-        .andReturn(allTeacherUsernames);
-    EasyMock.replay(userDetailsService);
+    List<UserSearchResult> teachers = new ArrayList<>();
+    teachers.add(new UserSearchResult(1L, "hirokiterashima", "Hiroki", "Terashima", null, null));
+    teachers.add(new UserSearchResult(2L, "geoffreykwan", "Geoffrey", "Kwan", null, null));
+    teachers.add(new UserSearchResult(3L, "jonathanlimbreitbart", "Jonathan", "Lim-Breitbart",
+        null, null));
+    EasyMock.expect(userService.searchUsers("teacher", null, null, null, 500))
+        .andReturn(teachers);
+    EasyMock.replay(userService);
     this.request.setParameter("userType", "teacher");
     String view = controller.showUsers(request, modelMap);
     assertEquals(view, "admin/account/manageusers");
     List<String>  teacherUsernamesResult = (List<String>) modelMap.get("teachers");
     assertEquals(3, teacherUsernamesResult.size());
-    EasyMock.verify(userDetailsService);
+    assertEquals("geoffreykwan", teacherUsernamesResult.get(1));
+    assertNull(modelMap.get("nextAfter"));
+    EasyMock.verify(userService);
   }
 
   @Test
-  public void showUsers_onlyStudents_OK() throws Exception {
-    List<String> allStudentUsernames = new ArrayList<>();
-    allStudentUsernames.add("hirokit0101");
-    allStudentUsernames.add("geoffreyk0102");
-    allStudentUsernames.add("jonathanb0103");
-    EasyMock.expect(userDetailsService.retrieveAllStudentUsernames())
-      .andReturn(allStudentUsernames);
-    EasyMock.replay(userDetailsService);
+  public void showUsers_onlyStudentsAfterId_ShouldShowNextPage() throws Exception {
+    List<UserSearchResult> students = new ArrayList<>();
+    for (long id = 11; id <= 510; id++) {
+      students.add(new UserSearchResult(id, "student" + id, "Student", "Number" + id, null));
+    }
+    EasyMock.expect(userService.searchUsers("student", null, null, 10L, 500))
+        .andReturn(students);
+    EasyMock.replay(userService);
     this.request.setParameter("userType", "student");
+    this.request.setParameter("after", "10");
     String view = controller.showUsers(request, modelMap);
     assertEquals(view, "admin/account/manageusers");
     List<String>  studentUsernamesResult = (List<String>) modelMap.get("students");
-    assertEquals(3, studentUsernamesResult.size());
-    EasyMock.verify(userDetailsService);
+    assertEquals(500, studentUsernamesResult.size());
+    assertEquals(510L, modelMap.get("nextAfter"));
+    EasyMock.verify(userService);
   }
 
   @Test
-  public void showUsers_allUsers_OK() throws Exception {
-    List<String> allUserUsernames = new ArrayList<>();
-    allUserUsernames.add("hirokiterashima");
-    allUserUsernames.add("geoffreykwan");
-    allUserUsernames.add("jonathanlimbreitbart");
-    allUserUsernames.add("hirokit0101");
-    allUserUsernames.add("geoffreyk0102");
-    allUserUsernames.add("jonathanb0103");
-    EasyMock.expect(userService.retrieveAllUsernames()).andReturn(allUserUsernames);
+  public void showUsers_noUserType_ShouldNotLoadUsers() throws Exception {
     EasyMock.replay(userService);
     String view = controller.showUsers(request, modelMap);
     assertEquals(view, "admin/account/manageusers");
-    List<String>  allUserUsernamesResult = (List<String>) modelMap.get("usernames");
-    assertEquals(6, allUserUsernamesResult.size());
+    assertTrue(modelMap.isEmpty());
     EasyMock.verify(userService);
   }
 
@@ -12,6 +12,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
@@ -30,6 +31,7 @@ import org.wise.portal.domain.run.Run;
 import org.wise.portal.presentation.web.controllers.APIControllerTest;
 import org.wise.portal.presentation.web.response.SimpleResponse;
 import org.wise.portal.service.session.SessionService;
+import org.wise.portal.spring.data.redis.MessageEnvelope;
 import org.wise.portal.spring.data.redis.MessagePublisher;
 
 @RunWith(EasyMockRunner.class)
@@ -64,6 +66,8 @@ public class AuthorAPIControllerTest extends APIControllerTest {
     replay(runService);
     expect(portalService.getById(new Integer(1))).andReturn(new PortalImpl());
     expect(portalService.getDefaultProjectMetadataSettings()).andReturn("");
+    expect(portalService.getStructures(new Integer(1)))
+        .andReturn(Collections.<String, Object>emptyMap());
     replay(portalService);
     expect(request.getLocale()).andReturn(Locale.US);
     expect(request.getContextPath()).andReturn("wise").times(3);
@@ -106,7 +110,7 @@ public class AuthorAPIControllerTest extends APIControllerTest {
     expect(sessionService.getCurrentAuthors(projectId1)).andReturn(new HashSet<String>());
     expectLastCall();
     replay(sessionService);
-    redisPublisher.publish(isA(String.class));
+    redisPublisher.publish(isA(MessageEnvelope.class));
     expectLastCall();
     replay(redisPublisher);
     authorAPIController.notifyAuthorBeginEnd(teacherAuth, projectId1, true);
@@ -140,7 +144,7 @@ public class AuthorAPIControllerTest extends APIControllerTest {
     expect(sessionService.getCurrentAuthors(projectId1)).andReturn(new HashSet<String>());
     expectLastCall();
     replay(sessionService);
-    redisPublisher.publish(isA(String.class));
+    redisPublisher.publish(isA(MessageEnvelope.class));
     expectLastCall();
     replay(redisPublisher);
     authorAPIController.notifyAuthorBeginEnd(teacherAuth, projectId1, false);
@@ -1,21 +1,33 @@
 package org.wise.portal.presentation.web.controllers.notebook;
 
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 
 import java.nio.file.AccessDeniedException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.easymock.EasyMockRunner;
 import org.easymock.TestSubject;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.presentation.web.controllers.APIControllerTest;
+import org.wise.portal.service.notebook.NotebookItemJsonModule;
 import org.wise.vle.domain.work.NotebookItem;
 
 @RunWith(EasyMockRunner.class)
@@ -62,18 +74,48 @@ public class NotebookControllerTest extends APIControllerTest {
   }
 
   @Test
-  public void getLatestNotebookItems_TeacherHasRunReadPermissionLatestItems_ReturnLatestItems()
-      throws AccessDeniedException, ObjectNotFoundException {
+  @SuppressWarnings("unchecked")
+  public void getLatestNotebookItemsExport_TeacherHasRunReadPermission_WriteLatestItems()
+      throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.registerModule(new NotebookItemJsonModule());
+    ReflectionTestUtils.setField(controller, "objectMapper", objectMapper);
+    Timestamp saveTime = new Timestamp(1000L);
+    item1.setId(1);
+    item2.setId(2);
+    for (NotebookItem item : notebookItems) {
+      item.setRun(run1);
+      item.setWorkgroup(workgroup1);
+      item.setType("bookmark");
+      item.setClientSaveTime(saveTime);
+      item.setServerSaveTime(saveTime);
+    }
     expect(runService.retrieveById(runId1)).andReturn(run1);
     expect(runService.hasReadPermission(teacherAuth, run1)).andReturn(true);
-    expect(vleService.getLatestNotebookItemsExport(run1)).andReturn(notebookItems);
+    vleService.forEachLatestNotebookItemExport(eq(run1), isA(Consumer.class));
+    expectLastCall().andAnswer(() -> {
+      notebookItems.forEach((Consumer<NotebookItem>) getCurrentArguments()[1]);
+      return null;
+    });
     replay(runService, vleService);
-    List<NotebookItem> items = controller.getNotebookItems(runId1, teacherAuth,
-        "latestNotebookItems");
-    assertEquals(items.size(), 2);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    controller.getLatestNotebookItemsExport(runId1, teacherAuth, response);
+    JsonNode items = objectMapper.readTree(response.getContentAsString());
+    assertEquals(2, items.size());
+    assertEquals(1, items.get(0).get("id").asInt());
+    assertEquals(2, items.get(1).get("id").asInt());
     verify(runService, vleService);
   }
 
+  @Test(expected = AccessDeniedException.class)
+  public void getLatestNotebookItemsExport_TeacherNoRunReadPermission_ThrowException()
+      throws Exception {
+    expect(runService.retrieveById(runId1)).andReturn(run1);
+    expect(runService.hasReadPermission(teacherAuth, run1)).andReturn(false);
+    replay(runService, vleService);
+    controller.getLatestNotebookItemsExport(runId1, teacherAuth, new MockHttpServletResponse());
+  }
+
   @Test
   public void getNotebookItems_StudentIsInWorkgroup_ReturnItemsForWorkgroup()
       throws ObjectNotFoundException, AccessDeniedException {
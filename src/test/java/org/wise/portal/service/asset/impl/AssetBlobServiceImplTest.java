@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.asset.impl;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.easymock.MockType;
+import org.easymock.TestSubject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(EasyMockRunner.class)
+public class AssetBlobServiceImplTest {
+
+  @TestSubject
+  private AssetBlobServiceImpl assetBlobService = new AssetBlobServiceImpl();
+
+  @Mock(type = MockType.NICE)
+  private Properties appProperties;
+
+  private Path curriculumFolder;
+
+  private Path projectFolder;
+
+  private Path studentUploadsFolder;
+
+  @Before
+  public void setUp() throws IOException {
+    curriculumFolder = Files.createTempDirectory("curriculum");
+    studentUploadsFolder = Files.createTempDirectory("studentuploads");
+    projectFolder = Files.createDirectories(curriculumFolder.resolve("1"));
+    Files.createDirectories(projectFolder.resolve("assets"));
+    Files.write(projectFolder.resolve("project.json"), "{}".getBytes(StandardCharsets.UTF_8));
+    Files.write(projectFolder.resolve("assets").resolve("sun.png"), new byte[] { 1, 2, 3 });
+    expect(appProperties.getProperty("curriculum_base_dir"))
+        .andReturn(curriculumFolder.toString()).anyTimes();
+    expect(appProperties.getProperty("studentuploads_base_dir"))
+        .andReturn(studentUploadsFolder.toString()).anyTimes();
+    replay(appProperties);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(curriculumFolder.toFile());
+    FileUtils.deleteDirectory(studentUploadsFolder.toFile());
+  }
+
+  @Test
+  public void copyProjectFolder_ShouldLinkAssetsAndCopyOtherFiles() throws IOException {
+    Path newProjectFolder = curriculumFolder.resolve("2");
+    assetBlobService.copyProjectFolder(projectFolder.toFile(), newProjectFolder.toFile());
+    assertTrue(Files.isSameFile(projectFolder.resolve("assets").resolve("sun.png"),
+        newProjectFolder.resolve("assets").resolve("sun.png")));
+    assertEquals("{}", new String(Files.readAllBytes(newProjectFolder.resolve("project.json")),
+        StandardCharsets.UTF_8));
+    assertFalse(Files.isSameFile(projectFolder.resolve("project.json"),
+        newProjectFolder.resolve("project.json")));
+  }
+
+  @Test
+  public void deleteUnusedBlobs_AssetsDeleted_ShouldDeleteBlob() throws IOException {
+    Path newProjectFolder = curriculumFolder.resolve("2");
+    assetBlobService.copyProjectFolder(projectFolder.toFile(), newProjectFolder.toFile());
+    assertEquals(0, assetBlobService.deleteUnusedBlobs());
+    FileUtils.deleteDirectory(projectFolder.toFile());
+    FileUtils.deleteDirectory(newProjectFolder.toFile());
+    assertEquals(1, assetBlobService.deleteUnusedBlobs());
+  }
+
+  @Test
+  public void copyStudentAsset_ShouldLinkAsset() throws IOException {
+    Path workgroupFolder = Files.createDirectories(studentUploadsFolder.resolve("1/2"));
+    Path unreferencedAsset = Files.write(workgroupFolder.resolve("sun.png"), new byte[] { 4 });
+    Path referencedAsset = workgroupFolder.resolve("sun-1.png");
+    assetBlobService.copyStudentAsset(unreferencedAsset.toFile(), referencedAsset.toFile());
+    assertTrue(Files.isSameFile(unreferencedAsset, referencedAsset));
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.asset.impl;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.easymock.TestSubject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+@RunWith(EasyMockRunner.class)
+public class AssetUsageServiceImplTest {
+
+  @TestSubject
+  private AssetUsageServiceImpl assetUsageService = new AssetUsageServiceImpl();
+
+  @Mock
+  private StringRedisTemplate stringRedisTemplate;
+
+  private ValueOperations<String, String> valueOperations;
+
+  private File folder;
+
+  private String key;
+
+  private List<String> keys;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws IOException {
+    valueOperations = createMock(ValueOperations.class);
+    expect(stringRedisTemplate.opsForValue()).andReturn(valueOperations).anyTimes();
+    Path folderPath = Files.createTempDirectory("assetUsage");
+    Files.write(folderPath.resolve("sun.png"), new byte[100]);
+    folder = folderPath.toFile();
+    key = "assetUsage:" + folderPath.toAbsolutePath().normalize();
+    keys = Collections.singletonList(key);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(folder);
+  }
+
+  @Test
+  public void getUsedBytes_NotScanned_ShouldScanFolder() {
+    expect(valueOperations.get(key)).andReturn(null);
+    expect(valueOperations.setIfAbsent(key, "100", 24, TimeUnit.HOURS)).andReturn(true);
+    replay(stringRedisTemplate, valueOperations);
+    assertEquals(100, assetUsageService.getUsedBytes(folder));
+    verify(stringRedisTemplate, valueOperations);
+  }
+
+  @Test
+  public void getUsedBytes_Scanned_ShouldNotScanFolder() {
+    expect(valueOperations.get(key)).andReturn("2048");
+    replay(stringRedisTemplate, valueOperations);
+    assertEquals(2048, assetUsageService.getUsedBytes(folder));
+    verify(stringRedisTemplate, valueOperations);
+  }
+
+  @Test
+  public void reserveBytes_NotScanned_ShouldScanThenAdd() {
+    expect(stringRedisTemplate.execute(anyObject(RedisScript.class), eq(keys), eq("50")))
+        .andReturn(null).andReturn(150L);
+    expect(valueOperations.setIfAbsent(key, "100", 24, TimeUnit.HOURS)).andReturn(true);
+    replay(stringRedisTemplate, valueOperations);
+    assertTrue(assetUsageService.reserveBytes(folder, 50, 200));
+    verify(stringRedisTemplate, valueOperations);
+  }
+
+  @Test
+  public void reserveBytes_ExceedsMax_ShouldRemoveBytes() {
+    expect(stringRedisTemplate.execute(anyObject(RedisScript.class), eq(keys), eq("500")))
+        .andReturn(600L);
+    expect(stringRedisTemplate.execute(anyObject(RedisScript.class), eq(keys), eq("-500")))
+        .andReturn(100L);
+    replay(stringRedisTemplate, valueOperations);
+    assertFalse(assetUsageService.reserveBytes(folder, 500, 200));
+    verify(stringRedisTemplate, valueOperations);
+  }
+
+  @Test
+  public void reconcile_ChangedFolder_ShouldReplaceUsage() {
+    expect(stringRedisTemplate.execute(anyObject(RedisScript.class), eq(keys), eq("-30")))
+        .andReturn(70L);
+    expect(valueOperations.setIfPresent(key, "100", 24, TimeUnit.HOURS)).andReturn(true);
+    replay(stringRedisTemplate, valueOperations);
+    assetUsageService.addUsedBytes(folder, -30);
+    assetUsageService.reconcile();
+    assetUsageService.reconcile();
+    verify(stringRedisTemplate, valueOperations);
+  }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.export.impl;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.easymock.MockType;
+import org.easymock.TestSubject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.wise.portal.service.export.ExportJob;
+
+@RunWith(EasyMockRunner.class)
+public class StudentAssetsExportServiceImplTest {
+
+  private static final Long RUN_ID = 1L;
+
+  @TestSubject
+  private StudentAssetsExportServiceImpl service = new StudentAssetsExportServiceImpl();
+
+  @Mock(type = MockType.NICE)
+  private Properties appProperties;
+
+  private Path tempFolder;
+
+  private Path runUploadsFolder;
+
+  @Before
+  public void setUp() throws IOException {
+    tempFolder = Files.createTempDirectory("studentAssetsExport");
+    Path uploadsFolder = tempFolder.resolve("uploads");
+    runUploadsFolder = Files.createDirectories(uploadsFolder.resolve(RUN_ID.toString()));
+    Files.createDirectories(runUploadsFolder.resolve("unreferenced"));
+    Files.write(runUploadsFolder.resolve("drawing.png"), new byte[] { 1, 2, 3, 4 });
+    Files.write(runUploadsFolder.resolve("unreferenced").resolve("notes.txt"),
+        "student notes".getBytes(StandardCharsets.UTF_8));
+    expect(appProperties.getProperty("studentuploads_base_dir"))
+        .andReturn(uploadsFolder.toString()).anyTimes();
+    replay(appProperties);
+    ReflectionTestUtils.setField(service, "exportCacheDir",
+        tempFolder.resolve("exports").toString());
+    service.init();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    service.destroy();
+    try (Stream<Path> paths = Files.walk(tempFolder)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Test
+  public void exportStudentAssets_ShouldStoreCompressedFilesAndDeflateOthers() throws Exception {
+    File archive = service.exportStudentAssets(RUN_ID).awaitArchive();
+    try (ZipFile zipFile = new ZipFile(archive)) {
+      assertEquals(3, zipFile.size());
+      assertTrue(zipFile.getEntry("unreferenced/").isDirectory());
+      ZipEntry drawing = zipFile.getEntry("drawing.png");
+      assertEquals(ZipEntry.STORED, drawing.getMethod());
+      assertEquals(4, drawing.getSize());
+      ZipEntry notes = zipFile.getEntry("unreferenced/notes.txt");
+      assertEquals(ZipEntry.DEFLATED, notes.getMethod());
+      assertEquals("student notes", new String(readEntry(zipFile, notes),
+          StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void exportStudentAssets_UploadsUnchanged_ShouldReuseArchive() throws Exception {
+    ExportJob job = service.exportStudentAssets(RUN_ID);
+    job.awaitArchive();
+    assertSame(job, service.exportStudentAssets(RUN_ID));
+    assertEquals(ExportJob.STATUS_DONE, service.getExportJob(RUN_ID, job.getId()).getStatus());
+  }
+
+  @Test
+  public void exportStudentAssets_UploadsChanged_ShouldBuildNewArchive() throws Exception {
+    ExportJob job = service.exportStudentAssets(RUN_ID);
+    File archive = job.awaitArchive();
+    Files.write(runUploadsFolder.resolve("photo.jpg"), new byte[] { 5, 6 });
+    ExportJob newJob = service.exportStudentAssets(RUN_ID);
+    assertNotEquals(job.getId(), newJob.getId());
+    newJob.awaitArchive();
+    assertFalse(archive.exists());
+    try (ZipFile zipFile = new ZipFile(newJob.getArchive())) {
+      assertEquals(4, zipFile.size());
+    }
+  }
+
+  @Test
+  public void exportStudentAssets_ArchiveDeleted_ShouldBuildArchiveAgain() throws Exception {
+    ExportJob job = service.exportStudentAssets(RUN_ID);
+    File archive = job.awaitArchive();
+    assertTrue(archive.delete());
+    ExportJob newJob = service.exportStudentAssets(RUN_ID);
+    assertNotSame(job, newJob);
+    assertEquals(job.getId(), newJob.getId());
+    assertTrue(newJob.awaitArchive().isFile());
+  }
+
+  @Test
+  public void exportStudentAssets_OlderBuildFinishesLast_ShouldKeepLatestArchive()
+      throws Exception {
+    ExportJob oldJob = service.exportStudentAssets(RUN_ID);
+    oldJob.awaitArchive();
+    Files.write(runUploadsFolder.resolve("photo.jpg"), new byte[] { 5, 6 });
+    ExportJob newJob = service.exportStudentAssets(RUN_ID);
+    File newArchive = newJob.awaitArchive();
+    ExportJob slowJob = new ExportJob(oldJob.getId(), RUN_ID, oldJob.getArchive());
+    ReflectionTestUtils.invokeMethod(service, "buildArchive", runUploadsFolder, slowJob);
+    slowJob.awaitArchive();
+    assertTrue(newArchive.isFile());
+    assertSame(newJob, service.exportStudentAssets(RUN_ID));
+  }
+
+  @Test
+  public void getExportJob_UnknownJob_ShouldReturnNull() {
+    assertNull(service.getExportJob(RUN_ID, "abc123"));
+    assertNull(service.getExportJob(RUN_ID, "../../etc"));
+  }
+
+  private byte[] readEntry(ZipFile zipFile, ZipEntry entry) throws IOException {
+    byte[] bytes = new byte[(int) entry.getSize()];
+    int offset = 0;
+    try (InputStream in = zipFile.getInputStream(entry)) {
+      int read;
+      while (offset < bytes.length && (read = in.read(bytes, offset, bytes.length - offset)) > 0) {
+        offset += read;
+      }
+    }
+    return bytes;
+  }
+}
@@ -36,6 +36,7 @@ import java.util.Set;
 
 import org.easymock.EasyMockRunner;
 import org.easymock.Mock;
+import org.easymock.MockType;
 import org.easymock.TestSubject;
 import org.junit.After;
 import org.junit.Before;
@@ -54,6 +55,7 @@ import org.wise.portal.domain.user.impl.UserImpl;
 import org.wise.portal.service.acl.AclService;
 import org.wise.portal.service.group.CyclicalGroupException;
 import org.wise.portal.service.group.GroupService;
+import org.wise.portal.service.membership.MembershipService;
 
 /**
  * @author Hiroki Terashima
@@ -70,6 +72,9 @@ public class GroupServiceImplTest {
   @Mock
   private AclService<Group> groupAclService;
 
+  @Mock(type = MockType.NICE)
+  private MembershipService membershipService;
+
   private Group group1, group2, group3;
 
   private final String[] DEFAULT_GROUP_NAMES = { "Period 1", "Period 2",
@@ -23,13 +23,20 @@
 package org.wise.portal.service.impl;
 
 import static junit.framework.TestCase.assertTrue;
+import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.easymock.EasyMockRunner;
 import org.easymock.Mock;
@@ -37,6 +44,8 @@ import org.easymock.TestSubject;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.wise.portal.dao.authentication.GrantedAuthorityDao;
 import org.wise.portal.dao.authentication.UserDetailsDao;
@@ -73,6 +82,11 @@ public class UserServiceImplTest {
   @Mock
   private PasswordEncoder passwordEncoder;
 
+  @Mock
+  private StringRedisTemplate stringRedisTemplate;
+
+  private ValueOperations<String, String> valueOperations;
+
   private static final String PASSWORD = "password";
 
   private static final String ENCODED_PASSWORD = "drowssap";
@@ -118,7 +132,10 @@ public class UserServiceImplTest {
   private static final String DEFAULT_ACCOUNT_ANSWER = "John";
 
   @Before
+  @SuppressWarnings("unchecked")
   public void setupCreateTest() {
+    valueOperations = createMock(ValueOperations.class);
+    expect(stringRedisTemplate.opsForValue()).andReturn(valueOperations).anyTimes();
     studentUserDetails = new StudentUserDetails();
     studentUserDetails.setPassword(PASSWORD);
     studentUserDetails.setFirstname(FIRSTNAME);
@@ -214,6 +231,74 @@ public class UserServiceImplTest {
     assertUserHasTeacherAuthorities();
   }
 
+  @Test
+  public void assignUsernames_ExistingUsernames_ShouldAssignUnusedUsernames() {
+    StudentUserDetails otherStudentUserDetails = new StudentUserDetails();
+    otherStudentUserDetails.setFirstname(" " + FIRSTNAME);
+    otherStudentUserDetails.setLastname(LASTNAME);
+    otherStudentUserDetails.setBirthday(BIRTHDAY);
+    expect(userDetailsDao.retrieveUsernamesByPrefixes(Arrays.asList("BillyB1219")))
+        .andReturn(Arrays.asList("billyb1219", "BillyB1219a"));
+    expectReservation("billyb1219b", true);
+    expectReservation("billyb1219c", true);
+    replay(userDetailsDao, stringRedisTemplate, valueOperations);
+    userService.assignUsernames(Arrays.asList(studentUserDetails, otherStudentUserDetails));
+    verify(userDetailsDao, valueOperations);
+    assertEquals("BillyB1219b", studentUserDetails.getUsername());
+    assertEquals("BillyB1219c", otherStudentUserDetails.getUsername());
+  }
+
+  @Test
+  public void assignUsernames_UsernameReservedByAnotherImport_ShouldAssignNextUsername() {
+    expect(userDetailsDao.retrieveUsernamesByPrefixes(Arrays.asList("BillyB1219")))
+        .andReturn(Arrays.asList());
+    expectReservation("billyb1219", false);
+    expectReservation("billyb1219a", true);
+    replay(userDetailsDao, stringRedisTemplate, valueOperations);
+    userService.assignUsernames(Arrays.asList(studentUserDetails));
+    verify(userDetailsDao, valueOperations);
+    assertEquals("BillyB1219a", studentUserDetails.getUsername());
+  }
+
+  private void expectReservation(String username, boolean isReserved) {
+    expect(valueOperations.setIfAbsent("reservedUsername:" + username, "", 1, TimeUnit.HOURS))
+        .andReturn(isReserved);
+  }
+
+  @Test
+  public void encodePasswords_ShouldEncodeEachPassword() {
+    teacherUserDetails.setPassword("teacherPassword");
+    expect(passwordEncoder.encode(PASSWORD)).andReturn(ENCODED_PASSWORD);
+    expect(passwordEncoder.encode("teacherPassword")).andReturn("drowssaPrehcaet");
+    replay(passwordEncoder);
+    ((UserServiceImpl) userService).init();
+    try {
+      userService.encodePasswords(Arrays.asList(studentUserDetails, teacherUserDetails));
+    } finally {
+      ((UserServiceImpl) userService).destroy();
+    }
+    verify(passwordEncoder);
+    assertEquals(ENCODED_PASSWORD, studentUserDetails.getPassword());
+    assertEquals("drowssaPrehcaet", teacherUserDetails.getPassword());
+  }
+
+  @Test
+  public void createUsers_TwoStudents_ShouldRetrieveEachRoleOnce() {
+    StudentUserDetails otherStudentUserDetails = new StudentUserDetails();
+    expectStudentAuthorityLookup();
+    userDao.save(isA(User.class));
+    expectLastCall().times(2);
+    replay(userDao);
+    List<User> users =
+        userService.createUsers(Arrays.asList(studentUserDetails, otherStudentUserDetails));
+    verify(grantedAuthorityDao);
+    verify(userDao);
+    assertEquals(2, users.size());
+    assertSame(studentUserDetails, users.get(0).getUserDetails());
+    assertUserHasStudentAuthorities();
+    assertTrue(otherStudentUserDetails.hasGrantedAuthority(UserDetailsService.STUDENT_ROLE));
+  }
+
   private void expectStudentAuthorityLookup() {
     expect(grantedAuthorityDao.retrieveByName(UserDetailsService.STUDENT_ROLE))
         .andReturn(studentAuthority);
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.membership.impl;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.easymock.TestSubject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.wise.portal.dao.ObjectNotFoundException;
+import org.wise.portal.dao.run.RunDao;
+import org.wise.portal.dao.workgroup.WorkgroupDao;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.run.impl.RunImpl;
+import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.user.impl.UserImpl;
+import org.wise.portal.domain.workgroup.Workgroup;
+import org.wise.portal.domain.workgroup.impl.WorkgroupImpl;
+
+@RunWith(EasyMockRunner.class)
+public class MembershipServiceImplTest {
+
+  @TestSubject
+  private MembershipServiceImpl membershipService = new MembershipServiceImpl();
+
+  @Mock
+  private RunDao<Run> runDao;
+
+  @Mock
+  private WorkgroupDao<Workgroup> workgroupDao;
+
+  private User user;
+
+  private Map<Long, Long> runPeriodIds;
+
+  private Map<Long, Long> workgroupRunIds;
+
+  @Before
+  public void setUp() {
+    membershipService.init();
+    user = new UserImpl();
+    user.setId(1L);
+    runPeriodIds = new HashMap<Long, Long>();
+    runPeriodIds.put(10L, 100L);
+    workgroupRunIds = new HashMap<Long, Long>();
+    workgroupRunIds.put(1000L, 10L);
+  }
+
+  @Test
+  public void isUserInRun_RepeatedChecks_ShouldLoadMembershipsOnce() {
+    expect(runDao.getRunPeriodIdsByUser(user)).andReturn(runPeriodIds);
+    expect(workgroupDao.getWorkgroupRunIdsByUser(user)).andReturn(workgroupRunIds);
+    replay(runDao, workgroupDao);
+    assertTrue(membershipService.isUserInRun(user, 10L));
+    assertTrue(membershipService.isUserInPeriod(user, 10L, 100L));
+    assertTrue(membershipService.isUserInWorkgroup(user, 1000L));
+    verify(runDao, workgroupDao);
+  }
+
+  @Test
+  public void isUserInRun_NotInCachedMemberships_ShouldReloadMemberships() {
+    Map<Long, Long> newRunPeriodIds = new HashMap<Long, Long>(runPeriodIds);
+    newRunPeriodIds.put(20L, 200L);
+    expect(runDao.getRunPeriodIdsByUser(user)).andReturn(runPeriodIds)
+        .andReturn(newRunPeriodIds);
+    expect(workgroupDao.getWorkgroupRunIdsByUser(user)).andReturn(workgroupRunIds).times(2);
+    replay(runDao, workgroupDao);
+    assertTrue(membershipService.isUserInRun(user, 10L));
+    assertTrue(membershipService.isUserInRun(user, 20L));
+    assertFalse(membershipService.isUserInPeriod(user, 20L, 100L));
+    verify(runDao, workgroupDao);
+  }
+
+  @Test
+  public void evictMemberships_ShouldLoadMembershipsAgain() {
+    expect(runDao.getRunPeriodIdsByUser(user)).andReturn(runPeriodIds)
+        .andReturn(new HashMap<Long, Long>());
+    expect(workgroupDao.getWorkgroupRunIdsByUser(user)).andReturn(workgroupRunIds)
+        .andReturn(new HashMap<Long, Long>());
+    replay(runDao, workgroupDao);
+    assertTrue(membershipService.isUserInRun(user, 10L));
+    membershipService.evictMemberships(Collections.singleton(user));
+    assertFalse(membershipService.isUserInWorkgroup(user, 1000L));
+    verify(runDao, workgroupDao);
+  }
+
+  @Test
+  public void isWorkgroupInRun_RepeatedChecks_ShouldLoadWorkgroupOnce() throws Exception {
+    Run run = new RunImpl();
+    run.setId(10L);
+    Workgroup workgroup = new WorkgroupImpl();
+    workgroup.setRun(run);
+    expect(workgroupDao.getById(1000L)).andReturn(workgroup);
+    replay(runDao, workgroupDao);
+    assertTrue(membershipService.isWorkgroupInRun(1000L, 10L));
+    assertFalse(membershipService.isWorkgroupInRun(1000L, 20L));
+    verify(runDao, workgroupDao);
+  }
+
+  @Test
+  public void getWorkgroupRunId_UnknownWorkgroup_ShouldReturnNull() throws Exception {
+    expect(workgroupDao.getById(1000L))
+        .andThrow(new ObjectNotFoundException(1000L, Workgroup.class));
+    replay(runDao, workgroupDao);
+    assertNull(membershipService.getWorkgroupRunId(1000L));
+    verify(runDao, workgroupDao);
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.portal.impl;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.easymock.TestSubject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.wise.portal.dao.portal.PortalDao;
+import org.wise.portal.domain.portal.Portal;
+import org.wise.portal.domain.portal.impl.PortalImpl;
+
+@RunWith(EasyMockRunner.class)
+public class PortalServiceImplTest {
+
+  @TestSubject
+  private PortalServiceImpl portalService = new PortalServiceImpl();
+
+  @Mock
+  private PortalDao<Portal> portalDao;
+
+  @Mock
+  private StringRedisTemplate stringRedisTemplate;
+
+  private PortalImpl portal;
+
+  @Before
+  public void setUp() {
+    portal = new PortalImpl();
+    portal.setId(1);
+    portal.setStructures("{\"automatedAssessmentProjectId\":5}");
+  }
+
+  @Test
+  public void getById_CalledTwice_ShouldLoadPortalOnce() throws Exception {
+    expect(portalDao.getDetachedById(1)).andReturn(portal).once();
+    replay(portalDao);
+    assertSame(portal, portalService.getById(1));
+    assertSame(portal, portalService.getById(1L));
+    verify(portalDao);
+  }
+
+  @Test
+  public void getStructures_PortalHasStructures_ShouldReturnParsedStructures() throws Exception {
+    expect(portalDao.getDetachedById(1)).andReturn(portal).once();
+    replay(portalDao);
+    Map<String, Object> structures = portalService.getStructures(1);
+    assertEquals(5, structures.get("automatedAssessmentProjectId"));
+    assertSame(structures, portalService.getStructures(1));
+    verify(portalDao);
+  }
+
+  @Test
+  public void getStructures_PortalHasNoStructures_ShouldReturnEmptyMap() throws Exception {
+    portal.setStructures(null);
+    expect(portalDao.getDetachedById(1)).andReturn(portal);
+    replay(portalDao);
+    assertTrue(portalService.getStructures(1).isEmpty());
+    verify(portalDao);
+  }
+
+  @Test
+  public void updatePortal_CachedPortal_ShouldPublishChangeAndReloadPortal() throws Exception {
+    PortalImpl updatedPortal = new PortalImpl();
+    updatedPortal.setId(1);
+    expect(portalDao.getDetachedById(1)).andReturn(portal).andReturn(updatedPortal);
+    portalDao.save(portal);
+    expectLastCall();
+    expect(stringRedisTemplate.convertAndSend(PortalServiceImpl.PORTAL_CHANGED_CHANNEL, "1"))
+        .andReturn(1L);
+    replay(portalDao, stringRedisTemplate);
+    portalService.getById(1);
+    portalService.updatePortal(portal);
+    assertSame(updatedPortal, portalService.getById(1));
+    verify(portalDao, stringRedisTemplate);
+  }
+
+  @Test
+  public void getByIdForUpdate_CachedPortal_ShouldReturnPortalFromDatabase() throws Exception {
+    PortalImpl portalForUpdate = new PortalImpl();
+    expect(portalDao.getDetachedById(1)).andReturn(portal).andReturn(portalForUpdate);
+    replay(portalDao);
+    assertSame(portal, portalService.getById(1));
+    assertSame(portalForUpdate, portalService.getByIdForUpdate(1));
+    assertSame(portal, portalService.getById(1));
+    verify(portalDao);
+  }
+
+  @Test
+  public void onMessage_PortalChangedOnAnotherServer_ShouldReloadPortal() throws Exception {
+    PortalImpl updatedPortal = new PortalImpl();
+    expect(portalDao.getDetachedById(1)).andReturn(portal).andReturn(updatedPortal);
+    replay(portalDao);
+    assertSame(portal, portalService.getById(1));
+    portalService.onMessage(new DefaultMessage(
+        PortalServiceImpl.PORTAL_CHANGED_CHANNEL.getBytes(StandardCharsets.UTF_8),
+        "1".getBytes(StandardCharsets.UTF_8)), null);
+    assertSame(updatedPortal, portalService.getById(1));
+    verify(portalDao);
+  }
+}
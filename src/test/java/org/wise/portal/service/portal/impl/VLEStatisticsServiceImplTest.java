@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.portal.impl;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.easymock.Capture;
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.easymock.TestSubject;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.wise.portal.dao.statistics.VLEStatisticsDao;
+import org.wise.vle.domain.annotation.wise5.Annotation;
+import org.wise.vle.domain.statistics.VLEStatistics;
+import org.wise.vle.domain.work.Event;
+import org.wise.vle.domain.work.NotebookItem;
+import org.wise.vle.domain.work.StudentWork;
+
+@RunWith(EasyMockRunner.class)
+public class VLEStatisticsServiceImplTest {
+
+  @TestSubject
+  private VLEStatisticsServiceImpl vleStatisticsService = new VLEStatisticsServiceImpl();
+
+  @Mock
+  private VLEStatisticsDao<VLEStatistics> vleStatisticsDao;
+
+  private Capture<VLEStatistics> savedStatistics = Capture.newInstance();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(vleStatisticsService, "batchSize", 10);
+    ReflectionTestUtils.setField(vleStatisticsService, "idLag", 0);
+    VLEStatistics previousStatistics = new VLEStatistics();
+    previousStatistics.setData("{\"studentWork\":{\"maxId\":5,\"total\":5,"
+        + "\"countsByType\":{\"MultipleChoice\":5}}}");
+    expect(vleStatisticsDao.getLatestVLEStatistics()).andReturn(previousStatistics);
+    expect(vleStatisticsDao.getMaxId(Event.class)).andReturn(null);
+    expect(vleStatisticsDao.getMaxId(Annotation.class)).andReturn(null);
+    expect(vleStatisticsDao.getMaxId(NotebookItem.class)).andReturn(null);
+    vleStatisticsDao.saveVLEStatistics(capture(savedStatistics));
+    expectLastCall();
+  }
+
+  @Test
+  public void updateVLEStatistics_NewRows_ShouldAddCountsOfNewRowsInBatches() throws Exception {
+    expect(vleStatisticsDao.getMaxId(StudentWork.class)).andReturn(25);
+    expect(vleStatisticsDao.getCountsByType(StudentWork.class, "componentType", 5, 15))
+        .andReturn(createCounts("MultipleChoice", 4L, "OpenResponse", 6L));
+    expect(vleStatisticsDao.getCountsByType(StudentWork.class, "componentType", 15, 25))
+        .andReturn(createCounts("OpenResponse", 9L, null, 1L));
+    replay(vleStatisticsDao);
+    vleStatisticsService.updateVLEStatistics();
+    JSONObject studentWork = savedStatistics.getValue().getJSONObject()
+        .getJSONObject("studentWork");
+    assertEquals(25, studentWork.getInt("maxId"));
+    assertEquals(25, studentWork.getLong("total"));
+    assertEquals(9, studentWork.getJSONObject("countsByType").getLong("MultipleChoice"));
+    assertEquals(15, studentWork.getJSONObject("countsByType").getLong("OpenResponse"));
+    assertEquals(0, savedStatistics.getValue().getJSONObject().getJSONObject("events")
+        .getInt("maxId"));
+    verify(vleStatisticsDao);
+  }
+
+  @Test
+  public void updateVLEStatistics_CountFails_ShouldSaveCountsUpToLastBatch() throws Exception {
+    expect(vleStatisticsDao.getMaxId(StudentWork.class)).andReturn(25);
+    expect(vleStatisticsDao.getCountsByType(StudentWork.class, "componentType", 5, 15))
+        .andReturn(createCounts("MultipleChoice", 10L, null, 0L));
+    expect(vleStatisticsDao.getCountsByType(StudentWork.class, "componentType", 15, 25))
+        .andThrow(new QueryTimeoutException("timeout"));
+    replay(vleStatisticsDao);
+    vleStatisticsService.updateVLEStatistics();
+    JSONObject studentWork = savedStatistics.getValue().getJSONObject()
+        .getJSONObject("studentWork");
+    assertEquals(15, studentWork.getInt("maxId"));
+    assertEquals(15, studentWork.getLong("total"));
+    assertEquals(15, studentWork.getJSONObject("countsByType").getLong("MultipleChoice"));
+    verify(vleStatisticsDao);
+  }
+
+  @Test
+  public void updateVLEStatistics_IdLag_ShouldLeaveLargestIdsForNextGathering() throws Exception {
+    ReflectionTestUtils.setField(vleStatisticsService, "idLag", 5);
+    expect(vleStatisticsDao.getMaxId(StudentWork.class)).andReturn(25);
+    expect(vleStatisticsDao.getCountsByType(StudentWork.class, "componentType", 5, 15))
+        .andReturn(createCounts("MultipleChoice", 4L, "OpenResponse", 6L));
+    expect(vleStatisticsDao.getCountsByType(StudentWork.class, "componentType", 15, 20))
+        .andReturn(createCounts("OpenResponse", 5L, null, 0L));
+    replay(vleStatisticsDao);
+    vleStatisticsService.updateVLEStatistics();
+    JSONObject studentWork = savedStatistics.getValue().getJSONObject()
+        .getJSONObject("studentWork");
+    assertEquals(20, studentWork.getInt("maxId"));
+    assertEquals(20, studentWork.getLong("total"));
+    assertEquals(11, studentWork.getJSONObject("countsByType").getLong("OpenResponse"));
+    verify(vleStatisticsDao);
+  }
+
+  private Map<String, Long> createCounts(String type1, Long count1, String type2, Long count2) {
+    Map<String, Long> counts = new HashMap<String, Long>();
+    counts.put(type1, count1);
+    counts.put(type2, count2);
+    return counts;
+  }
+}
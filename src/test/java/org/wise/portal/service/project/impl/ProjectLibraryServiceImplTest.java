@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.project.impl;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.easymock.EasyMockRunner;
+import org.easymock.Mock;
+import org.easymock.TestSubject;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.wise.portal.dao.project.ProjectDao;
+import org.wise.portal.domain.portal.impl.PortalImpl;
+import org.wise.portal.domain.project.Project;
+import org.wise.portal.domain.project.impl.ProjectImpl;
+import org.wise.portal.domain.user.User;
+import org.wise.portal.service.portal.PortalService;
+import org.wise.portal.service.project.ProjectLibrary;
+
+@RunWith(EasyMockRunner.class)
+public class ProjectLibraryServiceImplTest {
+
+  private static final String PROJECT_LIBRARY_GROUPS = "[{\"id\":\"grade6\",\"type\":\"group\","
+      + "\"children\":[{\"id\":1,\"type\":\"project\"},{\"id\":2,\"type\":\"project\"}]},"
+      + "{\"id\":\"teachers\",\"type\":\"group\",\"accessRoles\":[\"teacher\"],\"children\":[]}]";
+
+  @TestSubject
+  private ProjectLibraryServiceImpl projectLibraryService = new ProjectLibraryServiceImpl() {
+    @Override
+    String renderProject(Project project) throws JSONException {
+      JSONObject projectJSON = new JSONObject();
+      projectJSON.put("id", project.getId());
+      projectJSON.put("name", project.getName());
+      projectJSON.put("type", "project");
+      return projectJSON.toString();
+    }
+  };
+
+  @Mock
+  private PortalService portalService;
+
+  @Mock
+  private ProjectDao<Project> projectDao;
+
+  @Mock
+  private StringRedisTemplate stringRedisTemplate;
+
+  private PortalImpl portal;
+
+  private ProjectImpl project1;
+
+  private ProjectImpl project2;
+
+  private User teacher;
+
+  @Before
+  public void setUp() {
+    portal = createPortal(PROJECT_LIBRARY_GROUPS);
+    project1 = createProject(1L, "Project 1");
+    project2 = createProject(2L, "Project 2");
+    teacher = createMock(User.class);
+    expect(teacher.isAdmin()).andReturn(false).anyTimes();
+    expect(teacher.isResearcher()).andReturn(false).anyTimes();
+    expect(teacher.isTeacher()).andReturn(true).anyTimes();
+    replay(teacher);
+  }
+
+  @Test
+  public void getProjectLibrary_CalledTwice_ShouldRenderProjectsOnce() throws Exception {
+    expect(portalService.getById(1)).andReturn(portal).times(2);
+    expect(projectDao.getById(1L)).andReturn(project1).once();
+    expect(projectDao.getById(2L)).andReturn(project2).once();
+    replay(portalService, projectDao);
+    ProjectLibrary projectLibrary = projectLibraryService.getProjectLibrary(teacher);
+    assertSame(projectLibrary, projectLibraryService.getProjectLibrary(teacher));
+    assertTrue(getJSON(projectLibrary).contains("Project 1"));
+    assertTrue(getJSON(projectLibrary).contains("Project 2"));
+    verify(portalService, projectDao);
+  }
+
+  @Test
+  public void getProjectLibrary_DifferentRoles_ShouldOnlyShowAccessibleGroups() throws Exception {
+    expect(portalService.getById(1)).andReturn(portal).times(2);
+    expect(projectDao.getById(1L)).andReturn(project1).once();
+    expect(projectDao.getById(2L)).andReturn(project2).once();
+    replay(portalService, projectDao);
+    ProjectLibrary anonymousLibrary = projectLibraryService.getProjectLibrary(null);
+    ProjectLibrary teacherLibrary = projectLibraryService.getProjectLibrary(teacher);
+    assertFalse(getJSON(anonymousLibrary).contains("teachers"));
+    assertTrue(getJSON(teacherLibrary).contains("teachers"));
+    assertNotEquals(anonymousLibrary.getETag(), teacherLibrary.getETag());
+    verify(portalService, projectDao);
+  }
+
+  @Test
+  public void getProjectLibrary_ProjectEvicted_ShouldOnlyRenderEvictedProjectAgain()
+      throws Exception {
+    ProjectImpl renamedProject1 = createProject(1L, "Renamed Project 1");
+    expect(portalService.getById(1)).andReturn(portal).times(2);
+    expect(projectDao.getById(1L)).andReturn(project1).andReturn(renamedProject1);
+    expect(projectDao.getById(2L)).andReturn(project2).once();
+    expect(stringRedisTemplate.convertAndSend(ProjectLibraryServiceImpl.PROJECT_CHANGED_CHANNEL,
+        "1")).andReturn(1L);
+    replay(portalService, projectDao, stringRedisTemplate);
+    ProjectLibrary projectLibrary = projectLibraryService.getProjectLibrary(teacher);
+    projectLibraryService.evictProject(1L);
+    ProjectLibrary rebuiltProjectLibrary = projectLibraryService.getProjectLibrary(teacher);
+    assertTrue(getJSON(rebuiltProjectLibrary).contains("Renamed Project 1"));
+    assertNotEquals(projectLibrary.getETag(), rebuiltProjectLibrary.getETag());
+    verify(portalService, projectDao, stringRedisTemplate);
+  }
+
+  @Test
+  public void getProjectLibrary_PortalChanged_ShouldRebuildWithoutRenderingProjects()
+      throws Exception {
+    PortalImpl updatedPortal = createPortal("[{\"id\":1,\"type\":\"project\"},"
+        + "{\"id\":\"grade7\",\"type\":\"group\",\"children\":[{\"id\":2,\"type\":\"project\"}]}]");
+    expect(portalService.getById(1)).andReturn(portal).andReturn(updatedPortal);
+    expect(projectDao.getById(1L)).andReturn(project1).once();
+    expect(projectDao.getById(2L)).andReturn(project2).once();
+    replay(portalService, projectDao);
+    projectLibraryService.getProjectLibrary(teacher);
+    ProjectLibrary projectLibrary = projectLibraryService.getProjectLibrary(teacher);
+    assertTrue(getJSON(projectLibrary).contains("grade7"));
+    assertFalse(getJSON(projectLibrary).contains("grade6"));
+    verify(portalService, projectDao);
+  }
+
+  private String getJSON(ProjectLibrary projectLibrary) {
+    return new String(projectLibrary.getJSON(), StandardCharsets.UTF_8);
+  }
+
+  private PortalImpl createPortal(String projectLibraryGroups) {
+    PortalImpl portal = new PortalImpl();
+    portal.setProjectLibraryGroups(projectLibraryGroups);
+    return portal;
+  }
+
+  private ProjectImpl createProject(Long id, String name) {
+    ProjectImpl project = new ProjectImpl();
+    project.setId(id);
+    project.setName(name);
+    return project;
+  }
+}
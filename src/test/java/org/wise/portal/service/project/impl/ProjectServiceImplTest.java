@@ -33,12 +33,19 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.apache.commons.io.FileUtils;
 import org.easymock.EasyMockRunner;
 import org.easymock.Mock;
+import org.easymock.MockType;
 import org.easymock.TestSubject;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -48,6 +55,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.acls.model.Permission;
 import org.wise.portal.dao.ObjectNotFoundException;
 import org.wise.portal.dao.authentication.GrantedAuthorityDao;
 import org.wise.portal.dao.project.ProjectDao;
@@ -58,9 +66,12 @@ import org.wise.portal.domain.project.ProjectMetadata;
 import org.wise.portal.domain.project.impl.ProjectImpl;
 import org.wise.portal.domain.project.impl.ProjectMetadataImpl;
 import org.wise.portal.domain.project.impl.ProjectParameters;
+import org.wise.portal.domain.project.impl.ProjectPermission;
 import org.wise.portal.domain.user.User;
 import org.wise.portal.domain.user.impl.UserImpl;
 import org.wise.portal.service.acl.AclService;
+import org.wise.portal.service.asset.AssetBlobService;
+import org.wise.portal.service.project.ProjectLibraryService;
 import org.wise.portal.service.project.ProjectService;
 import org.wise.portal.service.run.RunService;
 
@@ -88,6 +99,12 @@ public class ProjectServiceImplTest {
   @Mock
   private GrantedAuthorityDao<MutableGrantedAuthority> grantedAuthorityDao;
 
+  @Mock(type = MockType.NICE)
+  private ProjectLibraryService projectLibraryService;
+
+  @Mock(type = MockType.NICE)
+  private AssetBlobService assetBlobService;
+
   private static final Long EXISTING_PROJECT_ID = new Long(10);
 
   private static final Long NONEXISTING_PROJECT_ID = new Long(103);
@@ -160,6 +177,32 @@ public class ProjectServiceImplTest {
     verify(appProperties);
   }
 
+  @Test
+  public void getSharedTeacherPermissions_TwoProjects_ShouldReadAclsOnce() {
+    TeacherUserDetails sharedTeacherUserDetails = new TeacherUserDetails();
+    sharedTeacherUserDetails.setUsername("PatrickStar");
+    User sharedTeacher = new UserImpl();
+    sharedTeacher.setId(2L);
+    sharedTeacher.setUserDetails(sharedTeacherUserDetails);
+    Project project1 = new ProjectImpl();
+    project1.setId(1L);
+    project1.getSharedowners().add(sharedTeacher);
+    Project project2 = new ProjectImpl();
+    project2.setId(2L);
+    List<Project> projects = Arrays.asList(project1, project2);
+    Map<Serializable, Map<String, List<Permission>>> aclPermissions =
+        new HashMap<Serializable, Map<String, List<Permission>>>();
+    aclPermissions.put(1L, Collections.singletonMap("PatrickStar",
+        Arrays.asList(ProjectPermission.VIEW_PROJECT, ProjectPermission.EDIT_PROJECT)));
+    expect(mockAclService.getPermissions(projects)).andReturn(aclPermissions).once();
+    replay(mockAclService);
+    Map<Long, Map<Long, List<Permission>>> sharedTeacherPermissions =
+        projectServiceImpl.getSharedTeacherPermissions(projects);
+    assertEquals(2, sharedTeacherPermissions.get(1L).get(2L).size());
+    assertTrue(sharedTeacherPermissions.get(2L).isEmpty());
+    verify(mockAclService);
+  }
+
   @Test
   public void getProjectURI_WISE4Project_ShouldReturnWISE4URI() {
     Project project = new ProjectImpl();
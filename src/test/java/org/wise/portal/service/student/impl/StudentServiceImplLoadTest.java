@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.student.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.wise.portal.domain.StudentUserAlreadyAssociatedWithRunException;
+import org.wise.portal.domain.authentication.Gender;
+import org.wise.portal.domain.authentication.Schoollevel;
+import org.wise.portal.domain.authentication.impl.PersistentUserDetails;
+import org.wise.portal.domain.authentication.impl.StudentUserDetails;
+import org.wise.portal.domain.authentication.impl.TeacherUserDetails;
+import org.wise.portal.domain.group.Group;
+import org.wise.portal.domain.group.impl.PersistentGroup;
+import org.wise.portal.domain.project.impl.Projectcode;
+import org.wise.portal.domain.project.impl.ProjectImpl;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.run.impl.RunImpl;
+import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.user.impl.UserImpl;
+import org.wise.portal.junit.AbstractTransactionalDbTests;
+import org.wise.portal.service.student.StudentService;
+
+/**
+ * Registers students into runs from many threads against the H2 test database. Each registration
+ * commits its own transaction, so the run's row lock is really taken. The runs, periods and users
+ * are committed in setUp, outside of a test transaction, and deleted again in tearDown.
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StudentServiceImplLoadTest extends AbstractTransactionalDbTests {
+
+  private static final int NUM_RUNS = 2;
+
+  private static final int NUM_STUDENTS = 10;
+
+  private static final int NUM_ATTEMPTS_PER_REGISTRATION = 2;
+
+  private static final int NUM_THREADS = 8;
+
+  private static final String PERIOD_NAME = "1";
+
+  @Autowired
+  private StudentService studentService;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate transactionTemplate;
+
+  private User teacher;
+
+  private List<Run> runs = new ArrayList<Run>();
+
+  private List<Group> periods = new ArrayList<Group>();
+
+  private List<User> students = new ArrayList<User>();
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.execute(status -> {
+      teacher = createTeacherUser("Mrs", "Puff", "MrsPuffLoadTest", "Mrs. Puff", "boat",
+          "Bikini Bottom", "Water State", "Pacific Ocean", "mrspuff@bikinibottom.com",
+          "Boating School", Schoollevel.COLLEGE, "1234567890");
+      for (int r = 0; r < NUM_RUNS; r++) {
+        Run run = createProjectAndRun(getNextAvailableProjectId(), "How to be a Fry Cook", teacher,
+            Calendar.getInstance().getTime(), "LoadTest" + r);
+        Group period = createPeriod(PERIOD_NAME);
+        Set<Group> runPeriods = new TreeSet<Group>();
+        runPeriods.add(period);
+        run.setPeriods(runPeriods);
+        run.setMaxWorkgroupSize(3);
+        runs.add(run);
+        periods.add(period);
+      }
+      for (int s = 0; s < NUM_STUDENTS; s++) {
+        students.add(createStudentUser("Student", "Number" + s, "LoadTestStudent" + s, "pass", 1,
+            1, Gender.FEMALE));
+      }
+      return null;
+    });
+  }
+
+  @After
+  public void tearDown() {
+    transactionTemplate.execute(status -> {
+      for (Run run : runs) {
+        deleteById(RunImpl.PERIODS_JOIN_TABLE_NAME, RunImpl.RUNS_JOIN_COLUMN_NAME, run.getId());
+        deleteById(RunImpl.DATA_STORE_NAME, "id", run.getId());
+        deleteById(ProjectImpl.DATA_STORE_NAME, "id", run.getProject().getId());
+      }
+      for (Group period : periods) {
+        deleteById(PersistentGroup.USERS_JOIN_TABLE_NAME, PersistentGroup.GROUPS_JOIN_COLUMN_NAME,
+            period.getId());
+        deleteById(PersistentGroup.DATA_STORE_NAME, "id", period.getId());
+      }
+      List<User> users = new ArrayList<User>(students);
+      users.add(teacher);
+      for (User user : users) {
+        Long userDetailsId = user.getUserDetails().getId();
+        deleteById(UserImpl.DATA_STORE_NAME, "id", user.getId());
+        deleteById(PersistentUserDetails.GRANTED_AUTHORITY_JOIN_TABLE_NAME,
+            PersistentUserDetails.USER_DETAILS_JOIN_COLUMN_NAME, userDetailsId);
+        deleteById(StudentUserDetails.DATA_STORE_NAME, "id", userDetailsId);
+        deleteById(TeacherUserDetails.DATA_STORE_NAME, "id", userDetailsId);
+        deleteById(PersistentUserDetails.DATA_STORE_NAME, "id", userDetailsId);
+      }
+      return null;
+    });
+  }
+
+  @Test
+  public void addStudentToRun_ConcurrentRegistrations_ShouldAddEachStudentToEachRunOnce()
+      throws Exception {
+    List<Callable<Boolean>> registrations = new ArrayList<Callable<Boolean>>();
+    CountDownLatch start = new CountDownLatch(1);
+    for (int a = 0; a < NUM_ATTEMPTS_PER_REGISTRATION; a++) {
+      for (User student : students) {
+        for (Run run : runs) {
+          registrations.add(() -> {
+            start.await();
+            try {
+              studentService.addStudentToRun(student,
+                  new Projectcode(run.getRuncode(), PERIOD_NAME));
+              return true;
+            } catch (StudentUserAlreadyAssociatedWithRunException e) {
+              return false;
+            }
+          });
+        }
+      }
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+    int numAdded = 0;
+    try {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+      for (Callable<Boolean> registration : registrations) {
+        results.add(executor.submit(registration));
+      }
+      start.countDown();
+      for (Future<Boolean> result : results) {
+        if (result.get(1, TimeUnit.MINUTES)) {
+          numAdded++;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(NUM_RUNS * NUM_STUDENTS, numAdded);
+    for (Group period : periods) {
+      assertEquals(Integer.valueOf(NUM_STUDENTS), jdbcTemplate.queryForObject(
+          "select count(*) from " + PersistentGroup.USERS_JOIN_TABLE_NAME + " where "
+          + PersistentGroup.GROUPS_JOIN_COLUMN_NAME + " = ?", Integer.class, period.getId()));
+      assertEquals(Integer.valueOf(NUM_STUDENTS), jdbcTemplate.queryForObject(
+          "select count(distinct " + PersistentGroup.USERS_JOIN_COLUMN_NAME + ") from "
+          + PersistentGroup.USERS_JOIN_TABLE_NAME + " where "
+          + PersistentGroup.GROUPS_JOIN_COLUMN_NAME + " = ?", Integer.class, period.getId()));
+    }
+  }
+
+  private void deleteById(String table, String idColumn, Long id) {
+    jdbcTemplate.update("delete from " + table + " where " + idColumn + " = ?", id);
+  }
+}
@@ -24,12 +24,16 @@ package org.wise.portal.service.student.impl;
 
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.reset;
+import static org.easymock.EasyMock.same;
 import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -50,6 +54,7 @@ import org.wise.portal.domain.StudentUserAlreadyAssociatedWithRunException;
 import org.wise.portal.domain.authentication.impl.StudentUserDetails;
 import org.wise.portal.domain.group.Group;
 import org.wise.portal.domain.group.impl.PersistentGroup;
+import org.wise.portal.domain.impl.NewStudentAccountParameters;
 import org.wise.portal.domain.project.impl.Projectcode;
 import org.wise.portal.domain.run.Run;
 import org.wise.portal.domain.run.impl.RunImpl;
@@ -60,6 +65,7 @@ import org.wise.portal.domain.workgroup.impl.WorkgroupImpl;
 import org.wise.portal.service.group.GroupService;
 import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.student.StudentService;
+import org.wise.portal.service.user.UserService;
 import org.wise.portal.service.workgroup.WorkgroupService;
 
 /**
@@ -80,6 +86,9 @@ public class StudentServiceImplTest {
   @Mock
   private WorkgroupService workgroupService;
 
+  @Mock
+  private UserService userService;
+
   private User studentUser;
 
   private Projectcode projectcode;
@@ -123,7 +132,7 @@ public class StudentServiceImplTest {
   public void addStudentToRun_ExistingUserAndRun_ShouldAddStudentToRun()
       throws ObjectNotFoundException, PeriodNotFoundException,
       StudentUserAlreadyAssociatedWithRunException, RunHasEndedException {
-    expect(runService.retrieveRunByRuncode(RUNCODE)).andReturn(run);
+    expect(runService.retrieveRunByRuncodeForUpdate(RUNCODE)).andReturn(run);
     replay(runService);
     Group period = run.getPeriodByName(PERIODNAME);
     groupService.addMember(period.getId(), studentUser);
@@ -138,7 +147,7 @@ public class StudentServiceImplTest {
   @Test
   public void addStudentToRun_NonExistingRun_ShouldThrowRunNotFoundException()
       throws PeriodNotFoundException, ObjectNotFoundException {
-    expect(runService.retrieveRunByRuncode(RUNCODE))
+    expect(runService.retrieveRunByRuncodeForUpdate(RUNCODE))
         .andThrow(new ObjectNotFoundException(runId, Run.class));
     replay(runService);
     replay(groupService); // not expecting groupService to be called because of the exception
@@ -156,7 +165,7 @@ public class StudentServiceImplTest {
   @Test
   public void addStudentsToRun_NonExistingPeriod_ShouldThrowPeriodNotFoundException()
       throws ObjectNotFoundException {
-    expect(runService.retrieveRunByRuncode(RUNCODE)).andReturn(run);
+    expect(runService.retrieveRunByRuncodeForUpdate(RUNCODE)).andReturn(run);
     replay(runService);
     try {
       run.getPeriodByName(NON_EXISTING_PERIODNAME);
@@ -179,7 +188,7 @@ public class StudentServiceImplTest {
   @Test
   public void addStudentsToRun_StudentIsAlreadyInTheRun_ShouldThrowStudentAlreadyAssociatedWithRunException()
       throws ObjectNotFoundException, PeriodNotFoundException {
-    expect(runService.retrieveRunByRuncode(RUNCODE)).andReturn(run);
+    expect(runService.retrieveRunByRuncodeForUpdate(RUNCODE)).andReturn(run);
     replay(runService);
     Group period = run.getPeriodByName(PERIODNAME);
     groupService.addMember(period.getId(), studentUser);
@@ -194,7 +203,7 @@ public class StudentServiceImplTest {
     verify(groupService);
     reset(runService);
     period.addMember(studentUser);
-    expect(runService.retrieveRunByRuncode(RUNCODE)).andReturn(run);
+    expect(runService.retrieveRunByRuncodeForUpdate(RUNCODE)).andReturn(run);
     replay(runService);
 
     // now, if we try to add the studentUser again, we expect
@@ -209,6 +218,58 @@ public class StudentServiceImplTest {
     verify(runService);
   }
 
+  @Test
+  public void createStudentAccounts_TwoStudentsInSamePeriod_ShouldLockRunAndSavePeriodOnce()
+      throws Exception {
+    User otherStudentUser = new UserImpl();
+    StudentUserDetails otherUserDetails = new StudentUserDetails();
+    otherUserDetails.setUsername("patricks0101");
+    otherStudentUser.setUserDetails(otherUserDetails);
+    List<NewStudentAccountParameters> accounts = new ArrayList<NewStudentAccountParameters>();
+    accounts.add(createNewStudentAccount((StudentUserDetails) studentUser.getUserDetails()));
+    accounts.add(createNewStudentAccount(otherUserDetails));
+    expect(runService.retrieveRunByRuncodeForUpdate(RUNCODE)).andReturn(run);
+    expect(userService.createUsers(isA(List.class)))
+        .andReturn(Arrays.asList(studentUser, otherStudentUser));
+    Group period = run.getPeriodByName(PERIODNAME);
+    Set<User> members = new HashSet<User>();
+    members.add(studentUser);
+    members.add(otherStudentUser);
+    groupService.addMembers(period, members);
+    expectLastCall();
+    expect(workgroupService.createWorkgroup(isA(String.class), isA(Set.class), same(run),
+        same(period))).andReturn(new WorkgroupImpl()).times(2);
+    replay(runService, userService, groupService, workgroupService);
+    List<User> students = studentService.createStudentAccounts(accounts);
+    assertEquals(2, students.size());
+    verify(runService, userService, groupService, workgroupService);
+  }
+
+  @Test
+  public void createStudentAccounts_NonExistingPeriod_ShouldNotCreateAnyUsers() throws Exception {
+    StudentUserDetails otherUserDetails = new StudentUserDetails();
+    List<NewStudentAccountParameters> accounts = new ArrayList<NewStudentAccountParameters>();
+    accounts.add(createNewStudentAccount((StudentUserDetails) studentUser.getUserDetails()));
+    NewStudentAccountParameters otherAccount = createNewStudentAccount(otherUserDetails);
+    otherAccount.setProjectcode(new Projectcode(RUNCODE, NON_EXISTING_PERIODNAME));
+    accounts.add(otherAccount);
+    expect(runService.retrieveRunByRuncodeForUpdate(RUNCODE)).andReturn(run);
+    replay(runService, userService, groupService, workgroupService);
+    try {
+      studentService.createStudentAccounts(accounts);
+      fail("PeriodNotFoundException was expected to be thrown but was not");
+    } catch (PeriodNotFoundException e) {
+    }
+    verify(runService, userService, groupService, workgroupService);
+  }
+
+  private NewStudentAccountParameters createNewStudentAccount(StudentUserDetails userDetails) {
+    NewStudentAccountParameters account = new NewStudentAccountParameters();
+    account.setUserDetails(userDetails);
+    account.setProjectcode(projectcode);
+    return account;
+  }
+
   @Test
   public void removeStudentFromRun_studentIsInRun_ShouldRemoveStudentFromRunAndWorkgroup()
       throws PeriodNotFoundException {
@@ -250,7 +311,7 @@ public class StudentServiceImplTest {
   public void addStudentsToRun_RunHasEndTimeInThePast_ShouldThrowRunHasEndedException()
       throws ObjectNotFoundException {
     run.setEndtime(new Date(System.currentTimeMillis() - 3600 * 1000));
-    expect(runService.retrieveRunByRuncode(RUNCODE)).andReturn(run);
+    expect(runService.retrieveRunByRuncodeForUpdate(RUNCODE)).andReturn(run);
     replay(runService);
     try {
       studentService.addStudentToRun(studentUser, projectcode);
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.portal.service.vle.wise5.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.wise.portal.domain.authentication.Gender;
+import org.wise.portal.domain.authentication.Schoollevel;
+import org.wise.portal.domain.group.Group;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.user.User;
+import org.wise.portal.domain.workgroup.Workgroup;
+import org.wise.portal.junit.AbstractTransactionalDbTests;
+import org.wise.portal.service.vle.wise5.StudentDataSaveResult;
+import org.wise.portal.service.vle.wise5.VLEService;
+import org.wise.vle.domain.annotation.wise5.Annotation;
+import org.wise.vle.domain.work.StudentWork;
+
+/**
+ * Saves student data against the H2 test database, checking that a row that cannot be saved does
+ * not stop the other rows in the request from being saved.
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class VLEServiceImplSaveStudentDataTest extends AbstractTransactionalDbTests {
+
+  private static final int NUM_WORKGROUPS = 3;
+
+  @Autowired
+  private VLEService vleService;
+
+  private Run run;
+
+  private Group period;
+
+  private List<Workgroup> workgroups = new ArrayList<Workgroup>();
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    User teacher = createTeacherUser("Mrs", "Puff", "MrsPuff", "Mrs. Puff", "boat",
+        "Bikini Bottom", "Water State", "Pacific Ocean", "mrspuff@bikinibottom.com",
+        "Boating School", Schoollevel.COLLEGE, "1234567890");
+    Date startTime = Calendar.getInstance().getTime();
+    run = createProjectAndRun(getNextAvailableProjectId(), "How to be a Fry Cook", teacher,
+        startTime, "Panda123");
+    period = createPeriod("Period 1");
+    Set<Group> periods = new TreeSet<Group>();
+    periods.add(period);
+    run.setPeriods(periods);
+    for (int w = 0; w < NUM_WORKGROUPS; w++) {
+      User student = createStudentUser("Student", "Number" + w, "StudentN0101" + w, "pass", 1, 1,
+          Gender.MALE);
+      Set<User> members = new HashSet<User>();
+      members.add(student);
+      workgroups.add(createWorkgroup(members, run, period));
+    }
+  }
+
+  @Test
+  public void saveStudentData_StudentWorkAndCRaterAnnotation_ShouldAttachAnnotation()
+      throws Exception {
+    Workgroup workgroup = workgroups.get(0);
+    JSONArray studentWorkJSONArray = new JSONArray();
+    studentWorkJSONArray.put(createStudentWorkJSON(workgroup, "node1", "component1"));
+    JSONArray annotationsJSONArray = new JSONArray();
+    JSONObject annotationJSON = new JSONObject();
+    annotationJSON.put("requestToken", "annotation1");
+    annotationJSON.put("runId", run.getId());
+    annotationJSON.put("periodId", period.getId());
+    annotationJSON.put("toWorkgroupId", workgroup.getId());
+    annotationJSON.put("nodeId", "node1");
+    annotationJSON.put("componentId", "component1");
+    annotationJSON.put("type", "autoScore");
+    annotationJSON.put("data", "{\"value\":3}");
+    annotationJSON.put("clientSaveTime", System.currentTimeMillis());
+    annotationsJSONArray.put(annotationJSON);
+    StudentDataSaveResult result = vleService.saveStudentData(studentWorkJSONArray,
+        new JSONArray(), annotationsJSONArray);
+    StudentWork studentWork = result.getStudentWorkList().get(0);
+    Annotation annotation = result.getAnnotations().get(0);
+    assertNotNull(studentWork.getId());
+    assertNotNull(annotation.getId());
+    assertEquals(studentWork.getId(), annotation.getStudentWork().getId());
+  }
+
+  @Test
+  public void saveStudentData_OneRowWithUnknownWorkgroup_ShouldSkipOnlyThatRow()
+      throws Exception {
+    JSONArray studentWorkJSONArray = new JSONArray();
+    studentWorkJSONArray.put(createStudentWorkJSON(workgroups.get(0), "node1", "component1"));
+    JSONObject badStudentWorkJSON = createStudentWorkJSON(workgroups.get(1), "node1",
+        "component1");
+    badStudentWorkJSON.put("workgroupId", -1);
+    studentWorkJSONArray.put(badStudentWorkJSON);
+    studentWorkJSONArray.put(createStudentWorkJSON(workgroups.get(2), "node1", "component1"));
+    StudentDataSaveResult result = vleService.saveStudentData(studentWorkJSONArray,
+        new JSONArray(), new JSONArray());
+    toilet.flush();
+    List<StudentWork> studentWorkList = result.getStudentWorkList();
+    assertEquals(3, studentWorkList.size());
+    assertNotNull(studentWorkList.get(0).getId());
+    assertNull(studentWorkList.get(1));
+    assertNotNull(studentWorkList.get(2).getId());
+  }
+
+  @Test
+  public void saveStudentData_MalformedRows_ShouldSkipOnlyThoseRows() throws Exception {
+    JSONArray studentWorkJSONArray = new JSONArray();
+    JSONObject badStudentWorkJSON = createStudentWorkJSON(workgroups.get(0), "node1",
+        "component1");
+    badStudentWorkJSON.put("clientSaveTime", "yesterday");
+    studentWorkJSONArray.put(badStudentWorkJSON);
+    studentWorkJSONArray.put(createStudentWorkJSON(workgroups.get(1), "node1", "component1"));
+    JSONArray eventsJSONArray = new JSONArray();
+    eventsJSONArray.put(createEventJSON(workgroups.get(0)));
+    JSONObject badEventJSON = createEventJSON(workgroups.get(1));
+    badEventJSON.remove("category");
+    eventsJSONArray.put(badEventJSON);
+    StudentDataSaveResult result = vleService.saveStudentData(studentWorkJSONArray,
+        eventsJSONArray, new JSONArray());
+    toilet.flush();
+    assertNull(result.getStudentWorkList().get(0));
+    assertNotNull(result.getStudentWorkList().get(1).getId());
+    assertNotNull(result.getEvents().get(0).getId());
+    assertNull(result.getEvents().get(1));
+  }
+
+  private JSONObject createEventJSON(Workgroup workgroup) throws Exception {
+    JSONObject eventJSON = new JSONObject();
+    eventJSON.put("requestToken", "event_" + workgroup.getId());
+    eventJSON.put("runId", run.getId());
+    eventJSON.put("periodId", period.getId());
+    eventJSON.put("workgroupId", workgroup.getId());
+    eventJSON.put("nodeId", "node1");
+    eventJSON.put("context", "VLE");
+    eventJSON.put("category", "Navigation");
+    eventJSON.put("event", "nodeEntered");
+    eventJSON.put("data", "{}");
+    eventJSON.put("clientSaveTime", System.currentTimeMillis());
+    return eventJSON;
+  }
+
+  private JSONObject createStudentWorkJSON(Workgroup workgroup, String nodeId, String componentId)
+      throws Exception {
+    JSONObject studentWorkJSON = new JSONObject();
+    studentWorkJSON.put("requestToken", nodeId + "_" + workgroup.getId());
+    studentWorkJSON.put("runId", run.getId());
+    studentWorkJSON.put("periodId", period.getId());
+    studentWorkJSON.put("workgroupId", workgroup.getId());
+    studentWorkJSON.put("isAutoSave", true);
+    studentWorkJSON.put("isSubmit", false);
+    studentWorkJSON.put("nodeId", nodeId);
+    studentWorkJSON.put("componentId", componentId);
+    studentWorkJSON.put("componentType", "OpenResponse");
+    studentWorkJSON.put("studentData", "{\"response\":\"Hello World\"}");
+    studentWorkJSON.put("clientSaveTime", System.currentTimeMillis());
+    return studentWorkJSON;
+  }
+}
@@ -1,8 +1,12 @@
 package org.wise.portal.service.vle.wise5.impl;
 
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
@@ -15,10 +19,20 @@ import org.easymock.TestSubject;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.wise.portal.dao.ObjectNotFoundException;
+import org.wise.portal.dao.work.LatestStudentWorkDao;
+import org.wise.portal.dao.work.NotebookItemDao;
+import org.wise.portal.dao.work.NotebookItemGroupDao;
 import org.wise.portal.dao.work.StudentWorkDao;
+import org.wise.portal.domain.run.Run;
+import org.wise.portal.domain.run.impl.RunImpl;
 import org.wise.portal.domain.workgroup.Workgroup;
 import org.wise.portal.domain.workgroup.impl.WorkgroupImpl;
+import org.wise.portal.service.run.RunService;
 import org.wise.portal.service.vle.wise5.VLEService;
+import org.wise.vle.domain.work.LatestStudentWork;
+import org.wise.vle.domain.work.NotebookItem;
+import org.wise.vle.domain.work.NotebookItemGroup;
 import org.wise.vle.domain.work.StudentWork;
 
 /**
@@ -33,6 +47,18 @@ public class VLEServiceImplTest {
   @Mock
   private StudentWorkDao<StudentWork> studentWorkDao;
 
+  @Mock
+  private LatestStudentWorkDao<LatestStudentWork> latestStudentWorkDao;
+
+  @Mock
+  private NotebookItemDao<NotebookItem> notebookItemDao;
+
+  @Mock
+  private NotebookItemGroupDao<NotebookItemGroup> notebookItemGroupDao;
+
+  @Mock
+  private RunService runService;
+
   private List<StudentWork> allStudentWork;
 
   private StudentWork studentWork1, studentWork2, studentWork3;
@@ -64,15 +90,29 @@ public class VLEServiceImplTest {
   }
 
   @Test
-  public void getStudentWorkList_LatestOnlyTrue_ReturnFilteredList() {
-    expect(studentWorkDao.getStudentWorkListByParams(null, null, null, null, null,
-        null, null, null, null, null)).andReturn(allStudentWork);
+  public void getStudentWorkList_LatestOnlyTrue_ReturnLatestList() {
+    expect(studentWorkDao.getLatestStudentWorkListByParams(null, null, null, null, null,
+        null, null, null, null, null)).andReturn(Arrays.asList(studentWork2, studentWork3));
     replay(studentWorkDao);
     List<StudentWork> studentWorkList = vleService.getStudentWorkList(null, null, null, null, null,
        null, null, null, null, null, true);
     assertEquals(2, studentWorkList.size());
-    assertEquals(studentWork3, studentWorkList.get(0));
-    assertEquals(studentWork2, studentWorkList.get(1));
+    assertEquals(studentWork2, studentWorkList.get(0));
+    assertEquals(studentWork3, studentWorkList.get(1));
+  }
+
+  @Test
+  public void getStudentWorkList_LatestOnlyTrueForComponent_ReturnLatestStudentWork()
+      throws ObjectNotFoundException {
+    Run run = new RunImpl();
+    expect(runService.retrieveById(1L)).andReturn(run);
+    expect(latestStudentWorkDao.getLatestStudentWorkList(run, null, null, "node1", "component1"))
+        .andReturn(Arrays.asList(studentWork2, studentWork3));
+    replay(runService, studentWorkDao, latestStudentWorkDao);
+    List<StudentWork> studentWorkList = vleService.getStudentWorkList(null, 1, null, null, null,
+       null, "node1", "component1", null, null, true);
+    assertEquals(2, studentWorkList.size());
+    verify(runService, studentWorkDao, latestStudentWorkDao);
   }
 
   @Test
@@ -84,4 +124,53 @@ public class VLEServiceImplTest {
        null, null, null, null, null, false);
     assertEquals(3, studentWorkList.size());
   }
+
+  @Test
+  public void addNotebookItemToGroup_NotInGroup_SaveCopyWithGroups() throws Exception {
+    NotebookItem notebookItem = createNotebookItem("[\"group2\"]");
+    expect(notebookItemDao.getById(1)).andReturn(notebookItem);
+    notebookItemDao.save(isA(NotebookItem.class));
+    expectLastCall();
+    notebookItemGroupDao.save(isA(NotebookItemGroup.class));
+    expectLastCall().times(2);
+    replay(notebookItemDao, notebookItemGroupDao);
+    NotebookItem copiedNotebookItem = vleService.addNotebookItemToGroup(1, "group1", "1000");
+    assertEquals("[\"group2\",\"group1\"]", copiedNotebookItem.getGroups());
+    assertTrue(copiedNotebookItem.isInGroup("group1"));
+    verify(notebookItemDao, notebookItemGroupDao);
+  }
+
+  @Test
+  public void saveNotebookItem_GroupRemoved_DeleteNotebookItemGroup() throws Exception {
+    NotebookItem notebookItem = createNotebookItem("[\"group1\",\"group2\"]");
+    NotebookItemGroup group1 = createNotebookItemGroup(notebookItem, "group1");
+    NotebookItemGroup group2 = createNotebookItemGroup(notebookItem, "group2");
+    expect(notebookItemDao.getById(1)).andReturn(notebookItem);
+    notebookItemDao.save(notebookItem);
+    expectLastCall();
+    expect(notebookItemGroupDao.getNotebookItemGroups(notebookItem))
+        .andReturn(Arrays.asList(group1, group2));
+    notebookItemGroupDao.delete(group2);
+    expectLastCall();
+    replay(notebookItemDao, notebookItemGroupDao);
+    vleService.saveNotebookItem(1, null, null, null, null, null, null, null, null, null, null,
+        null, "[\"group1\"]", "1000", null);
+    verify(notebookItemDao, notebookItemGroupDao);
+  }
+
+  private NotebookItem createNotebookItem(String groups) {
+    NotebookItem notebookItem = new NotebookItem();
+    notebookItem.setId(1);
+    notebookItem.setRun(new RunImpl());
+    notebookItem.setGroups(groups);
+    return notebookItem;
+  }
+
+  private NotebookItemGroup createNotebookItemGroup(NotebookItem notebookItem, String groupName) {
+    NotebookItemGroup notebookItemGroup = new NotebookItemGroup();
+    notebookItemGroup.setNotebookItem(notebookItem);
+    notebookItemGroup.setRun(notebookItem.getRun());
+    notebookItemGroup.setGroupName(groupName);
+    return notebookItemGroup;
+  }
 }
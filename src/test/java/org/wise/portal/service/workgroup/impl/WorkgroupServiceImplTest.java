@@ -31,6 +31,7 @@ import java.util.Set;
 
 import org.easymock.EasyMockRunner;
 import org.easymock.Mock;
+import org.easymock.MockType;
 import org.easymock.TestSubject;
 import org.junit.After;
 import org.junit.Before;
@@ -50,6 +51,7 @@ import org.wise.portal.domain.workgroup.Workgroup;
 import org.wise.portal.domain.workgroup.impl.WorkgroupImpl;
 import org.wise.portal.service.acl.AclService;
 import org.wise.portal.service.group.GroupService;
+import org.wise.portal.service.membership.MembershipService;
 
 /**
  * @author Cynick Young
@@ -70,6 +72,9 @@ public class WorkgroupServiceImplTest {
   @Mock
   private GroupService groupService;
 
+  @Mock(type = MockType.NICE)
+  private MembershipService membershipService;
+
   private Workgroup workgroup;
 
   private Run run;
@@ -0,0 +1,89 @@
+package org.wise.portal.spring.data.redis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoalescingMessagePublisherTest {
+
+  private List<MessageEnvelope> publishedMessages;
+
+  private CoalescingMessagePublisher publisher;
+
+  @Before
+  public void setUp() {
+    publishedMessages = new ArrayList<MessageEnvelope>();
+    publisher = new CoalescingMessagePublisher(publishedMessages::add, 60000);
+  }
+
+  @After
+  public void tearDown() {
+    publisher.destroy();
+  }
+
+  @Test
+  public void publish_ClassroomTopic_ShouldPublishRightAway() throws Exception {
+    publisher.publish(createStudentWorkMessage("/topic/classroom/1/2", 3, "node1", false));
+    assertEquals(1, publishedMessages.size());
+  }
+
+  @Test
+  public void publish_SameComponentTwice_ShouldPublishLatestOnly() throws Exception {
+    publisher.publish(createStudentWorkMessage("/topic/teacher/1", 3, "node1", false));
+    publisher.publish(createStudentWorkMessage("/topic/teacher/1", 3, "node1", false));
+    assertEquals(0, publishedMessages.size());
+    publisher.flush();
+    assertEquals(1, publishedMessages.size());
+    assertEquals("studentWorkToTeacher", publishedMessages.get(0).getType());
+  }
+
+  @Test
+  public void publish_DifferentWorkgroupsAndSubmits_ShouldPublishOneBatch() throws Exception {
+    publisher.publish(createStudentWorkMessage("/topic/teacher/1", 3, "node1", false));
+    publisher.publish(createStudentWorkMessage("/topic/teacher/1", 4, "node1", false));
+    publisher.publish(createStudentWorkMessage("/topic/teacher/1", 4, "node1", true));
+    publisher.publish(createStudentWorkMessage("/topic/teacher/1", 4, "node1", false));
+    publisher.flush();
+    assertEquals(1, publishedMessages.size());
+    MessageEnvelope message = MessageEnvelope.decode(publishedMessages.get(0).encode());
+    assertEquals(CoalescingMessagePublisher.BATCH_TYPE, message.getType());
+    assertEquals("/topic/teacher/1", message.getTopic());
+    List<MessageEnvelope> messages = message.unbatch();
+    assertEquals(3, messages.size());
+    assertEquals(3, new JSONObject(messages.get(0).getPayloadAsString()).getInt("workgroupId"));
+    assertEquals(true, new JSONObject(messages.get(1).getPayloadAsString())
+        .getBoolean("isSubmit"));
+    assertEquals(false, new JSONObject(messages.get(2).getPayloadAsString())
+        .getBoolean("isSubmit"));
+  }
+
+  @Test
+  public void flush_TwoTopics_ShouldPublishOneMessagePerTopic() throws Exception {
+    publisher.publish(createStudentWorkMessage("/topic/teacher/1", 3, "node1", false));
+    publisher.publish(createStudentWorkMessage("/topic/teacher/2", 5, "node1", false));
+    publisher.flush();
+    assertEquals(2, publishedMessages.size());
+    publisher.flush();
+    assertEquals(2, publishedMessages.size());
+  }
+
+  private MessageEnvelope createStudentWorkMessage(String topic, int workgroupId, String nodeId,
+      boolean isSubmit) throws Exception {
+    JSONObject studentWork = new JSONObject();
+    studentWork.put("workgroupId", workgroupId);
+    studentWork.put("nodeId", nodeId);
+    studentWork.put("componentId", "component1");
+    studentWork.put("componentType", "OpenResponse");
+    studentWork.put("isSubmit", isSubmit);
+    String supersedeKey = isSubmit ? null
+        : "studentWork/" + workgroupId + "/" + nodeId + "/component1";
+    return new MessageEnvelope("studentWorkToTeacher", topic, studentWork.toString(),
+        supersedeKey);
+  }
+}
@@ -0,0 +1,125 @@
+package org.wise.portal.spring.data.redis;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.same;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+public class RedisChannelSubscriptionManagerTest {
+
+  private RedisMessageListenerContainer container;
+
+  private MessageListener messageListener = (message, pattern) -> {};
+
+  private MessageChannelSharding channelSharding = new MessageChannelSharding("wise",
+      workgroupId -> workgroupId == 3L ? 1L : null);
+
+  private ChannelTopic channel = channelSharding.getRunChannel(1L);
+
+  private RedisChannelSubscriptionManager manager;
+
+  @Before
+  public void setUp() {
+    container = createMock(RedisMessageListenerContainer.class);
+    manager = new RedisChannelSubscriptionManager(container, messageListener, channelSharding);
+  }
+
+  @Test
+  public void getChannel_DestinationsOfRun_ShouldReturnRunChannel() {
+    assertEquals("wise:run:1", channelSharding.getChannel("/topic/teacher/1").getTopic());
+    assertEquals("wise:run:1", channelSharding.getChannel("/topic/classroom/1/2").getTopic());
+    assertEquals("wise:run:1", channelSharding.getChannel("/topic/workgroup/3").getTopic());
+    assertEquals("wise:run:10", channelSharding.getChannel("/topic/teacher/10").getTopic());
+  }
+
+  @Test
+  public void getChannel_OtherDestinations_ShouldReturnProjectOrSharedChannel() {
+    assertEquals("wise:project:7",
+        channelSharding.getChannel("/topic/current-authors/7").getTopic());
+    assertEquals("wise:other", channelSharding.getChannel("/topic/workgroup/4").getTopic());
+    assertEquals("wise:other", channelSharding.getChannel("/topic/news").getTopic());
+  }
+
+  @Test
+  public void onApplicationEvent_TwoRuns_ShouldListenToEachRunChannel() {
+    container.addMessageListener(same(messageListener), eq(channel));
+    expectLastCall().once();
+    container.addMessageListener(same(messageListener), eq(channelSharding.getRunChannel(2L)));
+    expectLastCall().once();
+    replay(container);
+    manager.onApplicationEvent(new SessionSubscribeEvent(this,
+        createMessage(SimpMessageType.SUBSCRIBE, "session1", "sub1", "/topic/teacher/1")));
+    manager.onApplicationEvent(new SessionSubscribeEvent(this,
+        createMessage(SimpMessageType.SUBSCRIBE, "session2", "sub1", "/topic/teacher/2")));
+    verify(container);
+  }
+
+  @Test
+  public void onApplicationEvent_TwoSubscriptionsThenUnsubscribe_ShouldListenUntilLastIsGone() {
+    container.addMessageListener(same(messageListener), eq(channel));
+    expectLastCall().once();
+    container.removeMessageListener(same(messageListener), eq(channel));
+    expectLastCall().once();
+    replay(container);
+    manager.onApplicationEvent(new SessionSubscribeEvent(this,
+        createMessage(SimpMessageType.SUBSCRIBE, "session1", "sub1", "/topic/teacher/1")));
+    manager.onApplicationEvent(new SessionSubscribeEvent(this,
+        createMessage(SimpMessageType.SUBSCRIBE, "session2", "sub1", "/topic/classroom/1/2")));
+    manager.onApplicationEvent(new SessionUnsubscribeEvent(this,
+        createMessage(SimpMessageType.UNSUBSCRIBE, "session1", "sub1", null)));
+    manager.onApplicationEvent(new SessionUnsubscribeEvent(this,
+        createMessage(SimpMessageType.UNSUBSCRIBE, "session2", "sub1", null)));
+    verify(container);
+  }
+
+  @Test
+  public void onApplicationEvent_Disconnect_ShouldReleaseAllSessionSubscriptions() {
+    container.addMessageListener(same(messageListener), eq(channel));
+    expectLastCall().once();
+    container.removeMessageListener(same(messageListener), eq(channel));
+    expectLastCall().once();
+    replay(container);
+    manager.onApplicationEvent(new SessionSubscribeEvent(this,
+        createMessage(SimpMessageType.SUBSCRIBE, "session1", "sub1", "/topic/workgroup/3")));
+    manager.onApplicationEvent(new SessionSubscribeEvent(this,
+        createMessage(SimpMessageType.SUBSCRIBE, "session1", "sub2", "/topic/classroom/1/2")));
+    Message<byte[]> disconnect = createMessage(SimpMessageType.DISCONNECT, "session1", null, null);
+    manager.onApplicationEvent(new SessionDisconnectEvent(this, disconnect, "session1",
+        CloseStatus.NORMAL));
+    verify(container);
+  }
+
+  @Test
+  public void onApplicationEvent_NonTopicDestination_ShouldNotListen() {
+    replay(container);
+    manager.onApplicationEvent(new SessionSubscribeEvent(this,
+        createMessage(SimpMessageType.SUBSCRIBE, "session1", "sub1", "/user/queue/errors")));
+    verify(container);
+  }
+
+  private Message<byte[]> createMessage(SimpMessageType messageType, String sessionId,
+      String subscriptionId, String destination) {
+    SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(messageType);
+    headers.setSessionId(sessionId);
+    headers.setSubscriptionId(subscriptionId);
+    headers.setDestination(destination);
+    return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+  }
+}
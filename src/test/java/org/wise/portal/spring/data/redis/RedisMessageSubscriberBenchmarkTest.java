@@ -0,0 +1,121 @@
+package org.wise.portal.spring.data.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.wise.vle.domain.WebSocketMessage;
+
+/**
+ * Throughput benchmark for forwarding Redis messages to websocket topics. Compares the previous
+ * org.json message format, which was parsed and then serialized again as a WebSocketMessage, with
+ * MessageEnvelopes that are written straight from their payload bytes. It is excluded from the
+ * default test run; run it with -Dtest=RedisMessageSubscriberBenchmarkTest.
+ */
+public class RedisMessageSubscriberBenchmarkTest {
+
+  private static final byte[] CHANNEL = "messageQueue".getBytes(StandardCharsets.UTF_8);
+
+  private static final int NUM_WARMUP_MESSAGES = 20000;
+
+  private static final int NUM_MESSAGES = 200000;
+
+  private List<Message<?>> sentMessages = new ArrayList<Message<?>>();
+
+  private SimpMessagingTemplate simpMessagingTemplate;
+
+  private RedisMessageSubscriber subscriber;
+
+  private JSONObject studentWork;
+
+  @Before
+  public void setUp() throws Exception {
+    simpMessagingTemplate = new SimpMessagingTemplate((message, timeout) -> {
+      sentMessages.add(message);
+      return true;
+    });
+    simpMessagingTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+    subscriber = new RedisMessageSubscriber(simpMessagingTemplate);
+    studentWork = new JSONObject();
+    studentWork.put("id", 123);
+    studentWork.put("runId", 1);
+    studentWork.put("periodId", 2);
+    studentWork.put("workgroupId", 3);
+    studentWork.put("nodeId", "node1");
+    studentWork.put("componentId", "component1");
+    studentWork.put("componentType", "OpenResponse");
+    studentWork.put("isAutoSave", true);
+    studentWork.put("isSubmit", false);
+    studentWork.put("studentData", new JSONObject()
+        .put("response", "The \"sun\" heats the earth's surface.\nThen it radiates heat."));
+    studentWork.put("clientSaveTime", 1577836800000L);
+    studentWork.put("serverSaveTime", 1577836801000L);
+  }
+
+  @Test
+  public void onMessage_200kStudentWorkMessages_ShouldCompareMessagesPerSecond()
+      throws Exception {
+    DefaultMessage jsonMessage = createJSONMessage();
+    DefaultMessage envelopeMessage = createEnvelopeMessage();
+    for (int m = 0; m < NUM_WARMUP_MESSAGES; m++) {
+      onLegacyMessage(jsonMessage);
+      subscriber.onMessage(envelopeMessage, null);
+      sentMessages.clear();
+    }
+
+    long start = System.nanoTime();
+    for (int m = 0; m < NUM_MESSAGES; m++) {
+      onLegacyMessage(jsonMessage);
+      sentMessages.clear();
+    }
+    long jsonNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int m = 0; m < NUM_MESSAGES; m++) {
+      subscriber.onMessage(envelopeMessage, null);
+      sentMessages.clear();
+    }
+    long envelopeNanos = System.nanoTime() - start;
+
+    System.out.println("forwarded " + NUM_MESSAGES + " studentWork messages: json "
+        + messagesPerSecond(jsonNanos) + " messages/s, envelope "
+        + messagesPerSecond(envelopeNanos) + " messages/s");
+  }
+
+  private DefaultMessage createJSONMessage() throws Exception {
+    JSONObject message = new JSONObject();
+    message.put("type", "studentWorkToTeacher");
+    message.put("topic", "/topic/teacher/1");
+    message.put("studentWork", studentWork);
+    return new DefaultMessage(CHANNEL, message.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private DefaultMessage createEnvelopeMessage() {
+    MessageEnvelope envelope = new MessageEnvelope("studentWorkToTeacher", "/topic/teacher/1",
+        studentWork.toString());
+    return new DefaultMessage(CHANNEL, envelope.encode());
+  }
+
+  /**
+   * The studentWork branch of the subscriber before messages were sent as MessageEnvelopes.
+   */
+  private void onLegacyMessage(DefaultMessage message) throws Exception {
+    JSONObject messageJSON = new JSONObject(new String(message.getBody()));
+    if (messageJSON.get("type").equals("studentWorkToClassroom") ||
+        messageJSON.get("type").equals("studentWorkToTeacher")) {
+      simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"),
+          new WebSocketMessage("studentWork", messageJSON.getString("studentWork")));
+    }
+  }
+
+  private long messagesPerSecond(long nanos) {
+    return NUM_MESSAGES * 1000000000L / Math.max(nanos, 1);
+  }
+}
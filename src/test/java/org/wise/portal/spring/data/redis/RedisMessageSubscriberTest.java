@@ -0,0 +1,122 @@
+package org.wise.portal.spring.data.redis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.wise.vle.domain.WebSocketMessage;
+
+/**
+ * Checks that MessageEnvelopes reach the websocket topics as the same frames that the previous
+ * org.json message format produced.
+ */
+public class RedisMessageSubscriberTest {
+
+  private static final byte[] CHANNEL = "messageQueue".getBytes(StandardCharsets.UTF_8);
+
+  private ObjectMapper mapper = new ObjectMapper();
+
+  private List<Message<?>> sentMessages = new ArrayList<Message<?>>();
+
+  private SimpMessagingTemplate simpMessagingTemplate;
+
+  private RedisMessageSubscriber subscriber;
+
+  private JSONObject studentWork;
+
+  @Before
+  public void setUp() throws Exception {
+    simpMessagingTemplate = new SimpMessagingTemplate((message, timeout) -> {
+      sentMessages.add(message);
+      return true;
+    });
+    simpMessagingTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+    subscriber = new RedisMessageSubscriber(simpMessagingTemplate);
+    studentWork = new JSONObject();
+    studentWork.put("id", 123);
+    studentWork.put("runId", 1);
+    studentWork.put("periodId", 2);
+    studentWork.put("workgroupId", 3);
+    studentWork.put("nodeId", "node1");
+    studentWork.put("componentId", "component1");
+    studentWork.put("componentType", "OpenResponse");
+    studentWork.put("isAutoSave", true);
+    studentWork.put("isSubmit", false);
+    studentWork.put("studentData", new JSONObject()
+        .put("response", "The \"sun\" heats the earth's surface.\nThen it radiates heat."));
+    studentWork.put("clientSaveTime", 1577836800000L);
+    studentWork.put("serverSaveTime", 1577836801000L);
+  }
+
+  @Test
+  public void onMessage_StudentWork_ShouldSendSameFrameAsJSONMessage() throws Exception {
+    onLegacyMessage(createJSONMessage());
+    subscriber.onMessage(createEnvelopeMessage(), null);
+    assertEquals(2, sentMessages.size());
+    assertEquals(readFrame(sentMessages.get(0)), readFrame(sentMessages.get(1)));
+    JsonNode frame = readFrame(sentMessages.get(1));
+    assertEquals("studentWork", frame.get("type").asText());
+    assertEquals(3, mapper.readTree(frame.get("content").asText()).get("workgroupId").asInt());
+  }
+
+  @Test
+  public void onMessage_Batch_ShouldSendOneFrameWithEachMessage() throws Exception {
+    MessageEnvelope studentWorkEnvelope = new MessageEnvelope("studentWorkToTeacher",
+        "/topic/teacher/1", studentWork.toString());
+    MessageEnvelope statusEnvelope = new MessageEnvelope("studentStatusToTeacher",
+        "/topic/teacher/1", "{\"workgroupId\":3}");
+    MessageEnvelope batch = MessageEnvelope.batch(CoalescingMessagePublisher.BATCH_TYPE,
+        "/topic/teacher/1", Arrays.asList(studentWorkEnvelope, statusEnvelope));
+    subscriber.onMessage(new DefaultMessage(CHANNEL, batch.encode()), null);
+    assertEquals(1, sentMessages.size());
+    JsonNode frame = readFrame(sentMessages.get(0));
+    assertEquals(CoalescingMessagePublisher.BATCH_TYPE, frame.get("type").asText());
+    assertEquals(2, frame.get("content").size());
+    assertEquals("studentWork", frame.get("content").get(0).get("type").asText());
+    assertEquals("studentStatus", frame.get("content").get(1).get("type").asText());
+    assertEquals("{\"workgroupId\":3}", frame.get("content").get(1).get("content").asText());
+  }
+
+  private DefaultMessage createJSONMessage() throws Exception {
+    JSONObject message = new JSONObject();
+    message.put("type", "studentWorkToTeacher");
+    message.put("topic", "/topic/teacher/1");
+    message.put("studentWork", studentWork);
+    return new DefaultMessage(CHANNEL, message.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private DefaultMessage createEnvelopeMessage() {
+    MessageEnvelope envelope = new MessageEnvelope("studentWorkToTeacher", "/topic/teacher/1",
+        studentWork.toString());
+    return new DefaultMessage(CHANNEL, envelope.encode());
+  }
+
+  /**
+   * The studentWork branch of the subscriber before messages were sent as MessageEnvelopes.
+   */
+  private void onLegacyMessage(DefaultMessage message) throws Exception {
+    JSONObject messageJSON = new JSONObject(new String(message.getBody()));
+    if (messageJSON.get("type").equals("studentWorkToClassroom") ||
+        messageJSON.get("type").equals("studentWorkToTeacher")) {
+      simpMessagingTemplate.convertAndSend(messageJSON.getString("topic"),
+          new WebSocketMessage("studentWork", messageJSON.getString("studentWork")));
+    }
+  }
+
+  private JsonNode readFrame(Message<?> message) throws Exception {
+    return mapper.readTree((byte[]) message.getPayload());
+  }
+}
@@ -0,0 +1,89 @@
+package org.wise.portal.spring.impl;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.wise.portal.service.membership.MembershipService;
+import org.wise.portal.spring.data.redis.CoalescingMessagePublisher;
+import org.wise.portal.spring.data.redis.MessagePublisher;
+import org.wise.portal.spring.data.redis.RedisChannelSubscriptionManager;
+import org.wise.portal.spring.data.redis.RedisMessagePublisher;
+import org.wise.portal.spring.data.redis.SimpMessagePublisher;
+
+/**
+ * Starts RedisConfig on its own for each websocket broker mode. None of these tests connect to
+ * Redis, because nothing is subscribed or published.
+ */
+public class RedisConfigTest {
+
+  private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+      .withUserConfiguration(RedisConfig.class)
+      .withBean(MembershipService.class, () -> createNiceMock(MembershipService.class))
+      .withBean(SimpMessagingTemplate.class,
+          () -> new SimpMessagingTemplate((message, timeout) -> true))
+      .withPropertyValues("spring.redis.host=localhost", "spring.redis.port=6379",
+          "spring.redis.pool.max.total=8");
+
+  @Test
+  public void brokerMode_Missing_ShouldPublishThroughRedis() {
+    contextRunner.run(context -> {
+      assertNull(context.getStartupFailure());
+      assertEquals(1, context.getBeansOfType(RedisChannelSubscriptionManager.class).size());
+      assertTrue(getPublisher(context.getBean(MessagePublisher.class))
+          instanceof RedisMessagePublisher);
+    });
+  }
+
+  @Test
+  public void brokerMode_Simple_ShouldPublishThroughRedis() {
+    contextRunner.withPropertyValues(WebSocketConfig.BROKER_MODE_PROPERTY + "=simple")
+        .run(context -> {
+          assertNull(context.getStartupFailure());
+          assertEquals(1, context.getBeansOfType(RedisChannelSubscriptionManager.class).size());
+          assertTrue(getPublisher(context.getBean(MessagePublisher.class))
+              instanceof RedisMessagePublisher);
+        });
+  }
+
+  @Test
+  public void brokerMode_Relay_ShouldPublishToWebSocketTopicsWithoutRedis() {
+    contextRunner.withPropertyValues(WebSocketConfig.BROKER_MODE_PROPERTY + "=relay")
+        .run(context -> {
+          assertNull(context.getStartupFailure());
+          assertTrue(context.getBeansOfType(RedisChannelSubscriptionManager.class).isEmpty());
+          assertTrue(getPublisher(context.getBean(MessagePublisher.class))
+              instanceof SimpMessagePublisher);
+        });
+  }
+
+  @Test
+  public void brokerMode_Unknown_ShouldFailStartup() {
+    contextRunner.withPropertyValues(WebSocketConfig.BROKER_MODE_PROPERTY + "=Relay")
+        .run(context -> {
+          assertNotNull(context.getStartupFailure());
+        });
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void checkBrokerMode_Unknown_ShouldThrowException() {
+    WebSocketConfig.checkBrokerMode("rabbitmq");
+  }
+
+  @Test
+  public void checkBrokerMode_SimpleOrRelay_ShouldNotThrowException() {
+    WebSocketConfig.checkBrokerMode(WebSocketConfig.BROKER_MODE_SIMPLE);
+    WebSocketConfig.checkBrokerMode(WebSocketConfig.BROKER_MODE_RELAY);
+  }
+
+  private Object getPublisher(MessagePublisher publisher) {
+    assertTrue(publisher instanceof CoalescingMessagePublisher);
+    return ReflectionTestUtils.getField(publisher, "publisher");
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2008-2019 Regents of the University of California (Regents).
+ * Created by WISE, Graduate School of Education, University of California, Berkeley.
+ *
+ * This software is distributed under the GNU General Public License, v3,
+ * or (at your option) any later version.
+ *
+ * Permission is hereby granted, without written agreement and without license
+ * or royalty fees, to use, copy, modify, and distribute this software and its
+ * documentation for any purpose, provided that the above copyright notice and
+ * the following two paragraphs appear in all copies of this software.
+ *
+ * REGENTS SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE. THE SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY, PROVIDED
+ * HEREUNDER IS PROVIDED "AS IS". REGENTS HAS NO OBLIGATION TO PROVIDE
+ * MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ * IN NO EVENT SHALL REGENTS BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT,
+ * SPECIAL, INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS,
+ * ARISING OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF
+ * REGENTS HAS BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.wise.vle.web;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.wise.portal.service.asset.AssetUsageService;
+
+public class AssetManagerTest {
+
+  private static final String DIR_NAME = "1/2/unreferenced";
+
+  private static final long MAX_TOTAL_ASSETS_SIZE = 1000;
+
+  private AssetUsageService assetUsageService;
+
+  private Path baseFolder;
+
+  private File assetsFolder;
+
+  @Before
+  public void setUp() throws IOException {
+    baseFolder = Files.createTempDirectory("assetManager");
+    assetsFolder = baseFolder.resolve(DIR_NAME).toFile();
+    assetUsageService = createMock(AssetUsageService.class);
+    AssetManager assetManager = new AssetManager();
+    assetManager.setAppProperties(new Properties());
+    assetManager.setAssetUsageService(assetUsageService);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(baseFolder.toFile());
+  }
+
+  @Test
+  public void uploadAssetWISE5_WithinQuota_ShouldMoveUploadIntoFolder() throws IOException {
+    byte[] content = new byte[] { 1, 2, 3 };
+    expect(assetUsageService.reserveBytes(eq(assetsFolder), eq(3L), eq(MAX_TOTAL_ASSETS_SIZE)))
+        .andReturn(true);
+    replay(assetUsageService);
+    assertTrue(upload(new MockMultipartFile("file", "sun.png", "image/png", content)));
+    assertArrayEquals(content, Files.readAllBytes(assetsFolder.toPath().resolve("sun.png")));
+    assertEquals(1, assetsFolder.getParentFile().list().length);
+    verify(assetUsageService);
+  }
+
+  @Test
+  public void uploadAssetWISE5_ExceedsQuota_ShouldNotWriteAsset() {
+    expect(assetUsageService.reserveBytes(eq(assetsFolder), eq(3L), eq(MAX_TOTAL_ASSETS_SIZE)))
+        .andReturn(false);
+    replay(assetUsageService);
+    assertFalse(upload(new MockMultipartFile("file", "sun.png", "image/png",
+        new byte[] { 1, 2, 3 })));
+    assertFalse(new File(assetsFolder, "sun.png").exists());
+    verify(assetUsageService);
+  }
+
+  @Test
+  public void uploadAssetWISE5_ZipExceedsQuota_ShouldNotExtractEntries() throws IOException {
+    byte[] zip = createZip("big.txt", new byte[2000]);
+    expect(assetUsageService.reserveBytes(eq(assetsFolder), eq((long) zip.length),
+        eq(MAX_TOTAL_ASSETS_SIZE))).andReturn(true);
+    expect(assetUsageService.reserveBytes(eq(assetsFolder), eq(1048576L),
+        eq(MAX_TOTAL_ASSETS_SIZE))).andReturn(false);
+    expect(assetUsageService.reserveBytes(eq(assetsFolder), anyLong(),
+        eq(MAX_TOTAL_ASSETS_SIZE))).andReturn(false);
+    assetUsageService.addUsedBytes(assetsFolder, 0);
+    expectLastCall();
+    replay(assetUsageService);
+    assertFalse(upload(new MockMultipartFile("file", "big.zip", "application/zip", zip)));
+    assertFalse(new File(assetsFolder, "big.txt").exists());
+    assertEquals(1, assetsFolder.getParentFile().list().length);
+    verify(assetUsageService);
+  }
+
+  @Test
+  public void uploadAssetWISE5_ZipEntryOutsideFolder_ShouldNotExtractEntry() throws IOException {
+    byte[] zip = createZip("../../escaped.txt", new byte[] { 1 });
+    expect(assetUsageService.reserveBytes(eq(assetsFolder), eq((long) zip.length),
+        eq(MAX_TOTAL_ASSETS_SIZE))).andReturn(true);
+    assetUsageService.addUsedBytes(assetsFolder, 0);
+    expectLastCall();
+    replay(assetUsageService);
+    assertFalse(upload(new MockMultipartFile("file", "escape.zip", "application/zip", zip)));
+    assertFalse(baseFolder.resolve("1/escaped.txt").toFile().exists());
+    verify(assetUsageService);
+  }
+
+  private boolean upload(MockMultipartFile file) {
+    return AssetManager.uploadAssetWISE5(file, baseFolder.toString(), DIR_NAME,
+        assetsFolder.getPath(), MAX_TOTAL_ASSETS_SIZE);
+  }
+
+  private byte[] createZip(String entryName, byte[] content) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+      zip.putNextEntry(new ZipEntry(entryName));
+      zip.write(content);
+      zip.closeEntry();
+    }
+    return bytes.toByteArray();
+  }
+}